@@ -0,0 +1,135 @@
+package run.var.teamcity.cloud.docker;
+
+import run.var.teamcity.cloud.docker.client.DockerClientConfig;
+import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
+import run.var.teamcity.cloud.docker.util.TokenBucket;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of the rate limiters for container creations. A single rate limiter is shared by all the cloud clients
+ * targeting the same Docker daemon with a limited creation rate.
+ *
+ * <p>Each client registers its own limit with {@link #forDaemon(DockerClientConfig)}, and must release it with
+ * {@link #release(DockerClientConfig)} once disposed. The shared rate limiter always enforces the strictest limits
+ * registered for the daemon: the lowest creation rate and the lowest burst, which may come from different clients.
+ * The limits are relaxed again when the clients having registered the strictest ones are released, and the rate
+ * limiter is discarded when its last client is released.</p>
+ */
+final class ContainerCreationRateLimiters {
+
+    private final static Map<URI, DaemonLimiter> LIMITERS = new HashMap<>();
+
+    private ContainerCreationRateLimiters() {
+        // Not instantiable.
+    }
+
+    /**
+     * Registers the container creation limit of the given configuration, and gets the rate limiter for the targeted
+     * Docker daemon. If the rate limiter for this daemon already exists, it will be reconfigured with the strictest
+     * registered limits.
+     *
+     * @param dockerClientConfig the Docker client configuration
+     *
+     * @return the rate limiter or {@code null} if the container creation rate is not limited
+     *
+     * @throws NullPointerException if {@code dockerClientConfig} is {@code null}
+     */
+    @Nullable
+    static synchronized TokenBucket forDaemon(@Nonnull DockerClientConfig dockerClientConfig) {
+        DockerCloudUtils.requireNonNull(dockerClientConfig, "Docker client configuration cannot be null.");
+
+        URI instanceURI = dockerClientConfig.getInstanceURI();
+        double rate = dockerClientConfig.getContainerCreationRate();
+        int burst = dockerClientConfig.getContainerCreationBurst();
+
+        if (rate == 0) {
+            return null;
+        }
+
+        DaemonLimiter limiter = LIMITERS.get(instanceURI);
+        if (limiter == null) {
+            limiter = new DaemonLimiter(new TokenBucket(rate, burst));
+            LIMITERS.put(instanceURI, limiter);
+        }
+        limiter.limits.add(new Limit(rate, burst));
+        limiter.configure();
+
+        return limiter.bucket;
+    }
+
+    /**
+     * Releases the container creation limit registered for the given configuration. Does nothing if the container
+     * creation rate is not limited, or if no such limit is registered.
+     *
+     * @param dockerClientConfig the Docker client configuration
+     *
+     * @throws NullPointerException if {@code dockerClientConfig} is {@code null}
+     */
+    static synchronized void release(@Nonnull DockerClientConfig dockerClientConfig) {
+        DockerCloudUtils.requireNonNull(dockerClientConfig, "Docker client configuration cannot be null.");
+
+        URI instanceURI = dockerClientConfig.getInstanceURI();
+        DaemonLimiter limiter = LIMITERS.get(instanceURI);
+        if (limiter == null) {
+            return;
+        }
+
+        double rate = dockerClientConfig.getContainerCreationRate();
+        int burst = dockerClientConfig.getContainerCreationBurst();
+
+        // Registrations with the same limits are interchangeable, removing any of them is enough.
+        Iterator<Limit> itr = limiter.limits.iterator();
+        while (itr.hasNext()) {
+            Limit limit = itr.next();
+            if (limit.rate == rate && limit.burst == burst) {
+                itr.remove();
+                break;
+            }
+        }
+
+        if (limiter.limits.isEmpty()) {
+            LIMITERS.remove(instanceURI);
+        } else {
+            limiter.configure();
+        }
+    }
+
+    private static class Limit {
+        final double rate;
+        final int burst;
+
+        Limit(double rate, int burst) {
+            this.rate = rate;
+            this.burst = burst;
+        }
+    }
+
+    private static class DaemonLimiter {
+        final TokenBucket bucket;
+        final List<Limit> limits = new ArrayList<>();
+
+        DaemonLimiter(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+
+        void configure() {
+            assert !limits.isEmpty();
+
+            double rate = Double.MAX_VALUE;
+            int burst = Integer.MAX_VALUE;
+            for (Limit limit : limits) {
+                rate = Math.min(rate, limit.rate);
+                burst = Math.min(burst, limit.burst);
+            }
+            bucket.configure(rate, burst);
+        }
+    }
+}
@@ -4,16 +4,24 @@ import com.intellij.openapi.diagnostic.Logger;
 import jetbrains.buildServer.clouds.*;
 import jetbrains.buildServer.serverSide.*;
 import run.var.teamcity.cloud.docker.client.*;
+import run.var.teamcity.cloud.docker.util.ContainerSpecTemplate;
 import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
-import run.var.teamcity.cloud.docker.util.EditableNode;
 import run.var.teamcity.cloud.docker.util.Node;
 import run.var.teamcity.cloud.docker.util.NodeStream;
+import run.var.teamcity.cloud.docker.util.TokenBucket;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.IOException;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -44,9 +52,10 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
     private boolean dockerSyncScheduled = false;
 
     /**
-     * Holds the error status for this instance.
+     * Holds the error status for this instance. Written while holding the lock, but volatile to be readable without
+     * it.
      */
-    private CloudErrorInfo errorInfo;
+    private volatile CloudErrorInfo errorInfo;
 
     /**
      * Cloud state handler. Used to report cloud instance related events.
@@ -58,6 +67,16 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
      */
     private long lastDockerSyncTimeMillis = -1;
 
+    /**
+     * Snapshots of the containers found during the last sync with Docker, indexed by container ID.
+     */
+    private Map<String, DockerContainerSnapshot> containerSnapshots = Collections.emptyMap();
+
+    /**
+     * Interval between two synchronizations with Docker.
+     */
+    private final DockerSyncInterval syncInterval;
+
     private enum State {
         /**
          * Client instance created.
@@ -74,14 +93,25 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
     }
 
     /**
-     * Client state.
+     * Client state. Written while holding the lock, but volatile to be readable without it.
      */
-    private State state = State.CREATED;
+    private volatile State state = State.CREATED;
 
     /**
-     * Map of cloud images indexed with their UUID.
+     * Map of cloud images indexed with their UUID. This map is immutable once the client is created, and can
+     * therefore be read without locking.
      */
-    private final Map<UUID, DockerImage> images = new HashMap<>();
+    private final Map<UUID, DockerImage> images;
+
+    /**
+     * Map of cloud images indexed with their string ID, for lock-free lookups from the server.
+     */
+    private final Map<String, DockerImage> imagesById;
+
+    /**
+     * Index of the instances of all images, for lock-free lookups by instance UUID or by agent.
+     */
+    private final DockerInstanceIndex instanceIndex = new DockerInstanceIndex();
 
     private final SBuildServer buildServer;
     private final BuildAgentManager agentMgr;
@@ -89,6 +119,13 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
     private final DockerClientFactory dockerClientFactory;
     private final DockerClientConfig dockerClientConfig;
 
+    /**
+     * Rate limiter for the container creations, shared with all the clients targeting the same daemon, and enforcing
+     * the strictest of their limits. Released when the client is disposed. May be {@code null} if the creation rate
+     * is not limited.
+     */
+    private final TokenBucket containerCreationRateLimiter;
+
     /**
      * The Docker client.
      */
@@ -97,9 +134,88 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
     private final URL serverURL;
     private final DockerImageNameResolver resolver;
 
+    // Server address provided with the latest start request, used for the warm containers.
+    private volatile String lastServerAddress;
+
+    /**
+     * Watcher of the Docker container events, used to detect containers failures without waiting for the next sync.
+     */
+    private final DockerEventsWatcher eventsWatcher;
+
+    /**
+     * Image pulls currently in progress, indexed by resolved image name. Concurrent starts of the same image share a
+     * single pull.
+     */
+    private final ConcurrentHashMap<String, FutureTask<String>> inFlightPulls = new ConcurrentHashMap<>();
+
+    // Precompiled container specification of each image, created on the first container creation.
+    private final ConcurrentHashMap<UUID, ContainerSpecTemplate> containerSpecTemplates = new ConcurrentHashMap<>();
+
+    /**
+     * Recently pulled images, that do not need to be pulled again.
+     */
+    private final DockerImageFreshnessCache imageFreshnessCache;
+
+    /**
+     * Maximum delay in seconds during which a container start may wait for the daemon, or -1 if none.
+     */
+    private final int instanceStartDeadlineSec;
+
+    /**
+     * Janitor removing the orphaned containers in the background, such that the sync does not have to wait for them.
+     */
+    private final DockerOrphanJanitor orphanJanitor;
+
+    /**
+     * Background puller of the images. May be {@code null} if the images are only pulled when starting instances.
+     */
+    private final DockerImagePrePuller imagePrePuller;
+
+    /**
+     * Durable store of the instances state. May be {@code null} if the state is not persisted.
+     */
+    private final DockerInstanceStore instanceStore;
+
+    /**
+     * Instances persisted by a previous client that may be re-adopted, indexed by instance UUID. Only the first
+     * successful sync will attempt to adopt them, this map is cleared afterward. Immutable, replaced as a whole.
+     */
+    private volatile Map<UUID, DockerInstanceStore.InstanceRecord> pendingAdoptions;
+
+    /**
+     * Indicates that the instances state changed since it was last persisted.
+     */
+    private final AtomicBoolean instanceStateDirty = new AtomicBoolean();
+
+    /**
+     * Lock serializing the writes of the instances state. Never held while waiting for another lock.
+     */
+    private final ReentrantLock instanceStoreLock = new ReentrantLock();
+
+    /**
+     * Index of the agents belonging to this client.
+     */
+    private final DockerAgentIndex agentIndex;
+
+    /**
+     * Indicates if the agent index was seeded with the agents unregistered before the creation of this client.
+     */
+    private volatile boolean agentIndexSeeded = false;
+
     private final BuildServerListener serverListener = new BuildServerAdapter() {
+        @Override
+        public void agentUnregistered(@Nonnull SBuildAgent agent) {
+            agentIndex.agentUnregistered(agent);
+        }
+
+        @Override
+        public void agentRemoved(@Nonnull SBuildAgent agent) {
+            agentIndex.agentRemoved(agent);
+        }
+
         @Override
         public void agentRegistered(@Nonnull SBuildAgent agent, long currentlyRunningBuildId) {
+            agentIndex.agentRegistered(agent);
             if (agent instanceof BuildAgentInit) {
                 DockerInstance instance = findInstanceByAgent(agent);
                 if (instance != null) {
@@ -118,9 +234,22 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
     DefaultDockerCloudClient(@Nonnull DockerCloudClientConfig clientConfig,
                              @Nonnull final DockerClientFactory dockerClientFactory,
                              @Nonnull final List<DockerImageConfig> imageConfigs,
+                             int daemonParallelism,
                              @Nonnull final DockerImageNameResolver resolver,
                              @Nonnull CloudState cloudState,
                              @Nonnull final SBuildServer buildServer) {
+        this(clientConfig, dockerClientFactory, imageConfigs, daemonParallelism, resolver, cloudState, buildServer,
+                null);
+    }
+
+    DefaultDockerCloudClient(@Nonnull DockerCloudClientConfig clientConfig,
+                             @Nonnull final DockerClientFactory dockerClientFactory,
+                             @Nonnull final List<DockerImageConfig> imageConfigs,
+                             int daemonParallelism,
+                             @Nonnull final DockerImageNameResolver resolver,
+                             @Nonnull CloudState cloudState,
+                             @Nonnull final SBuildServer buildServer,
+                             @Nullable DockerInstanceStore instanceStore) {
         DockerCloudUtils.requireNonNull(clientConfig, "Docker client configuration cannot be null.");
         DockerCloudUtils.requireNonNull(imageConfigs, "List of images cannot be null.");
         DockerCloudUtils.requireNonNull(resolver, "Image name resolver cannot be null.");
@@ -130,26 +259,105 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
         if (imageConfigs.isEmpty()) {
             throw new IllegalArgumentException("At least one image must be provided.");
         }
+        if (daemonParallelism < 1) {
+            throw new IllegalArgumentException("Daemon parallelism must be strictly positive: " + daemonParallelism);
+        }
         this.uuid = clientConfig.getUuid();
+        this.agentIndex = new DockerAgentIndex(uuid);
         this.resolver = resolver;
         this.cloudState = cloudState;
         this.agentMgr = buildServer.getBuildAgentManager();
         this.serverURL = clientConfig.getServerURL();
         this.buildServer = buildServer;
-
-        taskScheduler = new DockerTaskScheduler(clientConfig.getDockerClientConfig().getConnectionPoolSize(),
+        this.instanceStore = instanceStore;
+        this.imageFreshnessCache = new DockerImageFreshnessCache(
+                TimeUnit.SECONDS.toMillis(clientConfig.getImageFreshnessTtlSec()));
+        this.instanceStartDeadlineSec = clientConfig.getInstanceStartDeadlineSec();
+
+        // The connection pool is shared between the instance tasks, the image pulls, the client tasks, the event
+        // stream, each orphan janitor thread, and each image pre-puller thread when enabled.
+        int imagePullPoolSize = clientConfig.getImagePullPoolSize();
+        int prePullIntervalSec = clientConfig.getImagePrePullIntervalSec();
+        clientConfig.getDockerClientConfig().connectionPoolSize(daemonParallelism + imagePullPoolSize + 2 +
+                DockerOrphanJanitor.PARALLELISM + (prePullIntervalSec != -1 ? DockerImagePrePuller.PARALLELISM : 0));
+        DockerTaskExecutorBackend executorBackend = DockerTaskExecutorBackend.forCurrentJvm();
+        taskScheduler = new DockerTaskScheduler(executorBackend, daemonParallelism, imagePullPoolSize,
                 clientConfig.isUsingDaemonThreads());
+        orphanJanitor = new DockerOrphanJanitor(new DockerOrphanJanitor.ContainerRemover() {
+            @Override
+            public void removeContainer(@Nonnull String containerId) {
+                try {
+                    terminateContainer(containerId, true);
+                } catch (NotFoundException e) {
+                    LOG.debug("Orphaned container " + containerId + " already removed.");
+                }
+            }
+        }, executorBackend, clientConfig.isUsingDaemonThreads());
+        if (prePullIntervalSec != -1) {
+            imagePrePuller = new DockerImagePrePuller(new DockerImagePrePuller.ImagePuller() {
+                @Override
+                public void pullImage(@Nonnull DockerImage image) {
+                    prePullImage(image);
+                }
+            }, executorBackend, clientConfig.isUsingDaemonThreads(), TimeUnit.SECONDS.toMillis(prePullIntervalSec));
+        } else {
+            imagePrePuller = null;
+        }
 
+        DockerInstanceStore.State persistedState = instanceStore != null ? instanceStore.load() : null;
+        List<DockerInstanceStore.ImageRecord> persistedImages = persistedState != null ?
+                new ArrayList<>(persistedState.getImages()) : new ArrayList<DockerInstanceStore.ImageRecord>();
+
+        Map<UUID, DockerImage> images = new LinkedHashMap<>();
+        Map<String, DockerImage> imagesById = new HashMap<>();
         for (DockerImageConfig imageConfig : imageConfigs) {
-            DockerImage image = new DockerImage(DefaultDockerCloudClient.this, imageConfig);
+            // Images whose configuration did not change keep their persisted UUID, such that their containers and
+            // agents can be matched again.
+            UUID imageUuid = null;
+            Iterator<DockerInstanceStore.ImageRecord> itr = persistedImages.iterator();
+            while (itr.hasNext()) {
+                DockerInstanceStore.ImageRecord record = itr.next();
+                if (record.getProfileName().equals(imageConfig.getProfileName()) &&
+                        record.getContainerSpec().equals(imageConfig.getContainerSpec().toString())) {
+                    imageUuid = record.getUuid();
+                    itr.remove();
+                    break;
+                }
+            }
+            DockerImage image = new DockerImage(DefaultDockerCloudClient.this, imageConfig, instanceIndex,
+                    imageUuid != null ? imageUuid : UUID.randomUUID());
             images.put(image.getUuid(), image);
+            imagesById.put(image.getId(), image);
         }
+        this.images = Collections.unmodifiableMap(images);
+        this.imagesById = Collections.unmodifiableMap(imagesById);
         LOG.info(images.size() + " image definitions loaded: " + images);
 
+        Map<UUID, DockerInstanceStore.InstanceRecord> pendingAdoptions = new HashMap<>();
+        if (persistedState != null) {
+            for (DockerInstanceStore.InstanceRecord record : persistedState.getInstances()) {
+                if (images.containsKey(record.getImageUuid())) {
+                    pendingAdoptions.put(record.getUuid(), record);
+                }
+            }
+            LOG.info(pendingAdoptions.size() + " persisted instance(s) may be re-adopted.");
+        }
+        this.pendingAdoptions = Collections.unmodifiableMap(pendingAdoptions);
+
         this.dockerClientFactory = dockerClientFactory;
         this.dockerClientConfig = clientConfig.getDockerClientConfig();
+        this.containerCreationRateLimiter = ContainerCreationRateLimiters.forDaemon(dockerClientConfig);
+
+        long syncRateMillis = TimeUnit.SECONDS.toMillis(clientConfig.getDockerSyncRateSec());
+        int maxSyncRateSec = clientConfig.getMaxDockerSyncRateSec();
+        syncInterval = maxSyncRateSec == -1 ? DockerSyncInterval.fixed(syncRateMillis) :
+                DockerSyncInterval.adaptive(syncRateMillis, TimeUnit.SECONDS.toMillis(maxSyncRateSec));
 
-        taskScheduler.scheduleClientTask(new SyncWithDockerTask(clientConfig.getDockerSyncRateSec(), TimeUnit.SECONDS));
+        eventsWatcher = new DockerEventsWatcher("Docker events watcher " + uuid, clientConfig.isUsingDaemonThreads(),
+                DockerCloudUtils.CLIENT_ID_LABEL, uuid.toString(), new ContainerEventsListener());
+
+        taskScheduler.scheduleClientTask(new SyncWithDockerTask(
+                syncInterval.getWakeUpDelayMillis(syncInterval.getIntervalMillis())));
 
         buildServer.addListener(serverListener);
 
@@ -172,63 +380,32 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
         // Nothing to do.
     }
 
+    // Note: the read methods below are invoked from the server threads, and must not wait for the client lock that
+    // may be held by the sync. They rely instead on volatile fields and on the immutable snapshots published by the
+    // images.
+
     @Override
     public boolean isInitialized() {
-        lock.lock();
-        try {
-            return state != State.CREATED;
-        } finally {
-            lock.unlock();
-        }
+        return state != State.CREATED;
     }
 
     @Nullable
     @Override
     public DockerImage findImageById(@Nonnull String id) throws CloudException {
-        lock.lock();
-        try {
-            for (DockerImage img : images.values()) {
-                if (img.getId().equals(id)) {
-                    return img;
-                }
-            }
-        } finally {
-            lock.unlock();
-        }
-        return null;
+        return imagesById.get(id);
     }
 
 
     @Nullable
     @Override
     public DockerInstance findInstanceByAgent(@Nonnull AgentDescription agent) {
-        UUID instanceId = DockerCloudUtils.getInstanceId(agent);
-
-        if (instanceId != null) {
-            UUID imageId = DockerCloudUtils.getImageId(agent);
-            lock.lock();
-            try {
-                DockerImage image = imageId != null ? images.get(imageId) : null;
-                if (image != null) {
-                    return image.findInstanceById(instanceId);
-                }
-            } finally {
-                lock.unlock();
-            }
-        }
-
-        return null;
+        return instanceIndex.findInstanceByAgent(agent);
     }
 
     @Nonnull
     @Override
     public Collection<DockerImage> getImages() throws CloudException {
-        lock.lock();
-        try {
-            return images.values();
-        } finally {
-            lock.unlock();
-        }
+        return images.values();
     }
 
     @Nullable
@@ -239,17 +416,16 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
 
     @Override
     public boolean canStartNewInstance(@Nonnull CloudImage image) {
-        lock.lock();
-        try {
-            if (errorInfo != null) {
-                LOG.debug("Cloud client in error state, cannot start new instance.");
-                // The cloud client is currently in an error status. Wait for it to be cleared.
-                return false;
-            }
-            return dockerClient != null && state == State.READY && ((DockerImage) image).canStartNewInstance();
-        } finally {
-            lock.unlock();
+        return canStartNewInstances() && ((DockerImage) image).canStartNewInstance();
+    }
+
+    private boolean canStartNewInstances() {
+        if (errorInfo != null) {
+            LOG.debug("Cloud client in error state, cannot start new instance.");
+            // The cloud client is currently in an error status. Wait for it to be cleared.
+            return false;
         }
+        return dockerClient != null && state == State.READY;
     }
 
     @Nullable
@@ -267,44 +443,123 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
     @Override
     public DockerInstance startNewInstance(@Nonnull final CloudImage image, @Nonnull final CloudInstanceUserData tag) throws
             QuotaException {
+        return startNewInstances(image, tag, 1).get(0);
+    }
 
-        LOG.info("Creating new instance from image: " + image);
+    /**
+     * Starts several new instances of the given image at once. The instances are reserved in a single pass, stopped
+     * instances being reused first, and as long as the maximum instance count of the image allows it. Less
+     * instances than requested may therefore be started.
+     *
+     * <p>The containers creation and start of the reserved instances are performed asynchronously, with at most
+     * as many concurrent operations against the Docker daemon as configured with
+     * {@link DockerCloudClientConfig#getDaemonParallelism()}. A large batch will consequently be processed in
+     * successive waves.</p>
+     *
+     * @param image the cloud image
+     * @param tag   the instances user data
+     * @param count the number of instances to be started
+     *
+     * @return the list of started instances, never empty
+     *
+     * @throws NullPointerException     if {@code image} or {@code tag} is {@code null}
+     * @throws IllegalArgumentException if {@code count} is smaller than 1
+     * @throws QuotaException           if no new instance can be started
+     */
+    @Nonnull
+    public List<DockerInstance> startNewInstances(@Nonnull final CloudImage image,
+                                                  @Nonnull final CloudInstanceUserData tag, int count)
+            throws QuotaException {
+        DockerCloudUtils.requireNonNull(image, "Cloud image cannot be null.");
+        DockerCloudUtils.requireNonNull(tag, "Instance user data cannot be null.");
+        if (count < 1) {
+            throw new IllegalArgumentException("Instance count must be at least 1: " + count);
+        }
+
+        LOG.info("Creating " + count + " new instance(s) from image: " + image);
 
         final DockerImage dockerImage = (DockerImage) image;
 
-        DockerInstance instance = null;
+        List<DockerInstance> instances;
         lock.lock();
         try {
-            if (!canStartNewInstance(image)) {
-                // The Cloud API explicitly gives the possibility to reject a start request if we are not willing to
-                // do so, with a corresponding exception.
-                throw new QuotaException("Cannot start new instance.");
-            }
-
-            for (DockerInstance existingInstance : dockerImage.getInstances()) {
-                if (existingInstance.getStatus() == InstanceStatus.STOPPED) {
-                    instance = existingInstance;
-                    break;
-                }
-            }
-
-            if (instance == null) {
-                instance = dockerImage.createInstance();
-                LOG.info("Created cloud instance " + instance.getUuid() + ".");
-            } else {
-                LOG.info("Reusing cloud instance " + instance.getUuid() + ".");
-            }
+            instances = canStartNewInstances() ? dockerImage.reserveInstances(count) :
+                    Collections.<DockerInstance>emptyList();
         } finally {
             lock.unlock();
         }
 
-        assert instance != null;
+        if (instances.isEmpty()) {
+            // The Cloud API explicitly gives the possibility to reject a start request if we are not willing to
+            // do so, with a corresponding exception.
+            throw new QuotaException("Cannot start new instance.");
+        }
 
         // We always want the server to remove build agents once they are unregistered. Note that it is still possible
         // under some circumstances to have orphaned build agents displayed in the TC UI for some time.
         tag.setAgentRemovePolicy(CloudConstants.AgentRemovePolicyValue.RemoveAgent);
 
-        taskScheduler.scheduleInstanceTask(new DockerInstanceTask("Start of container", instance, InstanceStatus.SCHEDULED_TO_START) {
+        syncInterval.notifyActivity();
+
+        for (DockerInstance instance : instances) {
+            scheduleInstanceStart(dockerImage, instance, tag);
+        }
+
+        // Claimed warm containers are replaced in the background.
+        refillWarmPool(dockerImage);
+
+        return instances;
+    }
+
+    private void scheduleInstanceStart(final DockerImage dockerImage, DockerInstance instance,
+                                       final CloudInstanceUserData tag) {
+        // The image preparation and the container creation are performed as two consecutive tasks, the potentially
+        // long image pull being executed on its own thread pool. The resolved image name is handed over from the
+        // first task to the second one.
+        final AtomicReference<String> resolvedImage = new AtomicReference<>();
+
+        taskScheduler.scheduleInstanceTask(new DockerImagePullTask("Preparation of image", instance,
+                InstanceStatus.SCHEDULED_TO_START) {
+            @Override
+            void callInternal() throws Exception {
+
+                DockerInstance instance = getInstance();
+
+                String containerId;
+
+                try {
+                    lock.lock();
+                    checkReady();
+                    instance.updateStartedTime();
+                    instance.setStatus(InstanceStatus.STARTING);
+                    containerId = instance.getContainerId();
+                } finally {
+                    lock.unlock();
+                }
+
+                if (containerId != null) {
+                    // Container will be reused, nothing to pull.
+                    return;
+                }
+
+                String image = resolver.resolve(dockerImage.getConfig());
+
+                if (image == null) {
+                    throw new CloudException("No valid image name can be resolved for image " +
+                            dockerImage.getUuid());
+                }
+
+                // Makes sure the image name is actual.
+                dockerImage.setImageName(image);
+
+                pullImage(dockerImage, image);
+
+                resolvedImage.set(image);
+            }
+        });
+
+        DockerInstanceTask startTask = new DockerInstanceTask("Start of container", instance, null,
+                DockerInstanceTaskType.START) {
             @Override
             protected void callInternal() throws Exception {
 
@@ -317,44 +572,24 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
                 try {
                     lock.lock();
                     checkReady();
-                    instance.updateStartedTime();
-                    instance.setStatus(InstanceStatus.STARTING);
                     containerId = instance.getContainerId();
                 } finally {
                     lock.unlock();
                 }
 
                 if (containerId == null) {
-                    String image = resolver.resolve(dockerImage.getConfig());
+                    String image = resolvedImage.get();
 
                     if (image == null) {
-                        throw new CloudException("No valid image name can be resolved for image " +
-                                dockerImage.getUuid());
+                        // The failure has already been reported by the image preparation task.
+                        LOG.warn("No image prepared for instance " + instance.getUuid() + ", aborting start.");
+                        return;
                     }
 
-                    // Makes sure the image name is actual.
-                    dockerImage.setImageName(image);
-
-                    String serverAddress = serverURL != null ? serverURL.toString() : tag.getServerAddress();
+                    String serverAddress = getServerAddress(tag);
 
                     Node containerSpec = authorContainerSpec(instance, image, serverAddress);
 
-                    try (NodeStream nodeStream = dockerClient.createImage(image, null)) {
-                        Node status;
-                        while ((status = nodeStream.next()) != null) {
-                            String error = status.getAsString("error", null);
-                            if (error != null) {
-                                Node details = status.getObject("errorDetail", Node.EMPTY_OBJECT);
-                                throw new CloudException("Failed to pull image: " + error + " -- " + details
-                                        .getAsString("message", null), null);
-                            }
-                        }
-                    } catch (Exception e) {
-                        // Failure to pull is considered non-critical: if an image of this name exists in the Docker
-                        // daemon local repository but is potentially outdated we will use it anyway.
-                        LOG.warn("Failed to pull image " + image + " for instance " + instance.getUuid() +
-                                ", proceeding anyway.", e);
-                    }
                     Node createNode = dockerClient.createContainer(containerSpec, null);
                     containerId = createNode.getAsString("Id");
                     LOG.info("New container " + containerId + " created.");
@@ -362,8 +597,15 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
                     LOG.info("Reusing existing container: " + containerId);
                 }
 
-                dockerClient.startContainer(containerId);
-                LOG.info("Container " + containerId + " started.");
+                if (instance.isContainerPaused()) {
+                    // The agent is already booted, resuming the container is enough.
+                    dockerClient.unpauseContainer(containerId);
+                    instance.setContainerPaused(false);
+                    LOG.info("Container " + containerId + " resumed.");
+                } else {
+                    dockerClient.startContainer(containerId);
+                    LOG.info("Container " + containerId + " started.");
+                }
 
                 scheduleDockerSync();
 
@@ -375,10 +617,233 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
                     lock.unlock();
                 }
 
+                saveInstanceState();
+
                 cloudState.registerRunningInstance(instance.getImageId(), instance.getInstanceId());
             }
+        };
+
+        if (instance.getContainerId() == null) {
+            // A new container will be created, submit the creation to the admission control of the daemon.
+            startTask.setRateLimiter(containerCreationRateLimiter);
+        }
+
+        if (instanceStartDeadlineSec != -1) {
+            // The start is held back by the image preparation, the deadline only applies to the time spent waiting
+            // for the daemon afterward. An expired start puts the instance in error.
+            startTask.setDeadline(instanceStartDeadlineSec, TimeUnit.SECONDS);
+        }
+
+        taskScheduler.scheduleInstanceTask(startTask);
+    }
+
+    /**
+     * Refills the warm pool of the given image, if configured. The containers are created asynchronously, in the
+     * stopped state, and will be claimed by the next instance starts.
+     *
+     * @param dockerImage the cloud image
+     */
+    private void refillWarmPool(DockerImage dockerImage) {
+        List<DockerInstance> warmInstances;
+        lock.lock();
+        try {
+            if (!canStartNewInstances()) {
+                return;
+            }
+            warmInstances = dockerImage.reserveWarmInstances();
+        } finally {
+            lock.unlock();
+        }
+
+        for (DockerInstance instance : warmInstances) {
+            scheduleWarmContainerCreation(dockerImage, instance);
+        }
+    }
+
+    private void scheduleWarmContainerCreation(final DockerImage dockerImage, DockerInstance instance) {
+        // Same sequence than an instance start, but the container is not started. Failures are not reported on the
+        // instance: the warm instance is simply discarded, and will be replaced on a later refill.
+        final AtomicReference<String> resolvedImage = new AtomicReference<>();
+
+        // Warm containers are a background operation, that must not delay the instance starts and terminations.
+        taskScheduler.scheduleInstanceTask(new DockerImagePullTask("Preparation of image for warm container",
+                instance, null, DockerInstanceTaskType.BACKGROUND) {
+            @Override
+            void callInternal() throws Exception {
+                DockerInstance instance = getInstance();
+                try {
+                    String image = resolver.resolve(dockerImage.getConfig());
+                    if (image == null) {
+                        LOG.warn("No valid image name can be resolved for image " + dockerImage.getUuid() +
+                                ", cannot create warm container.");
+                        return;
+                    }
+                    dockerImage.setImageName(image);
+                    pullImage(dockerImage, image);
+                    resolvedImage.set(image);
+                } catch (Exception e) {
+                    LOG.warn("Failed to prepare image for warm instance " + instance.getUuid() + ".", e);
+                }
+            }
         });
-        return instance;
+
+        DockerInstanceTask createTask = new DockerInstanceTask("Creation of warm container", instance, null,
+                DockerInstanceTaskType.BACKGROUND) {
+            @Override
+            protected void callInternal() throws Exception {
+                DockerInstance instance = getInstance();
+                boolean created = false;
+                try {
+                    String image = resolvedImage.get();
+                    if (image != null) {
+                        lock.lock();
+                        try {
+                            checkReady();
+                        } finally {
+                            lock.unlock();
+                        }
+
+                        String serverAddress = getServerAddress(null);
+
+                        Node createNode = dockerClient.createContainer(authorContainerSpec(instance, image,
+                                serverAddress), null);
+                        String containerId = createNode.getAsString("Id");
+                        LOG.info("New warm container " + containerId + " created for instance " +
+                                instance.getUuid() + ".");
+
+                        lock.lock();
+                        try {
+                            instance.setContainerId(containerId);
+                            instance.setStatus(InstanceStatus.STOPPED);
+                        } finally {
+                            lock.unlock();
+                        }
+                        created = true;
+
+                        saveInstanceState();
+                    }
+                } catch (Exception e) {
+                    LOG.warn("Failed to create warm container for instance " + instance.getUuid() + ".", e);
+                } finally {
+                    if (!created) {
+                        dockerImage.clearInstanceId(instance.getUuid());
+                    }
+                    dockerImage.warmInstanceCompleted(created);
+                }
+            }
+        };
+
+        createTask.setRateLimiter(containerCreationRateLimiter);
+
+        taskScheduler.scheduleInstanceTask(createTask);
+    }
+
+    /**
+     * Pulls an image in the background, ahead of the instance starts.
+     *
+     * @param dockerImage the cloud image
+     */
+    private void prePullImage(DockerImage dockerImage) {
+        if (state != State.READY) {
+            return;
+        }
+
+        String image = resolver.resolve(dockerImage.getConfig());
+
+        if (image == null) {
+            dockerImage.recordPullFailure("No valid image name can be resolved.");
+            LOG.warn("No valid image name can be resolved for image " + dockerImage.getUuid() + ", skipping pull.");
+            return;
+        }
+
+        dockerImage.setImageName(image);
+
+        LOG.debug("Background pull of image " + image + ".");
+
+        pullImage(dockerImage, image);
+    }
+
+    private void pullImage(DockerImage dockerImage, final String image) {
+        // Only one pull is performed at a time for a given image name, concurrent starts wait for its outcome.
+        FutureTask<String> pull = new FutureTask<>(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return performPull(image);
+            }
+        });
+        FutureTask<String> inFlightPull = inFlightPulls.putIfAbsent(image, pull);
+        if (inFlightPull == null) {
+            try {
+                pull.run();
+            } finally {
+                inFlightPulls.remove(image, pull);
+            }
+        } else {
+            LOG.debug("Pull of image " + image + " already in progress, waiting for it to complete.");
+            pull = inFlightPull;
+        }
+
+        try {
+            dockerImage.recordPullSuccess(image, pull.get());
+        } catch (ExecutionException e) {
+            // Failure to pull is considered non-critical: if an image of this name exists in the Docker
+            // daemon local repository but is potentially outdated we will use it anyway.
+            Throwable cause = e.getCause();
+            dockerImage.recordPullFailure(String.valueOf(cause.getMessage()));
+            LOG.warn("Failed to pull image " + image + " for image " + dockerImage.getUuid() +
+                    ", proceeding anyway.", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CloudException("Interrupted while waiting for the pull of image " + image + ".", e);
+        }
+    }
+
+    /**
+     * Pulls an image from its registry.
+     *
+     * @param image the image name
+     *
+     * @return the resulting local image ID if known, {@code null} otherwise
+     */
+    @Nullable
+    private String performPull(String image) {
+        if (imageFreshnessCache.isEnabled()) {
+            String localImageId = getLocalImageId(image);
+            if (localImageId != null && imageFreshnessCache.isFresh(image, localImageId)) {
+                LOG.debug("Image " + image + " was pulled recently and did not change, skipping pull.");
+                return localImageId;
+            }
+        }
+
+        try (NodeStream nodeStream = dockerClient.createImage(image, null)) {
+            Node status;
+            while ((status = nodeStream.next()) != null) {
+                String error = status.getAsString("error", null);
+                if (error != null) {
+                    Node details = status.getObject("errorDetail", Node.EMPTY_OBJECT);
+                    throw new CloudException("Failed to pull image: " + error + " -- " + details
+                            .getAsString("message", null), null);
+                }
+            }
+        } catch (IOException e) {
+            throw new CloudException("Failed to read pull status of image " + image + ".", e);
+        }
+
+        String localImageId = null;
+        if (imageFreshnessCache.isEnabled()) {
+            localImageId = getLocalImageId(image);
+            imageFreshnessCache.recordPull(image, localImageId);
+        }
+        return localImageId;
+    }
+
+    @Nullable
+    private String getLocalImageId(String image) {
+        try {
+            return dockerClient.inspectImage(image).getAsString("Id", null);
+        } catch (NotFoundException e) {
+            return null;
+        }
     }
 
     @Override
@@ -387,7 +852,9 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
         // anything more than a combined stop and start. We try to honor it by simply restarting the docker container.
         LOG.info("Restarting container:" + instance);
         final DockerInstance dockerInstance = (DockerInstance) instance;
-        taskScheduler.scheduleInstanceTask(new DockerInstanceTask("Restart of container", dockerInstance, null) {
+        syncInterval.notifyActivity();
+        taskScheduler.scheduleInstanceTask(new DockerInstanceTask("Restart of container", dockerInstance, null,
+                DockerInstanceTaskType.RESTART) {
             @Override
             protected void callInternal() throws Exception {
                 lock.lock();
@@ -439,6 +906,13 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
 
         buildServer.removeListener(serverListener);
 
+        eventsWatcher.stop();
+        orphanJanitor.stop();
+        ContainerCreationRateLimiters.release(dockerClientConfig);
+        if (imagePrePuller != null) {
+            imagePrePuller.stop();
+        }
+
         LOG.info("Starting disposal of client.");
         for (DockerImage image : getImages()) {
             for (DockerInstance instance : image.getInstances()) {
@@ -453,7 +927,9 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
     private void terminateInstance(@Nonnull final CloudInstance instance, final boolean clientDisposed) {
         LOG.info("Scheduling cloud instance termination: " + instance + " (client disposed: " + clientDisposed + ").");
         final DockerInstance dockerInstance = ((DockerInstance) instance);
-        taskScheduler.scheduleInstanceTask(new DockerInstanceTask("Disposal of container", dockerInstance, InstanceStatus.SCHEDULED_TO_STOP) {
+        syncInterval.notifyActivity();
+        taskScheduler.scheduleInstanceTask(new DockerInstanceTask("Disposal of container", dockerInstance,
+                InstanceStatus.SCHEDULED_TO_STOP, DockerInstanceTaskType.TERMINATE) {
             @Override
             protected void callInternal() throws Exception {
                 try {
@@ -466,8 +942,16 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
 
                 boolean containerAvailable = false;
                 if (containerId != null) {
-                    boolean rmContainer = clientDisposed || dockerInstance.getImage().getConfig().isRmOnExit();
-                    containerAvailable = terminateContainer(containerId, rmContainer);
+                    DockerImageConfig config = dockerInstance.getImage().getConfig();
+                    if (!clientDisposed && config.isPauseOnStop() && !dockerInstance.isContainerPaused()) {
+                        containerAvailable = pauseContainer(dockerInstance, containerId);
+                    } else {
+                        if (dockerInstance.isContainerPaused()) {
+                            resumeContainer(dockerInstance, containerId);
+                        }
+                        boolean rmContainer = clientDisposed || config.isRmOnExit();
+                        containerAvailable = terminateContainer(containerId, rmContainer);
+                    }
                 }
 
                 try {
@@ -480,6 +964,8 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
                     lock.unlock();
                 }
 
+                saveInstanceState();
+
                 if (!clientDisposed) {
                     cloudState.registerTerminatedInstance(dockerInstance.getImageId(), dockerInstance.getInstanceId());
                 }
@@ -487,6 +973,32 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
         });
     }
 
+    private boolean pauseContainer(DockerInstance instance, String containerId) {
+        try {
+            dockerClient.pauseContainer(containerId);
+            instance.setContainerPaused(true);
+            LOG.info("Container " + containerId + " paused.");
+            return true;
+        } catch (NotFoundException e) {
+            LOG.warn("Container " + containerId + " was destroyed prematurely.");
+            return false;
+        } catch (InvocationFailedException e) {
+            // Most likely not running anymore, fallback to a regular stop.
+            LOG.warn("Failed to pause container " + containerId + ", stopping it instead.", e);
+            return terminateContainer(containerId, false);
+        }
+    }
+
+    private void resumeContainer(DockerInstance instance, String containerId) {
+        // Paused containers are resumed before being stopped, older daemons refusing to stop them.
+        try {
+            dockerClient.unpauseContainer(containerId);
+        } catch (InvocationFailedException e) {
+            LOG.debug("Failed to resume container " + containerId + ".", e);
+        }
+        instance.setContainerPaused(false);
+    }
+
     private boolean terminateContainer(String containerId, boolean rmContainer) {
         try {
             // We always try to stop the container before destroying it independently of our metadata.
@@ -535,6 +1047,52 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
         }
     }
 
+    /**
+     * Gets the current interval between two synchronizations with the Docker daemon. This interval is constant
+     * unless an adaptive synchronization rate is configured. The interval is displayed in the image details.
+     *
+     * @return the current synchronization interval in milliseconds
+     *
+     * @see DockerCloudClientConfig#getMaxDockerSyncRateSec()
+     */
+    public long getEffectiveDockerSyncIntervalMillis() {
+        return syncInterval.getIntervalMillis();
+    }
+
+    /**
+     * Gets a snapshot of the statistics of the task scheduler of this client, including its queue depths and the
+     * wait and execution times of its tasks. The statistics are displayed in the image details.
+     *
+     * @return the task scheduler statistics
+     */
+    @Nonnull
+    public DockerTaskSchedulerStats getTaskSchedulerStats() {
+        return taskScheduler.getStats();
+    }
+
+    /**
+     * Gets the address of the TeamCity server to which the agents must connect. The server URL configured in the
+     * cloud profile always takes precedence. Otherwise, the address provided by the server with the start request is
+     * used. Warm containers, being created ahead of any start request, use the address provided with the latest one,
+     * or the server root URL if no instance was started yet.
+     *
+     * @param tag the start request user data, {@code null} for warm containers
+     *
+     * @return the server address
+     */
+    private String getServerAddress(@Nullable CloudInstanceUserData tag) {
+        if (serverURL != null) {
+            return serverURL.toString();
+        }
+        if (tag != null) {
+            String serverAddress = tag.getServerAddress();
+            lastServerAddress = serverAddress;
+            return serverAddress;
+        }
+        String serverAddress = lastServerAddress;
+        return serverAddress != null ? serverAddress : buildServer.getRootUrl();
+    }
+
     /**
      * Prepare the JSON structure describing the container to be created. We must extend the user provided
      * configuration with some meta-data allowing to link the Docker container to a specific cloud instance. This is
@@ -548,22 +1106,27 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
      */
     private Node authorContainerSpec(DockerInstance instance, String resolvedImage, String serverUrl) {
         DockerImage image = instance.getImage();
-        DockerImageConfig config = image.getConfig();
-
-        EditableNode container = config.getContainerSpec().editNode();
-        container.getOrCreateArray("Env").
-                add(DockerCloudUtils.ENV_SERVER_URL + "=" + serverUrl).
-                add(DockerCloudUtils.ENV_CLIENT_ID + "=" + uuid).
-                add(DockerCloudUtils.ENV_IMAGE_ID + "=" + image.getUuid()).
-                add(DockerCloudUtils.ENV_INSTANCE_ID + "=" + instance.getUuid());
-
-        container.getOrCreateObject("Labels").
-                put(DockerCloudUtils.CLIENT_ID_LABEL, uuid.toString()).
-                put(DockerCloudUtils.INSTANCE_ID_LABEL, instance.getUuid().toString());
 
-        container.put("Image", resolvedImage);
+        return getContainerSpecTemplate(image).instantiate(resolvedImage,
+                Arrays.asList(DockerCloudUtils.ENV_SERVER_URL + "=" + serverUrl,
+                        DockerCloudUtils.ENV_INSTANCE_ID + "=" + instance.getUuid()),
+                Collections.singletonMap(DockerCloudUtils.INSTANCE_ID_LABEL, instance.getUuid().toString()));
+    }
 
-        return container.saveNode();
+    private ContainerSpecTemplate getContainerSpecTemplate(DockerImage image) {
+        ContainerSpecTemplate template = containerSpecTemplates.get(image.getUuid());
+        if (template == null) {
+            // Concurrent compilations of the same image are harmless, they produce equivalent templates.
+            template = new ContainerSpecTemplate(image.getConfig().getContainerSpec(),
+                    Arrays.asList(DockerCloudUtils.ENV_CLIENT_ID + "=" + uuid,
+                            DockerCloudUtils.ENV_IMAGE_ID + "=" + image.getUuid()),
+                    Collections.singletonMap(DockerCloudUtils.CLIENT_ID_LABEL, uuid.toString()));
+            ContainerSpecTemplate existing = containerSpecTemplates.putIfAbsent(image.getUuid(), template);
+            if (existing != null) {
+                template = existing;
+            }
+        }
+        return template;
     }
 
     @Override
@@ -583,33 +1146,40 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
 
     private class SyncWithDockerTask extends DockerClientTask {
 
-        private long nextDelay;
+        private volatile long nextDelay;
 
         SyncWithDockerTask() {
             super("Synchronization with Docker daemon", DefaultDockerCloudClient.this);
         }
 
-        SyncWithDockerTask(long delaySec, TimeUnit timeUnit) {
-            super("Synchronization with Docker daemon", DefaultDockerCloudClient.this, 0, delaySec, timeUnit);
+        SyncWithDockerTask(long wakeUpDelayMillis) {
+            super("Synchronization with Docker daemon", DefaultDockerCloudClient.this, 0, wakeUpDelayMillis,
+                    TimeUnit.MILLISECONDS);
+            nextDelay = wakeUpDelayMillis;
         }
 
         @Override
         public long getDelay() {
+            // Note: invoked by the scheduler while holding its own lock, the client lock must not be acquired here.
             return nextDelay;
         }
 
         private boolean reschedule() {
 
+            if (!isRepeatable()) {
+                return false;
+            }
+
             lock.lock();
             try {
-                long delay = super.getDelay();
+                long interval = syncInterval.getIntervalMillis();
                 long delaySinceLastExec = System.currentTimeMillis() - lastDockerSyncTimeMillis;
-                long remainingDelay = delay - delaySinceLastExec;
+                long remainingDelay = interval - delaySinceLastExec;
                 if (remainingDelay > 0) {
-                    nextDelay = remainingDelay;
+                    nextDelay = syncInterval.getWakeUpDelayMillis(remainingDelay);
                     return true;
                 } else {
-                    nextDelay = delay;
+                    nextDelay = syncInterval.getWakeUpDelayMillis(interval);
                     return false;
                 }
             } finally {
@@ -624,6 +1194,30 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
                 return;
             }
 
+            try {
+                boolean active = syncWithDocker();
+                syncInterval.update(active);
+            } catch (Exception e) {
+                // Retry quickly when in adaptive mode.
+                syncInterval.notifyActivity();
+                throw e;
+            }
+
+            if (isRepeatable()) {
+                nextDelay = syncInterval.getWakeUpDelayMillis(syncInterval.getIntervalMillis());
+            }
+        }
+
+        /**
+         * Performs the synchronization.
+         *
+         * @return {@code true} if some activity was detected (instances changing state, errors, orphaned containers,
+         * ...) and the next synchronization should be performed soon
+         *
+         * @throws Exception if the synchronization failed
+         */
+        private boolean syncWithDocker() throws Exception {
+
             LOG.debug("Synching with Docker instance now.");
 
             // Creates the Docker client upon first sync. We do this here to benefit from the retry mechanism if
@@ -631,12 +1225,25 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
             if (dockerClient == null) {
                 dockerClient = dockerClientFactory.createClientWithAPINegotiation(dockerClientConfig);
                 LOG.info("Docker client instantiated.");
+                eventsWatcher.start(dockerClient);
+                if (imagePrePuller != null) {
+                    imagePrePuller.start(images.values());
+                }
             }
 
-            // Step 1, query the whole list of containers associated with this cloud client.
-            Node containers = dockerClient.listContainersWithLabel(DockerCloudUtils.CLIENT_ID_LABEL, uuid.toString());
+            // Step 1, query the whole list of containers associated with this cloud client. Only the instance label is
+            // retained from the container descriptions.
+            List<ContainerSummary> containers = dockerClient.listContainerSummariesWithLabel(
+                    DockerCloudUtils.CLIENT_ID_LABEL, uuid.toString(),
+                    Collections.singletonList(DockerCloudUtils.INSTANCE_ID_LABEL));
+
+            // Step 2: pro-actively discard unregistered agent that are no longer referenced, they are lost to us.
+            // This is done outside of the client lock, using the agent index.
+            discardOrphanAgents();
 
             List<String> orphanedContainers = new ArrayList<>();
+            boolean active = false;
+            boolean stateChanged = false;
 
             lock.lock();
             try {
@@ -651,41 +1258,20 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
                     }
                 }
 
-                // Step 2: pro-actively discard unregistered agent that are no longer referenced, they are lost to us.
-                for (SBuildAgent agent : agentMgr.getUnregisteredAgents()) {
-                    if (uuid.equals(DockerCloudUtils.getClientId(agent))) {
-                        UUID instanceId = DockerCloudUtils.getInstanceId(agent);
-                        boolean discardAgent = false;
-                        if (instanceId == null) {
-                            LOG.warn("No instance UUID associated with cloud agent " + agent + ".");
-                            discardAgent = true;
-                        } else if (!instances.containsKey(instanceId)) {
-                            LOG.info("Discarding orphan agent: " + agent);
-                            discardAgent = true;
-                        }
-                        if (discardAgent) {
-                            try {
-                                agentMgr.removeAgent(agent, null);
-                            } catch (AgentCannotBeRemovedException e) {
-                                LOG.warn("Failed to remove unregistered agent.", e);
-                            }
-                        }
-                    }
-                }
-
-                List<Node> containersValues = containers.getArrayValues();
-                LOG.debug("Found " + containersValues.size() + " containers to be synched: " + containers);
+                LOG.debug("Found " + containers.size() + " containers to be synched: " + containers);
 
                 // Step 3: remove all instance in an error status.
                 Iterator<DockerInstance> itr = instances.values().iterator();
                 while (itr.hasNext()) {
                     DockerInstance instance = itr.next();
                     InstanceStatus status = instance.getStatus();
+                    active |= isTransitionalStatus(status);
                     if (status == InstanceStatus.ERROR || status == InstanceStatus.ERROR_CANNOT_STOP) {
                         String containerId = instance.getContainerId();
                         instance.getImage().clearInstanceId(instance.getUuid());
                         if (containerId != null) {
                             orphanedContainers.add(containerId);
+                            stateChanged = true;
                         }
                         itr.remove();
                     } else if (status == InstanceStatus.UNKNOWN || status == InstanceStatus.SCHEDULED_TO_START
@@ -695,53 +1281,78 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
                     }
                 }
 
-                // Step 3, process each found container and conciliate it with our data model.
-                for (Node container : containersValues) {
-                    String instanceIdStr = container.getObject("Labels").getAsString(DockerCloudUtils
-                            .INSTANCE_ID_LABEL, null);
-                    final UUID instanceUuid = DockerCloudUtils.tryParseAsUUID(instanceIdStr);
-                    final String containerId = container.getAsString("Id");
+                // Step 3, process each found container and conciliate it with our data model. Only the containers
+                // that changed since the last sync are parsed again.
+                Map<String, DockerContainerSnapshot> snapshots = new HashMap<>(containers.size() * 2);
+                int changedCount = 0;
+                for (ContainerSummary container : containers) {
+                    final String containerId = container.getId();
+                    DockerContainerSnapshot previous = containerSnapshots.get(containerId);
+                    DockerContainerSnapshot snapshot = DockerContainerSnapshot.of(container, previous);
+                    boolean changed = snapshot != previous;
+                    if (changed) {
+                        changedCount++;
+                    }
+
+                    final UUID instanceUuid = snapshot.getInstanceUuid();
                     if (instanceUuid == null) {
-                        LOG.error("Cannot resolve instance ID '" + instanceIdStr + "' for container " + containerId + ".");
+                        LOG.error("Cannot resolve instance ID '" + snapshot.getInstanceIdLabel() + "' for container " +
+                                containerId + ".");
                         orphanedContainers.add(containerId);
                         continue;
                     }
 
-                    assert instanceIdStr != null;
-
                     DockerInstance instance = instances.remove(instanceUuid);
 
+                    if (instance == null) {
+                        instance = adoptInstance(instanceUuid, snapshot);
+                        if (instance != null) {
+                            active = true;
+                            stateChanged = true;
+                        }
+                    }
+
                     if (instance == null) {
                         LOG.warn("Schedule removal of container " + containerId + " with unknown instance id " + instanceUuid + ".");
                         orphanedContainers.add((containerId));
                         continue;
                     }
 
+                    snapshots.put(containerId, snapshot);
+
                     InstanceStatus instanceStatus = instance.getStatus();
 
-                    if (container.getAsString("State").equals("running")) {
+                    if (snapshot.isRunning()) {
                         if (instanceStatus == InstanceStatus.STOPPED) {
+                            active = true;
                             instance.notifyFailure("Container " + containerId + " started externally.", null);
                             LOG.error("Container " + containerId + " started externally.");
                         }
                     } else {
                         if (instanceStatus == InstanceStatus.RUNNING) {
+                            active = true;
                             instance.notifyFailure("Container " + containerId + " exited prematurely.", null);
                             LOG.error("Container " + containerId + " exited prematurely.");
                         }
                     }
 
-                    instance.setContainerInfo(container);
+                    if (instanceStatus == InstanceStatus.STOPPED) {
+                        instance.setContainerPaused(snapshot.isPaused());
+                    }
 
-                    String instanceName = container.getArray("Names").getArrayValues().get(0).getAsString();
-                    if (instanceName.startsWith("/")) {
-                        instanceName = instanceName.substring(1);
+                    // The container info may have been cleared in the meantime even if the container did not change.
+                    if (changed || instance.getContainerInfo() != snapshot.getContainerInfo()) {
+                        instance.setContainerInfo(snapshot.getContainerInfo());
+                        instance.setContainerName(snapshot.getContainerName());
                     }
-                    instance.setContainerName(instanceName);
                 }
 
+                containerSnapshots = snapshots;
+                LOG.debug(changedCount + " container(s) changed since last sync.");
+
                 // Step 4, process destroyed containers.
                 if (!instances.isEmpty()) {
+                    active = true;
                     LOG.warn("Found " + instances.size() + " instance(s) without containers, unregistering them now: " + instances);
                     for (DockerInstance instance : instances.values()) {
                         if (instance.getStatus() == InstanceStatus.RUNNING) {
@@ -755,10 +1366,14 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
                 // Sync is successful.
 
                 if (errorInfo != null) {
+                    active = true;
                     LOG.info("Sync successful, clearing error: " + errorInfo);
                     errorInfo = null;
                 }
 
+                // Instances that were not re-adopted by now are lost.
+                pendingAdoptions = Collections.emptyMap();
+
                 lastDockerSyncTimeMillis = System.currentTimeMillis();
             } finally {
                 // If this task was explicitly scheduled (not automatically fired) then clear the corresponding flag.
@@ -769,15 +1384,288 @@ public class DefaultDockerCloudClient extends BuildServerAdapter implements Dock
                 lock.unlock();
             }
 
+            if (stateChanged) {
+                saveInstanceState();
+            }
+
             if (!orphanedContainers.isEmpty()) {
-                LOG.info("The following orphaned containers will be removed: " + orphanedContainers);
+                // Removals are performed in the background, the next sync does not wait for them.
+                int submitted = orphanJanitor.submit(orphanedContainers);
+                if (submitted > 0) {
+                    LOG.info(submitted + " orphaned containers scheduled for removal: " + orphanedContainers);
+                }
+            }
+
+            for (DockerImage image : images.values()) {
+                refillWarmPool(image);
+            }
+
+            return active || !orphanedContainers.isEmpty();
+        }
+    }
+
+    /**
+     * Reconciles a single container event with our data model. Only the events possibly reporting a container failure
+     * (a container exiting, being killed by the kernel, being destroyed, or being started externally) are handled
+     * here, the full sync remaining responsible for everything else.
+     * <p>
+     * Events are emitted asynchronously, and may be received after the completion of the instance task that caused
+     * them (eg. the container dying as part of a restart). We therefore do not alter the instance status directly, but
+     * schedule a check of the container state that will be serialized with the other tasks of the instance.
+     * </p>
+     *
+     * @param event the container event
+     */
+    private void processContainerEvent(Node event) {
+        if (!"container".equals(event.getAsString("Type", null))) {
+            return;
+        }
+        String action = event.getAsString("Action", null);
+        if (!"die".equals(action) && !"oom".equals(action) && !"destroy".equals(action) &&
+                !"start".equals(action)) {
+            return;
+        }
+        Node actor = event.getObject("Actor", Node.EMPTY_OBJECT);
+        final String containerId = actor.getAsString("ID", null);
+        UUID instanceUuid = DockerCloudUtils.tryParseAsUUID(actor.getObject("Attributes", Node.EMPTY_OBJECT)
+                .getAsString(DockerCloudUtils.INSTANCE_ID_LABEL, null));
+        if (containerId == null || instanceUuid == null) {
+            return;
+        }
+
+        LOG.debug("Received event " + action + " for container " + containerId + ".");
+
+        lock.lock();
+        try {
+            if (state != State.READY) {
+                return;
             }
-            for (String orphanedContainer : orphanedContainers) {
-                terminateContainer(orphanedContainer, true);
+
+            DockerInstance instance = findInstanceById(instanceUuid);
+
+            // Ignore events for containers we do not track (yet), they will be handled by the next sync.
+            if (instance == null || !containerId.equals(instance.getContainerId())) {
+                return;
             }
+
+            final DockerInstance dockerInstance = instance;
+            taskScheduler.scheduleInstanceTask(new DockerInstanceTask("Check of container", dockerInstance, null) {
+                @Override
+                protected void callInternal() throws Exception {
+                    checkContainer(dockerInstance, containerId);
+                }
+            });
+        } finally {
+            lock.unlock();
         }
     }
 
+    /**
+     * Discards the unregistered agents of this client that are not associated with any known instance.
+     */
+    private void discardOrphanAgents() {
+        if (!agentIndexSeeded) {
+            agentIndex.seedUnregisteredAgents(agentMgr.getUnregisteredAgents());
+            agentIndexSeeded = true;
+        }
+
+        for (DockerAgentIndex.Entry entry : agentIndex.getUnregisteredAgents()) {
+            SBuildAgent agent = entry.getAgent();
+            UUID instanceId = entry.getInstanceUuid();
+            boolean discardAgent = false;
+            if (instanceId == null) {
+                LOG.warn("No instance UUID associated with cloud agent " + agent + ".");
+                discardAgent = true;
+            } else if (findInstanceById(instanceId) == null && !pendingAdoptions.containsKey(instanceId)) {
+                LOG.info("Discarding orphan agent: " + agent);
+                discardAgent = true;
+            }
+            if (discardAgent) {
+                try {
+                    agentMgr.removeAgent(agent, null);
+                    agentIndex.remove(entry);
+                } catch (AgentCannotBeRemovedException e) {
+                    LOG.warn("Failed to remove unregistered agent.", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-adopts the instance of a previous client for the given container, if it was persisted with this container.
+     * Must be invoked while holding the client lock.
+     *
+     * @param instanceUuid the instance UUID
+     * @param snapshot     the container snapshot
+     *
+     * @return the adopted instance or {@code null}
+     */
+    @Nullable
+    private DockerInstance adoptInstance(UUID instanceUuid, DockerContainerSnapshot snapshot) {
+        assert lock.isHeldByCurrentThread();
+
+        DockerInstanceStore.InstanceRecord record = pendingAdoptions.get(instanceUuid);
+        String containerId = snapshot.getContainerInfo().getId();
+        if (record == null || !record.getContainerId().equals(containerId)) {
+            return null;
+        }
+        DockerImage image = images.get(record.getImageUuid());
+        if (image == null) {
+            return null;
+        }
+
+        DockerInstance instance = image.adoptInstance(instanceUuid);
+        instance.setContainerId(containerId);
+        instance.setContainerPaused(snapshot.isPaused());
+        if (snapshot.isRunning()) {
+            instance.setStatus(InstanceStatus.RUNNING);
+            cloudState.registerRunningInstance(image.getId(), instance.getInstanceId());
+        } else {
+            instance.setStatus(InstanceStatus.STOPPED);
+        }
+
+        LOG.info("Re-adopted container " + containerId + " for instance " + instanceUuid + " (running: " +
+                snapshot.isRunning() + ").");
+
+        return instance;
+    }
+
+    /**
+     * Persists the instances state, if a store is available. Concurrent requests are coalesced: a thread finding
+     * another one already writing the state will return immediately, the writing thread taking care of saving the
+     * state again. Failures are logged but not propagated.
+     */
+    private void saveInstanceState() {
+        if (instanceStore == null) {
+            return;
+        }
+
+        instanceStateDirty.set(true);
+        while (instanceStateDirty.get() && instanceStoreLock.tryLock()) {
+            try {
+                if (instanceStateDirty.getAndSet(false)) {
+                    instanceStore.save(captureInstanceState());
+                }
+            } catch (IOException | RuntimeException e) {
+                LOG.warn("Failed to persist instances state to " + instanceStore.getFile() + ".", e);
+            } finally {
+                instanceStoreLock.unlock();
+            }
+        }
+    }
+
+    private DockerInstanceStore.State captureInstanceState() {
+        // Relies on the immutable snapshots published by the images, the client lock is not required.
+        List<DockerInstanceStore.ImageRecord> imageRecords = new ArrayList<>(images.size());
+        List<DockerInstanceStore.InstanceRecord> instanceRecords = new ArrayList<>();
+        for (DockerImage image : images.values()) {
+            DockerImageConfig config = image.getConfig();
+            imageRecords.add(new DockerInstanceStore.ImageRecord(config.getProfileName(), image.getUuid(),
+                    config.getContainerSpec().toString()));
+            for (DockerInstance instance : image.getInstances()) {
+                String containerId = instance.getContainerId();
+                if (containerId != null) {
+                    instanceRecords.add(new DockerInstanceStore.InstanceRecord(instance.getUuid(), image.getUuid(),
+                            containerId));
+                }
+            }
+        }
+        return new DockerInstanceStore.State(imageRecords, instanceRecords);
+    }
+
+    /**
+     * Looks up an instance across all images. The client lock is not required.
+     *
+     * @param instanceUuid the instance UUID
+     *
+     * @return the found instance or {@code null}
+     */
+    @Nullable
+    private DockerInstance findInstanceById(UUID instanceUuid) {
+        return instanceIndex.findInstanceById(instanceUuid);
+    }
+
+    private void checkContainer(DockerInstance instance, String containerId) {
+        Node containerState;
+        try {
+            containerState = dockerClient.inspectContainer(containerId).getObject("State", Node.EMPTY_OBJECT);
+        } catch (NotFoundException e) {
+            containerState = null;
+        }
+
+        lock.lock();
+        try {
+            // The instance may have been discarded, or its container replaced, in the meantime.
+            if (state != State.READY || instance.getImage().findInstanceById(instance.getUuid()) != instance ||
+                    !containerId.equals(instance.getContainerId())) {
+                return;
+            }
+
+            InstanceStatus status = instance.getStatus();
+            boolean failure = false;
+
+            if (containerState == null) {
+                if (status == InstanceStatus.RUNNING || status == InstanceStatus.STOPPED) {
+                    LOG.warn("Container " + containerId + " was destroyed, unregistering instance now: " + instance);
+                    if (status == InstanceStatus.RUNNING) {
+                        cloudState.registerTerminatedInstance(instance.getImageId(), instance.getInstanceId());
+                    }
+                    instance.notifyFailure("Container was destroyed.", null);
+                    instance.setContainerInfo(null);
+                    failure = true;
+                }
+            } else if (containerState.getAsBoolean("Running", false) &&
+                    !containerState.getAsBoolean("Paused", false)) {
+                if (status == InstanceStatus.STOPPED) {
+                    instance.notifyFailure("Container " + containerId + " started externally.", null);
+                    LOG.error("Container " + containerId + " started externally.");
+                    failure = true;
+                }
+            } else if (status == InstanceStatus.RUNNING) {
+                String msg = containerState.getAsBoolean("OOMKilled", false) ?
+                        "Container " + containerId + " ran out of memory." :
+                        "Container " + containerId + " exited prematurely.";
+                instance.notifyFailure(msg, null);
+                LOG.error(msg);
+                failure = true;
+            }
+
+            if (failure) {
+                // Let the sync clean up the failed instance shortly.
+                syncInterval.notifyActivity();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private class ContainerEventsListener implements DockerEventsWatcher.Listener {
+
+        @Override
+        public void eventsConnected() {
+            syncInterval.setEventsConnected(true);
+            // Events may have been missed while disconnected.
+            scheduleDockerSync();
+        }
+
+        @Override
+        public void eventReceived(@Nonnull Node event) {
+            processContainerEvent(event);
+        }
+
+        @Override
+        public void eventsDisconnected(@Nullable Throwable cause) {
+            syncInterval.setEventsConnected(false);
+        }
+    }
+
+    private static boolean isTransitionalStatus(InstanceStatus status) {
+        return status == InstanceStatus.UNKNOWN || status == InstanceStatus.SCHEDULED_TO_START ||
+                status == InstanceStatus.STARTING || status == InstanceStatus.RESTARTING ||
+                status == InstanceStatus.SCHEDULED_TO_STOP || status == InstanceStatus.STOPPING ||
+                status == InstanceStatus.ERROR || status == InstanceStatus.ERROR_CANNOT_STOP;
+    }
+
 
     private void checkReady() {
         assert lock.isHeldByCurrentThread();
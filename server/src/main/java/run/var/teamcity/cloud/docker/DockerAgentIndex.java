@@ -0,0 +1,197 @@
+package run.var.teamcity.cloud.docker;
+
+import jetbrains.buildServer.serverSide.SBuildAgent;
+import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the build agents belonging to a given cloud client, keyed by instance UUID.
+ *
+ * <p>The index is updated incrementally from the build server agent callbacks, such that the agent environment
+ * parameters only need to be parsed once per agent, and the unregistered agents of the cloud client can be retrieved
+ * without querying and parsing the whole list of agents from the server. Agents with no instance UUID are tracked
+ * separately, since they cannot be linked to any cloud instance.</p>
+ *
+ * <p>Instances of this class are thread-safe.</p>
+ */
+class DockerAgentIndex {
+
+    private final UUID clientUuid;
+
+    private final Map<UUID, Entry> agentsByInstance = new ConcurrentHashMap<>();
+    private final Map<SBuildAgent, Entry> agentsWithoutInstance = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new index.
+     *
+     * @param clientUuid the UUID of the cloud client owning the indexed agents
+     *
+     * @throws NullPointerException if {@code clientUuid} is {@code null}
+     */
+    DockerAgentIndex(@Nonnull UUID clientUuid) {
+        DockerCloudUtils.requireNonNull(clientUuid, "Client UUID cannot be null.");
+        this.clientUuid = clientUuid;
+    }
+
+    /**
+     * Indexes a collection of unregistered agents. Agents not belonging to the cloud client are ignored, as well as
+     * agents already indexed since the index information is then more recent. Used to seed the index with the agents
+     * that were already unregistered when the client was created.
+     *
+     * @param agents the unregistered agents
+     *
+     * @throws NullPointerException if {@code agents} is {@code null}
+     */
+    void seedUnregisteredAgents(@Nonnull Collection<? extends SBuildAgent> agents) {
+        DockerCloudUtils.requireNonNull(agents, "Agents collection cannot be null.");
+        for (SBuildAgent agent : agents) {
+            update(agent, false, false);
+        }
+    }
+
+    /**
+     * Notifies that an agent was registered.
+     *
+     * @param agent the agent
+     */
+    void agentRegistered(@Nonnull SBuildAgent agent) {
+        update(agent, true, true);
+    }
+
+    /**
+     * Notifies that an agent was unregistered.
+     *
+     * @param agent the agent
+     */
+    void agentUnregistered(@Nonnull SBuildAgent agent) {
+        update(agent, false, true);
+    }
+
+    /**
+     * Notifies that an agent was removed from the server.
+     *
+     * @param agent the agent
+     */
+    void agentRemoved(@Nonnull SBuildAgent agent) {
+        DockerCloudUtils.requireNonNull(agent, "Agent cannot be null.");
+        if (!clientUuid.equals(DockerCloudUtils.getClientId(agent))) {
+            return;
+        }
+        UUID instanceUuid = DockerCloudUtils.getInstanceId(agent);
+        if (instanceUuid != null) {
+            Entry entry = agentsByInstance.get(instanceUuid);
+            if (entry != null && entry.agent == agent) {
+                agentsByInstance.remove(instanceUuid, entry);
+            }
+        } else {
+            agentsWithoutInstance.remove(agent);
+        }
+    }
+
+    /**
+     * Removes an agent entry from the index.
+     *
+     * @param entry the entry to be removed
+     */
+    void remove(@Nonnull Entry entry) {
+        DockerCloudUtils.requireNonNull(entry, "Entry cannot be null.");
+        if (entry.instanceUuid != null) {
+            agentsByInstance.remove(entry.instanceUuid, entry);
+        } else {
+            agentsWithoutInstance.remove(entry.agent, entry);
+        }
+    }
+
+    /**
+     * Gets a snapshot of the indexed agents that are currently unregistered.
+     *
+     * @return the list of unregistered agents
+     */
+    @Nonnull
+    List<Entry> getUnregisteredAgents() {
+        List<Entry> result = new ArrayList<>();
+        for (Entry entry : agentsByInstance.values()) {
+            if (!entry.registered) {
+                result.add(entry);
+            }
+        }
+        for (Entry entry : agentsWithoutInstance.values()) {
+            if (!entry.registered) {
+                result.add(entry);
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Gets the number of indexed agents.
+     *
+     * @return the number of indexed agents
+     */
+    int size() {
+        return agentsByInstance.size() + agentsWithoutInstance.size();
+    }
+
+    private void update(SBuildAgent agent, boolean registered, boolean overwrite) {
+        DockerCloudUtils.requireNonNull(agent, "Agent cannot be null.");
+        if (!clientUuid.equals(DockerCloudUtils.getClientId(agent))) {
+            return;
+        }
+        UUID instanceUuid = DockerCloudUtils.getInstanceId(agent);
+        Entry entry = new Entry(agent, instanceUuid, registered);
+        if (instanceUuid != null) {
+            if (overwrite) {
+                agentsByInstance.put(instanceUuid, entry);
+            } else {
+                agentsByInstance.putIfAbsent(instanceUuid, entry);
+            }
+        } else if (overwrite) {
+            agentsWithoutInstance.put(agent, entry);
+        } else {
+            agentsWithoutInstance.putIfAbsent(agent, entry);
+        }
+    }
+
+    /**
+     * An indexed agent.
+     */
+    static final class Entry {
+        private final SBuildAgent agent;
+        private final UUID instanceUuid;
+        private final boolean registered;
+
+        private Entry(SBuildAgent agent, UUID instanceUuid, boolean registered) {
+            this.agent = agent;
+            this.instanceUuid = instanceUuid;
+            this.registered = registered;
+        }
+
+        @Nonnull
+        SBuildAgent getAgent() {
+            return agent;
+        }
+
+        /**
+         * Gets the UUID of the instance associated with this agent, if any.
+         *
+         * @return the instance UUID or {@code null}
+         */
+        @Nullable
+        UUID getInstanceUuid() {
+            return instanceUuid;
+        }
+
+        boolean isRegistered() {
+            return registered;
+        }
+    }
+}
@@ -40,6 +40,17 @@ abstract class DockerClientTask extends DockerTask {
         this.client = client;
     }
 
+    /**
+     * Gets the task priority. Client tasks have a {@link DockerTaskPriority#SYNC} priority by default.
+     *
+     * @return the task priority
+     */
+    @Nonnull
+    @Override
+    DockerTaskPriority getPriority() {
+        return DockerTaskPriority.SYNC;
+    }
+
     @Override
     public String toString() {
         return "DockerInstanceTask[operationName: " + getOperationName() + ", instance: " + client.getUuid() + "]";
@@ -21,11 +21,23 @@ import java.util.*;
 public class DockerCloudClientConfig {
 
     private static final int DEFAULT_DOCKER_SYNC_RATE_SEC = 30;
+    private static final int DEFAULT_IMAGE_PULL_POOL_SIZE = 2;
+    private static final int DEFAULT_DAEMON_PARALLELISM = -1;
+    private static final int DEFAULT_MAX_DOCKER_SYNC_RATE_SEC = -1;
+    private static final int DEFAULT_IMAGE_FRESHNESS_TTL_SEC = 0;
+    private static final int DEFAULT_IMAGE_PRE_PULL_INTERVAL_SEC = -1;
+    private static final int DEFAULT_INSTANCE_START_DEADLINE_SEC = 600;
 
     private final UUID uuid;
     private final DockerClientConfig dockerClientConfig;
     private final boolean usingDaemonThreads;
     private final int dockerSyncRateSec;
+    private final int imagePullPoolSize;
+    private final int daemonParallelism;
+    private final int maxDockerSyncRateSec;
+    private final int imageFreshnessTtlSec;
+    private final int imagePrePullIntervalSec;
+    private final int instanceStartDeadlineSec;
     private final URL serverURL;
 
     /**
@@ -55,20 +67,69 @@ public class DockerCloudClientConfig {
      */
     public DockerCloudClientConfig(@Nonnull UUID uuid, @Nonnull DockerClientConfig dockerClientConfig,
                                    boolean usingDaemonThreads, int dockerSyncRateSec, @Nullable URL serverURL) {
-        DockerCloudUtils.requireNonNull(uuid, "Client UUID cannot be null.");
-        DockerCloudUtils.requireNonNull(dockerClientConfig, "Docker client configuration cannot be null.");
-        if (dockerSyncRateSec < 2) {
+        this(builder(uuid, dockerClientConfig).usingDaemonThreads(usingDaemonThreads)
+                .dockerSyncRateSec(dockerSyncRateSec).serverURL(serverURL));
+    }
+
+    /**
+     * Creates a new configuration instance from a builder.
+     *
+     * @param builder the configuration builder
+     * @throws NullPointerException     if the client UUID or the Docker client configuration is {@code null}
+     * @throws IllegalArgumentException if any setting is out of bounds
+     */
+    private DockerCloudClientConfig(@Nonnull Builder builder) {
+        DockerCloudUtils.requireNonNull(builder.uuid, "Client UUID cannot be null.");
+        DockerCloudUtils.requireNonNull(builder.dockerClientConfig, "Docker client configuration cannot be null.");
+        if (builder.dockerSyncRateSec < 2) {
             throw new IllegalArgumentException("Docker sync rate must be of at least 2 second.");
         }
-        this.uuid = uuid;
-        this.dockerClientConfig = dockerClientConfig;
-        this.usingDaemonThreads = usingDaemonThreads;
-        this.dockerSyncRateSec = dockerSyncRateSec;
-        this.serverURL = serverURL;
+        if (builder.maxDockerSyncRateSec != -1 && builder.maxDockerSyncRateSec < builder.dockerSyncRateSec) {
+            throw new IllegalArgumentException("Maximal Docker sync rate must be -1 or at least " +
+                    builder.dockerSyncRateSec + " seconds.");
+        }
+        if (builder.imagePullPoolSize < 1) {
+            throw new IllegalArgumentException("Image pull pool size must be of at least 1.");
+        }
+        if (builder.daemonParallelism != -1 && builder.daemonParallelism < 1) {
+            throw new IllegalArgumentException("Daemon parallelism must be -1 or at least 1.");
+        }
+        if (builder.imageFreshnessTtlSec < 0) {
+            throw new IllegalArgumentException("Image freshness TTL must be positive.");
+        }
+        if (builder.imagePrePullIntervalSec < -1) {
+            throw new IllegalArgumentException("Image pre-pull interval must be -1 or a positive integer.");
+        }
+        if (builder.instanceStartDeadlineSec != -1 && builder.instanceStartDeadlineSec < 1) {
+            throw new IllegalArgumentException("Instance start deadline must be -1 or at least 1 second.");
+        }
+        this.uuid = builder.uuid;
+        this.dockerClientConfig = builder.dockerClientConfig;
+        this.usingDaemonThreads = builder.usingDaemonThreads;
+        this.dockerSyncRateSec = builder.dockerSyncRateSec;
+        this.imagePullPoolSize = builder.imagePullPoolSize;
+        this.daemonParallelism = builder.daemonParallelism;
+        this.maxDockerSyncRateSec = builder.maxDockerSyncRateSec;
+        this.imageFreshnessTtlSec = builder.imageFreshnessTtlSec;
+        this.imagePrePullIntervalSec = builder.imagePrePullIntervalSec;
+        this.instanceStartDeadlineSec = builder.instanceStartDeadlineSec;
+        this.serverURL = builder.serverURL;
 
         dockerClientConfig.apiVersion(DockerCloudUtils.DOCKER_API_TARGET_VERSION);
     }
 
+    /**
+     * Creates a new configuration builder. All optional settings are initialized to their default value.
+     *
+     * @param uuid               the cloud client UUID
+     * @param dockerClientConfig the Docker client configuration
+     * @return the new builder
+     */
+    @Nonnull
+    public static Builder builder(@Nonnull UUID uuid, @Nonnull DockerClientConfig dockerClientConfig) {
+        return new Builder(uuid, dockerClientConfig);
+    }
+
     /**
      * Gets the cloud client UUID.
      *
@@ -101,6 +162,74 @@ public class DockerCloudClientConfig {
         return dockerSyncRateSec;
     }
 
+    /**
+     * Gets the maximal rate at which the client is synchronized with the Docker daemon, in seconds. When set, the
+     * synchronization rate is adaptive: synchronizations are performed frequently while instances are changing state
+     * and are progressively spaced out, up to this rate, when the cloud is stable. Will return -1 if the
+     * synchronization rate is fixed.
+     *
+     * @return the maximal synchronization rate or -1
+     */
+    public int getMaxDockerSyncRateSec() {
+        return maxDockerSyncRateSec;
+    }
+
+    /**
+     * Gets the maximum number of images to be pulled concurrently. Image pulls are performed on a dedicated thread
+     * pool of this size.
+     *
+     * @return the image pull pool size
+     */
+    public int getImagePullPoolSize() {
+        return imagePullPoolSize;
+    }
+
+    /**
+     * Gets the maximum number of instance operations (container creations, starts, terminations, ...) to be performed
+     * concurrently against the Docker daemon. Will return -1 if a default value, depending on the number of images
+     * and of available processors, must be used.
+     *
+     * @return the daemon parallelism or -1
+     */
+    public int getDaemonParallelism() {
+        return daemonParallelism;
+    }
+
+    /**
+     * Gets the delay in seconds during which a pulled image is considered fresh. A start within this delay will not
+     * pull the image again, as long as the local image did not change in the meantime. Will return 0 if images must
+     * be pulled on each start.
+     *
+     * @return the image freshness TTL in seconds or 0
+     */
+    public int getImageFreshnessTtlSec() {
+        return imageFreshnessTtlSec;
+    }
+
+    /**
+     * Gets the interval in seconds between two background pulls of the profile images. When enabled, the images are
+     * pulled once when the client is initialized, and then periodically at this interval if it is strictly positive,
+     * such that the instance starts do not have to wait for new image versions to be downloaded. Will return -1 if
+     * the images are only pulled when starting instances.
+     *
+     * @return the image pre-pull interval in seconds, 0, or -1
+     */
+    public int getImagePrePullIntervalSec() {
+        return imagePrePullIntervalSec;
+    }
+
+    /**
+     * Gets the maximum delay in seconds during which the start of an instance may wait for the Docker daemon, once
+     * its image is prepared. An instance start that could not be submitted within this delay, because the daemon is
+     * saturated or its container creation rate limited, is discarded and the instance is put in error. Will return
+     * -1 if the starts may wait indefinitely.
+     *
+     * @return the instance start deadline in seconds, or -1
+     */
+    public int getInstanceStartDeadlineSec() {
+        return instanceStartDeadlineSec;
+    }
+
     /**
      * Gets the server URL for the agents to connect. May be null to use the default server URL.
      *
@@ -174,15 +303,58 @@ public class DockerCloudClientConfig {
             }
         }
 
+        int daemonParallelism = parseInt(properties, DockerCloudUtils.DAEMON_PARALLELISM_PARAM,
+                DEFAULT_DAEMON_PARALLELISM, 1, "Not a strictly positive integer", invalidProperties);
+        int imagePullPoolSize = parseInt(properties, DockerCloudUtils.IMAGE_PULL_POOL_SIZE_PARAM,
+                DEFAULT_IMAGE_PULL_POOL_SIZE, 1, "Not a strictly positive integer", invalidProperties);
+        int maxDockerSyncRateSec = parseInt(properties, DockerCloudUtils.MAX_DOCKER_SYNC_RATE_PARAM,
+                DEFAULT_MAX_DOCKER_SYNC_RATE_SEC, DEFAULT_DOCKER_SYNC_RATE_SEC,
+                "Must be an integer greater or equal than " + DEFAULT_DOCKER_SYNC_RATE_SEC, invalidProperties);
+        int imageFreshnessTtlSec = parseInt(properties, DockerCloudUtils.IMAGE_FRESHNESS_TTL_PARAM,
+                DEFAULT_IMAGE_FRESHNESS_TTL_SEC, 0, "Not a positive integer", invalidProperties);
+        int imagePrePullIntervalSec = parseInt(properties, DockerCloudUtils.IMAGE_PRE_PULL_INTERVAL_PARAM,
+                DEFAULT_IMAGE_PRE_PULL_INTERVAL_SEC, -1, "Must be -1 or a positive integer", invalidProperties);
+
+        double creationRate = 0;
+
+        String creationRateStr = properties.get(DockerCloudUtils.CONTAINER_CREATION_RATE_PARAM);
+
+        if (!StringUtil.isEmptyOrSpaces(creationRateStr)) {
+            try {
+                creationRate = Double.parseDouble(creationRateStr.trim());
+            } catch (NumberFormatException e) {
+                creationRate = -1;
+            }
+            if (!(creationRate > 0) || Double.isInfinite(creationRate)) {
+                invalidProperties.add(new InvalidProperty(DockerCloudUtils.CONTAINER_CREATION_RATE_PARAM,
+                        "Not a strictly positive number"));
+            }
+        }
+
+        // Default burst: one second worth of creations.
+        int defaultCreationBurst = creationRate > 0 && !Double.isInfinite(creationRate) ?
+                (int) Math.max(1, Math.min(Integer.MAX_VALUE, Math.ceil(creationRate))) : 1;
+        int creationBurst = parseInt(properties, DockerCloudUtils.CONTAINER_CREATION_BURST_PARAM,
+                defaultCreationBurst, 1, "Not a strictly positive integer", invalidProperties);
+
         if (!invalidProperties.isEmpty()) {
             throw new DockerCloudClientConfigException(invalidProperties);
         }
 
         assert clientUuid != null && instanceURI != null;
 
-        DockerClientConfig dockerClientConfig = new DockerClientConfig(instanceURI).usingTls(usingTls);
+        DockerClientConfig dockerClientConfig = new DockerClientConfig(instanceURI).usingTls(usingTls)
+                .containerCreationRate(creationRate, creationBurst);
 
-        return new DockerCloudClientConfig(clientUuid, dockerClientConfig, true, serverURL);
+        return builder(clientUuid, dockerClientConfig)
+                .usingDaemonThreads(true)
+                .maxDockerSyncRateSec(maxDockerSyncRateSec)
+                .imagePullPoolSize(imagePullPoolSize)
+                .daemonParallelism(daemonParallelism)
+                .imageFreshnessTtlSec(imageFreshnessTtlSec)
+                .imagePrePullIntervalSec(imagePrePullIntervalSec)
+                .serverURL(serverURL)
+                .build();
     }
 
     /**
@@ -204,4 +376,176 @@ public class DockerCloudClientConfig {
         }
         return value.trim();
     }
+
+    /**
+     * Parses an optional integer setting.
+     *
+     * @param properties        the properties map
+     * @param key               the property key
+     * @param defaultValue      the value to be used if the property is not set
+     * @param minValue          the minimal valid value
+     * @param msg               the error message to be used if the value is not a valid integer or is too small
+     * @param invalidProperties the collection of invalid properties to be used
+     * @return the parsed value, or the default value if missing or invalid
+     */
+    private static int parseInt(Map<String, String> properties, String key, int defaultValue, int minValue,
+                                String msg, Collection<InvalidProperty> invalidProperties) {
+        assert properties != null && key != null && msg != null && invalidProperties != null;
+        String value = properties.get(key);
+        if (StringUtil.isEmptyOrSpaces(value)) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed >= minValue) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below.
+        }
+        invalidProperties.add(new InvalidProperty(key, msg));
+        return defaultValue;
+    }
+
+    /**
+     * Builder for {@link DockerCloudClientConfig} instances. Settings are validated when the configuration is built.
+     *
+     * <p>Instances of this class are not thread-safe.</p>
+     */
+    public static class Builder {
+
+        private final UUID uuid;
+        private final DockerClientConfig dockerClientConfig;
+        private boolean usingDaemonThreads = false;
+        private int dockerSyncRateSec = DEFAULT_DOCKER_SYNC_RATE_SEC;
+        private int maxDockerSyncRateSec = DEFAULT_MAX_DOCKER_SYNC_RATE_SEC;
+        private int imagePullPoolSize = DEFAULT_IMAGE_PULL_POOL_SIZE;
+        private int daemonParallelism = DEFAULT_DAEMON_PARALLELISM;
+        private int imageFreshnessTtlSec = DEFAULT_IMAGE_FRESHNESS_TTL_SEC;
+        private int imagePrePullIntervalSec = DEFAULT_IMAGE_PRE_PULL_INTERVAL_SEC;
+        private int instanceStartDeadlineSec = DEFAULT_INSTANCE_START_DEADLINE_SEC;
+        private URL serverURL;
+
+        private Builder(UUID uuid, DockerClientConfig dockerClientConfig) {
+            this.uuid = uuid;
+            this.dockerClientConfig = dockerClientConfig;
+        }
+
+        /**
+         * Sets whether the client must use daemon threads to manage containers. Default is {@code false}.
+         *
+         * @param usingDaemonThreads {@code true} if daemon threads must be used
+         * @return this builder for chained invocation
+         */
+        public Builder usingDaemonThreads(boolean usingDaemonThreads) {
+            this.usingDaemonThreads = usingDaemonThreads;
+            return this;
+        }
+
+        /**
+         * Sets the rate at which the client is synchronized with the Docker daemon, in seconds. Must be of at least
+         * 2 seconds. Default is 30 seconds.
+         *
+         * @param dockerSyncRateSec the synchronization rate in seconds
+         * @return this builder for chained invocation
+         */
+        public Builder dockerSyncRateSec(int dockerSyncRateSec) {
+            this.dockerSyncRateSec = dockerSyncRateSec;
+            return this;
+        }
+
+        /**
+         * Sets the maximal synchronization rate in seconds when the synchronization rate must adapt to the cloud
+         * activity. Must be -1 for a fixed rate, or greater or equal than the synchronization rate. Default is -1.
+         *
+         * @param maxDockerSyncRateSec the maximal synchronization rate in seconds or -1
+         * @return this builder for chained invocation
+         */
+        public Builder maxDockerSyncRateSec(int maxDockerSyncRateSec) {
+            this.maxDockerSyncRateSec = maxDockerSyncRateSec;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of images pulled concurrently. Must be strictly positive. Default is 2.
+         *
+         * @param imagePullPoolSize the image pull pool size
+         * @return this builder for chained invocation
+         */
+        public Builder imagePullPoolSize(int imagePullPoolSize) {
+            this.imagePullPoolSize = imagePullPoolSize;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of instance operations performed concurrently against the Docker daemon. Must be
+         * strictly positive, or -1 to use a default value. Default is -1.
+         *
+         * @param daemonParallelism the daemon parallelism or -1
+         * @return this builder for chained invocation
+         */
+        public Builder daemonParallelism(int daemonParallelism) {
+            this.daemonParallelism = daemonParallelism;
+            return this;
+        }
+
+        /**
+         * Sets the delay in seconds during which a pulled image is not pulled again. Must be positive, 0 meaning
+         * that images are always pulled. Default is 0.
+         *
+         * @param imageFreshnessTtlSec the image freshness TTL in seconds
+         * @return this builder for chained invocation
+         */
+        public Builder imageFreshnessTtlSec(int imageFreshnessTtlSec) {
+            this.imageFreshnessTtlSec = imageFreshnessTtlSec;
+            return this;
+        }
+
+        /**
+         * Sets the interval in seconds between two background pulls of the profile images. 0 pulls them only once
+         * when the client is initialized, and -1 disables the background pulls. Default is -1.
+         *
+         * @param imagePrePullIntervalSec the image pre-pull interval in seconds, 0, or -1
+         * @return this builder for chained invocation
+         */
+        public Builder imagePrePullIntervalSec(int imagePrePullIntervalSec) {
+            this.imagePrePullIntervalSec = imagePrePullIntervalSec;
+            return this;
+        }
+
+        /**
+         * Sets the maximum delay in seconds during which the start of an instance may wait for the Docker daemon,
+         * once its image is prepared. Must be strictly positive, or -1 to wait indefinitely. Default is 10 minutes.
+         *
+         * @param instanceStartDeadlineSec the instance start deadline in seconds or -1
+         * @return this builder for chained invocation
+         */
+        public Builder instanceStartDeadlineSec(int instanceStartDeadlineSec) {
+            this.instanceStartDeadlineSec = instanceStartDeadlineSec;
+            return this;
+        }
+
+        /**
+         * Sets the server URL to be configured on the agents. Default is {@code null} to use the default server URL.
+         *
+         * @param serverURL the server URL or {@code null}
+         * @return this builder for chained invocation
+         */
+        public Builder serverURL(@Nullable URL serverURL) {
+            this.serverURL = serverURL;
+            return this;
+        }
+
+        /**
+         * Builds the configuration.
+         *
+         * @return the new configuration instance
+         * @throws NullPointerException     if the client UUID or the Docker client configuration is {@code null}
+         * @throws IllegalArgumentException if any setting is out of bounds
+         */
+        @Nonnull
+        public DockerCloudClientConfig build() {
+            return new DockerCloudClientConfig(this);
+        }
+    }
 }
@@ -3,6 +3,7 @@ package run.var.teamcity.cloud.docker;
 import jetbrains.buildServer.clouds.*;
 import jetbrains.buildServer.serverSide.AgentDescription;
 import jetbrains.buildServer.serverSide.SBuildServer;
+import jetbrains.buildServer.serverSide.ServerPaths;
 import jetbrains.buildServer.web.openapi.PluginDescriptor;
 import run.var.teamcity.cloud.docker.client.DockerClientFactory;
 import run.var.teamcity.cloud.docker.client.DockerRegistryClientFactory;
@@ -11,6 +12,8 @@ import run.var.teamcity.cloud.docker.util.OfficialAgentImageResolver;
 import run.var.teamcity.cloud.docker.web.DockerCloudSettingsController;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
 import java.util.*;
 
 /**
@@ -21,21 +24,26 @@ public class DockerCloudClientFactory implements CloudClientFactory {
     private final String editProfileUrl;
     private final SBuildServer buildServer;
     private final DockerClientFactory dockerClientFactory;
+    private final File pluginDataDirectory;
 
     public DockerCloudClientFactory(@Nonnull final SBuildServer buildServer,
                                     @Nonnull final CloudRegistrar cloudRegistrar,
-                                    @Nonnull final PluginDescriptor pluginDescriptor) {
-        this(buildServer, cloudRegistrar, pluginDescriptor, DockerClientFactory.getDefault());
+                                    @Nonnull final PluginDescriptor pluginDescriptor,
+                                    @Nonnull final ServerPaths serverPaths) {
+        this(buildServer, cloudRegistrar, pluginDescriptor, DockerClientFactory.getDefault(),
+                serverPaths.getPluginDataDirectory());
     }
 
     DockerCloudClientFactory(@Nonnull final SBuildServer buildServer,
                              @Nonnull final CloudRegistrar cloudRegistrar,
                              @Nonnull final PluginDescriptor pluginDescriptor,
-                             @Nonnull final DockerClientFactory dockerClientFactory) {
+                             @Nonnull final DockerClientFactory dockerClientFactory,
+                             @Nullable final File pluginDataDirectory) {
         this.editProfileUrl = pluginDescriptor.getPluginResourcesPath(DockerCloudSettingsController.EDIT_PATH);
         cloudRegistrar.registerCloudFactory(this);
         this.buildServer = buildServer;
         this.dockerClientFactory = dockerClientFactory;
+        this.pluginDataDirectory = pluginDataDirectory;
     }
 
 
@@ -50,13 +58,19 @@ public class DockerCloudClientFactory implements CloudClientFactory {
         DockerCloudClientConfig clientConfig = DockerCloudClientConfig.processParams(properties, dockerClientFactory);
         List<DockerImageConfig> imageConfigs = DockerImageConfig.processParams(properties);
 
-        final int threadPoolSize = Math.min(imageConfigs.size() * 2, Runtime.getRuntime().availableProcessors() + 1);
-        clientConfig.getDockerClientConfig()
-                .connectionPoolSize(threadPoolSize);
+        // The daemon parallelism bounds the number of concurrent instance operations against the daemon. Its default
+        // value depends on the executor backend, virtual threads not being bound to the available processors.
+        final int daemonParallelism = clientConfig.getDaemonParallelism() != -1 ?
+                clientConfig.getDaemonParallelism() :
+                DockerTaskExecutorBackend.forCurrentJvm().getDefaultParallelism(imageConfigs.size());
 
-        return new DefaultDockerCloudClient(clientConfig, dockerClientFactory, imageConfigs,
+        // The instances state is persisted such that the containers can be re-adopted after a server restart.
+        DockerInstanceStore instanceStore = pluginDataDirectory != null ?
+                DockerInstanceStore.forClient(pluginDataDirectory, clientConfig.getUuid()) : null;
+
+        return new DefaultDockerCloudClient(clientConfig, dockerClientFactory, imageConfigs, daemonParallelism,
                 OfficialAgentImageResolver.forCurrentServer(DockerRegistryClientFactory.getDefault()), state,
-                buildServer);
+                buildServer, instanceStore);
     }
 
     @Nonnull
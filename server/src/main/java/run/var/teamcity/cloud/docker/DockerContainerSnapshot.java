@@ -0,0 +1,154 @@
+package run.var.teamcity.cloud.docker;
+
+import run.var.teamcity.cloud.docker.client.ContainerSummary;
+import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Compact description of a container, as returned by the container listing, retained between two synchronizations
+ * with the Docker daemon. Wraps the {@link ContainerSummary} decoded from the listing.
+ *
+ * <p>Each snapshot holds a fingerprint of the container state, status and names. Containers whose fingerprint did not
+ * change since the previous synchronization do not need to be parsed and reconciled again.</p>
+ *
+ * <p>Instances of this class are immutable.</p>
+ */
+final class DockerContainerSnapshot {
+
+    /**
+     * Matches the human readable durations found in container statuses (eg. "Up 5 minutes" or "Exited (0) 2 hours
+     * ago"), which would otherwise make the fingerprint change as time passes.
+     */
+    private final static Pattern DURATION_PTN = Pattern.compile(
+            "(Less than a second|(About )?(an?|\\d+) (seconds?|minutes?|hours?|days?|weeks?|months?|years?))( ago)?");
+
+    private final String id;
+    private final String fingerprint;
+    private final UUID instanceUuid;
+    private final String instanceIdLabel;
+    private final String containerName;
+    private final boolean running;
+    private final ContainerSummary containerInfo;
+
+    private DockerContainerSnapshot(String id, String fingerprint, UUID instanceUuid, String instanceIdLabel,
+                                    String containerName, boolean running, ContainerSummary containerInfo) {
+        this.id = id;
+        this.fingerprint = fingerprint;
+        this.instanceUuid = instanceUuid;
+        this.instanceIdLabel = instanceIdLabel;
+        this.containerName = containerName;
+        this.running = running;
+        this.containerInfo = containerInfo;
+    }
+
+    /**
+     * Creates a snapshot from a container summary, or reuses the previous snapshot if the container fingerprint did
+     * not change.
+     *
+     * @param container the container summary, as returned by the container listing
+     * @param previous  the snapshot of the container from the previous synchronization, may be {@code null}
+     *
+     * @return the container snapshot
+     *
+     * @throws NullPointerException if {@code container} is {@code null}
+     */
+    @Nonnull
+    static DockerContainerSnapshot of(@Nonnull ContainerSummary container, @Nullable DockerContainerSnapshot previous) {
+        DockerCloudUtils.requireNonNull(container, "Container summary cannot be null.");
+
+        String fingerprint = fingerprint(container);
+        if (previous != null && previous.fingerprint.equals(fingerprint)) {
+            return previous;
+        }
+
+        String instanceIdStr = container.getLabel(DockerCloudUtils.INSTANCE_ID_LABEL);
+
+        String containerName = container.getNames().isEmpty() ? container.getId() : container.getNames().get(0);
+        if (containerName.startsWith("/")) {
+            containerName = containerName.substring(1);
+        }
+
+        return new DockerContainerSnapshot(container.getId(), fingerprint,
+                DockerCloudUtils.tryParseAsUUID(instanceIdStr), instanceIdStr, containerName,
+                container.getState().equals("running"), container);
+    }
+
+    /**
+     * Computes the fingerprint of a container summary.
+     *
+     * @param container the container summary
+     *
+     * @return the container fingerprint
+     */
+    @Nonnull
+    static String fingerprint(@Nonnull ContainerSummary container) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(container.getState()).append('|');
+        String status = container.getStatus();
+        if (status != null) {
+            sb.append(DURATION_PTN.matcher(status).replaceAll(""));
+        }
+        for (String name : container.getNames()) {
+            sb.append('|').append(name);
+        }
+        return sb.toString();
+    }
+
+    @Nonnull
+    String getId() {
+        return id;
+    }
+
+    @Nonnull
+    String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Gets the UUID of the cloud instance associated with this container, or {@code null} if the corresponding label
+     * is missing or cannot be parsed.
+     *
+     * @return the instance UUID or {@code null}
+     */
+    @Nullable
+    UUID getInstanceUuid() {
+        return instanceUuid;
+    }
+
+    /**
+     * Gets the raw value of the instance UUID label.
+     *
+     * @return the label value or {@code null} if missing
+     */
+    @Nullable
+    String getInstanceIdLabel() {
+        return instanceIdLabel;
+    }
+
+    @Nonnull
+    String getContainerName() {
+        return containerName;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    boolean isPaused() {
+        return containerInfo.getState().equals("paused");
+    }
+
+    @Nonnull
+    ContainerSummary getContainerInfo() {
+        return containerInfo;
+    }
+
+    @Override
+    public String toString() {
+        return "DockerContainerSnapshot[id: " + id + ", fingerprint: " + fingerprint + "]";
+    }
+}
@@ -0,0 +1,242 @@
+package run.var.teamcity.cloud.docker;
+
+import com.intellij.openapi.diagnostic.Logger;
+import run.var.teamcity.cloud.docker.client.DockerClient;
+import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
+import run.var.teamcity.cloud.docker.util.NamedThreadFactory;
+import run.var.teamcity.cloud.docker.util.Node;
+import run.var.teamcity.cloud.docker.util.NodeStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Watches the container events emitted by a Docker daemon for a given label.
+ *
+ * <p>Events are consumed on a dedicated thread, and forwarded to a {@link Listener}. When the connection with the
+ * daemon is lost, the watcher will reconnect with an exponential backoff. Since events may have been missed in the
+ * meantime, the listener is notified of each (re)connection, and should then perform a full synchronization.</p>
+ *
+ * <p>Instances of this class are thread-safe.</p>
+ */
+class DockerEventsWatcher {
+
+    private final static Logger LOG = DockerCloudUtils.getLogger(DockerEventsWatcher.class);
+
+    /**
+     * Initial delay before reconnecting to the event stream.
+     */
+    final static long MIN_RECONNECT_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+    /**
+     * Maximal delay before reconnecting to the event stream.
+     */
+    final static long MAX_RECONNECT_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Listener for the watched events.
+     */
+    interface Listener {
+
+        /**
+         * Invoked each time the event stream has been (re)connected.
+         */
+        void eventsConnected();
+
+        /**
+         * Invoked for each received event.
+         *
+         * @param event the event
+         */
+        void eventReceived(@Nonnull Node event);
+
+        /**
+         * Invoked when the event stream was disconnected.
+         *
+         * @param cause the failure cause, if any
+         */
+        void eventsDisconnected(@Nullable Throwable cause);
+    }
+
+    private final String labelKey;
+    private final String labelValue;
+    private final Listener listener;
+    private final NamedThreadFactory threadFactory;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition stopCondition = lock.newCondition();
+
+    private Thread thread;
+    private NodeStream currentStream;
+    private boolean stopped = false;
+
+    /**
+     * Creates a new watcher.
+     *
+     * @param name               the watcher thread name
+     * @param usingDaemonThreads {@code true} if the watcher thread must be a daemon thread
+     * @param labelKey           the key of the label to be watched
+     * @param labelValue         the value of the label to be watched
+     * @param listener           the event listener
+     *
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    DockerEventsWatcher(@Nonnull String name, boolean usingDaemonThreads, @Nonnull String labelKey,
+                        @Nonnull String labelValue, @Nonnull Listener listener) {
+        DockerCloudUtils.requireNonNull(name, "Thread name cannot be null.");
+        DockerCloudUtils.requireNonNull(labelKey, "Label key cannot be null.");
+        DockerCloudUtils.requireNonNull(labelValue, "Label value cannot be null.");
+        DockerCloudUtils.requireNonNull(listener, "Listener cannot be null.");
+        this.labelKey = labelKey;
+        this.labelValue = labelValue;
+        this.listener = listener;
+        this.threadFactory = new NamedThreadFactory(name, usingDaemonThreads);
+    }
+
+    /**
+     * Starts watching events using the given client. Has no effect if this watcher is already started or was stopped.
+     *
+     * @param client the Docker client
+     *
+     * @throws NullPointerException if {@code client} is {@code null}
+     */
+    void start(@Nonnull final DockerClient client) {
+        DockerCloudUtils.requireNonNull(client, "Docker client cannot be null.");
+        lock.lock();
+        try {
+            if (thread != null || stopped) {
+                return;
+            }
+            thread = threadFactory.newThread(new Runnable() {
+                @Override
+                public void run() {
+                    watch(client);
+                }
+            });
+            thread.start();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops watching events. Closes the current event stream if any.
+     */
+    void stop() {
+        NodeStream stream;
+        lock.lock();
+        try {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+            stream = currentStream;
+            currentStream = null;
+            stopCondition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        closeQuietly(stream);
+    }
+
+    private void watch(DockerClient client) {
+        long reconnectDelay = MIN_RECONNECT_DELAY_MILLIS;
+        while (true) {
+            Throwable failure = null;
+            boolean connected = false;
+            NodeStream stream = null;
+            try {
+                stream = client.streamEvents(labelKey, labelValue);
+                if (!setCurrentStream(stream)) {
+                    closeQuietly(stream);
+                    return;
+                }
+                connected = true;
+                reconnectDelay = MIN_RECONNECT_DELAY_MILLIS;
+                LOG.info("Listening to Docker events.");
+                listener.eventsConnected();
+
+                Node event;
+                while ((event = stream.next()) != null) {
+                    listener.eventReceived(event);
+                }
+            } catch (Exception e) {
+                failure = e;
+            } finally {
+                setCurrentStream(null);
+                closeQuietly(stream);
+            }
+
+            if (isStopped()) {
+                return;
+            }
+
+            if (connected) {
+                LOG.warn("Disconnected from the Docker event stream.", failure);
+                listener.eventsDisconnected(failure);
+            } else {
+                LOG.warn("Failed to connect to the Docker event stream, retrying in " + reconnectDelay + "ms.",
+                        failure);
+            }
+
+            if (!awaitReconnect(reconnectDelay)) {
+                return;
+            }
+            reconnectDelay = Math.min(MAX_RECONNECT_DELAY_MILLIS, reconnectDelay * 2);
+        }
+    }
+
+    private boolean setCurrentStream(NodeStream stream) {
+        lock.lock();
+        try {
+            if (stopped) {
+                return false;
+            }
+            currentStream = stream;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isStopped() {
+        lock.lock();
+        try {
+            return stopped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean awaitReconnect(long delayMillis) {
+        lock.lock();
+        try {
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(delayMillis);
+            while (!stopped && remainingNanos > 0) {
+                remainingNanos = stopCondition.awaitNanos(remainingNanos);
+            }
+            return !stopped;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void closeQuietly(NodeStream stream) {
+        if (stream == null) {
+            return;
+        }
+        try {
+            stream.close();
+        } catch (IOException e) {
+            LOG.debug("Failed to close event stream.", e);
+        }
+    }
+}
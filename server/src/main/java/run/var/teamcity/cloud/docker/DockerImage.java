@@ -8,10 +8,16 @@ import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -23,20 +29,53 @@ public class DockerImage implements CloudImage {
     private final static Logger LOG = DockerCloudUtils.getLogger(DockerImage.class);
 
     private final DefaultDockerCloudClient cloudClient;
-    private final UUID uuid = UUID.randomUUID();
+    private final UUID uuid;
     private final DockerImageConfig config;
+    private final DockerInstanceIndex instanceIndex;
 
     // This lock ensure a thread-safe usage of all the variables below.
     private final Lock lock = new ReentrantLock();
 
-    private final Map<UUID, DockerInstance> instances = new ConcurrentHashMap<>();
+    // Immutable snapshot of the registered instances. Replaced as a whole while holding the lock, but can be read
+    // without it.
+    private volatile Map<UUID, DockerInstance> instances = Collections.emptyMap();
+
+    // Number of registered instances per status. Updated by the instances on each status transition, such that the
+    // quota and error checks do not need to go through all the instances. The map itself is never modified once
+    // created.
+    private final Map<InstanceStatus, AtomicInteger> statusCounts = new EnumMap<>(InstanceStatus.class);
 
     @Nullable
     private String imageName;
 
+    // Outcome of the latest pulls. Replaced as a whole while holding the lock, but can be read without it.
+    private volatile DockerImagePullInfo pullInfo = DockerImagePullInfo.NONE;
+
+    // Number of instances registered to refill the warm pool, whose container is not created yet.
+    private int warmingInstanceCount = 0;
+
+    // Number of consecutive failed creations of warm containers, and time before which the warm pool must not be
+    // refilled again.
+    private int warmFailureCount = 0;
+    private long warmRetryNanos;
+
     DockerImage(DefaultDockerCloudClient cloudClient, DockerImageConfig config) {
+        this(cloudClient, config, new DockerInstanceIndex());
+    }
+
+    DockerImage(DefaultDockerCloudClient cloudClient, DockerImageConfig config, DockerInstanceIndex instanceIndex) {
+        this(cloudClient, config, instanceIndex, UUID.randomUUID());
+    }
+
+    DockerImage(DefaultDockerCloudClient cloudClient, DockerImageConfig config, DockerInstanceIndex instanceIndex,
+                UUID uuid) {
         this.cloudClient = cloudClient;
+        this.uuid = uuid;
         this.config = config;
+        this.instanceIndex = instanceIndex;
+        for (InstanceStatus status : InstanceStatus.values()) {
+            statusCounts.put(status, new AtomicInteger());
+        }
         imageName = config.getContainerSpec().getAsString("Image", null);
     }
 
@@ -94,6 +133,49 @@ public class DockerImage implements CloudImage {
         }
     }
 
+    /**
+     * Gets the outcome of the latest pulls of this image.
+     *
+     * @return the pull information
+     */
+    @Nonnull
+    public DockerImagePullInfo getPullInfo() {
+        return pullInfo;
+    }
+
+    /**
+     * Records a successful pull of this image.
+     *
+     * @param imageName    the pulled image name
+     * @param localImageId the ID of the local image, if known
+     *
+     * @throws NullPointerException if {@code imageName} is {@code null}
+     */
+    void recordPullSuccess(@Nonnull String imageName, @Nullable String localImageId) {
+        lock.lock();
+        try {
+            pullInfo = pullInfo.success(imageName, System.currentTimeMillis(), localImageId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a failed pull of this image.
+     *
+     * @param failure the failure message
+     *
+     * @throws NullPointerException if {@code failure} is {@code null}
+     */
+    void recordPullFailure(@Nonnull String failure) {
+        lock.lock();
+        try {
+            pullInfo = pullInfo.failure(System.currentTimeMillis(), failure);
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Gets the configuration object used to create this cloud image.
      *
@@ -107,12 +189,7 @@ public class DockerImage implements CloudImage {
     @Nonnull
     @Override
     public Collection<DockerInstance> getInstances() {
-        try {
-            lock.lock();
-            return instances.values();
-        } finally {
-            lock.unlock();
-        }
+        return instances.values();
     }
 
     @Nullable
@@ -139,12 +216,7 @@ public class DockerImage implements CloudImage {
     @Nullable
     DockerInstance findInstanceById(@Nonnull UUID id) {
         DockerCloudUtils.requireNonNull(id, "UUID cannot be null.");
-        try {
-            lock.lock();
-            return instances.get(id);
-        } finally {
-            lock.unlock();
-        }
+        return instances.get(id);
     }
 
     @Nullable
@@ -166,46 +238,281 @@ public class DockerImage implements CloudImage {
      */
     @Nonnull
     DockerInstance createInstance() {
-        DockerInstance instance = new DockerInstance(this);
+        return registerInstance(new DockerInstance(this));
+    }
+
+    /**
+     * Re-adopts a cloud instance from a previous client, keeping its UUID.
+     *
+     * @param instanceUuid the instance UUID
+     *
+     * @return the adopted instance
+     *
+     * @throws NullPointerException if {@code instanceUuid} is {@code null}
+     */
+    @Nonnull
+    DockerInstance adoptInstance(@Nonnull UUID instanceUuid) {
+        return registerInstance(new DockerInstance(this, instanceUuid));
+    }
+
+    private DockerInstance registerInstance(DockerInstance instance) {
+        registerInstances(Collections.singletonList(instance));
+        return instance;
+    }
+
+    /**
+     * Creates and register new cloud instances.
+     *
+     * @param count the number of instances to create
+     *
+     * @return the created cloud instances
+     */
+    @Nonnull
+    private List<DockerInstance> createInstances(int count) {
+        List<DockerInstance> newInstances = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            newInstances.add(new DockerInstance(this));
+        }
+        registerInstances(newInstances);
+        return newInstances;
+    }
+
+    private void registerInstances(List<DockerInstance> newInstances) {
+        if (newInstances.isEmpty()) {
+            return;
+        }
         try {
             lock.lock();
-            instances.put(instance.getUuid(), instance);
+            // Publish the whole batch with a single copy of the instances map.
+            Map<UUID, DockerInstance> instances = new LinkedHashMap<>(this.instances);
+            for (DockerInstance instance : newInstances) {
+                instances.put(instance.getUuid(), instance);
+            }
+            this.instances = Collections.unmodifiableMap(instances);
+            for (DockerInstance instance : newInstances) {
+                instance.setRegistered(true);
+                instanceIndex.register(instance);
+            }
         } finally {
             lock.unlock();
         }
-
-        return instance;
     }
 
     /**
-     * Checks if new instances can be created for this image.
+     * Reserves up to {@code count} cloud instances to be started, in a single pass over the registered instances.
+     * Stopped instances are reused first, new instances are then created as long as the maximum instance count
+     * allows it. Reserved instances are immediately marked as {@link InstanceStatus#SCHEDULED_TO_START scheduled to
+     * start}, such that they are accounted for as running instances and cannot be reserved twice.
      *
-     * @return {@code true} if new instances can be created for this image, {@code false} otherwise.
+     * <p>No instance will be reserved if an instance of this image is in an error state.</p>
+     *
+     * @param count the number of instances to reserve
+     *
+     * @return the reserved instances, possibly less than requested or none
+     *
+     * @throws IllegalArgumentException if {@code count} is smaller than 1
      */
-    public boolean canStartNewInstance() {
+    @Nonnull
+    List<DockerInstance> reserveInstances(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Instance count must be at least 1: " + count);
+        }
+
         lock.lock();
         try {
+            if (getInstanceCount(InstanceStatus.ERROR) > 0) {
+                LOG.debug(this + ": at least one instance in error state, cannot start new instance.");
+                return Collections.emptyList();
+            }
 
             int maxInstanceCount = config.getMaxInstanceCount();
-            int usedInstance = 0;
-            for (DockerInstance instance : instances.values()) {
-                InstanceStatus status = instance.getStatus();
-                if (status == InstanceStatus.ERROR) {
-                    // At least one instance is in an error state. Wait until the error state is cleared or the
-                    // instance disposed.
-                    LOG.debug(this + ": at least one instance in error state, cannot start new instance.");
-                    return false;
-                } else if (status != InstanceStatus.STOPPED) {
-                    usedInstance++;
+            if (maxInstanceCount != -1) {
+                count = Math.max(0, Math.min(count, maxInstanceCount - getUsedInstanceCount()));
+            }
+
+            // Only go through the instances when some of them can be reused.
+            List<DockerInstance> stoppedInstances = new ArrayList<>();
+            if (count > 0 && getInstanceCount(InstanceStatus.STOPPED) > 0) {
+                for (DockerInstance instance : instances.values()) {
+                    if (instance.getStatus() == InstanceStatus.STOPPED) {
+                        stoppedInstances.add(instance);
+                    }
                 }
             }
 
-            return maxInstanceCount == -1 || usedInstance < maxInstanceCount;
+            List<DockerInstance> reservedInstances = new ArrayList<>(count);
+            for (DockerInstance instance : stoppedInstances) {
+                if (reservedInstances.size() == count) {
+                    break;
+                }
+                LOG.info("Reusing cloud instance " + instance.getUuid() + ".");
+                reservedInstances.add(instance);
+            }
+            for (DockerInstance instance : createInstances(count - reservedInstances.size())) {
+                LOG.info("Created cloud instance " + instance.getUuid() + ".");
+                reservedInstances.add(instance);
+            }
+
+            for (DockerInstance instance : reservedInstances) {
+                instance.setStatus(InstanceStatus.SCHEDULED_TO_START);
+            }
+
+            return reservedInstances;
         } finally {
             lock.unlock();
         }
     }
 
+    /**
+     * Registers the new instances required to refill the warm pool of this image. Stopped instances already have a
+     * container ready to be started, and are therefore considered as part of the pool. The registered instances are
+     * accounted for in the maximal instance count, the pool is consequently only refilled as long as the quota
+     * allows it. Each reserved instance must be released with {@link #warmInstanceCompleted()} once its container is
+     * created, or once its creation failed.
+     *
+     * <p>No instance will be reserved if an instance of this image is in an error state, or while the refill is
+     * postponed after a failed creation.</p>
+     *
+     * @return the instances for which a warm container must be created, possibly none
+     */
+    @Nonnull
+    List<DockerInstance> reserveWarmInstances() {
+        int warmPoolSize = config.getWarmPoolSize();
+        if (warmPoolSize == 0) {
+            return Collections.emptyList();
+        }
+
+        lock.lock();
+        try {
+            if (getInstanceCount(InstanceStatus.ERROR) > 0) {
+                return Collections.emptyList();
+            }
+
+            if (warmFailureCount > 0 && System.nanoTime() - warmRetryNanos < 0) {
+                return Collections.emptyList();
+            }
+
+            int stoppedCount = getInstanceCount(InstanceStatus.STOPPED);
+            int count = warmPoolSize - stoppedCount - warmingInstanceCount;
+            int maxInstanceCount = config.getMaxInstanceCount();
+            if (maxInstanceCount != -1) {
+                count = Math.min(count, maxInstanceCount - getUsedInstanceCount() - stoppedCount);
+            }
+            if (count <= 0) {
+                return Collections.emptyList();
+            }
+
+            List<DockerInstance> warmInstances = createInstances(count);
+            warmingInstanceCount += count;
+            LOG.info(this + ": refilling warm pool with " + count + " instance(s).");
+            return warmInstances;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases an instance reserved with {@link #reserveWarmInstances()}. Failed creations postpone the next refill
+     * of the warm pool with an exponential backoff, in the same way than the retries of the orphaned containers
+     * removals.
+     *
+     * @param created {@code true} if the warm container was successfully created
+     */
+    void warmInstanceCompleted(boolean created) {
+        lock.lock();
+        try {
+            assert warmingInstanceCount > 0;
+            warmingInstanceCount--;
+            if (created) {
+                warmFailureCount = 0;
+            } else {
+                warmFailureCount++;
+                long delay = Math.min(DockerOrphanJanitor.MAX_RETRY_DELAY_MILLIS,
+                        DockerOrphanJanitor.MIN_RETRY_DELAY_MILLIS << Math.min(warmFailureCount - 1, 16));
+                warmRetryNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+                LOG.warn(this + ": failed to create warm container, next refill postponed by " + delay + "ms.");
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks if new instances can be created for this image.
+     *
+     * @return {@code true} if new instances can be created for this image, {@code false} otherwise.
+     */
+    public boolean canStartNewInstance() {
+        // Relies on the status counters without locking, the result being anyway only a hint.
+        if (getInstanceCount(InstanceStatus.ERROR) > 0) {
+            // At least one instance is in an error state. Wait until the error state is cleared or the instance
+            // disposed.
+            LOG.debug(this + ": at least one instance in error state, cannot start new instance.");
+            return false;
+        }
+
+        int maxInstanceCount = config.getMaxInstanceCount();
+        return maxInstanceCount == -1 || getUsedInstanceCount() < maxInstanceCount;
+    }
+
+    /**
+     * Gets the number of registered instances with the given status.
+     *
+     * @param status the instance status
+     *
+     * @return the number of instances with this status
+     *
+     * @throws NullPointerException if {@code status} is {@code null}
+     */
+    public int getInstanceCount(@Nonnull InstanceStatus status) {
+        DockerCloudUtils.requireNonNull(status, "Instance status cannot be null.");
+        return statusCounts.get(status).get();
+    }
+
+    /**
+     * Gets the number of registered instances for each status. The returned map is a point-in-time copy of the status
+     * counters and is suitable to be exported as gauges. Statuses with no instance are omitted.
+     *
+     * @return the number of instances per status
+     */
+    @Nonnull
+    public Map<InstanceStatus, Integer> getInstanceStatusCounts() {
+        Map<InstanceStatus, Integer> counts = new EnumMap<>(InstanceStatus.class);
+        for (Map.Entry<InstanceStatus, AtomicInteger> entry : statusCounts.entrySet()) {
+            int count = entry.getValue().get();
+            if (count != 0) {
+                counts.put(entry.getKey(), count);
+            }
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * Gets the number of registered instances counting toward the maximal instance count, that is all the instances
+     * that are not stopped.
+     *
+     * @return the number of used instances
+     */
+    int getUsedInstanceCount() {
+        int count = 0;
+        for (Map.Entry<InstanceStatus, AtomicInteger> entry : statusCounts.entrySet()) {
+            if (entry.getKey() != InstanceStatus.STOPPED) {
+                count += entry.getValue().get();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Updates the status counters. Invoked by the registered instances while holding their own lock.
+     *
+     * @param status the instance status
+     * @param delta  the count increment
+     */
+    void countInstanceStatus(@Nonnull InstanceStatus status, int delta) {
+        statusCounts.get(status).addAndGet(delta);
+    }
+
     @Override
     public String toString() {
         return getName() + " / " + uuid;
@@ -223,7 +530,13 @@ public class DockerImage implements CloudImage {
         DockerCloudUtils.requireNonNull(id, "UUID cannot be null.");
         try {
             lock.lock();
-            instances.remove(id);
+            if (instances.containsKey(id)) {
+                Map<UUID, DockerInstance> instances = new LinkedHashMap<>(this.instances);
+                DockerInstance instance = instances.remove(id);
+                this.instances = Collections.unmodifiableMap(instances);
+                instance.setRegistered(false);
+                instanceIndex.unregister(instance);
+            }
         } finally {
             lock.unlock();
         }
@@ -26,20 +26,43 @@ public class DockerImageConfig {
     private final boolean useOfficialTCAgentImage;
     private final int maxInstanceCount;
     private final Integer agentPoolId;
+    private final int warmPoolSize;
+    private final boolean pauseOnStop;
 
     public DockerImageConfig(@Nonnull String profileName, @Nonnull Node containerSpec, boolean rmOnExit,
                              boolean useOfficialTCAgentImage, int maxInstanceCount, @Nullable Integer agentPoolId) {
+        this(profileName, containerSpec, rmOnExit, useOfficialTCAgentImage, maxInstanceCount, agentPoolId, 0);
+    }
+
+    public DockerImageConfig(@Nonnull String profileName, @Nonnull Node containerSpec, boolean rmOnExit,
+                             boolean useOfficialTCAgentImage, int maxInstanceCount, @Nullable Integer agentPoolId,
+                             int warmPoolSize) {
+        this(profileName, containerSpec, rmOnExit, useOfficialTCAgentImage, maxInstanceCount, agentPoolId,
+                warmPoolSize, false);
+    }
+
+    public DockerImageConfig(@Nonnull String profileName, @Nonnull Node containerSpec, boolean rmOnExit,
+                             boolean useOfficialTCAgentImage, int maxInstanceCount, @Nullable Integer agentPoolId,
+                             int warmPoolSize, boolean pauseOnStop) {
         DockerCloudUtils.requireNonNull(profileName, "Profile name cannot be null.");
         DockerCloudUtils.requireNonNull(containerSpec, "Container specification cannot be null.");
         if (maxInstanceCount < 1) {
             throw new IllegalArgumentException("At least 1 instance must be allowed.");
         }
+        if (warmPoolSize < 0) {
+            throw new IllegalArgumentException("Warm pool size must be a positive integer: " + warmPoolSize);
+        }
+        if (rmOnExit && pauseOnStop) {
+            throw new IllegalArgumentException("Containers cannot be both paused and discarded when stopped.");
+        }
         this.profileName = profileName;
         this.containerSpec = containerSpec;
         this.rmOnExit = rmOnExit;
         this.useOfficialTCAgentImage = useOfficialTCAgentImage;
         this.maxInstanceCount = maxInstanceCount;
         this.agentPoolId = agentPoolId;
+        this.warmPoolSize = warmPoolSize;
+        this.pauseOnStop = pauseOnStop;
     }
 
     /**
@@ -99,6 +122,27 @@ public class DockerImageConfig {
         return agentPoolId;
     }
 
+    /**
+     * Gets the number of containers to be kept created in advance for this image, such that starting an instance
+     * only requires to start one of them. Such containers are accounted for in the maximal number of instances.
+     *
+     * @return the warm pool size, {@code 0} if disabled
+     */
+    public int getWarmPoolSize() {
+        return warmPoolSize;
+    }
+
+    /**
+     * Pause-on-stop flag. When {@code true}, the container is paused instead of being stopped when the cloud instance
+     * is stopped, and simply resumed on the next start. The agent does not have to boot again, and becomes available
+     * almost immediately.
+     *
+     * @return {@code true} if the container must be paused when stopped, {@code false} otherwise
+     */
+    boolean isPauseOnStop() {
+        return pauseOnStop;
+    }
+
     /**
      * Load a list of cloud images from a configuration properties map. The ordering of the images will be the same
      * than the one specified in the underlying JSON definition.
@@ -212,7 +256,8 @@ public class DockerImageConfig {
             }
 
             return new DockerImageConfig(profileName, node.getObject("Container"), deleteOnExit,
-                    useOfficialTCAgentImage, admin.getAsInt("MaxInstanceCount", -1), agentPoolId);
+                    useOfficialTCAgentImage, admin.getAsInt("MaxInstanceCount", -1), agentPoolId,
+                    admin.getAsInt("WarmPoolSize", 0), admin.getAsBoolean("PauseOnStop", false));
         } catch (Exception e) {
             throw new IllegalArgumentException("Failed to parse image JSON definition:\n" + node, e);
         }
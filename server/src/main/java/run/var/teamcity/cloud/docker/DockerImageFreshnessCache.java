@@ -0,0 +1,112 @@
+package run.var.teamcity.cloud.docker;
+
+import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of the recently pulled images, indexed by resolved image name.
+ *
+ * <p>For each pulled image, the ID of the resulting local image is recorded along with the time of the pull. An
+ * image is considered fresh, and does not need to be pulled again, as long as the pull is not older than the
+ * configured TTL and the local image still has the same ID. A local image that was removed or replaced in the
+ * meantime (eg. by a manual pull) will therefore always be pulled again.</p>
+ *
+ * <p>Instances of this class are thread-safe.</p>
+ */
+class DockerImageFreshnessCache {
+
+    private final long ttlNanos;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new cache.
+     *
+     * @param ttlMillis the delay in milliseconds during which a pulled image is considered fresh, {@code 0} to
+     *                  disable the cache
+     *
+     * @throws IllegalArgumentException if {@code ttlMillis} is negative
+     */
+    DockerImageFreshnessCache(long ttlMillis) {
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("TTL must be positive: " + ttlMillis);
+        }
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    /**
+     * Checks if this cache is enabled. A disabled cache never considers an image as fresh.
+     *
+     * @return {@code true} if this cache is enabled
+     */
+    boolean isEnabled() {
+        return ttlNanos > 0;
+    }
+
+    /**
+     * Checks if an image was pulled recently, and the local image did not change since then.
+     *
+     * @param image        the resolved image name
+     * @param localImageId the ID of the local image
+     *
+     * @return {@code true} if the image does not need to be pulled again
+     *
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    boolean isFresh(@Nonnull String image, @Nonnull String localImageId) {
+        DockerCloudUtils.requireNonNull(image, "Image name cannot be null.");
+        DockerCloudUtils.requireNonNull(localImageId, "Local image ID cannot be null.");
+        Entry entry = entries.get(image);
+        if (entry == null) {
+            return false;
+        }
+        if (System.nanoTime() - entry.pulledNanos >= ttlNanos) {
+            entries.remove(image, entry);
+            return false;
+        }
+        return entry.imageId.equals(localImageId);
+    }
+
+    /**
+     * Records a successful pull.
+     *
+     * @param image        the resolved image name
+     * @param localImageId the ID of the local image after the pull, {@code null} if not available
+     *
+     * @throws NullPointerException if {@code image} is {@code null}
+     */
+    void recordPull(@Nonnull String image, @Nullable String localImageId) {
+        DockerCloudUtils.requireNonNull(image, "Image name cannot be null.");
+        if (!isEnabled() || localImageId == null) {
+            entries.remove(image);
+            return;
+        }
+        entries.put(image, new Entry(localImageId, System.nanoTime()));
+    }
+
+    /**
+     * Discards the record of an image, forcing it to be pulled on next start.
+     *
+     * @param image the resolved image name
+     *
+     * @throws NullPointerException if {@code image} is {@code null}
+     */
+    void invalidate(@Nonnull String image) {
+        DockerCloudUtils.requireNonNull(image, "Image name cannot be null.");
+        entries.remove(image);
+    }
+
+    private static class Entry {
+        final String imageId;
+        final long pulledNanos;
+
+        Entry(String imageId, long pulledNanos) {
+            this.imageId = imageId;
+            this.pulledNanos = pulledNanos;
+        }
+    }
+}
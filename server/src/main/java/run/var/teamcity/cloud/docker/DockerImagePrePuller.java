@@ -0,0 +1,160 @@
+package run.var.teamcity.cloud.docker;
+
+import com.intellij.openapi.diagnostic.Logger;
+import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
+
+import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pulls the images of the cloud profile in the background.
+ *
+ * <p>Without pre-pull, images are only pulled when an instance is started, and the first start following the
+ * publication of a new image version has to wait for it to be downloaded. The pre-puller instead pulls every image
+ * once when the client is initialized, and then periodically at the configured interval. Pulls are performed on a
+ * dedicated executor, one image at a time, to bound the bandwidth and daemon resources taken from the instance
+ * starts. The interval is measured from the completion of the previous pull of the same image.</p>
+ *
+ * <p>Instances of this class are thread-safe.</p>
+ */
+class DockerImagePrePuller {
+
+    private final static Logger LOG = DockerCloudUtils.getLogger(DockerImagePrePuller.class);
+
+    /**
+     * Maximal number of images pre-pulled concurrently.
+     */
+    final static int PARALLELISM = 1;
+
+    /**
+     * Pulls a single image.
+     */
+    interface ImagePuller {
+
+        /**
+         * Pulls the given cloud image.
+         *
+         * @param image the cloud image
+         *
+         * @throws Exception if the image could not be pulled
+         */
+        void pullImage(@Nonnull DockerImage image) throws Exception;
+    }
+
+    private final ImagePuller puller;
+    private final DockerTaskExecutor executor;
+    private final long intervalMillis;
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private volatile boolean stopped = false;
+
+    /**
+     * Creates a new pre-puller.
+     *
+     * @param puller             the image puller
+     * @param backend            the executor backend
+     * @param usingDaemonThreads {@code true} to use daemon threads
+     * @param intervalMillis     the interval in milliseconds between two pulls of the same image, or {@code 0} to
+     *                           pull the images only once
+     *
+     * @throws NullPointerException     if {@code puller} or {@code backend} is {@code null}
+     * @throws IllegalArgumentException if {@code intervalMillis} is negative
+     */
+    DockerImagePrePuller(@Nonnull ImagePuller puller, @Nonnull DockerTaskExecutorBackend backend,
+                         boolean usingDaemonThreads, long intervalMillis) {
+        this(puller, backend.createExecutor("DockerImagePrePuller", PARALLELISM, usingDaemonThreads),
+                intervalMillis);
+    }
+
+    /**
+     * Creates a new pre-puller using the given executor.
+     *
+     * @param puller         the image puller
+     * @param executor       the executor on which the pulls will be performed
+     * @param intervalMillis the interval in milliseconds between two pulls of the same image, or {@code 0} to pull
+     *                       the images only once
+     *
+     * @throws NullPointerException     if {@code puller} or {@code executor} is {@code null}
+     * @throws IllegalArgumentException if {@code intervalMillis} is negative
+     */
+    DockerImagePrePuller(@Nonnull ImagePuller puller, @Nonnull DockerTaskExecutor executor, long intervalMillis) {
+        DockerCloudUtils.requireNonNull(puller, "Image puller cannot be null.");
+        DockerCloudUtils.requireNonNull(executor, "Executor cannot be null.");
+        if (intervalMillis < 0) {
+            throw new IllegalArgumentException("Pre-pull interval must be positive: " + intervalMillis);
+        }
+        this.puller = puller;
+        this.executor = executor;
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Starts pre-pulling the given images. Returns immediately. Subsequent invocations are ignored.
+     *
+     * @param images the cloud images
+     *
+     * @throws NullPointerException if {@code images} is {@code null}
+     */
+    void start(@Nonnull Collection<DockerImage> images) {
+        DockerCloudUtils.requireNonNull(images, "Images collection cannot be null.");
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        for (DockerImage image : images) {
+            if (!execute(new PrePull(image), 0)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Stops the pre-puller. Pending pulls that were not started yet are discarded.
+     */
+    void stop() {
+        stopped = true;
+        executor.shutdown();
+    }
+
+    private boolean execute(PrePull prePull, long delayMillis) {
+        try {
+            if (delayMillis > 0) {
+                executor.schedule(prePull, delayMillis, TimeUnit.MILLISECONDS);
+            } else {
+                executor.execute(prePull);
+            }
+            return true;
+        } catch (RejectedExecutionException e) {
+            // Pre-puller stopped.
+            return false;
+        }
+    }
+
+    private class PrePull implements Runnable {
+
+        private final DockerImage image;
+
+        PrePull(DockerImage image) {
+            this.image = image;
+        }
+
+        @Override
+        public void run() {
+            if (stopped) {
+                return;
+            }
+
+            try {
+                puller.pullImage(image);
+            } catch (Exception e) {
+                LOG.warn("Background pull of image " + image + " failed.", e);
+            }
+
+            if (intervalMillis > 0 && !stopped) {
+                execute(this, intervalMillis);
+            }
+        }
+    }
+}
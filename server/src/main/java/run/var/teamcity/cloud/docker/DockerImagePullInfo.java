@@ -0,0 +1,132 @@
+package run.var.teamcity.cloud.docker;
+
+import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Outcome of the latest pulls of a cloud image, whether they were performed as part of an instance start or in the
+ * background. Reported in the image details page to assess the freshness of the local image.
+ *
+ * <p>Instances of this class are immutable.</p>
+ */
+public final class DockerImagePullInfo {
+
+    /**
+     * Pull information of an image that was never pulled.
+     */
+    static final DockerImagePullInfo NONE = new DockerImagePullInfo(null, -1, null, -1, null);
+
+    private final String imageName;
+    private final long lastSuccessTimeMillis;
+    private final String localImageId;
+    private final long lastFailureTimeMillis;
+    private final String lastFailure;
+
+    private DockerImagePullInfo(String imageName, long lastSuccessTimeMillis, String localImageId,
+                                long lastFailureTimeMillis, String lastFailure) {
+        this.imageName = imageName;
+        this.lastSuccessTimeMillis = lastSuccessTimeMillis;
+        this.localImageId = localImageId;
+        this.lastFailureTimeMillis = lastFailureTimeMillis;
+        this.lastFailure = lastFailure;
+    }
+
+    /**
+     * Records a successful pull.
+     *
+     * @param imageName    the pulled image name
+     * @param timeMillis   the pull completion time
+     * @param localImageId the ID of the local image, if known
+     *
+     * @return the updated pull information
+     *
+     * @throws NullPointerException if {@code imageName} is {@code null}
+     */
+    @Nonnull
+    DockerImagePullInfo success(@Nonnull String imageName, long timeMillis, @Nullable String localImageId) {
+        DockerCloudUtils.requireNonNull(imageName, "Image name cannot be null.");
+        return new DockerImagePullInfo(imageName, timeMillis, localImageId, lastFailureTimeMillis, lastFailure);
+    }
+
+    /**
+     * Records a failed pull. The outcome of the last successful pull is retained.
+     *
+     * @param timeMillis the pull failure time
+     * @param failure    the failure message
+     *
+     * @return the updated pull information
+     *
+     * @throws NullPointerException if {@code failure} is {@code null}
+     */
+    @Nonnull
+    DockerImagePullInfo failure(long timeMillis, @Nonnull String failure) {
+        DockerCloudUtils.requireNonNull(failure, "Failure message cannot be null.");
+        return new DockerImagePullInfo(imageName, lastSuccessTimeMillis, localImageId, timeMillis, failure);
+    }
+
+    /**
+     * Gets the name of the image pulled by the last successful pull.
+     *
+     * @return the image name or {@code null} if no pull succeeded yet
+     */
+    @Nullable
+    public String getImageName() {
+        return imageName;
+    }
+
+    /**
+     * Gets the completion time of the last successful pull.
+     *
+     * @return the pull time or {@code -1} if no pull succeeded yet
+     */
+    public long getLastSuccessTimeMillis() {
+        return lastSuccessTimeMillis;
+    }
+
+    /**
+     * Gets the ID of the local image resulting from the last successful pull.
+     *
+     * @return the local image ID or {@code null} if not known
+     */
+    @Nullable
+    public String getLocalImageId() {
+        return localImageId;
+    }
+
+    /**
+     * Gets the time of the last failed pull.
+     *
+     * @return the failure time or {@code -1} if no pull failed yet
+     */
+    public long getLastFailureTimeMillis() {
+        return lastFailureTimeMillis;
+    }
+
+    /**
+     * Gets the failure message of the last failed pull.
+     *
+     * @return the failure message or {@code null} if no pull failed yet
+     */
+    @Nullable
+    public String getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Checks if the most recent pull failed.
+     *
+     * @return {@code true} if the most recent pull failed
+     */
+    public boolean isFailing() {
+        return lastFailureTimeMillis > lastSuccessTimeMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "DockerImagePullInfo[imageName: " + imageName + ", lastSuccessTimeMillis: " + lastSuccessTimeMillis +
+                ", localImageId: " + localImageId + ", lastFailureTimeMillis: " + lastFailureTimeMillis +
+                ", lastFailure: " + lastFailure + "]";
+    }
+}
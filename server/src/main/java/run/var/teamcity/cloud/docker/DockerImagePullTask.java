@@ -0,0 +1,56 @@
+package run.var.teamcity.cloud.docker;
+
+import jetbrains.buildServer.clouds.InstanceStatus;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link DockerInstanceTask} pulling an image from a registry. Such task is potentially long running and will be
+ * executed by the {@link DockerTaskScheduler} on a dedicated thread pool. Image pulls are part of an instance start,
+ * or of a background operation.
+ */
+abstract class DockerImagePullTask extends DockerInstanceTask {
+
+    /**
+     * Creates a one-shot task.
+     *
+     * @param operationName   the operation name
+     * @param instance        the cloud instance
+     * @param scheduledStatus the instance status to be set when the task is scheduled for execution or {@code null} if
+     *                        none
+     *
+     * @throws NullPointerException if {@code operationName} or {@code instance} is {@code null}
+     */
+    DockerImagePullTask(@Nonnull String operationName, @Nonnull DockerInstance instance, @Nullable InstanceStatus
+            scheduledStatus) {
+        this(operationName, instance, scheduledStatus, DockerInstanceTaskType.START);
+    }
+
+    /**
+     * Creates a one-shot task.
+     *
+     * @param operationName   the operation name
+     * @param instance        the cloud instance
+     * @param scheduledStatus the instance status to be set when the task is scheduled for execution or {@code null} if
+     *                        none
+     * @param type            the task type, either {@link DockerInstanceTaskType#START} or
+     *                        {@link DockerInstanceTaskType#BACKGROUND}
+     *
+     * @throws NullPointerException     if {@code operationName}, {@code instance}, or {@code type} is {@code null}
+     * @throws IllegalArgumentException if {@code type} is neither a start nor a background operation
+     */
+    DockerImagePullTask(@Nonnull String operationName, @Nonnull DockerInstance instance, @Nullable InstanceStatus
+            scheduledStatus, @Nonnull DockerInstanceTaskType type) {
+        super(operationName, instance, scheduledStatus, type);
+        if (type != DockerInstanceTaskType.START && type != DockerInstanceTaskType.BACKGROUND) {
+            throw new IllegalArgumentException("Unsupported image pull task type: " + type);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DockerImagePullTask[operationName: " + getOperationName() + ", instance: " + getInstance().getUuid() +
+                "]";
+    }
+}
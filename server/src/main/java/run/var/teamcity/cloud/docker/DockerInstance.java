@@ -4,8 +4,8 @@ import jetbrains.buildServer.clouds.CloudErrorInfo;
 import jetbrains.buildServer.clouds.CloudInstance;
 import jetbrains.buildServer.clouds.InstanceStatus;
 import jetbrains.buildServer.serverSide.AgentDescription;
+import run.var.teamcity.cloud.docker.client.ContainerSummary;
 import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
-import run.var.teamcity.cloud.docker.util.Node;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -19,7 +19,7 @@ import java.util.concurrent.locks.ReentrantLock;
  */
 public class DockerInstance implements CloudInstance, DockerCloudErrorHandler {
 
-    private final UUID uuid = UUID.randomUUID();
+    private final UUID uuid;
     private final DockerImage img;
 
     private long startedTimeMillis;
@@ -29,9 +29,11 @@ public class DockerInstance implements CloudInstance, DockerCloudErrorHandler {
 
     private String containerName = null;
     private String containerId;
-    private Node containerInfo;
+    private ContainerSummary containerInfo;
     private InstanceStatus status = InstanceStatus.UNKNOWN;
     private CloudErrorInfo errorInfo;
+    private boolean registered = false;
+    private boolean containerPaused = false;
 
     /**
      * Creates a new Docker cloud instance.
@@ -41,9 +43,23 @@ public class DockerInstance implements CloudInstance, DockerCloudErrorHandler {
      * @throws NullPointerException if {@code img} is {@code null}
      */
     DockerInstance(@Nonnull DockerImage img) {
+        this(img, UUID.randomUUID());
+    }
+
+    /**
+     * Creates a Docker cloud instance with a known UUID. Used to re-adopt an instance from a previous client.
+     *
+     * @param img  the source image
+     * @param uuid the instance UUID
+     *
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    DockerInstance(@Nonnull DockerImage img, @Nonnull UUID uuid) {
         DockerCloudUtils.requireNonNull(img, "Docker image cannot be null.");
+        DockerCloudUtils.requireNonNull(uuid, "Instance UUID cannot be null.");
 
         this.img = img;
+        this.uuid = uuid;
 
         // The instance is expected to be started immediately (we must do this to ensure that getStartedTime() always
         // return some meaningful value).
@@ -60,6 +76,35 @@ public class DockerInstance implements CloudInstance, DockerCloudErrorHandler {
         return uuid;
     }
 
+    /**
+     * Checks if the container of this instance was paused when the instance was stopped. A paused container must be
+     * resumed instead of being started.
+     *
+     * @return {@code true} if the container is paused
+     */
+    boolean isContainerPaused() {
+        lock.lock();
+        try {
+            return containerPaused;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sets whether the container of this instance is paused.
+     *
+     * @param containerPaused {@code true} if the container is paused
+     */
+    void setContainerPaused(boolean containerPaused) {
+        lock.lock();
+        try {
+            this.containerPaused = containerPaused;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     @Nonnull
     @Override
     public String getInstanceId() {
@@ -178,13 +223,36 @@ public class DockerInstance implements CloudInstance, DockerCloudErrorHandler {
         DockerCloudUtils.requireNonNull(status, "Instance status cannot be null.");
         lock.lock();
         try {
+            InstanceStatus previousStatus = this.status;
             this.status = status;
+            if (registered && previousStatus != status) {
+                img.countInstanceStatus(previousStatus, -1);
+                img.countInstanceStatus(status, 1);
+            }
         } finally {
             lock.unlock();
         }
 
     }
 
+    /**
+     * Sets whether this instance is registered in its image. The status of registered instances is accounted for in
+     * the image status counters, on each transition.
+     *
+     * @param registered {@code true} if this instance is registered
+     */
+    void setRegistered(boolean registered) {
+        lock.lock();
+        try {
+            if (this.registered != registered) {
+                this.registered = registered;
+                img.countInstanceStatus(status, registered ? 1 : -1);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
     void updateStartedTime() {
         lock.lock();
         try {
@@ -201,14 +269,13 @@ public class DockerInstance implements CloudInstance, DockerCloudErrorHandler {
     }
 
     /**
-     * Gets the JSON node describing the associated container if available. The node structure is described in the
-     * <a href="https://docs.docker.com/engine/reference/api/docker_remote_api_v1.24/#/list-containers"><i>list
-     * containers</i></a> command of the remote API documentation.
+     * Gets the summary of the associated container if available, as returned by the last container listing. The full
+     * container description can be retrieved on demand by inspecting the container.
      *
-     * @return the JSON node or {@code null} if not available
+     * @return the container summary or {@code null} if not available
      */
     @Nullable
-    public Node getContainerInfo() {
+    public ContainerSummary getContainerInfo() {
         lock.lock();
         try {
             return containerInfo;
@@ -218,11 +285,11 @@ public class DockerInstance implements CloudInstance, DockerCloudErrorHandler {
     }
 
     /**
-     * Sets the JSON node holding the container description.
+     * Sets the summary of the associated container.
      *
-     * @param containerInfo the JSON node or {@code null} if not available
+     * @param containerInfo the container summary or {@code null} if not available
      */
-    void setContainerInfo(@Nullable Node containerInfo) {
+    void setContainerInfo(@Nullable ContainerSummary containerInfo) {
         lock.lock();
         try {
             this.containerInfo = containerInfo;
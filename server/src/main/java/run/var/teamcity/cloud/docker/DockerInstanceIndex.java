@@ -0,0 +1,131 @@
+package run.var.teamcity.cloud.docker;
+
+import jetbrains.buildServer.serverSide.AgentDescription;
+import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the cloud instances of a client, across all its images, keyed by instance UUID.
+ *
+ * <p>The index is updated by the images when instances are created or discarded, such that instances can be looked
+ * up in constant time regardless of the number of images and instances. Agents are resolved to their instance using
+ * their environment parameters. Since the same agents are looked up again and again by the server, the parsed UUIDs
+ * are cached by raw parameter value. This cache is bounded, and simply cleared when it grows too large.</p>
+ *
+ * <p>Instances of this class are thread-safe.</p>
+ */
+class DockerInstanceIndex {
+
+    /**
+     * Maximal number of cached parsed UUIDs.
+     */
+    final static int MAX_PARSED_UUIDS = 4096;
+
+    /**
+     * Marker for the cached values that could not be parsed as UUID. Cannot collide with the randomly generated UUIDs.
+     */
+    private final static UUID INVALID_UUID = new UUID(0, 0);
+
+    private final Map<UUID, DockerInstance> instances = new ConcurrentHashMap<>();
+    private final Map<String, UUID> parsedUuids = new ConcurrentHashMap<>();
+
+    /**
+     * Registers an instance.
+     *
+     * @param instance the instance to be registered
+     *
+     * @throws NullPointerException if {@code instance} is {@code null}
+     */
+    void register(@Nonnull DockerInstance instance) {
+        DockerCloudUtils.requireNonNull(instance, "Instance cannot be null.");
+        instances.put(instance.getUuid(), instance);
+    }
+
+    /**
+     * Unregisters an instance. Do nothing if the given instance is not registered.
+     *
+     * @param instance the instance to be unregistered
+     *
+     * @throws NullPointerException if {@code instance} is {@code null}
+     */
+    void unregister(@Nonnull DockerInstance instance) {
+        DockerCloudUtils.requireNonNull(instance, "Instance cannot be null.");
+        instances.remove(instance.getUuid(), instance);
+    }
+
+    /**
+     * Finds an instance from its UUID.
+     *
+     * @param instanceUuid the instance UUID
+     *
+     * @return the found instance or {@code null}
+     *
+     * @throws NullPointerException if {@code instanceUuid} is {@code null}
+     */
+    @Nullable
+    DockerInstance findInstanceById(@Nonnull UUID instanceUuid) {
+        DockerCloudUtils.requireNonNull(instanceUuid, "Instance UUID cannot be null.");
+        return instances.get(instanceUuid);
+    }
+
+    /**
+     * Finds the instance associated with an agent. Both the instance and the image UUIDs published in the agent
+     * environment must match.
+     *
+     * @param agent the agent description
+     *
+     * @return the found instance or {@code null}
+     *
+     * @throws NullPointerException if {@code agent} is {@code null}
+     */
+    @Nullable
+    DockerInstance findInstanceByAgent(@Nonnull AgentDescription agent) {
+        DockerCloudUtils.requireNonNull(agent, "Agent description cannot be null.");
+
+        UUID instanceUuid = parseUuid(DockerCloudUtils.getEnvParameter(agent, DockerCloudUtils.ENV_INSTANCE_ID));
+        if (instanceUuid == null) {
+            return null;
+        }
+
+        DockerInstance instance = instances.get(instanceUuid);
+        if (instance == null) {
+            return null;
+        }
+
+        UUID imageUuid = parseUuid(DockerCloudUtils.getEnvParameter(agent, DockerCloudUtils.ENV_IMAGE_ID));
+        return instance.getImage().getUuid().equals(imageUuid) ? instance : null;
+    }
+
+    /**
+     * Gets the number of registered instances.
+     *
+     * @return the number of registered instances
+     */
+    int size() {
+        return instances.size();
+    }
+
+    @Nullable
+    private UUID parseUuid(@Nullable String value) {
+        if (value == null) {
+            return null;
+        }
+        UUID uuid = parsedUuids.get(value);
+        if (uuid == null) {
+            uuid = DockerCloudUtils.tryParseAsUUID(value);
+            if (uuid == null) {
+                uuid = INVALID_UUID;
+            }
+            if (parsedUuids.size() >= MAX_PARSED_UUIDS) {
+                parsedUuids.clear();
+            }
+            parsedUuids.put(value, uuid);
+        }
+        return uuid != INVALID_UUID ? uuid : null;
+    }
+}
@@ -0,0 +1,268 @@
+package run.var.teamcity.cloud.docker;
+
+import com.intellij.openapi.diagnostic.Logger;
+import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
+import run.var.teamcity.cloud.docker.util.EditableNode;
+import run.var.teamcity.cloud.docker.util.Node;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Durable store of the cloud images and instances of a client, along with the containers associated with the instances.
+ *
+ * <p>The state is persisted as a small JSON file, rewritten as a whole each time it is saved. Writes are atomic: the
+ * new state is written to a temporary file in the same directory, which is then moved over the previous state. A
+ * reader will therefore never observe a partially written state, even if the server is killed while saving.</p>
+ *
+ * <p>The persisted state allows a client created after a server restart or a profile reload to re-adopt the
+ * containers of the previous client, instead of considering them as orphans.</p>
+ *
+ * <p>Instances of this class are thread-safe as long as the concurrent saves are serialized by the caller.</p>
+ */
+class DockerInstanceStore {
+
+    private final static Logger LOG = DockerCloudUtils.getLogger(DockerInstanceStore.class);
+
+    private final static int FORMAT_VERSION = 1;
+
+    private final File file;
+
+    /**
+     * Creates a new store.
+     *
+     * @param file the file where the state is persisted
+     *
+     * @throws NullPointerException if {@code file} is {@code null}
+     */
+    DockerInstanceStore(@Nonnull File file) {
+        DockerCloudUtils.requireNonNull(file, "File cannot be null.");
+        this.file = file;
+    }
+
+    /**
+     * Creates the store of a given cloud client in the plugin data directory.
+     *
+     * @param pluginDataDirectory the plugin data directory
+     * @param clientUuid          the cloud client UUID
+     *
+     * @return the store
+     *
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    @Nonnull
+    static DockerInstanceStore forClient(@Nonnull File pluginDataDirectory, @Nonnull UUID clientUuid) {
+        DockerCloudUtils.requireNonNull(pluginDataDirectory, "Plugin data directory cannot be null.");
+        DockerCloudUtils.requireNonNull(clientUuid, "Client UUID cannot be null.");
+        return new DockerInstanceStore(new File(new File(pluginDataDirectory, "docker-cloud"),
+                clientUuid + ".json"));
+    }
+
+    /**
+     * Gets the file where the state is persisted.
+     *
+     * @return the state file
+     */
+    @Nonnull
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Loads the persisted state. A missing or unreadable state is not considered as an error, the client will then
+     * simply not re-adopt any container.
+     *
+     * @return the persisted state, or {@code null} if not available
+     */
+    @Nullable
+    State load() {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try (InputStream input = Files.newInputStream(file.toPath())) {
+            Node root = Node.parse(input);
+            if (root.getAsInt("Version") != FORMAT_VERSION) {
+                LOG.warn("Ignoring persisted state with unsupported version: " + file);
+                return null;
+            }
+
+            List<ImageRecord> images = new ArrayList<>();
+            for (Node image : root.getArray("Images").getArrayValues()) {
+                images.add(new ImageRecord(image.getAsString("ProfileName"),
+                        UUID.fromString(image.getAsString("Uuid")), image.getAsString("ContainerSpec")));
+            }
+
+            List<InstanceRecord> instances = new ArrayList<>();
+            for (Node instance : root.getArray("Instances").getArrayValues()) {
+                instances.add(new InstanceRecord(UUID.fromString(instance.getAsString("Uuid")),
+                        UUID.fromString(instance.getAsString("ImageUuid")), instance.getAsString("ContainerId")));
+            }
+
+            return new State(images, instances);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Failed to load persisted state: " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Saves the given state, replacing the previously persisted one.
+     *
+     * @param state the state to be saved
+     *
+     * @throws NullPointerException if {@code state} is {@code null}
+     * @throws IOException          if the state could not be written
+     */
+    void save(@Nonnull State state) throws IOException {
+        DockerCloudUtils.requireNonNull(state, "State cannot be null.");
+
+        EditableNode root = Node.EMPTY_OBJECT.editNode();
+        root.put("Version", FORMAT_VERSION);
+        EditableNode images = root.getOrCreateArray("Images");
+        for (ImageRecord image : state.getImages()) {
+            EditableNode imageNode = images.addObject();
+            imageNode.put("ProfileName", image.getProfileName());
+            imageNode.put("Uuid", image.getUuid().toString());
+            imageNode.put("ContainerSpec", image.getContainerSpec());
+        }
+        EditableNode instances = root.getOrCreateArray("Instances");
+        for (InstanceRecord instance : state.getInstances()) {
+            instances.addObject().
+                    put("Uuid", instance.getUuid().toString()).
+                    put("ImageUuid", instance.getImageUuid().toString()).
+                    put("ContainerId", instance.getContainerId());
+        }
+
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+            throw new IOException("Failed to create directory: " + dir);
+        }
+
+        Path target = file.toPath();
+        Path tmp = Files.createTempFile(dir != null ? dir.toPath() : target.toAbsolutePath().getParent(),
+                file.getName(), ".tmp");
+        try {
+            try (OutputStream output = Files.newOutputStream(tmp)) {
+                output.write(root.saveNode().toString().getBytes(StandardCharsets.UTF_8));
+            }
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Persisted state of a cloud client.
+     */
+    static final class State {
+        private final List<ImageRecord> images;
+        private final List<InstanceRecord> instances;
+
+        State(@Nonnull List<ImageRecord> images, @Nonnull List<InstanceRecord> instances) {
+            DockerCloudUtils.requireNonNull(images, "Images cannot be null.");
+            DockerCloudUtils.requireNonNull(instances, "Instances cannot be null.");
+            this.images = Collections.unmodifiableList(new ArrayList<>(images));
+            this.instances = Collections.unmodifiableList(new ArrayList<>(instances));
+        }
+
+        @Nonnull
+        List<ImageRecord> getImages() {
+            return images;
+        }
+
+        @Nonnull
+        List<InstanceRecord> getInstances() {
+            return instances;
+        }
+    }
+
+    /**
+     * Persisted cloud image. The container specification is recorded to detect changes of the image configuration:
+     * containers created from a different specification are not re-adopted.
+     */
+    static final class ImageRecord {
+        private final String profileName;
+        private final UUID uuid;
+        private final String containerSpec;
+
+        ImageRecord(@Nonnull String profileName, @Nonnull UUID uuid, @Nonnull String containerSpec) {
+            DockerCloudUtils.requireNonNull(profileName, "Profile name cannot be null.");
+            DockerCloudUtils.requireNonNull(uuid, "UUID cannot be null.");
+            DockerCloudUtils.requireNonNull(containerSpec, "Container specification cannot be null.");
+            this.profileName = profileName;
+            this.uuid = uuid;
+            this.containerSpec = containerSpec;
+        }
+
+        @Nonnull
+        String getProfileName() {
+            return profileName;
+        }
+
+        @Nonnull
+        UUID getUuid() {
+            return uuid;
+        }
+
+        /**
+         * Gets the JSON container specification of the image.
+         *
+         * @return the container specification
+         */
+        @Nonnull
+        String getContainerSpec() {
+            return containerSpec;
+        }
+    }
+
+    /**
+     * Persisted cloud instance, with its associated container.
+     */
+    static final class InstanceRecord {
+        private final UUID uuid;
+        private final UUID imageUuid;
+        private final String containerId;
+
+        InstanceRecord(@Nonnull UUID uuid, @Nonnull UUID imageUuid, @Nonnull String containerId) {
+            DockerCloudUtils.requireNonNull(uuid, "UUID cannot be null.");
+            DockerCloudUtils.requireNonNull(imageUuid, "Image UUID cannot be null.");
+            DockerCloudUtils.requireNonNull(containerId, "Container ID cannot be null.");
+            this.uuid = uuid;
+            this.imageUuid = imageUuid;
+            this.containerId = containerId;
+        }
+
+        @Nonnull
+        UUID getUuid() {
+            return uuid;
+        }
+
+        @Nonnull
+        UUID getImageUuid() {
+            return imageUuid;
+        }
+
+        @Nonnull
+        String getContainerId() {
+            return containerId;
+        }
+    }
+}
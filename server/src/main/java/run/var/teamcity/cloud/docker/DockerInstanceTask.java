@@ -1,6 +1,7 @@
 package run.var.teamcity.cloud.docker;
 
 import jetbrains.buildServer.clouds.InstanceStatus;
+import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -12,9 +13,10 @@ abstract class DockerInstanceTask extends DockerTask {
 
     private final DockerInstance instance;
     private final InstanceStatus scheduledStatus;
+    private final DockerInstanceTaskType type;
 
     /**
-     * Creates a one-shot task.
+     * Creates a one-shot task of type {@link DockerInstanceTaskType#OTHER}.
      *
      * @param operationName   the operation name
      * @param instance        the cloud instance
@@ -25,9 +27,27 @@ abstract class DockerInstanceTask extends DockerTask {
      */
     DockerInstanceTask(@Nonnull String operationName, @Nonnull DockerInstance instance, @Nullable InstanceStatus
             scheduledStatus) {
+        this(operationName, instance, scheduledStatus, DockerInstanceTaskType.OTHER);
+    }
+
+    /**
+     * Creates a one-shot task.
+     *
+     * @param operationName   the operation name
+     * @param instance        the cloud instance
+     * @param scheduledStatus the instance status to be set when the task is scheduled for execution or {@code null} if
+     *                        none
+     * @param type            the task type
+     *
+     * @throws NullPointerException if {@code operationName}, {@code instance}, or {@code type} is {@code null}
+     */
+    DockerInstanceTask(@Nonnull String operationName, @Nonnull DockerInstance instance, @Nullable InstanceStatus
+            scheduledStatus, @Nonnull DockerInstanceTaskType type) {
         super(operationName, instance);
+        DockerCloudUtils.requireNonNull(type, "Task type cannot be null.");
         this.instance = instance;
         this.scheduledStatus = scheduledStatus;
+        this.type = type;
     }
 
     /**
@@ -50,8 +70,30 @@ abstract class DockerInstanceTask extends DockerTask {
         return scheduledStatus;
     }
 
+    /**
+     * Gets the task type.
+     *
+     * @return the task type
+     */
+    @Nonnull
+    DockerInstanceTaskType getType() {
+        return type;
+    }
+
+    /**
+     * Gets the task priority, as defined by its {@linkplain #getType() type}.
+     *
+     * @return the task priority
+     */
+    @Nonnull
+    @Override
+    DockerTaskPriority getPriority() {
+        return type.getPriority();
+    }
+
     @Override
     public String toString() {
-        return "DockerInstanceTask[operationName: " + getOperationName() + ", instance: " + instance.getUuid() + "]";
+        return "DockerInstanceTask[operationName: " + getOperationName() + ", type: " + type + ", instance: " +
+                instance.getUuid() + "]";
     }
 }
@@ -0,0 +1,44 @@
+package run.var.teamcity.cloud.docker;
+
+/**
+ * The type of operation performed by a {@link DockerInstanceTask}. Used by the {@link DockerTaskScheduler} to
+ * identify queued tasks that are superseded by newly scheduled ones.
+ */
+enum DockerInstanceTaskType {
+    /**
+     * Part of the start of a cloud instance (image preparation, container creation and start).
+     */
+    START(DockerTaskPriority.START),
+    /**
+     * Restart of the cloud instance.
+     */
+    RESTART(DockerTaskPriority.RESTART),
+    /**
+     * Termination of the cloud instance.
+     */
+    TERMINATE(DockerTaskPriority.TERMINATE),
+    /**
+     * Background operation on the cloud instance, such as the creation of a warm container. Such tasks are never
+     * coalesced.
+     */
+    BACKGROUND(DockerTaskPriority.BACKGROUND),
+    /**
+     * Any other operation. Such tasks are never coalesced.
+     */
+    OTHER(DockerTaskPriority.RESTART);
+
+    private final DockerTaskPriority priority;
+
+    DockerInstanceTaskType(DockerTaskPriority priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * Gets the scheduling priority of the tasks of this type.
+     *
+     * @return the task priority
+     */
+    DockerTaskPriority getPriority() {
+        return priority;
+    }
+}
@@ -0,0 +1,203 @@
+package run.var.teamcity.cloud.docker;
+
+import com.intellij.openapi.diagnostic.Logger;
+import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
+
+import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Removes orphaned containers in the background.
+ *
+ * <p>Orphaned containers are detected during the synchronization with the Docker daemon. Removing them one at a time
+ * as part of the synchronization would hold back the next synchronizations, possibly for a long time when many
+ * containers were left behind (eg. after a server restart). The janitor instead removes them on its own executor,
+ * with a bounded parallelism. Failed removals are retried with an exponential backoff, up to a maximal number of
+ * attempts. A container given up by the janitor will be submitted again by a subsequent synchronization if it is
+ * still orphaned.</p>
+ *
+ * <p>Containers for which a removal is already pending are ignored, such that the same orphans can be safely
+ * submitted by successive synchronizations.</p>
+ *
+ * <p>Instances of this class are thread-safe.</p>
+ */
+class DockerOrphanJanitor {
+
+    private final static Logger LOG = DockerCloudUtils.getLogger(DockerOrphanJanitor.class);
+
+    /**
+     * Maximal number of containers removed concurrently.
+     */
+    final static int PARALLELISM = 4;
+
+    /**
+     * Maximal number of removal attempts for a given container.
+     */
+    final static int MAX_ATTEMPTS = 5;
+
+    /**
+     * Delay preceding the first retry of a failed removal. Doubled with each subsequent retry.
+     */
+    final static long MIN_RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    /**
+     * Maximal delay preceding the retry of a failed removal.
+     */
+    final static long MAX_RETRY_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    /**
+     * Removes a single container.
+     */
+    interface ContainerRemover {
+
+        /**
+         * Stops and removes a container.
+         *
+         * @param containerId the container ID
+         *
+         * @throws Exception if the container could not be removed
+         */
+        void removeContainer(@Nonnull String containerId) throws Exception;
+    }
+
+    private final ContainerRemover remover;
+    private final DockerTaskExecutor executor;
+    private final long minRetryDelayMillis;
+
+    private final Map<String, Boolean> pendingContainers = new ConcurrentHashMap<>();
+
+    private volatile boolean stopped = false;
+
+    /**
+     * Creates a new janitor.
+     *
+     * @param remover            the container remover
+     * @param backend            the executor backend
+     * @param usingDaemonThreads {@code true} to use daemon threads
+     *
+     * @throws NullPointerException if {@code remover} or {@code backend} is {@code null}
+     */
+    DockerOrphanJanitor(@Nonnull ContainerRemover remover, @Nonnull DockerTaskExecutorBackend backend,
+                        boolean usingDaemonThreads) {
+        this(remover, backend.createExecutor("DockerOrphanJanitor", PARALLELISM, usingDaemonThreads),
+                MIN_RETRY_DELAY_MILLIS);
+    }
+
+    /**
+     * Creates a new janitor using the given executor.
+     *
+     * @param remover             the container remover
+     * @param executor            the executor on which the removals will be performed
+     * @param minRetryDelayMillis delay preceding the first retry of a failed removal
+     *
+     * @throws NullPointerException     if {@code remover} or {@code executor} is {@code null}
+     * @throws IllegalArgumentException if {@code minRetryDelayMillis} is negative
+     */
+    DockerOrphanJanitor(@Nonnull ContainerRemover remover, @Nonnull DockerTaskExecutor executor,
+                        long minRetryDelayMillis) {
+        DockerCloudUtils.requireNonNull(remover, "Container remover cannot be null.");
+        DockerCloudUtils.requireNonNull(executor, "Executor cannot be null.");
+        if (minRetryDelayMillis < 0) {
+            throw new IllegalArgumentException("Retry delay must be positive: " + minRetryDelayMillis);
+        }
+        this.remover = remover;
+        this.executor = executor;
+        this.minRetryDelayMillis = minRetryDelayMillis;
+    }
+
+    /**
+     * Submits orphaned containers for removal. Returns immediately. Containers already pending removal are ignored.
+     *
+     * @param containerIds the IDs of the orphaned containers
+     *
+     * @return the number of containers newly submitted for removal
+     *
+     * @throws NullPointerException if {@code containerIds} is {@code null}
+     */
+    int submit(@Nonnull Collection<String> containerIds) {
+        DockerCloudUtils.requireNonNull(containerIds, "Container IDs collection cannot be null.");
+        int submitted = 0;
+        for (String containerId : containerIds) {
+            if (stopped) {
+                break;
+            }
+            if (pendingContainers.putIfAbsent(containerId, Boolean.TRUE) == null) {
+                if (!execute(new Removal(containerId), 0)) {
+                    break;
+                }
+                submitted++;
+            }
+        }
+        return submitted;
+    }
+
+    /**
+     * Gets the number of containers for which a removal is pending, including the removals waiting for a retry.
+     *
+     * @return the number of pending removals
+     */
+    int getPendingCount() {
+        return pendingContainers.size();
+    }
+
+    /**
+     * Stops the janitor. Pending removals that were not started yet are discarded.
+     */
+    void stop() {
+        stopped = true;
+        executor.shutdown();
+    }
+
+    private boolean execute(Removal removal, long delayMillis) {
+        try {
+            if (delayMillis > 0) {
+                executor.schedule(removal, delayMillis, TimeUnit.MILLISECONDS);
+            } else {
+                executor.execute(removal);
+            }
+            return true;
+        } catch (RejectedExecutionException e) {
+            // Janitor stopped.
+            pendingContainers.remove(removal.containerId);
+            return false;
+        }
+    }
+
+    private class Removal implements Runnable {
+
+        private final String containerId;
+        private int attempt = 0;
+
+        Removal(String containerId) {
+            this.containerId = containerId;
+        }
+
+        @Override
+        public void run() {
+            if (stopped) {
+                pendingContainers.remove(containerId);
+                return;
+            }
+
+            attempt++;
+            try {
+                remover.removeContainer(containerId);
+                pendingContainers.remove(containerId);
+            } catch (Exception e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    LOG.warn("Failed to remove orphaned container " + containerId + " after " + attempt +
+                            " attempts, giving up.", e);
+                    pendingContainers.remove(containerId);
+                    return;
+                }
+                long delay = Math.min(MAX_RETRY_DELAY_MILLIS, minRetryDelayMillis << (attempt - 1));
+                LOG.warn("Failed to remove orphaned container " + containerId + ", retrying in " + delay + "ms.", e);
+                execute(this, delay);
+            }
+        }
+    }
+}
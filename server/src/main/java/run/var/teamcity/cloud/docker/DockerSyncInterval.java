@@ -0,0 +1,154 @@
+package run.var.teamcity.cloud.docker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Interval between two synchronizations of a cloud client with the Docker daemon.
+ *
+ * <p>In fixed mode, the interval is constant. In adaptive mode, the interval drops to a minimal value whenever an
+ * activity is reported (instances changing state, pending errors, ...), and is doubled after each synchronization
+ * finding a stable state, up to a ceiling. The synchronization task should then be woken up at least at the minimal
+ * interval, such that a reported activity is quickly accounted for even if the current interval is long.</p>
+ *
+ * <p>While the Docker event stream is connected, containers failures are detected from the events, and the full
+ * synchronization is only used as a safety net. The interval is then allowed to grow, in both modes, up to
+ * {@link #EVENTS_SAFETY_NET_INTERVAL_MILLIS} when the fleet is stable.</p>
+ *
+ * <p>Instances of this class are thread-safe.</p>
+ */
+class DockerSyncInterval {
+
+    /**
+     * The minimal synchronization interval in adaptive mode.
+     */
+    final static long MIN_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(2);
+
+    /**
+     * The interval ceiling while the Docker event stream is connected.
+     */
+    final static long EVENTS_SAFETY_NET_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final boolean adaptive;
+    private final long minIntervalMillis;
+    private final long maxIntervalMillis;
+    private long intervalMillis;
+    private boolean eventsConnected = false;
+
+    private DockerSyncInterval(boolean adaptive, long initialIntervalMillis, long minIntervalMillis,
+                               long maxIntervalMillis) {
+        this.adaptive = adaptive;
+        this.intervalMillis = initialIntervalMillis;
+        this.minIntervalMillis = minIntervalMillis;
+        this.maxIntervalMillis = maxIntervalMillis;
+    }
+
+    /**
+     * Creates a fixed interval.
+     *
+     * @param intervalMillis the interval in milliseconds
+     *
+     * @return the created interval
+     *
+     * @throws IllegalArgumentException if {@code intervalMillis} is smaller than 1
+     */
+    static DockerSyncInterval fixed(long intervalMillis) {
+        if (intervalMillis < 1) {
+            throw new IllegalArgumentException("Interval must be strictly positive: " + intervalMillis);
+        }
+        return new DockerSyncInterval(false, intervalMillis, intervalMillis, intervalMillis);
+    }
+
+    /**
+     * Creates an adaptive interval.
+     *
+     * @param initialIntervalMillis the initial interval in milliseconds
+     * @param maxIntervalMillis     the interval ceiling in milliseconds
+     *
+     * @return the created interval
+     *
+     * @throws IllegalArgumentException if an interval is smaller than {@link #MIN_INTERVAL_MILLIS}, or if the initial
+     *                                  interval is greater than the ceiling
+     */
+    static DockerSyncInterval adaptive(long initialIntervalMillis, long maxIntervalMillis) {
+        if (initialIntervalMillis < MIN_INTERVAL_MILLIS) {
+            throw new IllegalArgumentException("Initial interval must be of at least " + MIN_INTERVAL_MILLIS + "ms: " +
+                    initialIntervalMillis);
+        }
+        if (maxIntervalMillis < initialIntervalMillis) {
+            throw new IllegalArgumentException("Interval ceiling must be greater or equal than the initial interval: " +
+                    maxIntervalMillis);
+        }
+        return new DockerSyncInterval(true, initialIntervalMillis, MIN_INTERVAL_MILLIS, maxIntervalMillis);
+    }
+
+    /**
+     * Returns {@code true} if this interval is adaptive.
+     *
+     * @return {@code true} if this interval is adaptive
+     */
+    boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Gets the current effective interval in milliseconds.
+     *
+     * @return the current interval
+     */
+    synchronized long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    /**
+     * Sets whether the Docker event stream is currently connected.
+     *
+     * @param eventsConnected {@code true} if the event stream is connected
+     */
+    synchronized void setEventsConnected(boolean eventsConnected) {
+        this.eventsConnected = eventsConnected;
+        intervalMillis = Math.min(intervalMillis, getCeilingMillis());
+    }
+
+    /**
+     * Updates the interval after a synchronization. Has no effect in fixed mode, unless the event stream is connected.
+     *
+     * @param active {@code true} if an activity was detected, {@code false} if the fleet is stable
+     */
+    synchronized void update(boolean active) {
+        if (active) {
+            intervalMillis = minIntervalMillis;
+        } else {
+            intervalMillis = Math.min(getCeilingMillis(), intervalMillis * 2);
+        }
+    }
+
+    private long getCeilingMillis() {
+        assert Thread.holdsLock(this);
+        return eventsConnected ? Math.max(maxIntervalMillis, EVENTS_SAFETY_NET_INTERVAL_MILLIS) : maxIntervalMillis;
+    }
+
+    /**
+     * Reports an activity outside of a synchronization (eg. an instance being started).
+     */
+    void notifyActivity() {
+        update(true);
+    }
+
+    /**
+     * Computes the delay after which the synchronization task must be woken up, given the remaining delay before the
+     * next synchronization is due.
+     *
+     * @param remainingMillis the remaining delay in milliseconds
+     *
+     * @return the wake up delay in milliseconds
+     */
+    long getWakeUpDelayMillis(long remainingMillis) {
+        return Math.min(remainingMillis, minIntervalMillis);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "DockerSyncInterval[adaptive: " + adaptive + ", interval: " + intervalMillis + "ms, ceiling: " +
+                getCeilingMillis() + "ms, events connected: " + eventsConnected + "]";
+    }
+}
@@ -1,6 +1,7 @@
 package run.var.teamcity.cloud.docker;
 
 import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
+import run.var.teamcity.cloud.docker.util.TokenBucket;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -19,6 +20,14 @@ import java.util.concurrent.TimeUnit;
  * <p>Each task has an associated operation name. The operation name is used to provide meaningful error messages to
  * be reported to the corresponding {@link DockerCloudErrorHandler error handler}. It will be used at the start of the
  * error message, its first letter should therefore be capitalized.</p>
+ *
+ * <p>Tasks are submitted according to their {@linkplain #getPriority() priority}. A task may optionally have a
+ * {@linkplain #setDeadline(long, TimeUnit) deadline}: a task that could not be submitted for execution before its
+ * deadline will be discarded and reported as failed to its error handler. The deadline runs from the moment the task
+ * is ready to be submitted, that is, when it is scheduled or, for instance tasks, when the previous task of the same
+ * instance completed. A task may also be subject to a
+ * {@linkplain #setRateLimiter(TokenBucket) rate limiter}: it will then be kept queued until a token is
+ * available.</p>
  */
 abstract class DockerTask implements Callable<Void> {
 
@@ -29,6 +38,13 @@ abstract class DockerTask implements Callable<Void> {
     private final TimeUnit timeUnit;
     private final boolean repeatable;
 
+    // Deadline, scheduling and ready times, and rate limiter are accessed from the scheduler lock only (the deadline
+    // and rate limiter must be set before the task is scheduled).
+    private long deadlineNanos = -1;
+    private long scheduledTimeNanos;
+    private long readyTimeNanos;
+    private TokenBucket rateLimiter = null;
+
     /**
      * Creates a one-shot task.
      *
@@ -117,6 +133,105 @@ abstract class DockerTask implements Callable<Void> {
         return timeUnit;
     }
 
+    /**
+     * Gets the task priority.
+     *
+     * @return the task priority
+     */
+    @Nonnull
+    abstract DockerTaskPriority getPriority();
+
+    /**
+     * Sets the deadline for this task: the maximum delay between the moment the task is ready to be submitted and
+     * its effective submission for execution. For repeatable tasks, the deadline applies to each scheduling. Must be
+     * set before the task is scheduled.
+     *
+     * @param deadline the deadline
+     * @param timeUnit the deadline time unit
+     *
+     * @throws NullPointerException     if {@code timeUnit} is {@code null}
+     * @throws IllegalArgumentException if {@code deadline} is negative
+     */
+    void setDeadline(long deadline, @Nonnull TimeUnit timeUnit) {
+        DockerCloudUtils.requireNonNull(timeUnit, "Time unit cannot be null.");
+        if (deadline < 0) {
+            throw new IllegalArgumentException("Deadline must be a positive integer.");
+        }
+        this.deadlineNanos = timeUnit.toNanos(deadline);
+    }
+
+    /**
+     * Sets the rate limiter for this task. A token will have to be acquired from the rate limiter before
+     * the task can be submitted for execution. Must be set before the task is scheduled. Rate limiters are only
+     * supported for {@link DockerInstanceTask}s.
+     *
+     * @param rateLimiter the rate limiter, or {@code null} if none
+     */
+    void setRateLimiter(@Nullable TokenBucket rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Gets the rate limiter for this task.
+     *
+     * @return the rate limiter, or {@code null} if none
+     */
+    @Nullable
+    TokenBucket getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Records the time at which this task was scheduled, as returned by {@link System#nanoTime()}.
+     *
+     * @param scheduledTimeNanos the scheduling time
+     */
+    void setScheduledTimeNanos(long scheduledTimeNanos) {
+        this.scheduledTimeNanos = scheduledTimeNanos;
+        this.readyTimeNanos = scheduledTimeNanos;
+    }
+
+    /**
+     * Gets the time at which this task was last scheduled, as returned by {@link System#nanoTime()}.
+     *
+     * @return the scheduling time
+     */
+    long getScheduledTimeNanos() {
+        return scheduledTimeNanos;
+    }
+
+    /**
+     * Records the time at which this task became ready to be submitted, as returned by {@link System#nanoTime()}.
+     * Defaults to the scheduling time. Used for tasks that must wait for the completion of a previous task.
+     *
+     * @param readyTimeNanos the ready time
+     */
+    void setReadyTimeNanos(long readyTimeNanos) {
+        this.readyTimeNanos = readyTimeNanos;
+    }
+
+    /**
+     * Checks if this task expired, its deadline being elapsed since it became ready to be submitted.
+     *
+     * @param nanoTime the current time, as returned by {@link System#nanoTime()}
+     *
+     * @return {@code true} if the task expired
+     */
+    boolean isExpired(long nanoTime) {
+        return deadlineNanos >= 0 && nanoTime - readyTimeNanos > deadlineNanos;
+    }
+
+    /**
+     * Gets the delay until this task expires.
+     *
+     * @param nanoTime the current time, as returned by {@link System#nanoTime()}
+     *
+     * @return the delay in nanoseconds until this task expires, or {@link Long#MAX_VALUE} if it has no deadline
+     */
+    long getNanosUntilExpired(long nanoTime) {
+        return deadlineNanos >= 0 ? readyTimeNanos + deadlineNanos - nanoTime : Long.MAX_VALUE;
+    }
+
     /**
      * Gets the operation name.
      *
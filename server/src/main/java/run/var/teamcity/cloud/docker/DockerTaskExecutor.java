@@ -0,0 +1,41 @@
+package run.var.teamcity.cloud.docker;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Execution backend of the {@link DockerTaskScheduler}. The scheduler takes care of ordering and submitting the tasks,
+ * the executor is only responsible for running them.
+ *
+ * <p>Implementations must be thread safe.</p>
+ */
+interface DockerTaskExecutor {
+
+    /**
+     * Executes the given runnable asynchronously.
+     *
+     * @param runnable the runnable to be executed
+     *
+     * @throws NullPointerException       if {@code runnable} is {@code null}
+     * @throws RejectedExecutionException if this executor has been shutdown
+     */
+    void execute(@Nonnull Runnable runnable);
+
+    /**
+     * Executes the given runnable asynchronously once the specified delay expired.
+     *
+     * @param runnable the runnable to be executed
+     * @param delay    the delay
+     * @param timeUnit the delay time unit
+     *
+     * @throws NullPointerException       if {@code runnable} or {@code timeUnit} is {@code null}
+     * @throws RejectedExecutionException if this executor has been shutdown
+     */
+    void schedule(@Nonnull Runnable runnable, long delay, @Nonnull TimeUnit timeUnit);
+
+    /**
+     * Shutdown this executor. Runnables already submitted will still be executed, including delayed ones.
+     */
+    void shutdown();
+}
@@ -0,0 +1,98 @@
+package run.var.teamcity.cloud.docker;
+
+import com.intellij.openapi.diagnostic.Logger;
+import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Available {@link DockerTaskExecutor} backends.
+ */
+enum DockerTaskExecutorBackend {
+
+    /**
+     * Fixed size pools of platform threads. This is the default backend. Since each concurrent operation holds a
+     * platform thread, the default daemon parallelism is bounded by the number of available processors.
+     */
+    THREAD_POOL {
+        @Nonnull
+        @Override
+        DockerTaskExecutor createExecutor(@Nonnull String name, int poolSize, boolean usingDaemonThreads) {
+            return new ThreadPoolDockerTaskExecutor(name, poolSize, usingDaemonThreads);
+        }
+
+        @Override
+        int getDefaultParallelism(int imageCount) {
+            return Math.max(1, Math.min(imageCount * 2, Runtime.getRuntime().availableProcessors() + 1));
+        }
+    },
+    /**
+     * One virtual thread per task. The pool sizes are then ignored by the executors, but the number of concurrent
+     * tasks is still bounded by the scheduler, which submits at most the daemon parallelism of instance tasks at a
+     * time, and by the Docker client connection pool sized accordingly. Since blocked virtual threads are cheap, the
+     * default daemon parallelism depends neither on the number of available processors nor on the number of images:
+     * it is set to {@value #DEFAULT_VIRTUAL_THREADS_PARALLELISM} concurrent operations, a load that the daemon
+     * is expected to handle. Virtual threads are always daemon threads.
+     */
+    VIRTUAL_THREADS {
+        @Nonnull
+        @Override
+        DockerTaskExecutor createExecutor(@Nonnull String name, int poolSize, boolean usingDaemonThreads) {
+            return new VirtualThreadDockerTaskExecutor(name);
+        }
+
+        @Override
+        int getDefaultParallelism(int imageCount) {
+            return DEFAULT_VIRTUAL_THREADS_PARALLELISM;
+        }
+    };
+
+    /**
+     * Default daemon parallelism when using virtual threads.
+     */
+    final static int DEFAULT_VIRTUAL_THREADS_PARALLELISM = 32;
+
+    private final static Logger LOG = DockerCloudUtils.getLogger(DockerTaskExecutorBackend.class);
+
+    /**
+     * Creates a new executor.
+     *
+     * @param name               the executor name, used to name threads
+     * @param poolSize           the pool size hint
+     * @param usingDaemonThreads {@code true} to use daemon threads
+     *
+     * @return the new executor
+     *
+     * @throws NullPointerException     if {@code name} is {@code null}
+     * @throws IllegalArgumentException if {@code poolSize} is smaller than 1
+     */
+    @Nonnull
+    abstract DockerTaskExecutor createExecutor(@Nonnull String name, int poolSize, boolean usingDaemonThreads);
+
+    /**
+     * Gets the default maximum number of instance operations performed concurrently against the Docker daemon, when
+     * the daemon parallelism is not configured explicitly.
+     *
+     * @param imageCount the number of images in the cloud profile
+     *
+     * @return the default daemon parallelism, always strictly positive
+     */
+    abstract int getDefaultParallelism(int imageCount);
+
+    /**
+     * Selects the backend to be used on this server. Virtual threads are used only when explicitly requested through
+     * the {@link DockerCloudUtils#VIRTUAL_THREADS_SYSPROP} system property and when supported by the current JVM.
+     *
+     * @return the backend to be used
+     */
+    @Nonnull
+    static DockerTaskExecutorBackend forCurrentJvm() {
+        if (Boolean.getBoolean(DockerCloudUtils.VIRTUAL_THREADS_SYSPROP)) {
+            if (VirtualThreadDockerTaskExecutor.isSupported()) {
+                return VIRTUAL_THREADS;
+            }
+            LOG.warn("Virtual threads requested but not supported by the current JVM, using thread pools instead.");
+        }
+        return THREAD_POOL;
+    }
+}
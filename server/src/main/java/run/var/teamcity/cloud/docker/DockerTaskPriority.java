@@ -0,0 +1,31 @@
+package run.var.teamcity.cloud.docker;
+
+/**
+ * Priority classes of the {@link DockerTask}s, from the highest to the lowest priority. When several tasks are
+ * eligible for submission, the {@link DockerTaskScheduler} will always submit the tasks with the highest priority
+ * first.
+ */
+enum DockerTaskPriority {
+    /**
+     * Termination of cloud instances. Terminations free the quota slots and resources of the Docker daemon, they
+     * are therefore always processed first.
+     */
+    TERMINATE,
+    /**
+     * Start of cloud instances.
+     */
+    START,
+    /**
+     * Restart of cloud instances, and other instance operations.
+     */
+    RESTART,
+    /**
+     * Synchronization of the cloud client with the Docker daemon.
+     */
+    SYNC,
+    /**
+     * Background operations preparing resources ahead of their use, such as the refill of the warm pools. They can
+     * be safely deferred after any other task.
+     */
+    BACKGROUND
+}
@@ -3,11 +3,14 @@ package run.var.teamcity.cloud.docker;
 
 import com.intellij.openapi.diagnostic.Logger;
 import jetbrains.buildServer.clouds.InstanceStatus;
+import run.var.teamcity.cloud.docker.DockerTaskSchedulerStats.OperationKey;
+import run.var.teamcity.cloud.docker.DockerTaskSchedulerStats.Outcome;
 import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
-import run.var.teamcity.cloud.docker.util.NamedThreadFactory;
-import run.var.teamcity.cloud.docker.util.WrappedRunnableScheduledFuture;
+import run.var.teamcity.cloud.docker.util.LatencyHistogram;
+import run.var.teamcity.cloud.docker.util.TokenBucket;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.locks.ReentrantLock;
@@ -20,16 +23,49 @@ import java.util.concurrent.locks.ReentrantLock;
  * fully sequentially, with no other concurrent operation.
  *
  * <p>This management is implemented using a waiting queue (in addition to the internal queue of the
- * {@link ThreadPoolExecutor}) where tasks are considered <i>scheduled</i> but not yet <i>submitted</i>. Submission
+ * {@link DockerTaskExecutor}) where tasks are considered <i>scheduled</i> but not yet <i>submitted</i>. Submission
  * is only performed when all the required conditions are met:
  * <ul>
- * <li>Client tasks: require that no other task to be to be submitted for execution. They will always be
- * processed before instance tasks independently of their submission order.</li>
- * <li>Instance tasks: require that no client task, or task for the same cloud instance, to be submitted for
+ * <li>Client tasks: require that no other client task or instance task (image pulls excepted) to be submitted for
  * execution.</li>
+ * <li>Instance tasks: require that no client task, or task for the same cloud instance, to be submitted for
+ * execution, and that fewer instance tasks than the daemon parallelism are already submitted.</li>
  * </ul>
  * </p>
  *
+ * <p>Tasks are executed on separate executors: one for client tasks, one for instance tasks, and one for
+ * {@link DockerImagePullTask}s. Image pulls are still ordered with the other tasks of their instance, but they do
+ * not delay the submission of client tasks, and can never exhaust the threads available to the other tasks. The
+ * executors are provided by a configurable {@link DockerTaskExecutorBackend}.</p>
+ *
+ * <p>Scheduled instance tasks are stored in per-instance FIFO <i>lanes</i>. A lane is listed in the queue of ready
+ * lanes when it holds at least one task and no task for this instance is currently submitted. Submitting the next
+ * task, or processing a task completion, is therefore performed in constant time independently of the number of
+ * scheduled tasks, while tasks for a given instance are still executed in their scheduling order. Queued tasks that
+ * are superseded by a newly scheduled one (eg. the start of an instance that is terminated before the start was
+ * submitted) are cancelled without being executed.</p>
+ *
+ * <p>Every task has a {@link DockerTaskPriority}. Ready lanes and client tasks are queued by priority, and the tasks
+ * with the highest priority are always submitted first. A pending client task only holds back the instance tasks
+ * with an equal or lower priority, such that terminations or starts of instances are not delayed by a
+ * synchronization with the daemon. To prevent a client task from being starved by a sustained flow of instance tasks
+ * with a higher priority, a client task pending for more than a {@linkplain #DEFAULT_CLIENT_TASK_MAX_WAIT_MILLIS
+ * maximal wait} holds back all the instance tasks, until the submitted ones are completed and the client task can be
+ * submitted. Tasks that could not be submitted before their deadline are discarded and reported as failed.</p>
+ *
+ * <p>To make priorities effective, the number of submitted instance tasks is capped, independently of the executor
+ * backend, to the size of the instance tasks pool (the daemon parallelism), and the number of submitted image pulls
+ * to the size of the image pull pool. With thread pools, the caps match the number of threads. With virtual threads,
+ * no thread is reserved, and the caps are the only bounds on the number of concurrent operations.</p>
+ *
+ * <p>Instance tasks may be subject to a rate limiter. When no token is available for the next task of a lane, the lane
+ * is <i>throttled</i>: it is kept aside, without holding any thread, until a token is expected to be available. A
+ * throttled lane is released immediately if its next task changes (eg. when a start is cancelled by a termination).
+ * </p>
+ *
+ * <p>The scheduler is instrumented: the depth of its queues, as well as the wait and execution times of the tasks,
+ * can be retrieved as {@linkplain #getStats() statistics}.</p>
+ *
  * <p>Instances of this class are thread safe.</p>
  */
 class DockerTaskScheduler {
@@ -39,96 +75,168 @@ class DockerTaskScheduler {
     // This lock ensure a thread-safe usage of all the variables below.
     private final ReentrantLock lock = new ReentrantLock();
 
-    private final Set<UUID> submittedInstancesUUID = new HashSet<>();
-    private final LinkedList<DockerClientTask> clientTasks = new LinkedList<>();
-    private final LinkedList<DockerInstanceTask> instancesTask = new LinkedList<>();
+    private final Map<UUID, InstanceTaskLane> instanceLanes = new HashMap<>();
+    private final PriorityDeque<InstanceTaskLane> readyLanes = new PriorityDeque<>();
+    private final PriorityDeque<InstanceTaskLane> readyImagePullLanes = new PriorityDeque<>();
+    private final PriorityDeque<DockerClientTask> clientTasks = new PriorityDeque<>();
+    private int scheduledInstanceTaskCount = 0;
+    private int submittedInstanceTaskCount = 0;
+    private int submittedImagePullTaskCount = 0;
+    private int throttledLaneCount = 0;
     private boolean clientTaskSubmitted = false;
     private boolean shutdownRequested = false;
+    private final Map<OperationKey, LatencyHistogram> waitTimes = new HashMap<>();
+    private final Map<OperationKey, LatencyHistogram> executionTimes = new HashMap<>();
+    private final Map<String, LatencyHistogram> admissionWaitTimes = new HashMap<>();
 
     /**
-     * Our {@link ExecutorService}. We use a "<i>scheduled</i>" thread pool to handle repeatable tasks.
+     * Executor for client tasks. Also used to handle the delays of repeatable tasks. A single thread is sufficient,
+     * since client tasks are never executed concurrently.
      */
-    private final ScheduledThreadPoolExecutor executor;
+    private final DockerTaskExecutor clientExecutor;
 
     /**
-     * Creates a new scheduler instance.
+     * Executor for instance tasks, mostly short invocations of the Docker API.
+     */
+    private final DockerTaskExecutor instanceExecutor;
+
+    /**
+     * Executor for {@link DockerImagePullTask}s. Image pulls may take minutes to complete, they are therefore isolated
+     * in their own pool to never hold back other tasks.
+     */
+    private final DockerTaskExecutor imagePullExecutor;
+
+    /**
+     * Default maximal delay in milliseconds during which a pending client task may be held back by instance tasks with
+     * a higher priority.
+     */
+    final static long DEFAULT_CLIENT_TASK_MAX_WAIT_MILLIS = 5000;
+
+    private final int threadPoolSize;
+    private final int imagePullThreadPoolSize;
+    private final long clientTaskMaxWaitNanos;
+
+    /**
+     * Creates a new scheduler instance using thread pools, with a single thread for image pulls.
      *
-     * @param threadPoolSize    the size of the thread pool
+     * @param threadPoolSize    the maximum number of instance tasks executed concurrently
      * @param usingDaemonThread {@code true} to use daemon threads
      *
-     * @throws IllegalArgumentException if {@code connectionPoolSize} is smaller than 1
+     * @throws IllegalArgumentException if {@code threadPoolSize} is smaller than 1
      */
     DockerTaskScheduler(int threadPoolSize, boolean usingDaemonThread) {
+        this(DockerTaskExecutorBackend.THREAD_POOL, threadPoolSize, 1, usingDaemonThread);
+    }
+
+    /**
+     * Creates a new scheduler instance.
+     *
+     * @param backend                 the executor backend
+     * @param threadPoolSize          the maximum number of instance tasks executed concurrently
+     * @param imagePullThreadPoolSize the maximum number of image pulls executed concurrently
+     * @param usingDaemonThread       {@code true} to use daemon threads
+     *
+     * @throws NullPointerException     if {@code backend} is {@code null}
+     * @throws IllegalArgumentException if a thread pool size is smaller than 1
+     */
+    DockerTaskScheduler(@Nonnull DockerTaskExecutorBackend backend, int threadPoolSize, int imagePullThreadPoolSize,
+                        boolean usingDaemonThread) {
+        this(backend, threadPoolSize, imagePullThreadPoolSize, usingDaemonThread,
+                DEFAULT_CLIENT_TASK_MAX_WAIT_MILLIS);
+    }
+
+    /**
+     * Creates a new scheduler instance.
+     *
+     * @param backend                 the executor backend
+     * @param threadPoolSize          the maximum number of instance tasks executed concurrently
+     * @param imagePullThreadPoolSize the maximum number of image pulls executed concurrently
+     * @param usingDaemonThread       {@code true} to use daemon threads
+     * @param clientTaskMaxWaitMillis the maximal delay in milliseconds during which a pending client task may be held
+     *                                back by instance tasks with a higher priority
+     *
+     * @throws NullPointerException     if {@code backend} is {@code null}
+     * @throws IllegalArgumentException if a thread pool size is smaller than 1, or if {@code clientTaskMaxWaitMillis}
+     *                                  is negative
+     */
+    DockerTaskScheduler(@Nonnull DockerTaskExecutorBackend backend, int threadPoolSize, int imagePullThreadPoolSize,
+                        boolean usingDaemonThread, long clientTaskMaxWaitMillis) {
+        DockerCloudUtils.requireNonNull(backend, "Executor backend cannot be null.");
         if (threadPoolSize < 1) {
             throw new IllegalArgumentException("Thread pool size must be strictly greater than 1.");
         }
-        executor = new ScheduledThreadPoolExecutor(threadPoolSize,
-                new NamedThreadFactory("DockerTaskScheduler", usingDaemonThread)) {
-            @Override
-            protected <V> RunnableScheduledFuture<V> decorateTask(Callable<V> callable, RunnableScheduledFuture<V> task) {
-                return new WrappedRunnableScheduledFuture<>(callable, task);
-            }
+        if (imagePullThreadPoolSize < 1) {
+            throw new IllegalArgumentException("Image pull thread pool size must be strictly greater than 1.");
+        }
+        if (clientTaskMaxWaitMillis < 0) {
+            throw new IllegalArgumentException("Client task maximal wait must be positive.");
+        }
+        this.threadPoolSize = threadPoolSize;
+        this.imagePullThreadPoolSize = imagePullThreadPoolSize;
+        this.clientTaskMaxWaitNanos = TimeUnit.MILLISECONDS.toNanos(clientTaskMaxWaitMillis);
+        clientExecutor = backend.createExecutor("DockerTaskScheduler-client", 1, usingDaemonThread);
+        instanceExecutor = backend.createExecutor("DockerTaskScheduler", threadPoolSize, usingDaemonThread);
+        imagePullExecutor = backend.createExecutor("DockerTaskScheduler-pull", imagePullThreadPoolSize,
+                usingDaemonThread);
+    }
 
-            @Override
-            protected void afterExecute(Runnable runnable, Throwable throwable) {
+    private void taskCompleted(DockerTask dockerTask, Throwable throwable, long waitNanos, long executionNanos) {
+        try {
+            lock.lock();
 
-                assert runnable instanceof WrappedRunnableScheduledFuture;
+            Outcome outcome = throwable == null ? Outcome.SUCCESS : Outcome.FAILURE;
+            recordTime(waitTimes, dockerTask, outcome, waitNanos);
+            recordTime(executionTimes, dockerTask, outcome, executionNanos);
 
-                WrappedRunnableScheduledFuture<?, ?> wrappedRunnable = (WrappedRunnableScheduledFuture<?, ?>) runnable;
-                if (throwable == null) {
-                    try {
-                        wrappedRunnable.get();
-                    } catch (Exception e) {
-                        throwable = e;
-                    }
-                }
+            LOG.debug("Task execution completed.");
 
-                Object task = wrappedRunnable.getTask();
+            if (dockerTask instanceof DockerClientTask) {
+                assert clientTaskSubmitted;
+                clientTaskSubmitted = false;
+            } else {
+                assert dockerTask instanceof DockerInstanceTask;
+                DockerInstanceTask instanceTask = (DockerInstanceTask) dockerTask;
+                instanceTaskCompleted(instanceTask);
+            }
 
-                if (task instanceof ScheduleRepetableTask) {
-                    return;
-                }
+            if (throwable == null) {
+                LOG.debug("Task " + dockerTask + " completed without error.");
+            } else {
+                LOG.error("Task " + dockerTask + " execution failed.", throwable);
+                dockerTask.getErrorProvider().notifyFailure(dockerTask.getOperationName() + " failed.", throwable);
 
-                assert task instanceof DockerTask;
+            }
 
-                try {
-                    lock.lock();
-                    DockerTask dockerTask = (DockerTask) task;
+            rescheduleIfRepeatable(dockerTask);
 
-                    LOG.debug("Task execution completed.");
+            scheduleNextTasks();
+        } finally {
+            lock.unlock();
+        }
+    }
 
-                    if (dockerTask instanceof DockerClientTask) {
-                        assert clientTaskSubmitted;
-                        clientTaskSubmitted = false;
-                    } else {
-                        assert dockerTask instanceof DockerInstanceTask;
-                        DockerInstanceTask instanceTask = (DockerInstanceTask) task;
-                        DockerInstance instance = instanceTask.getInstance();
-                        boolean unmarked = submittedInstancesUUID.remove(instance.getUuid());
-                        assert unmarked : "Task " + instanceTask + " was not marked as being processed.";
-                    }
+    private void taskExpired(DockerTask dockerTask) {
+        assert lock.isHeldByCurrentThread();
 
-                    if (throwable == null) {
-                        LOG.debug("Task " + dockerTask + " completed without error.");
-                    } else {
-                        LOG.error("Task " + dockerTask + " execution failed.", throwable);
-                        dockerTask.getErrorProvider().notifyFailure(dockerTask.getOperationName() + " failed.", throwable);
+        recordTime(waitTimes, dockerTask, Outcome.EXPIRED, System.nanoTime() - dockerTask.getScheduledTimeNanos());
 
-                    }
+        LOG.warn("Task " + dockerTask + " not submitted before its deadline, discarding it.");
+        dockerTask.getErrorProvider().notifyFailure(dockerTask.getOperationName() + " expired before execution.",
+                null);
 
-                    if (dockerTask.isRepeatable()) {
-                        // Repeatable tasks are always rescheduled, even if their last execution failed. This permits
-                        // the client to recover from an error status.
-                        LOG.debug("Rescheduling task: " + dockerTask);
-                        executor.schedule(new ScheduleRepetableTask(dockerTask), dockerTask.getDelay(), dockerTask.getTimeUnit());
-                    }
+        rescheduleIfRepeatable(dockerTask);
+    }
 
-                    scheduleNextTasks();
-                } finally {
-                    lock.unlock();
-                }
-            }
-        };
+    private void rescheduleIfRepeatable(DockerTask dockerTask) {
+        assert lock.isHeldByCurrentThread();
+
+        if (dockerTask.isRepeatable() && !shutdownRequested) {
+            // Repeatable tasks are always rescheduled, even if their last execution failed. This permits
+            // the client to recover from an error status.
+            LOG.debug("Rescheduling task: " + dockerTask);
+            clientExecutor.schedule(new ScheduleRepetableTask(dockerTask), dockerTask.getDelay(),
+                    dockerTask.getTimeUnit());
+        }
     }
 
     /**
@@ -164,7 +272,7 @@ class DockerTaskScheduler {
             if (initialDelay > 0) {
                 TimeUnit timeUnit = task.getTimeUnit();
                 assert timeUnit != null;
-                executor.schedule(new ScheduleRepetableTask(task), initialDelay, task.getTimeUnit());
+                clientExecutor.schedule(new ScheduleRepetableTask(task), initialDelay, task.getTimeUnit());
                 return;
             }
         }
@@ -181,11 +289,13 @@ class DockerTaskScheduler {
                 throw new RejectedExecutionException("Scheduler will shutdown.");
             }
 
+            task.setScheduledTimeNanos(System.nanoTime());
+
             if (task instanceof DockerClientTask) {
-                clientTasks.add((DockerClientTask) task);
+                clientTasks.add(task.getPriority(), (DockerClientTask) task);
             } else {
                 assert task instanceof DockerInstanceTask;
-                instancesTask.add((DockerInstanceTask) task);
+                queueInstanceTask((DockerInstanceTask) task);
             }
             scheduleNextTasks();
         } finally {
@@ -193,57 +303,485 @@ class DockerTaskScheduler {
         }
     }
 
-    private void scheduleNextTasks() {
+    private void queueInstanceTask(DockerInstanceTask instanceTask) {
         assert lock.isHeldByCurrentThread();
 
-        LOG.debug("Scheduling status: submitted instance tasks: " + submittedInstancesUUID.size() + ", client task " +
-                "submitted: " + clientTaskSubmitted + ", instances tasks scheduled: " + instancesTask.size() + ", " +
-                " client tasks scheduled: " + clientTasks.size());
-
-        if (!clientTaskSubmitted) {
-            if (!clientTasks.isEmpty()) {
-                // Some client tasks are waiting, we will submit them as soon as possible, but not before all instances
-                // tasks are processed.
-                if (submittedInstancesUUID.isEmpty()) {
-                    DockerClientTask clientTask = clientTasks.pollFirst();
-                    LOG.debug("Submitting client task " + clientTask + " for execution.");
-                    executor.submit(clientTask);
-                    // Mark the client task as being submitted.
-                    clientTaskSubmitted = true;
+        UUID instanceUuid = instanceTask.getInstance().getUuid();
+        InstanceTaskLane lane = instanceLanes.get(instanceUuid);
+        if (lane == null) {
+            lane = new InstanceTaskLane(instanceUuid);
+            instanceLanes.put(instanceUuid, lane);
+        }
+
+        if (coalesce(lane, instanceTask)) {
+            lane.tasks.add(instanceTask);
+            scheduledInstanceTaskCount++;
+        }
+
+        assert !lane.tasks.isEmpty();
+
+        // A lane becomes ready when it receives a task while having nothing in flight. Otherwise it is either
+        // already queued as ready or will be re-queued upon completion of its submitted task. A ready lane is queued
+        // according to the priority of its first task, which may have been changed by coalescing.
+        if (!lane.submitted) {
+            DockerInstanceTask nextTask = lane.tasks.peekFirst();
+            if (lane.throttled) {
+                if (nextTask != lane.throttledTask) {
+                    // The throttled task has been cancelled, the lane can be processed right away.
+                    releaseThrottledLane(lane);
                 }
-            } else {
-                // No client tasks are waiting or is being processed, we may execute instance tasks.
-                Iterator<DockerInstanceTask> itr = instancesTask.iterator();
+            } else if (lane.readyPriority == null) {
+                markReady(lane);
+            } else if (lane.readyPriority != nextTask.getPriority() || lane.readyQueue != readyQueueFor(nextTask)) {
+                lane.readyQueue.remove(lane.readyPriority, lane);
+                markReady(lane);
+            }
+        }
+    }
+
+    private PriorityDeque<InstanceTaskLane> readyQueueFor(DockerInstanceTask instanceTask) {
+        return instanceTask instanceof DockerImagePullTask ? readyImagePullLanes : readyLanes;
+    }
+
+    private void markReady(InstanceTaskLane lane) {
+        assert lock.isHeldByCurrentThread();
+        assert !lane.submitted && !lane.throttled && !lane.tasks.isEmpty();
+
+        DockerInstanceTask nextTask = lane.tasks.peekFirst();
+        lane.readyPriority = nextTask.getPriority();
+        lane.readyQueue = readyQueueFor(nextTask);
+        lane.readyQueue.add(lane.readyPriority, lane);
+    }
+
+    private void laneIdle(InstanceTaskLane lane) {
+        assert lock.isHeldByCurrentThread();
+
+        if (lane.tasks.isEmpty()) {
+            instanceLanes.remove(lane.instanceUuid);
+        } else {
+            markReady(lane);
+        }
+    }
+
+    /**
+     * Removes from the given lane the queued tasks that are superseded by a newly scheduled task. Tasks already
+     * submitted for execution are never affected:
+     * <ul>
+     * <li>a termination cancels all queued start and restart tasks, and is itself discarded if the lane
+     * already ends with a termination;</li>
+     * <li>a restart is discarded if the lane already ends with a restart.</li>
+     * </ul>
+     * Since the cancelled tasks were never submitted, their scheduled status was never applied and the instance
+     * status remains consistent with the operations that were actually performed.
+     *
+     * @param lane the instance lane
+     * @param instanceTask the newly scheduled task
+     *
+     * @return {@code true} if the new task must be queued, {@code false} if it must be discarded
+     */
+    private boolean coalesce(InstanceTaskLane lane, DockerInstanceTask instanceTask) {
+        assert lock.isHeldByCurrentThread();
+
+        DockerInstanceTask lastTask = lane.tasks.peekLast();
+
+        switch (instanceTask.getType()) {
+            case TERMINATE:
+                Iterator<DockerInstanceTask> itr = lane.tasks.iterator();
                 while (itr.hasNext()) {
-                    DockerInstanceTask instanceTask = itr.next();
-                    DockerInstance instance = instanceTask.getInstance();
-                    UUID instanceUuid = instance.getUuid();
-                    // Only submit one task for a given instance at a time.
-                    if (!submittedInstancesUUID.contains(instanceUuid)) {
-                        LOG.debug("Submitting instance task " + instanceTask + " for execution.");
-                        InstanceStatus scheduledStatus = instanceTask.getScheduledStatus();
-                        if (scheduledStatus != null) {
-                            instance.setStatus(scheduledStatus);
-                        }
-
-                        // Mark the instance tasks as being submitted.
-                        submittedInstancesUUID.add(instanceUuid);
+                    DockerInstanceTask queuedTask = itr.next();
+                    DockerInstanceTaskType queuedType = queuedTask.getType();
+                    if (queuedType == DockerInstanceTaskType.START || queuedType == DockerInstanceTaskType.RESTART) {
+                        LOG.info("Cancelling " + queuedTask + ", superseded by " + instanceTask + ".");
                         itr.remove();
-                        executor.submit(instanceTask);
-                    } else {
-                        LOG.debug("Tasks for instance " + instance.getUuid() + " already submitted, delaying scheduled"
-                                + " task");
+                        scheduledInstanceTaskCount--;
+                        taskCancelled(queuedTask);
                     }
                 }
-            }
+                lastTask = lane.tasks.peekLast();
+                if (lastTask != null && lastTask.getType() == DockerInstanceTaskType.TERMINATE) {
+                    LOG.info("Discarding " + instanceTask + ", termination already scheduled.");
+                    taskCancelled(instanceTask);
+                    return false;
+                }
+                break;
+            case RESTART:
+                if (lastTask != null && lastTask.getType() == DockerInstanceTaskType.RESTART) {
+                    LOG.info("Discarding " + instanceTask + ", restart already scheduled.");
+                    taskCancelled(instanceTask);
+                    return false;
+                }
+                break;
+            default:
+                // Nothing to coalesce.
+        }
+
+        return true;
+    }
+
+    private void taskCancelled(DockerTask dockerTask) {
+        assert lock.isHeldByCurrentThread();
+
+        recordTime(waitTimes, dockerTask, Outcome.CANCELLED, System.nanoTime() - dockerTask.getScheduledTimeNanos());
+    }
+
+    private void recordTime(Map<OperationKey, LatencyHistogram> histograms, DockerTask dockerTask, Outcome outcome,
+                            long durationNanos) {
+        assert lock.isHeldByCurrentThread();
+
+        OperationKey key = new OperationKey(dockerTask.getOperationName(), outcome);
+        LatencyHistogram histogram = histograms.get(key);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            histograms.put(key, histogram);
+        }
+        histogram.record(durationNanos);
+    }
+
+    /**
+     * Gets a snapshot of the scheduler statistics.
+     *
+     * @return the scheduler statistics
+     */
+    @Nonnull
+    DockerTaskSchedulerStats getStats() {
+        lock.lock();
+        try {
+            return new DockerTaskSchedulerStats(clientTasks.size(), scheduledInstanceTaskCount, readyLanes.size(),
+                    readyImagePullLanes.size(), throttledLaneCount, submittedInstanceTaskCount,
+                    submittedImagePullTaskCount, clientTaskSubmitted, waitTimes, executionTimes, admissionWaitTimes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void instanceTaskCompleted(DockerInstanceTask instanceTask) {
+        assert lock.isHeldByCurrentThread();
+
+        InstanceTaskLane lane = instanceLanes.get(instanceTask.getInstance().getUuid());
+        assert lane != null && lane.submitted : "Task " + instanceTask + " was not marked as being processed.";
+
+        lane.submitted = false;
+        if (instanceTask instanceof DockerImagePullTask) {
+            submittedImagePullTaskCount--;
         } else {
+            submittedInstanceTaskCount--;
+        }
+
+        // The next task of the lane was held back by this one, its deadline only runs from now on.
+        DockerInstanceTask nextTask = lane.tasks.peekFirst();
+        if (nextTask != null) {
+            nextTask.setReadyTimeNanos(System.nanoTime());
+        }
+
+        laneIdle(lane);
+    }
+
+    private void scheduleNextTasks() {
+        assert lock.isHeldByCurrentThread();
+
+        LOG.debug("Scheduling status: submitted instance tasks: " + submittedInstanceTaskCount + ", submitted image " +
+                "pull tasks: " + submittedImagePullTaskCount + ", client task " +
+                "submitted: " + clientTaskSubmitted + ", instances tasks scheduled: " + scheduledInstanceTaskCount +
+                ", ready instance lanes: " + readyLanes.size() + ", ready image pull lanes: " +
+                readyImagePullLanes.size() + ", throttled lanes: " + throttledLaneCount + ", client tasks scheduled: " +
+                clientTasks.size());
+
+        while (!clientTaskSubmitted) {
+            // Instance tasks with a higher priority than the pending client tasks (if any) may be submitted, unless the
+            // next client task waited for too long. Image pulls do not conflict with client tasks and are never held
+            // back.
+            DockerTaskPriority clientPriority = clientTasks.peekPriority();
+            if (!isClientTaskStarving()) {
+                submitReadyLanes(readyLanes, clientPriority);
+            }
+            submitReadyLanes(readyImagePullLanes, clientPriority);
+
+            // Some client tasks are waiting, we will submit them as soon as possible, but not before all instances
+            // tasks are processed. Image pulls do not conflict with client tasks and are not waited for.
+            if (clientPriority == null || submittedInstanceTaskCount > 0) {
+                break;
+            }
+
+            DockerClientTask clientTask = clientTasks.poll();
+            assert clientTask != null;
+            long submissionTime = System.nanoTime();
+            if (clientTask.isExpired(submissionTime)) {
+                taskExpired(clientTask);
+                continue;
+            }
+
+            LOG.debug("Submitting client task " + clientTask + " for execution.");
+            clientExecutor.execute(new TaskRunner(clientTask, submissionTime));
+            // Mark the client task as being submitted.
+            clientTaskSubmitted = true;
+        }
+
+        if (clientTaskSubmitted) {
             LOG.debug("Client task submitted for execution, skipping submitting other tasks.");
         }
 
         shutdownCheck();
     }
 
-    private class ScheduleRepetableTask implements Callable<Void> {
+    private boolean isClientTaskStarving() {
+        assert lock.isHeldByCurrentThread();
+
+        DockerClientTask clientTask = clientTasks.peek();
+        return clientTask != null && System.nanoTime() - clientTask.getScheduledTimeNanos() > clientTaskMaxWaitNanos;
+    }
+
+    /**
+     * Submits the ready lanes by decreasing priority, as long as their submission cap is not reached. Only lanes
+     * with no submitted task are ready, ensuring that only one task for a given instance is submitted at a time.
+     *
+     * @param lanes          the ready lanes
+     * @param clientPriority the priority of the pending client tasks if any, only lanes with a strictly higher
+     *                       priority will be submitted
+     */
+    private void submitReadyLanes(PriorityDeque<InstanceTaskLane> lanes,
+                                  @Nullable DockerTaskPriority clientPriority) {
+        assert lock.isHeldByCurrentThread();
+        assert !clientTaskSubmitted;
+
+        DockerTaskPriority priority;
+        while ((priority = lanes.peekPriority()) != null &&
+                (clientPriority == null || priority.compareTo(clientPriority) < 0) && hasCapacity(lanes)) {
+            InstanceTaskLane lane = lanes.poll();
+            assert lane != null && !lane.submitted && !lane.tasks.isEmpty() && lane.readyQueue == lanes;
+            lane.readyPriority = null;
+            lane.readyQueue = null;
+
+            DockerInstanceTask instanceTask = lane.tasks.peekFirst();
+            long submissionTime = System.nanoTime();
+
+            if (instanceTask.isExpired(submissionTime)) {
+                lane.tasks.pollFirst();
+                scheduledInstanceTaskCount--;
+                lane.throttledTask = null;
+                taskExpired(instanceTask);
+                laneIdle(lane);
+                continue;
+            }
+
+            if (!admit(lane, instanceTask, submissionTime)) {
+                continue;
+            }
+
+            lane.tasks.pollFirst();
+            scheduledInstanceTaskCount--;
+
+            LOG.debug("Submitting instance task " + instanceTask + " for execution.");
+            InstanceStatus scheduledStatus = instanceTask.getScheduledStatus();
+            if (scheduledStatus != null) {
+                instanceTask.getInstance().setStatus(scheduledStatus);
+            }
+
+            // Mark the instance lane as being submitted.
+            lane.submitted = true;
+            if (instanceTask instanceof DockerImagePullTask) {
+                submittedImagePullTaskCount++;
+                imagePullExecutor.execute(new TaskRunner(instanceTask, submissionTime));
+            } else {
+                submittedInstanceTaskCount++;
+                instanceExecutor.execute(new TaskRunner(instanceTask, submissionTime));
+            }
+        }
+    }
+
+    /**
+     * Acquires a token from the rate limiter of the given task if any. If no token is available, the lane is
+     * throttled until a token is expected to be available.
+     *
+     * @param lane         the instance lane
+     * @param instanceTask the next task of the lane
+     * @param now          the current time
+     *
+     * @return {@code true} if the task can be submitted
+     */
+    private boolean admit(InstanceTaskLane lane, DockerInstanceTask instanceTask, long now) {
+        assert lock.isHeldByCurrentThread();
+
+        TokenBucket rateLimiter = instanceTask.getRateLimiter();
+        if (rateLimiter == null) {
+            return true;
+        }
+
+        if (rateLimiter.tryAcquire()) {
+            long admissionWait = lane.throttledTask == instanceTask ? now - lane.throttledSinceNanos : 0;
+            lane.throttledTask = null;
+            LatencyHistogram histogram = admissionWaitTimes.get(instanceTask.getOperationName());
+            if (histogram == null) {
+                histogram = new LatencyHistogram();
+                admissionWaitTimes.put(instanceTask.getOperationName(), histogram);
+            }
+            histogram.record(admissionWait);
+            if (admissionWait > 0) {
+                LOG.debug("Task " + instanceTask + " admitted after " +
+                        TimeUnit.NANOSECONDS.toMillis(admissionWait) + "ms of throttling.");
+            }
+            return true;
+        }
+
+        if (lane.throttledTask != instanceTask) {
+            lane.throttledTask = instanceTask;
+            lane.throttledSinceNanos = now;
+        }
+        lane.throttled = true;
+        throttledLaneCount++;
+
+        // Wake up no later than the task deadline, such that an expired task is promptly reported.
+        long delay = rateLimiter.getNanosUntilAvailable();
+        long nanosUntilExpired = instanceTask.getNanosUntilExpired(now);
+        if (nanosUntilExpired < delay) {
+            delay = nanosUntilExpired + 1;
+        }
+        delay = Math.max(delay, TimeUnit.MILLISECONDS.toNanos(1));
+        LOG.debug("Throttling task " + instanceTask + " for " + delay + "ns.");
+        clientExecutor.schedule(new ReleaseThrottledLane(lane), delay, TimeUnit.NANOSECONDS);
+
+        return false;
+    }
+
+    private void releaseThrottledLane(InstanceTaskLane lane) {
+        assert lock.isHeldByCurrentThread();
+        assert lane.throttled && !lane.submitted && !lane.tasks.isEmpty();
+
+        lane.throttled = false;
+        throttledLaneCount--;
+        markReady(lane);
+    }
+
+    private boolean hasCapacity(PriorityDeque<InstanceTaskLane> lanes) {
+        if (lanes == readyImagePullLanes) {
+            return submittedImagePullTaskCount < imagePullThreadPoolSize;
+        }
+        return submittedInstanceTaskCount < threadPoolSize;
+    }
+
+    /**
+     * FIFO queue of the tasks scheduled for a given cloud instance.
+     */
+    private static class InstanceTaskLane {
+        final UUID instanceUuid;
+        final Deque<DockerInstanceTask> tasks = new ArrayDeque<>();
+
+        /**
+         * {@code true} if a task from this lane is currently submitted for execution.
+         */
+        boolean submitted = false;
+
+        /**
+         * The priority under which this lane is currently queued as ready, or {@code null} if not ready.
+         */
+        DockerTaskPriority readyPriority = null;
+
+        /**
+         * The queue of ready lanes holding this lane, or {@code null} if not ready.
+         */
+        PriorityDeque<InstanceTaskLane> readyQueue = null;
+
+        /**
+         * {@code true} if this lane is waiting for a token of the rate limiter of its next task.
+         */
+        boolean throttled = false;
+
+        /**
+         * The task for which the lane was throttled, and since when. The task is kept after the lane is released,
+         * until it is finally admitted.
+         */
+        DockerInstanceTask throttledTask = null;
+        long throttledSinceNanos;
+
+        InstanceTaskLane(UUID instanceUuid) {
+            this.instanceUuid = instanceUuid;
+        }
+    }
+
+    /**
+     * FIFO queues of elements, one per {@link DockerTaskPriority}. Elements are polled from the highest priority
+     * queue first.
+     */
+    private static class PriorityDeque<E> {
+        private final EnumMap<DockerTaskPriority, Deque<E>> deques = new EnumMap<>(DockerTaskPriority.class);
+        private int size = 0;
+
+        PriorityDeque() {
+            for (DockerTaskPriority priority : DockerTaskPriority.values()) {
+                deques.put(priority, new ArrayDeque<>());
+            }
+        }
+
+        void add(DockerTaskPriority priority, E element) {
+            deques.get(priority).add(element);
+            size++;
+        }
+
+        void remove(DockerTaskPriority priority, E element) {
+            if (deques.get(priority).remove(element)) {
+                size--;
+            }
+        }
+
+        @Nullable
+        DockerTaskPriority peekPriority() {
+            if (size > 0) {
+                for (Map.Entry<DockerTaskPriority, Deque<E>> entry : deques.entrySet()) {
+                    if (!entry.getValue().isEmpty()) {
+                        return entry.getKey();
+                    }
+                }
+            }
+            return null;
+        }
+
+        @Nullable
+        E peek() {
+            DockerTaskPriority priority = peekPriority();
+            return priority != null ? deques.get(priority).peekFirst() : null;
+        }
+
+        @Nullable
+        E poll() {
+            DockerTaskPriority priority = peekPriority();
+            if (priority == null) {
+                return null;
+            }
+            size--;
+            return deques.get(priority).pollFirst();
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+
+    private class ReleaseThrottledLane implements Runnable {
+        final InstanceTaskLane lane;
+
+        ReleaseThrottledLane(InstanceTaskLane lane) {
+            this.lane = lane;
+        }
+
+        @Override
+        public void run() {
+            lock.lock();
+            try {
+                // The lane may already have been released.
+                if (lane.throttled) {
+                    releaseThrottledLane(lane);
+                    scheduleNextTasks();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private class ScheduleRepetableTask implements Runnable {
         final DockerTask task;
 
         ScheduleRepetableTask(DockerTask task) {
@@ -252,9 +790,40 @@ class DockerTaskScheduler {
         }
 
         @Override
-        public Void call() throws Exception {
-            submitTask(task);
-            return null;
+        public void run() {
+            try {
+                submitTask(task);
+            } catch (RejectedExecutionException e) {
+                LOG.debug("Repeatable task " + task + " not rescheduled: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Runs a task and notifies the scheduler upon completion.
+     */
+    private class TaskRunner implements Runnable {
+        final DockerTask task;
+        final long submissionTimeNanos;
+
+        TaskRunner(DockerTask task, long submissionTimeNanos) {
+            assert task != null;
+            this.task = task;
+            this.submissionTimeNanos = submissionTimeNanos;
+        }
+
+        @Override
+        public void run() {
+            Throwable throwable = null;
+            long startTimeNanos = System.nanoTime();
+            try {
+                task.call();
+            } catch (Throwable e) {
+                throwable = e;
+            } finally {
+                taskCompleted(task, throwable, submissionTimeNanos - task.getScheduledTimeNanos(),
+                        System.nanoTime() - startTimeNanos);
+            }
         }
     }
 
@@ -275,8 +844,10 @@ class DockerTaskScheduler {
     private void shutdownCheck() {
         assert lock.isHeldByCurrentThread();
 
-        if (shutdownRequested && instancesTask.isEmpty() && clientTasks.isEmpty()) {
-            executor.shutdown();
+        if (shutdownRequested && scheduledInstanceTaskCount == 0 && clientTasks.isEmpty()) {
+            clientExecutor.shutdown();
+            instanceExecutor.shutdown();
+            imagePullExecutor.shutdown();
         }
     }
 }
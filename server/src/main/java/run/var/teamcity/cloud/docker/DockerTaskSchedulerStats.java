@@ -0,0 +1,258 @@
+package run.var.teamcity.cloud.docker;
+
+import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
+import run.var.teamcity.cloud.docker.util.LatencyHistogram;
+
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Snapshot of the {@link DockerTaskScheduler} instrumentation. Provides the current depth of the scheduler queues,
+ * and for each operation and outcome, the histograms of the time spent by tasks waiting for submission, and of
+ * their execution time.
+ *
+ * <p>The wait time of a task is measured from its scheduling to its submission for execution (or its discarding).
+ * Comparing the wait time to the execution time allows to identify if the scheduler, rather than the Docker
+ * daemon, is the bottleneck. For rate limited tasks, the time spent waiting for a token of the rate limiter is
+ * also reported separately as admission wait time.</p>
+ *
+ * <p>Instances of this class are immutable.</p>
+ */
+public class DockerTaskSchedulerStats {
+
+    /**
+     * The outcome of a task.
+     */
+    public enum Outcome {
+        /**
+         * The task completed successfully.
+         */
+        SUCCESS,
+        /**
+         * The task execution failed.
+         */
+        FAILURE,
+        /**
+         * The task was not submitted before its deadline.
+         */
+        EXPIRED,
+        /**
+         * The task was cancelled before submission, being superseded by another task.
+         */
+        CANCELLED
+    }
+
+    /**
+     * Histogram key: an operation name and an outcome.
+     */
+    public static final class OperationKey {
+        private final String operationName;
+        private final Outcome outcome;
+
+        OperationKey(@Nonnull String operationName, @Nonnull Outcome outcome) {
+            DockerCloudUtils.requireNonNull(operationName, "Operation name cannot be null.");
+            DockerCloudUtils.requireNonNull(outcome, "Outcome cannot be null.");
+            this.operationName = operationName;
+            this.outcome = outcome;
+        }
+
+        /**
+         * Gets the operation name.
+         *
+         * @return the operation name
+         */
+        @Nonnull
+        public String getOperationName() {
+            return operationName;
+        }
+
+        /**
+         * Gets the task outcome.
+         *
+         * @return the task outcome
+         */
+        @Nonnull
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof OperationKey)) {
+                return false;
+            }
+            OperationKey key = (OperationKey) obj;
+            return operationName.equals(key.operationName) && outcome == key.outcome;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * operationName.hashCode() + outcome.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return operationName + " (" + outcome + ")";
+        }
+    }
+
+    private final int scheduledClientTaskCount;
+    private final int scheduledInstanceTaskCount;
+    private final int readyInstanceLaneCount;
+    private final int readyImagePullLaneCount;
+    private final int throttledLaneCount;
+    private final int submittedInstanceTaskCount;
+    private final int submittedImagePullTaskCount;
+    private final boolean clientTaskSubmitted;
+    private final Map<OperationKey, LatencyHistogram> waitTimes;
+    private final Map<OperationKey, LatencyHistogram> executionTimes;
+    private final Map<String, LatencyHistogram> admissionWaitTimes;
+
+    DockerTaskSchedulerStats(int scheduledClientTaskCount, int scheduledInstanceTaskCount, int readyInstanceLaneCount,
+                             int readyImagePullLaneCount, int throttledLaneCount, int submittedInstanceTaskCount,
+                             int submittedImagePullTaskCount, boolean clientTaskSubmitted,
+                             @Nonnull Map<OperationKey, LatencyHistogram> waitTimes,
+                             @Nonnull Map<OperationKey, LatencyHistogram> executionTimes,
+                             @Nonnull Map<String, LatencyHistogram> admissionWaitTimes) {
+        this.scheduledClientTaskCount = scheduledClientTaskCount;
+        this.scheduledInstanceTaskCount = scheduledInstanceTaskCount;
+        this.readyInstanceLaneCount = readyInstanceLaneCount;
+        this.readyImagePullLaneCount = readyImagePullLaneCount;
+        this.throttledLaneCount = throttledLaneCount;
+        this.submittedInstanceTaskCount = submittedInstanceTaskCount;
+        this.submittedImagePullTaskCount = submittedImagePullTaskCount;
+        this.clientTaskSubmitted = clientTaskSubmitted;
+        this.waitTimes = copy(waitTimes);
+        this.executionTimes = copy(executionTimes);
+        this.admissionWaitTimes = copy(admissionWaitTimes);
+    }
+
+    private static <K> Map<K, LatencyHistogram> copy(Map<K, LatencyHistogram> histograms) {
+        Map<K, LatencyHistogram> copy = new HashMap<>();
+        for (Map.Entry<K, LatencyHistogram> entry : histograms.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue().copy());
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * Gets the number of client tasks waiting for submission.
+     *
+     * @return the number of scheduled client tasks
+     */
+    public int getScheduledClientTaskCount() {
+        return scheduledClientTaskCount;
+    }
+
+    /**
+     * Gets the number of instance tasks (including image pulls) waiting for submission.
+     *
+     * @return the number of scheduled instance tasks
+     */
+    public int getScheduledInstanceTaskCount() {
+        return scheduledInstanceTaskCount;
+    }
+
+    /**
+     * Gets the number of instances with a task ready to be submitted on the instance tasks executor, but waiting
+     * for an available thread or for a pending client task.
+     *
+     * @return the number of ready instance lanes
+     */
+    public int getReadyInstanceLaneCount() {
+        return readyInstanceLaneCount;
+    }
+
+    /**
+     * Gets the number of instances with an image pull ready to be submitted, but waiting for an available thread
+     * or for a pending client task.
+     *
+     * @return the number of ready image pull lanes
+     */
+    public int getReadyImagePullLaneCount() {
+        return readyImagePullLaneCount;
+    }
+
+    /**
+     * Gets the number of instances whose next task is waiting for a token of its rate limiter.
+     *
+     * @return the number of throttled lanes
+     */
+    public int getThrottledLaneCount() {
+        return throttledLaneCount;
+    }
+
+    /**
+     * Gets the number of instance tasks currently submitted for execution, excluding image pulls.
+     *
+     * @return the number of submitted instance tasks
+     */
+    public int getSubmittedInstanceTaskCount() {
+        return submittedInstanceTaskCount;
+    }
+
+    /**
+     * Gets the number of image pulls currently submitted for execution.
+     *
+     * @return the number of submitted image pulls
+     */
+    public int getSubmittedImagePullTaskCount() {
+        return submittedImagePullTaskCount;
+    }
+
+    /**
+     * Returns {@code true} if a client task is currently submitted for execution.
+     *
+     * @return {@code true} if a client task is submitted
+     */
+    public boolean isClientTaskSubmitted() {
+        return clientTaskSubmitted;
+    }
+
+    /**
+     * Gets the histograms of the time spent waiting for submission, per operation and outcome.
+     *
+     * @return the wait time histograms
+     */
+    @Nonnull
+    public Map<OperationKey, LatencyHistogram> getWaitTimes() {
+        return waitTimes;
+    }
+
+    /**
+     * Gets the histograms of the execution time, per operation and outcome. Tasks that were never executed
+     * (expired or cancelled) are not part of these histograms.
+     *
+     * @return the execution time histograms
+     */
+    @Nonnull
+    public Map<OperationKey, LatencyHistogram> getExecutionTimes() {
+        return executionTimes;
+    }
+
+    /**
+     * Gets the histograms of the time spent by rate limited tasks waiting for a token, per operation. Tasks admitted
+     * without waiting are recorded with a zero duration.
+     *
+     * @return the admission wait time histograms
+     */
+    @Nonnull
+    public Map<String, LatencyHistogram> getAdmissionWaitTimes() {
+        return admissionWaitTimes;
+    }
+
+    @Override
+    public String toString() {
+        return "DockerTaskSchedulerStats[scheduled client tasks: " + scheduledClientTaskCount + ", scheduled " +
+                "instance tasks: " + scheduledInstanceTaskCount + ", ready instance lanes: " + readyInstanceLaneCount +
+                ", ready image pull lanes: " + readyImagePullLaneCount + ", throttled lanes: " + throttledLaneCount +
+                ", submitted instance tasks: " +
+                submittedInstanceTaskCount + ", submitted image pulls: " + submittedImagePullTaskCount +
+                ", client task submitted: " + clientTaskSubmitted + "]";
+    }
+}
@@ -0,0 +1,49 @@
+package run.var.teamcity.cloud.docker;
+
+import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
+import run.var.teamcity.cloud.docker.util.NamedThreadFactory;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link DockerTaskExecutor} backed by a fixed size {@link ScheduledThreadPoolExecutor}.
+ */
+class ThreadPoolDockerTaskExecutor implements DockerTaskExecutor {
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    /**
+     * Creates a new executor.
+     *
+     * @param name               the name of the executor threads
+     * @param poolSize           the thread pool size
+     * @param usingDaemonThreads {@code true} to use daemon threads
+     *
+     * @throws NullPointerException     if {@code name} is {@code null}
+     * @throws IllegalArgumentException if {@code poolSize} is smaller than 1
+     */
+    ThreadPoolDockerTaskExecutor(@Nonnull String name, int poolSize, boolean usingDaemonThreads) {
+        DockerCloudUtils.requireNonNull(name, "Name cannot be null.");
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("Pool size must be strictly greater than 1.");
+        }
+        executor = new ScheduledThreadPoolExecutor(poolSize, new NamedThreadFactory(name, usingDaemonThreads));
+    }
+
+    @Override
+    public void execute(@Nonnull Runnable runnable) {
+        executor.execute(runnable);
+    }
+
+    @Override
+    public void schedule(@Nonnull Runnable runnable, long delay, @Nonnull TimeUnit timeUnit) {
+        executor.schedule(runnable, delay, timeUnit);
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,116 @@
+package run.var.teamcity.cloud.docker;
+
+import com.intellij.openapi.diagnostic.Logger;
+import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
+import run.var.teamcity.cloud.docker.util.NamedThreadFactory;
+
+import javax.annotation.Nonnull;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link DockerTaskExecutor} starting a new virtual thread for each runnable. Delayed runnables are handed over to
+ * a virtual thread by a single platform timer thread.
+ *
+ * <p>Virtual threads are only available starting with Java 21. Since the plugin is compiled against Java 8, the
+ * corresponding API is accessed reflectively. Use {@link #isSupported()} to check if the current JVM provides virtual
+ * threads.</p>
+ */
+class VirtualThreadDockerTaskExecutor implements DockerTaskExecutor {
+
+    private final static Logger LOG = DockerCloudUtils.getLogger(VirtualThreadDockerTaskExecutor.class);
+
+    private final static Method OF_VIRTUAL_METHOD;
+    private final static Method BUILDER_NAME_METHOD;
+    private final static Method BUILDER_FACTORY_METHOD;
+    private final static Method NEW_THREAD_PER_TASK_EXECUTOR_METHOD;
+
+    static {
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderFactory = null;
+        Method newThreadPerTaskExecutor = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builderName = builderClass.getMethod("name", String.class, long.class);
+            builderFactory = builderClass.getMethod("factory");
+            newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        } catch (ReflectiveOperationException e) {
+            LOG.debug("Virtual threads not supported by the current JVM.");
+            ofVirtual = null;
+        }
+        OF_VIRTUAL_METHOD = ofVirtual;
+        BUILDER_NAME_METHOD = builderName;
+        BUILDER_FACTORY_METHOD = builderFactory;
+        NEW_THREAD_PER_TASK_EXECUTOR_METHOD = newThreadPerTaskExecutor;
+    }
+
+    private final ExecutorService executor;
+    private final ScheduledThreadPoolExecutor timer;
+
+    /**
+     * Creates a new executor.
+     *
+     * @param name the name prefix of the virtual threads
+     *
+     * @throws NullPointerException          if {@code name} is {@code null}
+     * @throws UnsupportedOperationException if the current JVM does not support virtual threads
+     */
+    VirtualThreadDockerTaskExecutor(@Nonnull String name) {
+        DockerCloudUtils.requireNonNull(name, "Name cannot be null.");
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by the current JVM.");
+        }
+        try {
+            Object builder = OF_VIRTUAL_METHOD.invoke(null);
+            builder = BUILDER_NAME_METHOD.invoke(builder, name + "-", 0L);
+            ThreadFactory threadFactory = (ThreadFactory) BUILDER_FACTORY_METHOD.invoke(builder);
+            executor = (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR_METHOD.invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Failed to create virtual thread executor.", e);
+        }
+        timer = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory(name + "-timer", true)) {
+            @Override
+            protected void terminated() {
+                // Delayed runnables are still processed after shutdown, the virtual threads executor can only be
+                // shutdown once the timer is terminated.
+                executor.shutdown();
+            }
+        };
+    }
+
+    /**
+     * Checks if the current JVM supports virtual threads.
+     *
+     * @return {@code true} if virtual threads are supported
+     */
+    static boolean isSupported() {
+        return OF_VIRTUAL_METHOD != null;
+    }
+
+    @Override
+    public void execute(@Nonnull Runnable runnable) {
+        executor.execute(runnable);
+    }
+
+    @Override
+    public void schedule(@Nonnull final Runnable runnable, long delay, @Nonnull TimeUnit timeUnit) {
+        DockerCloudUtils.requireNonNull(runnable, "Runnable cannot be null.");
+        timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                executor.execute(runnable);
+            }
+        }, delay, timeUnit);
+    }
+
+    @Override
+    public void shutdown() {
+        timer.shutdown();
+    }
+}
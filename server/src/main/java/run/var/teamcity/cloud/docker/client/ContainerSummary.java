@@ -0,0 +1,263 @@
+package run.var.teamcity.cloud.docker.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact description of a container, as returned by the
+ * <a href="https://docs.docker.com/engine/reference/api/docker_remote_api_v1.24/#/list-containers"><i>list
+ * containers</i></a> command of the remote API.
+ *
+ * <p>Only the attributes of interest are retained: the container ID, names, state, status, creation time, and a
+ * chosen subset of its labels. Summaries are decoded directly from the response stream, without building the JSON
+ * tree of the whole container list. The full container description can still be retrieved on demand by
+ * {@linkplain DockerClient#inspectContainer(String) inspecting} the container.</p>
+ *
+ * <p>Instances of this class are immutable.</p>
+ */
+public final class ContainerSummary {
+
+    private final static JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final String id;
+    private final List<String> names;
+    private final String state;
+    private final String status;
+    private final long created;
+    private final Map<String, String> labels;
+
+    private ContainerSummary(String id, List<String> names, String state, String status, long created,
+                             Map<String, String> labels) {
+        this.id = id;
+        this.names = names;
+        this.state = state;
+        this.status = status;
+        this.created = created;
+        this.labels = labels;
+    }
+
+    /**
+     * Creates a new container summary.
+     *
+     * @param id      the container ID
+     * @param names   the container names
+     * @param state   the container state (eg. {@code running})
+     * @param status  the human readable container status, may be {@code null}
+     * @param created the container creation time in seconds since the epoch, or {@code -1} if unknown
+     * @param labels  the container labels of interest
+     *
+     * @return the new summary
+     *
+     * @throws NullPointerException if {@code id}, {@code names}, {@code state}, or {@code labels} is {@code null}
+     */
+    @Nonnull
+    public static ContainerSummary of(@Nonnull String id, @Nonnull List<String> names, @Nonnull String state,
+                                      @Nullable String status, long created, @Nonnull Map<String, String> labels) {
+        DockerCloudUtils.requireNonNull(id, "Container ID cannot be null.");
+        DockerCloudUtils.requireNonNull(names, "Names cannot be null.");
+        DockerCloudUtils.requireNonNull(state, "State cannot be null.");
+        DockerCloudUtils.requireNonNull(labels, "Labels cannot be null.");
+        return new ContainerSummary(id, Collections.unmodifiableList(new ArrayList<>(names)), state, status, created,
+                Collections.unmodifiableMap(new HashMap<>(labels)));
+    }
+
+    /**
+     * Decodes a list of containers from a JSON stream. The stream is processed token by token, and only the
+     * attributes retained in the summaries are materialized. The provided stream will NOT be closed on completion.
+     *
+     * @param jsonStream the JSON stream
+     * @param labelKeys  the keys of the labels to be retained
+     *
+     * @return the list of container summaries
+     *
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IOException          if the stream cannot be read or is not a valid container list
+     */
+    @Nonnull
+    public static List<ContainerSummary> parseList(@Nonnull InputStream jsonStream,
+                                                   @Nonnull Collection<String> labelKeys) throws IOException {
+        DockerCloudUtils.requireNonNull(jsonStream, "JSON stream cannot be null.");
+        DockerCloudUtils.requireNonNull(labelKeys, "Label keys cannot be null.");
+
+        Set<String> retainedLabels = new HashSet<>(labelKeys);
+        try (JsonParser parser = JSON_FACTORY.createParser(jsonStream)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            expect(parser.nextToken(), JsonToken.START_ARRAY);
+            List<ContainerSummary> summaries = new ArrayList<>();
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                expect(token, JsonToken.START_OBJECT);
+                summaries.add(parseContainer(parser, retainedLabels));
+            }
+            return Collections.unmodifiableList(summaries);
+        }
+    }
+
+    private static ContainerSummary parseContainer(JsonParser parser, Set<String> retainedLabels) throws IOException {
+        String id = null;
+        List<String> names = Collections.emptyList();
+        String state = null;
+        String status = null;
+        long created = -1;
+        Map<String, String> labels = Collections.emptyMap();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "Id":
+                    id = parser.getValueAsString();
+                    break;
+                case "Names":
+                    if (value == JsonToken.START_ARRAY) {
+                        names = new ArrayList<>(1);
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            names.add(parser.getValueAsString());
+                        }
+                        names = Collections.unmodifiableList(names);
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "State":
+                    state = parser.getValueAsString();
+                    break;
+                case "Status":
+                    status = parser.getValueAsString();
+                    break;
+                case "Created":
+                    created = parser.getValueAsLong(-1);
+                    break;
+                case "Labels":
+                    if (value == JsonToken.START_OBJECT) {
+                        labels = parseLabels(parser, retainedLabels);
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        if (id == null || state == null) {
+            throw new IOException("Invalid container description, missing ID or state.");
+        }
+
+        return new ContainerSummary(id, names, state, status, created, labels);
+    }
+
+    private static Map<String, String> parseLabels(JsonParser parser, Set<String> retainedLabels) throws IOException {
+        Map<String, String> labels = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.getCurrentName();
+            parser.nextToken();
+            if (retainedLabels.contains(key)) {
+                if (labels == null) {
+                    labels = new HashMap<>(retainedLabels.size() * 2);
+                }
+                labels.put(key, parser.getValueAsString());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return labels != null ? Collections.unmodifiableMap(labels) : Collections.<String, String>emptyMap();
+    }
+
+    private static void expect(JsonToken token, JsonToken expected) throws IOException {
+        if (token != expected) {
+            throw new IOException("Unexpected JSON token: " + token + " (expected: " + expected + ").");
+        }
+    }
+
+    /**
+     * Gets the container ID.
+     *
+     * @return the container ID
+     */
+    @Nonnull
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the container names, as returned by the daemon (with a leading slash).
+     *
+     * @return the list of names
+     */
+    @Nonnull
+    public List<String> getNames() {
+        return names;
+    }
+
+    /**
+     * Gets the container state (eg. {@code running} or {@code exited}).
+     *
+     * @return the container state
+     */
+    @Nonnull
+    public String getState() {
+        return state;
+    }
+
+    /**
+     * Gets the human readable container status (eg. {@code Up 5 minutes}).
+     *
+     * @return the container status or {@code null} if not available
+     */
+    @Nullable
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets the container creation time.
+     *
+     * @return the creation time in seconds since the epoch, or {@code -1} if not available
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    /**
+     * Gets the retained container labels.
+     *
+     * @return the labels
+     */
+    @Nonnull
+    public Map<String, String> getLabels() {
+        return labels;
+    }
+
+    /**
+     * Gets the value of a retained label.
+     *
+     * @param key the label key
+     *
+     * @return the label value or {@code null} if the label is not set or was not retained
+     */
+    @Nullable
+    public String getLabel(@Nonnull String key) {
+        return labels.get(key);
+    }
+
+    @Override
+    public String toString() {
+        return "ContainerSummary[id: " + id + ", names: " + names + ", state: " + state + ", status: " + status + "]";
+    }
+}
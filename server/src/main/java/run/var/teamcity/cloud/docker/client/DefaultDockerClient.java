@@ -18,6 +18,7 @@ import org.glassfish.jersey.apache.connector.ApacheClientProperties;
 import org.glassfish.jersey.client.ClientConfig;
 import org.glassfish.jersey.client.ClientProperties;
 import run.var.teamcity.cloud.docker.client.apcon.ApacheConnectorProvider;
+import run.var.teamcity.cloud.docker.util.CircuitBreaker;
 import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
 import run.var.teamcity.cloud.docker.util.Node;
 import run.var.teamcity.cloud.docker.util.NodeStream;
@@ -27,6 +28,7 @@ import javax.annotation.Nullable;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLSocketFactory;
 import javax.ws.rs.HttpMethod;
+import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.WebTarget;
@@ -34,12 +36,15 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -60,10 +65,16 @@ public class DefaultDockerClient extends DockerAbstractClient implements DockerC
     private final static int DEFAULT_PORT = 2375;
     private final static int DEFAULT_TLS_PORT = 2376;
 
+    /**
+     * Delay for which the daemon waits for a container to stop before killing it, when restarting a container.
+     */
+    private final static long RESTART_GRACE_PERIOD_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
     private final static Logger LOG = DockerCloudUtils.getLogger(DefaultDockerClient.class);
 
     private final DockerHttpConnectionFactory connectionFactory;
     private final WebTarget target;
+    private final int readTimeoutMillis;
 
     /**
      * Supported scheme for the configured Docker URI.
@@ -90,9 +101,10 @@ public class DefaultDockerClient extends DockerAbstractClient implements DockerC
     }
 
     private DefaultDockerClient(DockerHttpConnectionFactory connectionFactory, Client jerseyClient, URI targetUri,
-                                String apiVersion) {
-        super(jerseyClient);
+                                String apiVersion, int readTimeoutMillis, CircuitBreaker circuitBreaker) {
+        super(jerseyClient, circuitBreaker);
         this.connectionFactory = connectionFactory;
+        this.readTimeoutMillis = readTimeoutMillis;
         WebTarget target = jerseyClient.target(targetUri);
         if (apiVersion != null) {
             target = target.path("v" + apiVersion);
@@ -102,7 +114,23 @@ public class DefaultDockerClient extends DockerAbstractClient implements DockerC
 
     @Nonnull
     public Node getVersion() {
-        return invoke(target.path("/version"), HttpMethod.GET, null, null, null);
+        return invoke(target.path("/version"), HttpMethod.GET, null, null, null, readTimeout(0));
+    }
+
+    @Override
+    protected void probe() {
+        WebTarget target = this.target.path("/version");
+        Response response;
+        try {
+            response = request(target, readTimeout(0)).get();
+        } catch (ProcessingException e) {
+            throw new DockerClientProcessingException("Failed to probe daemon.", e);
+        }
+        try {
+            validate(getRequestSpec(target, HttpMethod.GET), response, null);
+        } finally {
+            response.close();
+        }
     }
 
     @Nonnull
@@ -113,26 +141,26 @@ public class DefaultDockerClient extends DockerAbstractClient implements DockerC
             target.queryParam("name", name);
         }
 
-        return invoke(target, HttpMethod.POST, containerSpec, null, null);
+        return invoke(target, HttpMethod.POST, containerSpec, null, null, readTimeout(0));
     }
 
     public void startContainer(@Nonnull final String containerId) {
         DockerCloudUtils.requireNonNull(containerId, "Container ID cannot be null.");
         invokeVoid(target.path("/containers/{id}/start").resolveTemplate("id", containerId), HttpMethod.POST, null,
-                null);
+                null, readTimeout(0));
     }
 
     public void restartContainer(@Nonnull String containerId) {
         DockerCloudUtils.requireNonNull(containerId, "Container ID cannot be null.");
         invokeVoid(target.path("/containers/{id}/restart").resolveTemplate("id", containerId), HttpMethod.POST, null,
-                null);
+                null, readTimeout(RESTART_GRACE_PERIOD_MILLIS));
     }
 
     @Nonnull
     public Node inspectContainer(@Nonnull String containerId) {
         DockerCloudUtils.requireNonNull(containerId, "Container ID cannot be null.");
         return invoke(target.path("/containers/{id}/json").resolveTemplate("id", containerId), HttpMethod.GET, null,
-                null, null);
+                null, null, readTimeout(0));
     }
 
     @Nonnull
@@ -147,6 +175,15 @@ public class DefaultDockerClient extends DockerAbstractClient implements DockerC
         return invokeNodeStream(target, HttpMethod.POST, null, null, null);
     }
 
+    @Nonnull
+    @Override
+    public Node inspectImage(@Nonnull String image) {
+        DockerCloudUtils.requireNonNull(image, "Image name cannot be null.");
+        // Image names may contain slashes (eg. repository namespaces), which must not be encoded.
+        return invoke(target.path("/images/{name}/json").resolveTemplate("name", image, false), HttpMethod.GET,
+                null, null, null, readTimeout(0));
+    }
+
     public StreamHandler attach(@Nonnull String containerId) {
 
         return invokeStream(target.path("/containers/{id}/attach").resolveTemplate("id", containerId)
@@ -190,8 +227,9 @@ public class DefaultDockerClient extends DockerAbstractClient implements DockerC
             throw new IllegalArgumentException("Timeout must be a positive integer.");
         }
 
-        invokeVoid(target.path("/containers/{id}/stop").resolveTemplate("id", containerId).queryParam("t", timeoutSec),
-                HttpMethod.POST, null, new ErrorCodeMapper() {
+        // The daemon will wait for the container to stop up to the given timeout before answering.
+        invokeVoid(target.path("/containers/{id}/stop").resolveTemplate("id", containerId)
+                        .queryParam("t", timeoutSec), HttpMethod.POST, null, new ErrorCodeMapper() {
                     @Override
                     public InvocationFailedException mapToException(int errorCode, String msg) {
                         switch (errorCode) {
@@ -200,13 +238,26 @@ public class DefaultDockerClient extends DockerAbstractClient implements DockerC
                         }
                         return null;
                     }
-                });
+                }, readTimeout(TimeUnit.SECONDS.toMillis(timeoutSec)));
+    }
+
+    public void pauseContainer(@Nonnull String containerId) {
+        DockerCloudUtils.requireNonNull(containerId, "Container ID cannot be null.");
+        invokeVoid(target.path("/containers/{id}/pause").resolveTemplate("id", containerId), HttpMethod.POST, null,
+                null, readTimeout(0));
+    }
+
+    public void unpauseContainer(@Nonnull String containerId) {
+        DockerCloudUtils.requireNonNull(containerId, "Container ID cannot be null.");
+        invokeVoid(target.path("/containers/{id}/unpause").resolveTemplate("id", containerId), HttpMethod.POST,
+                null, null, readTimeout(0));
     }
 
     public void removeContainer(@Nonnull String containerId, boolean removeVolumes, boolean force) {
         DockerCloudUtils.requireNonNull(containerId, "Container ID cannot be null.");
-        invokeVoid(target.path("/containers/{id}").resolveTemplate("id", containerId).queryParam("v", removeVolumes)
-                .queryParam("force", force), HttpMethod.DELETE, null, null);
+        invokeVoid(target.path("/containers/{id}").resolveTemplate("id", containerId)
+                        .queryParam("v", removeVolumes).queryParam("force", force), HttpMethod.DELETE, null, null,
+                readTimeout(0));
     }
 
     @Nonnull
@@ -216,9 +267,52 @@ public class DefaultDockerClient extends DockerAbstractClient implements DockerC
         return invoke(target.path("/containers/json").
                 queryParam("all", true).
                 queryParam("filters", "%7B\"label\": " +
+                        "[\"" + key + "=" + value + "\"]%7D"), HttpMethod.GET, null, null, null, readTimeout(0));
+    }
+
+    @Nonnull
+    @Override
+    public List<ContainerSummary> listContainerSummariesWithLabel(@Nonnull String key, @Nonnull String value,
+                                                                  @Nonnull final Collection<String> labelKeys) {
+        DockerCloudUtils.requireNonNull(key, "Label key cannot be null.");
+        DockerCloudUtils.requireNonNull(value, "Label value cannot be null.");
+        DockerCloudUtils.requireNonNull(labelKeys, "Label keys cannot be null.");
+        return invoke(target.path("/containers/json").
+                queryParam("all", true).
+                queryParam("filters", "%7B\"label\": " +
+                        "[\"" + key + "=" + value + "\"]%7D"), HttpMethod.GET, null, null, null,
+                new ResponseParser<List<ContainerSummary>>() {
+                    @Nonnull
+                    @Override
+                    public List<ContainerSummary> parse(@Nonnull InputStream inputStream) throws IOException {
+                        return ContainerSummary.parseList(inputStream, labelKeys);
+                    }
+                }, readTimeout(0));
+    }
+
+    @Nonnull
+    public NodeStream streamEvents(@Nonnull String key, @Nonnull String value) {
+        DockerCloudUtils.requireNonNull(key, "Label key cannot be null.");
+        DockerCloudUtils.requireNonNull(value, "Label value cannot be null.");
+        return invokeNodeStream(target.path("/events").
+                queryParam("filters", "%7B\"type\": [\"container\"], \"label\": " +
                         "[\"" + key + "=" + value + "\"]%7D"), HttpMethod.GET, null, null, null);
     }
 
+    /**
+     * Computes the read timeout of a request from the configured read timeout.
+     *
+     * @param extraMillis additional delay for operations where the daemon is expected to wait before answering
+     *
+     * @return the read timeout in milliseconds, or {@link #NO_READ_TIMEOUT} if no read timeout is configured
+     */
+    private int readTimeout(long extraMillis) {
+        if (readTimeoutMillis == 0) {
+            return NO_READ_TIMEOUT;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, readTimeoutMillis + extraMillis);
+    }
+
     private boolean hasTty(String containerId) {
         return inspectContainer(containerId).getObject("Config").getAsBoolean("Tty");
     }
@@ -364,8 +458,13 @@ public class DefaultDockerClient extends DockerAbstractClient implements DockerC
 
         config.property(ApacheClientProperties.CONNECTION_MANAGER, connManager);
         config.property(ClientProperties.CONNECT_TIMEOUT, clientConfig.getConnectTimeoutMillis());
+
+        CircuitBreaker circuitBreaker = clientConfig.getCircuitBreakerThreshold() > 0 ?
+                new CircuitBreaker(clientConfig.getCircuitBreakerThreshold(),
+                        clientConfig.getCircuitBreakerOpenMillis()) : null;
+
         return new DefaultDockerClient(connectionFactory, ClientBuilder.newClient(config), effectiveURI,
-                clientConfig.getApiVersion());
+                clientConfig.getApiVersion(), clientConfig.getReadTimeoutMillis(), circuitBreaker);
     }
 
     private static Registry<ConnectionSocketFactory> getDefaultRegistry(boolean verifyHostname) {
@@ -62,7 +62,7 @@ public class DefaultDockerRegistryClient extends DockerAbstractClient implements
         return invoke(authTarget.
                 path("token").
                 queryParam("service", service).
-                queryParam("scope", scope), HttpMethod.GET, null, null, null);
+                queryParam("scope", scope), HttpMethod.GET, null, null, null, NO_READ_TIMEOUT);
     }
 
     /**
@@ -80,7 +80,7 @@ public class DefaultDockerRegistryClient extends DockerAbstractClient implements
         return invoke(target.
                 path("v2").
                 path(repo).
-                path("tags/list"), HttpMethod.GET, null, loginToken, null);
+                path("tags/list"), HttpMethod.GET, null, loginToken, null, NO_READ_TIMEOUT);
     }
 
     @Override
@@ -1,6 +1,9 @@
 package run.var.teamcity.cloud.docker.client;
 
 import com.intellij.openapi.diagnostic.Logger;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.glassfish.jersey.client.ClientProperties;
+import run.var.teamcity.cloud.docker.util.CircuitBreaker;
 import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
 import run.var.teamcity.cloud.docker.util.Node;
 import run.var.teamcity.cloud.docker.util.NodeStream;
@@ -17,6 +20,7 @@ import javax.ws.rs.core.Response;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.SocketTimeoutException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 
@@ -40,6 +44,11 @@ public abstract class DockerAbstractClient implements Closeable {
 
     private final static Charset SUPPORTED_CHARSET = StandardCharsets.UTF_8;
 
+    /**
+     * Read timeout to be used for requests not overriding the read timeout of the Jersey client.
+     */
+    protected final static int NO_READ_TIMEOUT = -1;
+
     private final ErrorCodeMapper DEFAULT_ERROR_CODE_MAPPER = new ErrorCodeMapper() {
         @Nullable
         @Override
@@ -55,6 +64,7 @@ public abstract class DockerAbstractClient implements Closeable {
     };
 
     private final Client jerseyClient;
+    private final CircuitBreaker circuitBreaker;
 
     private volatile boolean closed = false;
 
@@ -64,7 +74,20 @@ public abstract class DockerAbstractClient implements Closeable {
      * @param jerseyClient the Jersey client
      */
     protected DockerAbstractClient(@Nonnull Client jerseyClient) {
+        this(jerseyClient, null);
+    }
+
+    /**
+     * Creates a new client instance wrapping the given Jersey client, and protected by the given circuit breaker.
+     * Only the request timeouts are reported as failures to the circuit breaker: a service answering with an error
+     * code is still considered as available.
+     *
+     * @param jerseyClient   the Jersey client
+     * @param circuitBreaker the circuit breaker, may be {@code null}
+     */
+    protected DockerAbstractClient(@Nonnull Client jerseyClient, @Nullable CircuitBreaker circuitBreaker) {
         this.jerseyClient = jerseyClient;
+        this.circuitBreaker = circuitBreaker;
     }
 
     /**
@@ -75,6 +98,8 @@ public abstract class DockerAbstractClient implements Closeable {
      * @param entity          the entity to be submitted, may be {@code null}
      * @param authToken       the authorization token for the operation, may be {@code null}
      * @param errorCodeMapper the additional error code mapper to be used, may be {@code null}
+     * @param readTimeoutMillis the read timeout in milliseconds for this request, 0 for none, or
+     *                          {@link #NO_READ_TIMEOUT} to use the timeout of the Jersey client
      *
      * @return the parsed response
      *
@@ -82,18 +107,52 @@ public abstract class DockerAbstractClient implements Closeable {
      */
     @Nonnull
     protected Node invoke(WebTarget target, String method, Node entity, String authToken, ErrorCodeMapper
-            errorCodeMapper) {
+            errorCodeMapper, int readTimeoutMillis) {
+        return invoke(target, method, entity, authToken, errorCodeMapper, new ResponseParser<Node>() {
+            @Nonnull
+            @Override
+            public Node parse(@Nonnull InputStream inputStream) throws IOException {
+                return Node.parse(inputStream);
+            }
+        }, readTimeoutMillis);
+    }
 
-        assert target != null && method != null;
+    /**
+     * Invokes an operation on the service returning a JSON structure, which will be decoded by the given parser.
+     *
+     * @param target          the targeted resource
+     * @param method          the operation method
+     * @param entity          the entity to be submitted, may be {@code null}
+     * @param authToken       the authorization token for the operation, may be {@code null}
+     * @param errorCodeMapper the additional error code mapper to be used, may be {@code null}
+     * @param parser          the response parser
+     * @param readTimeoutMillis the read timeout in milliseconds for this request, 0 for none, or
+     *                          {@link #NO_READ_TIMEOUT} to use the timeout of the Jersey client
+     * @param <T>             the decoded response type
+     *
+     * @return the decoded response
+     *
+     * @throws DockerClientException if invoking the operation failed
+     */
+    @Nonnull
+    protected <T> T invoke(WebTarget target, String method, Node entity, String authToken, ErrorCodeMapper
+            errorCodeMapper, ResponseParser<T> parser, int readTimeoutMillis) {
 
-        Response response = execRequest(target,
-                target.
-                        request(MediaType.APPLICATION_JSON).
-                        acceptEncoding(SUPPORTED_CHARSET.name()), method, entity != null ? Entity.json(entity.toString()) : null, authToken, errorCodeMapper);
+        assert target != null && method != null && parser != null;
+
+        Response response = execRequest(target, request(target, readTimeoutMillis), method, entity != null ? Entity.json(entity.toString()) : null, authToken, errorCodeMapper);
 
         try {
-            return Node.parse((InputStream) response.getEntity());
+            T result = parser.parse((InputStream) response.getEntity());
+            // The service is considered responsive only once the whole response could be read.
+            recordSuccess();
+            return result;
         } catch (IOException e) {
+            if (isTimeout(e)) {
+                recordTimeout();
+                throw new DockerClientTimeoutException(getRequestSpec(target, method) +
+                        ": timeout while reading response from server.", e);
+            }
             throw new DockerClientProcessingException("Failed to parse response from server.", e);
         } finally {
             try {
@@ -129,7 +188,10 @@ public abstract class DockerAbstractClient implements Closeable {
                         acceptEncoding(SUPPORTED_CHARSET.name()), method, entity != null ? Entity.json(entity.toString()) : null, authToken, errorCodeMapper);
 
         try {
-            return Node.parseMany(JaxWsResponseFilterInputStream.wrap(response));
+            NodeStream stream = Node.parseMany(JaxWsResponseFilterInputStream.wrap(response));
+            // The stream may remain open indefinitely, the request is considered successful once handed to the caller.
+            recordSuccess();
+            return stream;
         } catch (IOException e) {
             throw new DockerClientProcessingException("Failed to parse response from server.", e);
         }
@@ -141,23 +203,48 @@ public abstract class DockerAbstractClient implements Closeable {
      * @param target          the targeted resource
      * @param method          the operation method
      * @param errorCodeMapper the additional error code mapper to be used, may be {@code null}
+     * @param readTimeoutMillis the read timeout in milliseconds for this request, 0 for none, or
+     *                          {@link #NO_READ_TIMEOUT} to use the timeout of the Jersey client
      *
      * @throws DockerClientException if invoking the operation failed
      */
-    protected void invokeVoid(WebTarget target, String method, Node entity, ErrorCodeMapper errorCodeMapper) {
+    protected void invokeVoid(WebTarget target, String method, Node entity, ErrorCodeMapper errorCodeMapper,
+                              int readTimeoutMillis) {
 
         assert target != null && method != null;
 
-        Response response = execRequest(target,
-                target.request(MediaType.APPLICATION_JSON).acceptEncoding(SUPPORTED_CHARSET.name()),
+        Response response = execRequest(target, request(target, readTimeoutMillis),
                 method, entity != null ? Entity.json(entity.toString()) :
                         null, null, errorCodeMapper);
 
         response.close();
+
+        recordSuccess();
+    }
+
+    /**
+     * Prepares a JSON request. The read timeout is set on the request itself: setting it on the target would fork the
+     * Jersey client configuration, and create a new client runtime for each request.
+     *
+     * @param target            the targeted resource
+     * @param readTimeoutMillis the read timeout in milliseconds, 0 for none, or {@link #NO_READ_TIMEOUT} to use the
+     *                          timeout of the Jersey client
+     *
+     * @return the invocation builder
+     */
+    protected Invocation.Builder request(WebTarget target, int readTimeoutMillis) {
+        Invocation.Builder builder = target.request(MediaType.APPLICATION_JSON).
+                acceptEncoding(SUPPORTED_CHARSET.name());
+        if (readTimeoutMillis != NO_READ_TIMEOUT) {
+            builder.property(ClientProperties.READ_TIMEOUT, readTimeoutMillis);
+        }
+        return builder;
     }
 
     /**
      * Low-level method to perform a request and validate a response from the Jersey client.
+     * Successful responses are not reported to the circuit breaker, since reading their body may still time out: this
+     * is left to the invoking method once the response has been consumed.
      *
      * @param target            the targeted resource
      * @param invocationBuilder the invocation builder to be used
@@ -182,19 +269,104 @@ public abstract class DockerAbstractClient implements Closeable {
 
         assert invocationBuilder != null && method != null;
 
+        checkCircuit(target, method);
+
         Response response;
         try {
             response = invocationBuilder.method(method, entity);
         } catch (ProcessingException e) {
+            if (isTimeout(e)) {
+                recordTimeout();
+                throw new DockerClientTimeoutException(getRequestSpec(target, method) + ": request timed out.", e);
+            }
             String msg = e.getMessage();
             throw new DockerClientProcessingException(msg != null ? msg : "Method invocation failed.", e);
         }
 
-        validate(getRequestSpec(target, method), response, errorCodeMapper);
+        try {
+            validate(getRequestSpec(target, method), response, errorCodeMapper);
+        } catch (DockerClientException e) {
+            // The service answered, even if with an error.
+            recordSuccess();
+            throw e;
+        }
 
         return response;
     }
 
+    /**
+     * Probes the service once the circuit breaker allows it, after a period during which all requests were rejected.
+     * The probe must not go through {@link #execRequest(WebTarget, Invocation.Builder, String, Entity, String,
+     * ErrorCodeMapper)}, which would be rejected by the circuit breaker. The default implementation does nothing,
+     * the pending request itself being then used as the probe.
+     *
+     * @throws RuntimeException if the service is still unavailable
+     */
+    protected void probe() {
+        // Nothing to do by default.
+    }
+
+    private void checkCircuit(WebTarget target, String method) {
+        if (circuitBreaker == null) {
+            return;
+        }
+
+        CircuitBreaker.Permit permit = circuitBreaker.acquire();
+        switch (permit) {
+            case GRANTED:
+                return;
+            case PROBE:
+                try {
+                    probe();
+                } catch (RuntimeException e) {
+                    circuitBreaker.recordFailure();
+                    throw new DockerClientUnavailableException(getRequestSpec(target, method) +
+                            ": service still unavailable, request rejected.", e);
+                }
+                circuitBreaker.recordSuccess();
+                LOG.info("Service available again, accepting requests.");
+                return;
+            case REJECTED:
+                throw new DockerClientUnavailableException(getRequestSpec(target, method) +
+                        ": service unavailable after repeated timeouts, request rejected.", null);
+            default:
+                throw new AssertionError("Unknown enum member: " + permit);
+        }
+    }
+
+    private void recordSuccess() {
+        if (circuitBreaker != null) {
+            circuitBreaker.recordSuccess();
+        }
+    }
+
+    private void recordTimeout() {
+        if (circuitBreaker != null) {
+            boolean wasClosed = circuitBreaker.getState() == CircuitBreaker.State.CLOSED;
+            circuitBreaker.recordFailure();
+            if (wasClosed && circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+                LOG.warn("Repeated timeouts, rejecting requests until the service is available again.");
+            }
+        }
+    }
+
+    /**
+     * Checks if a failure was caused by a connection or read timeout.
+     *
+     * @param e the failure
+     *
+     * @return {@code true} if the failure is a timeout
+     */
+    static boolean isTimeout(Throwable e) {
+        while (e != null) {
+            if (e instanceof SocketTimeoutException || e instanceof ConnectTimeoutException) {
+                return true;
+            }
+            e = e.getCause();
+        }
+        return false;
+    }
+
     /**
      * Build a request specification from a target resource and an HTTP method. For debug purpose.
      *
@@ -301,4 +473,24 @@ public abstract class DockerAbstractClient implements Closeable {
         closed = true;
         jerseyClient.close();
     }
+
+    /**
+     * Decoder of a response stream.
+     *
+     * @param <T> the decoded response type
+     */
+    protected interface ResponseParser<T> {
+
+        /**
+         * Decodes a response stream. The stream will be closed by the caller.
+         *
+         * @param inputStream the response stream
+         *
+         * @return the decoded response
+         *
+         * @throws IOException if the stream cannot be read or decoded
+         */
+        @Nonnull
+        T parse(@Nonnull InputStream inputStream) throws IOException;
+    }
 }
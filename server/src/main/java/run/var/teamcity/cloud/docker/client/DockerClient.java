@@ -6,6 +6,8 @@ import run.var.teamcity.cloud.docker.util.NodeStream;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.Closeable;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * A Docker client.
@@ -28,13 +30,75 @@ public interface DockerClient extends Closeable {
     @Nonnull
     NodeStream createImage(@Nonnull String from, @Nullable String tag);
 
+    /**
+     * Inspects an image from the daemon local repository.
+     *
+     * @param image the image name, with an optional tag
+     *
+     * @return the image description
+     *
+     * @throws NotFoundException if the image is not available locally
+     */
+    @Nonnull
+    Node inspectImage(@Nonnull String image);
+
     void stopContainer(@Nonnull String containerId, long timeoutSec);
 
+    /**
+     * Pauses a running container. All the container processes are suspended, but the container is not stopped.
+     *
+     * @param containerId the container ID
+     *
+     * @throws NotFoundException if the container does not exist
+     */
+    void pauseContainer(@Nonnull String containerId);
+
+    /**
+     * Resumes all the processes of a paused container.
+     *
+     * @param containerId the container ID
+     *
+     * @throws NotFoundException if the container does not exist
+     */
+    void unpauseContainer(@Nonnull String containerId);
+
     void removeContainer(@Nonnull String containerId, boolean removeVolumes, boolean force);
 
     @Nonnull
     Node listContainersWithLabel(@Nonnull String key, @Nonnull String value);
 
+    /**
+     * Lists the containers having the given label, as compact summaries. Only the specified labels will be retained
+     * in the summaries. Unlike {@link #listContainersWithLabel(String, String)}, the response is decoded as a stream
+     * without building the full JSON tree.
+     *
+     * @param key       the label key
+     * @param value     the label value
+     * @param labelKeys the keys of the labels to be retained in the summaries
+     *
+     * @return the list of container summaries
+     *
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    @Nonnull
+    List<ContainerSummary> listContainerSummariesWithLabel(@Nonnull String key, @Nonnull String value,
+                                                           @Nonnull Collection<String> labelKeys);
+
+    /**
+     * Subscribes to the container events emitted by the daemon for the containers having the given label. The
+     * returned stream will block until new events are available, and will only end when closed or when the connection
+     * with the daemon is lost.
+     *
+     * @param key   the label key
+     * @param value the label value
+     *
+     * @return the stream of events
+     *
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    @Nonnull
+    NodeStream streamEvents(@Nonnull String key, @Nonnull String value);
+
     @Override
     void close();
 }
@@ -18,12 +18,20 @@ import java.util.concurrent.TimeUnit;
 public class DockerClientConfig {
 
     private final static int DEFAULT_CONNECT_TIMEOUT_MILLIS = (int) TimeUnit.MINUTES.toMillis(1);
+    private final static int DEFAULT_READ_TIMEOUT_MILLIS = (int) TimeUnit.MINUTES.toMillis(1);
+    private final static int DEFAULT_CIRCUIT_BREAKER_THRESHOLD = 3;
+    private final static int DEFAULT_CIRCUIT_BREAKER_OPEN_MILLIS = (int) TimeUnit.SECONDS.toMillis(30);
 
     private final URI instanceURI;
     private boolean usingTLS = false;
     private boolean verifyingHostname = true;
     private int connectionPoolSize = 1;
     private int connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+    private int readTimeoutMillis = DEFAULT_READ_TIMEOUT_MILLIS;
+    private int circuitBreakerThreshold = DEFAULT_CIRCUIT_BREAKER_THRESHOLD;
+    private int circuitBreakerOpenMillis = DEFAULT_CIRCUIT_BREAKER_OPEN_MILLIS;
+    private double containerCreationRate = 0;
+    private int containerCreationBurst = 1;
     private String apiVersion;
 
     /**
@@ -113,6 +121,76 @@ public class DockerClientConfig {
         return this;
     }
 
+    /**
+     * Read timeout in milliseconds when waiting for the Docker daemon to answer a request. Operations for which the
+     * daemon is expected to wait on purpose (eg. the grace period when stopping a container) are granted additional
+     * time. Streaming operations (events, logs, image pulls) are not subject to this timeout.
+     *
+     * @param readTimeoutMillis the timeout in milliseconds
+     *
+     * @return this configuration instance for chained invocation
+     *
+     * @throws IllegalArgumentException if {@code readTimeoutMillis} is negative
+     */
+    public DockerClientConfig readTimeoutMillis(int readTimeoutMillis) {
+        if (readTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Timeout specification must be positive: " + readTimeoutMillis +
+                    ". Use 0 for no timeout.");
+        }
+
+        this.readTimeoutMillis = readTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * Configures the circuit breaker of the client. After a given number of consecutive timeouts, requests are
+     * rejected immediately for the specified duration. The daemon is then probed before accepting requests again.
+     *
+     * @param timeoutThreshold the number of consecutive timeouts opening the circuit, {@code 0} to disable the circuit
+     *                         breaker
+     * @param openMillis       the duration in milliseconds during which requests are rejected
+     *
+     * @return this configuration instance for chained invocation
+     *
+     * @throws IllegalArgumentException if any argument is negative
+     */
+    public DockerClientConfig circuitBreaker(int timeoutThreshold, int openMillis) {
+        if (timeoutThreshold < 0) {
+            throw new IllegalArgumentException("Invalid timeout threshold: " + timeoutThreshold);
+        }
+        if (openMillis < 0) {
+            throw new IllegalArgumentException("Invalid open duration: " + openMillis);
+        }
+        this.circuitBreakerThreshold = timeoutThreshold;
+        this.circuitBreakerOpenMillis = openMillis;
+        return this;
+    }
+
+    /**
+     * Limits the rate at which containers are created on the Docker daemon. Default to no limit.
+     *
+     * @param containerCreationRate  the maximum sustained number of container creations per second, {@code 0} for no
+     *                               limit
+     * @param containerCreationBurst the number of container creations that may be performed in a burst, exceeding
+     *                               the sustained rate
+     *
+     * @return this configuration instance for chained invocation
+     *
+     * @throws IllegalArgumentException if {@code containerCreationRate} is negative, or if
+     *                                  {@code containerCreationBurst} is smaller than 1
+     */
+    public DockerClientConfig containerCreationRate(double containerCreationRate, int containerCreationBurst) {
+        if (!(containerCreationRate >= 0) || Double.isInfinite(containerCreationRate)) {
+            throw new IllegalArgumentException("Invalid container creation rate: " + containerCreationRate);
+        }
+        if (containerCreationBurst < 1) {
+            throw new IllegalArgumentException("Invalid container creation burst: " + containerCreationBurst);
+        }
+        this.containerCreationRate = containerCreationRate;
+        this.containerCreationBurst = containerCreationBurst;
+        return this;
+    }
+
     /**
      * Gets the URI to connect to the daemon socket.
      *
@@ -169,4 +247,49 @@ public class DockerClientConfig {
     public int getConnectTimeoutMillis() {
         return connectTimeoutMillis;
     }
+
+    /**
+     * Gets the timeout in milliseconds when waiting for the daemon to answer a request.
+     *
+     * @return the timeout in milliseconds or {@code 0} for no timeout
+     */
+    public int getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    /**
+     * Gets the number of consecutive timeouts opening the circuit breaker.
+     *
+     * @return the timeout threshold, or {@code 0} if the circuit breaker is disabled
+     */
+    public int getCircuitBreakerThreshold() {
+        return circuitBreakerThreshold;
+    }
+
+    /**
+     * Gets the duration during which requests are rejected once the circuit breaker is open.
+     *
+     * @return the duration in milliseconds
+     */
+    public int getCircuitBreakerOpenMillis() {
+        return circuitBreakerOpenMillis;
+    }
+
+    /**
+     * Gets the maximum sustained number of container creations per second.
+     *
+     * @return the container creation rate, or {@code 0} if not limited
+     */
+    public double getContainerCreationRate() {
+        return containerCreationRate;
+    }
+
+    /**
+     * Gets the number of container creations that may be performed in a burst.
+     *
+     * @return the container creation burst
+     */
+    public int getContainerCreationBurst() {
+        return containerCreationBurst;
+    }
 }
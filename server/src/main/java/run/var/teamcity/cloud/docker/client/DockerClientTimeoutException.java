@@ -0,0 +1,19 @@
+package run.var.teamcity.cloud.docker.client;
+
+import javax.annotation.Nullable;
+
+/**
+ * Exception thrown when the Docker daemon did not answer a request within its deadline.
+ */
+public class DockerClientTimeoutException extends DockerClientProcessingException {
+
+    /**
+     * Creates a new exception with the specified message and cause.
+     *
+     * @param msg   the message (may be null)
+     * @param cause the exception cause (may be null)
+     */
+    public DockerClientTimeoutException(@Nullable String msg, @Nullable Throwable cause) {
+        super(msg, cause);
+    }
+}
@@ -0,0 +1,20 @@
+package run.var.teamcity.cloud.docker.client;
+
+import javax.annotation.Nullable;
+
+/**
+ * Exception thrown when a request is rejected without being submitted to the Docker daemon, because the daemon
+ * recently failed to answer several requests in a timely fashion.
+ */
+public class DockerClientUnavailableException extends DockerClientProcessingException {
+
+    /**
+     * Creates a new exception with the specified message and cause.
+     *
+     * @param msg   the message (may be null)
+     * @param cause the exception cause (may be null)
+     */
+    public DockerClientUnavailableException(@Nullable String msg, @Nullable Throwable cause) {
+        super(msg, cause);
+    }
+}
@@ -0,0 +1,128 @@
+package run.var.teamcity.cloud.docker.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A circuit breaker. The circuit opens after a given number of consecutive failures, during which requests are
+ * rejected immediately. Once the open period has elapsed, a single caller is permitted to probe the remote service:
+ * the circuit closes if the probe succeeds, or opens again for another period otherwise.
+ *
+ * <p>Instances of this class are thread-safe.</p>
+ */
+public class CircuitBreaker {
+
+    /**
+     * Circuit state.
+     */
+    public enum State {
+        /**
+         * Requests are permitted.
+         */
+        CLOSED,
+        /**
+         * Requests are rejected.
+         */
+        OPEN,
+        /**
+         * A probe is in progress, other requests are rejected.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * Outcome of a permission request.
+     */
+    public enum Permit {
+        /**
+         * The request can proceed.
+         */
+        GRANTED,
+        /**
+         * The request must be rejected.
+         */
+        REJECTED,
+        /**
+         * The caller must probe the remote service, and report the outcome of the probe.
+         */
+        PROBE
+    }
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedNanos;
+
+    /**
+     * Creates a new closed circuit breaker.
+     *
+     * @param failureThreshold   the number of consecutive failures opening the circuit
+     * @param openDurationMillis the delay in milliseconds after which an open circuit can be probed
+     *
+     * @throws IllegalArgumentException if {@code failureThreshold} is smaller than 1 or if
+     *                                  {@code openDurationMillis} is negative
+     */
+    public CircuitBreaker(int failureThreshold, long openDurationMillis) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("Failure threshold must be at least 1: " + failureThreshold);
+        }
+        if (openDurationMillis < 0) {
+            throw new IllegalArgumentException("Open duration must be positive: " + openDurationMillis);
+        }
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMillis);
+    }
+
+    /**
+     * Requests permission to perform a request. A caller being granted a {@link Permit#PROBE probe} permit is
+     * expected to report its outcome using either {@link #recordSuccess()} or {@link #recordFailure()}.
+     *
+     * @return the permit
+     */
+    public synchronized Permit acquire() {
+        switch (state) {
+            case CLOSED:
+                return Permit.GRANTED;
+            case OPEN:
+                if (System.nanoTime() - openedNanos >= openDurationNanos) {
+                    state = State.HALF_OPEN;
+                    return Permit.PROBE;
+                }
+                return Permit.REJECTED;
+            case HALF_OPEN:
+                return Permit.REJECTED;
+            default:
+                throw new AssertionError("Unknown enum member: " + state);
+        }
+    }
+
+    /**
+     * Records a successful request, closing the circuit.
+     */
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    /**
+     * Records a failed request. The circuit is opened if the failure threshold is reached, or if the failed request
+     * was a probe.
+     */
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Gets the current circuit state.
+     *
+     * @return the circuit state
+     */
+    public synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,96 @@
+package run.var.teamcity.cloud.docker.util;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A precompiled container specification. The template is created once from the configured specification along with
+ * the environment variables and labels shared by all the containers, and is then instantiated for each container
+ * with its own image name, environment variables, and labels.
+ *
+ * <p>Instantiating the template does not copy the whole specification tree: only the root object, the {@code Env}
+ * array and the {@code Labels} object are created, all the other children are shared with the template. This is safe
+ * since the resulting {@link Node}s are immutable, and editing them always starts with a deep copy.</p>
+ *
+ * <p>Instances of this class are immutable.</p>
+ */
+public final class ContainerSpecTemplate {
+
+    private final ObjectNode root;
+    private final ArrayNode env;
+    private final ObjectNode labels;
+
+    /**
+     * Compiles a new template.
+     *
+     * @param containerSpec the container specification
+     * @param env           the environment variables shared by all the containers, in the {@code NAME=value} form
+     * @param labels        the labels shared by all the containers
+     *
+     * @throws NullPointerException          if any argument is {@code null}
+     * @throws UnsupportedOperationException if the container specification is not an object, or if its {@code Env}
+     *                                       or {@code Labels} children are not respectively an array and an object
+     */
+    public ContainerSpecTemplate(@Nonnull Node containerSpec, @Nonnull List<String> env,
+                                 @Nonnull Map<String, String> labels) {
+        DockerCloudUtils.requireNonNull(containerSpec, "Container specification cannot be null.");
+        DockerCloudUtils.requireNonNull(env, "Environment variables list cannot be null.");
+        DockerCloudUtils.requireNonNull(labels, "Labels map cannot be null.");
+
+        EditableNode container = containerSpec.editNode();
+        EditableNode envNode = container.getOrCreateArray("Env");
+        for (String var : env) {
+            envNode.add(var);
+        }
+        EditableNode labelsNode = container.getOrCreateObject("Labels");
+        for (Map.Entry<String, String> label : labels.entrySet()) {
+            labelsNode.put(label.getKey(), label.getValue());
+        }
+
+        this.root = (ObjectNode) container.node;
+        this.env = (ArrayNode) envNode.node;
+        this.labels = (ObjectNode) labelsNode.node;
+    }
+
+    /**
+     * Creates the specification of a container from this template.
+     *
+     * @param image  the image name
+     * @param env    the additional environment variables of the container, in the {@code NAME=value} form
+     * @param labels the additional labels of the container
+     *
+     * @return the container specification
+     *
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    @Nonnull
+    public Node instantiate(@Nonnull String image, @Nonnull List<String> env, @Nonnull Map<String, String> labels) {
+        DockerCloudUtils.requireNonNull(image, "Image name cannot be null.");
+        DockerCloudUtils.requireNonNull(env, "Environment variables list cannot be null.");
+        DockerCloudUtils.requireNonNull(labels, "Labels map cannot be null.");
+
+        ArrayNode envNode = root.arrayNode();
+        envNode.addAll(this.env);
+        for (String var : env) {
+            envNode.add(var);
+        }
+
+        ObjectNode labelsNode = root.objectNode();
+        labelsNode.setAll(this.labels);
+        for (Map.Entry<String, String> label : labels.entrySet()) {
+            labelsNode.put(label.getKey(), label.getValue());
+        }
+
+        ObjectNode container = root.objectNode();
+        container.setAll(root);
+        container.set("Env", envNode);
+        container.set("Labels", labelsNode);
+        container.put("Image", image);
+
+        return new Node(container);
+    }
+}
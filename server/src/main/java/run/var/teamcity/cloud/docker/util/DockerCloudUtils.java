@@ -75,6 +75,34 @@ public final class DockerCloudUtils {
      * Docker cloud parameter: use transport layer security.
      */
     public static final String USE_TLS = NS_PREFIX + "use_tls";
+    /**
+     * Docker cloud parameter: maximum number of concurrent instance operations against the Docker daemon.
+     */
+    public static final String DAEMON_PARALLELISM_PARAM = NS_PREFIX + "daemon_parallelism";
+    /**
+     * Docker cloud parameter: maximum number of images pulled concurrently.
+     */
+    public static final String IMAGE_PULL_POOL_SIZE_PARAM = NS_PREFIX + "image_pull_pool_size";
+    /**
+     * Docker cloud parameter: maximum sustained number of container creations per second.
+     */
+    public static final String CONTAINER_CREATION_RATE_PARAM = NS_PREFIX + "container_creation_rate";
+    /**
+     * Docker cloud parameter: number of container creations allowed in a burst.
+     */
+    public static final String CONTAINER_CREATION_BURST_PARAM = NS_PREFIX + "container_creation_burst";
+    /**
+     * Docker cloud parameter: maximal interval in seconds between two synchronizations with the Docker daemon.
+     */
+    public static final String MAX_DOCKER_SYNC_RATE_PARAM = NS_PREFIX + "max_docker_sync_rate";
+    /**
+     * Docker cloud parameter: delay in seconds during which a pulled image is considered fresh.
+     */
+    public static final String IMAGE_FRESHNESS_TTL_PARAM = NS_PREFIX + "image_freshness_ttl";
+    /**
+     * Docker cloud parameter: interval in seconds between two background pulls of the profile images.
+     */
+    public static final String IMAGE_PRE_PULL_INTERVAL_PARAM = NS_PREFIX + "image_pre_pull_interval";
     /**
      * The Docker socket default location on Unix systems.
      */
@@ -96,6 +124,10 @@ public final class DockerCloudUtils {
      * Debug flag system property.
      */
     public static final String DEBUG_SYSPROP = NS_PREFIX + "debug";
+    /**
+     * System property to execute the Docker tasks using virtual threads, when supported by the JVM.
+     */
+    public static final String VIRTUAL_THREADS_SYSPROP = NS_PREFIX + "virtual_threads";
     /**
      * Cloud clode.
      */
@@ -0,0 +1,154 @@
+package run.var.teamcity.cloud.docker.util;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Histogram of durations, using a fixed set of buckets ranging from one millisecond to five minutes.
+ *
+ * <p>Instances of this class are NOT thread-safe.</p>
+ */
+public class LatencyHistogram {
+
+    private final static long[] BUCKET_BOUNDS_MILLIS = {1, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000,
+            30000, 60000, 300000};
+
+    // Last bucket holds the durations exceeding the largest bound.
+    private final long[] bucketCounts;
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+
+    /**
+     * Creates a new empty histogram.
+     */
+    public LatencyHistogram() {
+        bucketCounts = new long[BUCKET_BOUNDS_MILLIS.length + 1];
+    }
+
+    private LatencyHistogram(LatencyHistogram histogram) {
+        bucketCounts = histogram.bucketCounts.clone();
+        count = histogram.count;
+        totalNanos = histogram.totalNanos;
+        maxNanos = histogram.maxNanos;
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param durationNanos the duration in nanoseconds, negative durations are recorded as zero
+     */
+    public void record(long durationNanos) {
+        durationNanos = Math.max(0, durationNanos);
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+        int index = Arrays.binarySearch(BUCKET_BOUNDS_MILLIS, durationMillis);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        bucketCounts[index]++;
+        count++;
+        totalNanos += durationNanos;
+        maxNanos = Math.max(maxNanos, durationNanos);
+    }
+
+    /**
+     * Gets the number of recorded durations.
+     *
+     * @return the number of recorded durations
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the sum of all recorded durations in milliseconds.
+     *
+     * @return the sum of all recorded durations
+     */
+    public long getTotalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalNanos);
+    }
+
+    /**
+     * Gets the mean of the recorded durations in milliseconds. Will return 0 if no duration was recorded.
+     *
+     * @return the mean duration
+     */
+    public double getMeanMillis() {
+        return count == 0 ? 0 : (double) totalNanos / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Gets the longest recorded duration in milliseconds.
+     *
+     * @return the longest recorded duration
+     */
+    public long getMaxMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxNanos);
+    }
+
+    /**
+     * Gets an upper bound of the given percentile in milliseconds, as the upper bound of the bucket containing the
+     * percentile. The longest recorded duration will be returned for percentile exceeding the largest bucket. Will
+     * return 0 if no duration was recorded.
+     *
+     * @param percentile the percentile, between 0 and 100
+     *
+     * @return the percentile upper bound
+     *
+     * @throws IllegalArgumentException if {@code percentile} is not between 0 and 100
+     */
+    public long getPercentileMillis(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100 * count);
+        long cumulatedCount = 0;
+        for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+            cumulatedCount += bucketCounts[i];
+            if (cumulatedCount >= rank) {
+                return Math.min(BUCKET_BOUNDS_MILLIS[i], getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * Gets the upper bounds of the histogram buckets in milliseconds. The histogram holds an additional last
+     * bucket for the durations exceeding the largest bound.
+     *
+     * @return a copy of the bucket bounds
+     */
+    public static long[] getBucketBoundsMillis() {
+        return BUCKET_BOUNDS_MILLIS.clone();
+    }
+
+    /**
+     * Gets the number of durations recorded in each bucket.
+     *
+     * @return a copy of the bucket counts
+     *
+     * @see #getBucketBoundsMillis()
+     */
+    public long[] getBucketCounts() {
+        return bucketCounts.clone();
+    }
+
+    /**
+     * Creates a copy of this histogram.
+     *
+     * @return the histogram copy
+     */
+    public LatencyHistogram copy() {
+        return new LatencyHistogram(this);
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram[count: " + count + ", mean: " + getMeanMillis() + "ms, max: " + getMaxMillis() +
+                "ms]";
+    }
+}
@@ -0,0 +1,119 @@
+package run.var.teamcity.cloud.docker.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket rate limiter. The bucket is refilled continuously at a given rate up to its burst capacity, and
+ * each acquisition consumes one token. Acquisitions are never blocking: callers are expected to retry after
+ * {@linkplain #getNanosUntilAvailable() the delay} at which a token will be available.
+ *
+ * <p>Instances of this class are thread-safe.</p>
+ */
+public class TokenBucket {
+
+    private double permitsPerSecond;
+    private int burst;
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * Creates a new full bucket.
+     *
+     * @param permitsPerSecond the rate at which the bucket is refilled
+     * @param burst            the bucket capacity
+     *
+     * @throws IllegalArgumentException if {@code permitsPerSecond} is not strictly positive, or if {@code burst}
+     *                                  is smaller than 1
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        validate(permitsPerSecond, burst);
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.tokens = burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Reconfigures this bucket. The currently available tokens are preserved, up to the new capacity.
+     *
+     * @param permitsPerSecond the rate at which the bucket is refilled
+     * @param burst            the bucket capacity
+     *
+     * @throws IllegalArgumentException if {@code permitsPerSecond} is not strictly positive, or if {@code burst}
+     *                                  is smaller than 1
+     */
+    public synchronized void configure(double permitsPerSecond, int burst) {
+        validate(permitsPerSecond, burst);
+        refill();
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        tokens = Math.min(tokens, burst);
+    }
+
+    private static void validate(double permitsPerSecond, int burst) {
+        if (!(permitsPerSecond > 0) || Double.isInfinite(permitsPerSecond)) {
+            throw new IllegalArgumentException("Rate must be strictly positive: " + permitsPerSecond);
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("Burst must be at least 1: " + burst);
+        }
+    }
+
+    /**
+     * Attempts to acquire a token.
+     *
+     * @return {@code true} if a token was acquired, {@code false} if no token is currently available
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the delay in nanoseconds after which a token will be available, assuming no concurrent acquisition.
+     *
+     * @return the delay in nanoseconds, {@code 0} if a token is available
+     */
+    public synchronized long getNanosUntilAvailable() {
+        refill();
+        if (tokens >= 1) {
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / permitsPerSecond * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * Gets the rate at which this bucket is refilled.
+     *
+     * @return the number of tokens added per second
+     */
+    public synchronized double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    /**
+     * Gets the capacity of this bucket.
+     *
+     * @return the bucket capacity
+     */
+    public synchronized int getBurst() {
+        return burst;
+    }
+
+    private void refill() {
+        assert Thread.holdsLock(this);
+        long now = System.nanoTime();
+        double elapsedSec = (double) (now - lastRefillNanos) / TimeUnit.SECONDS.toNanos(1);
+        tokens = Math.min(burst, tokens + elapsedSec * permitsPerSecond);
+        lastRefillNanos = now;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "TokenBucket[permits per second: " + permitsPerSecond + ", burst: " + burst + "]";
+    }
+}
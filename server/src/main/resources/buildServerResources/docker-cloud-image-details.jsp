@@ -1,7 +1,14 @@
+<%@ page import="run.var.teamcity.cloud.docker.DockerImagePullInfo" %>
 <%@ page import="run.var.teamcity.cloud.docker.DockerInstance" %>
+<%@ page import="run.var.teamcity.cloud.docker.DockerTaskSchedulerStats" %>
+<%@ page import="run.var.teamcity.cloud.docker.util.LatencyHistogram" %>
 <%@ page import="run.var.teamcity.cloud.docker.util.DockerCloudUtils" %>
-<%@ page import="run.var.teamcity.cloud.docker.util.Node" %>
+<%@ page import="run.var.teamcity.cloud.docker.client.ContainerSummary" %>
 <%@ page import="java.text.DateFormat" %>
+<%@ page import="java.util.ArrayList" %>
+<%@ page import="java.util.Collections" %>
+<%@ page import="java.util.Comparator" %>
+<%@ page import="java.util.List" %>
 <%@ page import="java.util.Locale" %>
 <%--
   ~ Copyright 2000-2012 JetBrains s.r.o.
@@ -43,12 +50,12 @@
             <%
                 DateFormat dateFmt = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT, Locale.ENGLISH);
                 for (DockerInstance instance : image.getInstances()) {
-                    Node containerInfo = instance.getContainerInfo();
+                    ContainerSummary containerInfo = instance.getContainerInfo();
                     if (containerInfo == null) {
                         continue;
                     }
                     StringBuilder displayName = new StringBuilder();
-                    for (Node name : containerInfo.getArray("Names").getArrayValues()) {
+                    for (String name : containerInfo.getNames()) {
                         if (displayName.length() > 0) {
                             displayName.append(", ");
                         }
@@ -56,11 +63,11 @@
                     }
             %>
             <tr>
-                <td><%= DockerCloudUtils.toShortId(containerInfo.getAsString("Id")) %>
+                <td><%= DockerCloudUtils.toShortId(containerInfo.getId()) %>
                 </td>
-                <td><%= dateFmt.format(containerInfo.getAsLong("Created") * 1000) %>
+                <td><%= containerInfo.getCreated() != -1 ? dateFmt.format(containerInfo.getCreated() * 1000) : "" %>
                 </td>
-                <td><%= containerInfo.getAsString("State") %>
+                <td><%= containerInfo.getState() %>
                 </td>
                 <td><%= displayName.toString() %>
                 </td>
@@ -80,6 +87,91 @@
             lastSync = "not performed yet.";
         }
 
+        // Adaptive sync rates are spaced out while the cloud is stable, display the current interval.
+        long syncIntervalSec = Math.max(1, Math.round(image.getCloudClient().getEffectiveDockerSyncIntervalMillis() / 1000.0));
     %>
     Last sync with docker: <%= lastSync %>
+    <br/>
+    Current sync interval: <%= syncIntervalSec %> second(s)
+    <%
+        DateFormat pullDateFmt = DateFormat.getDateTimeInstance(DateFormat.LONG, DateFormat.SHORT, Locale.ENGLISH);
+        DockerImagePullInfo pullInfo = image.getPullInfo();
+        String lastPull;
+        if (pullInfo.getLastSuccessTimeMillis() != -1) {
+            lastPull = pullDateFmt.format(pullInfo.getLastSuccessTimeMillis());
+            String localImageId = pullInfo.getLocalImageId();
+            if (localImageId != null) {
+                if (localImageId.startsWith("sha256:")) {
+                    localImageId = localImageId.substring("sha256:".length());
+                }
+                lastPull += " (local image: " + DockerCloudUtils.toShortId(localImageId) + ")";
+            }
+        } else {
+            lastPull = "not performed yet.";
+        }
+        pageContext.setAttribute("pullImageName", pullInfo.getImageName());
+        pageContext.setAttribute("pullFailure", pullInfo.isFailing() ? pullInfo.getLastFailure() : null);
+    %>
+    <br/>
+    Last image pull<c:if test="${not empty pullImageName}"> of <c:out value="${pullImageName}"/></c:if>: <%= lastPull %>
+    <c:if test="${not empty pullFailure}">
+        <br/>
+        Last pull failed on <%= pullDateFmt.format(pullInfo.getLastFailureTimeMillis()) %>: <c:out value="${pullFailure}"/>
+    </c:if>
+    <%
+        DockerTaskSchedulerStats schedulerStats = image.getCloudClient().getTaskSchedulerStats();
+        List<DockerTaskSchedulerStats.OperationKey> operationKeys =
+                new ArrayList<DockerTaskSchedulerStats.OperationKey>(schedulerStats.getWaitTimes().keySet());
+        Collections.sort(operationKeys, new Comparator<DockerTaskSchedulerStats.OperationKey>() {
+            @Override
+            public int compare(DockerTaskSchedulerStats.OperationKey key1, DockerTaskSchedulerStats.OperationKey key2) {
+                return key1.toString().compareTo(key2.toString());
+            }
+        });
+    %>
+    <h4>Task scheduler (all profiles of this cloud):</h4>
+    Queued tasks: <%= schedulerStats.getScheduledInstanceTaskCount() %> instance task(s),
+    <%= schedulerStats.getScheduledClientTaskCount() %> client task(s),
+    <%= schedulerStats.getThrottledLaneCount() %> throttled instance(s).
+    Running tasks: <%= schedulerStats.getSubmittedInstanceTaskCount() %> instance task(s),
+    <%= schedulerStats.getSubmittedImagePullTaskCount() %> image pull(s)<%= schedulerStats.isClientTaskSubmitted() ? ", 1 client task" : "" %>.
+    <div style="margin: 5px 10%; width: 90%">
+        <table style="width: 80%;">
+            <thead>
+            <tr>
+                <th style="width: 40%;">Operation</th>
+                <th style="width: 12%;">Count</th>
+                <th style="width: 12%;">Mean wait</th>
+                <th style="width: 12%;">95th pct. wait</th>
+                <th style="width: 12%;">Mean execution</th>
+                <th style="width: 12%;">95th pct. execution</th>
+            </tr>
+            </thead>
+            <tbody>
+            <%
+                for (DockerTaskSchedulerStats.OperationKey operationKey : operationKeys) {
+                    LatencyHistogram waitTime = schedulerStats.getWaitTimes().get(operationKey);
+                    LatencyHistogram executionTime = schedulerStats.getExecutionTimes().get(operationKey);
+                    pageContext.setAttribute("operationKey", operationKey.toString());
+            %>
+            <tr>
+                <td><c:out value="${operationKey}"/>
+                </td>
+                <td><%= waitTime.getCount() %>
+                </td>
+                <td><%= Math.round(waitTime.getMeanMillis()) %> ms
+                </td>
+                <td><%= waitTime.getPercentileMillis(95) %> ms
+                </td>
+                <td><%= executionTime != null ? Math.round(executionTime.getMeanMillis()) + " ms" : "" %>
+                </td>
+                <td><%= executionTime != null ? executionTime.getPercentileMillis(95) + " ms" : "" %>
+                </td>
+            </tr>
+            <%
+                }
+            %>
+            </tbody>
+        </table>
+    </div>
 </div>
\ No newline at end of file
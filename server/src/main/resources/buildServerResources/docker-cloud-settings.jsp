@@ -122,6 +122,76 @@
                 <span class="error" id="error_<%=DockerCloudUtils.SERVER_URL_PARAM%>"></span>
             </td>
         </tr>
+        <tr>
+            <th>Max concurrent container operations:
+                <i class="icon icon16 tc-icon_help_small tooltip"></i>
+                <span class="tooltiptext">Maximum number of container operations (creation, start, disposal, ...) performed concurrently against the Docker daemon. May be left empty to use a default value.</span>
+            </th>
+            <td>
+                <props:textProperty name="<%=DockerCloudUtils.DAEMON_PARALLELISM_PARAM%>" className="shortField"/>
+                <span class="error" id="error_<%=DockerCloudUtils.DAEMON_PARALLELISM_PARAM%>"></span>
+            </td>
+        </tr>
+        <tr>
+            <th>Max concurrent image pulls:
+                <i class="icon icon16 tc-icon_help_small tooltip"></i>
+                <span class="tooltiptext">Maximum number of images pulled concurrently from their registries. Image pulls are performed separately from the other container operations. Default to 2.</span>
+            </th>
+            <td>
+                <props:textProperty name="<%=DockerCloudUtils.IMAGE_PULL_POOL_SIZE_PARAM%>" className="shortField"/>
+                <span class="error" id="error_<%=DockerCloudUtils.IMAGE_PULL_POOL_SIZE_PARAM%>"></span>
+            </td>
+        </tr>
+        <tr>
+            <th>Max container creations per second:
+                <i class="icon icon16 tc-icon_help_small tooltip"></i>
+                <span class="tooltiptext">Maximum sustained rate of container creations on the Docker daemon. Creations exceeding this rate are queued. May be left empty for no limit.</span>
+            </th>
+            <td>
+                <props:textProperty name="<%=DockerCloudUtils.CONTAINER_CREATION_RATE_PARAM%>" className="shortField"/>
+                <span class="error" id="error_<%=DockerCloudUtils.CONTAINER_CREATION_RATE_PARAM%>"></span>
+            </td>
+        </tr>
+        <tr>
+            <th>Container creations burst:
+                <i class="icon icon16 tc-icon_help_small tooltip"></i>
+                <span class="tooltiptext">Number of container creations that may exceed the sustained rate in a burst. Default to one second worth of creations.</span>
+            </th>
+            <td>
+                <props:textProperty name="<%=DockerCloudUtils.CONTAINER_CREATION_BURST_PARAM%>" className="shortField"/>
+                <span class="error" id="error_<%=DockerCloudUtils.CONTAINER_CREATION_BURST_PARAM%>"></span>
+            </td>
+        </tr>
+        <tr>
+            <th>Max synchronization interval (sec):
+                <i class="icon icon16 tc-icon_help_small tooltip"></i>
+                <span class="tooltiptext">When set, the synchronization with the Docker daemon is performed every few seconds while containers are changing state, and is progressively spaced out up to this interval when the cloud is stable. Leave empty to synchronize every 30 seconds.</span>
+            </th>
+            <td>
+                <props:textProperty name="<%=DockerCloudUtils.MAX_DOCKER_SYNC_RATE_PARAM%>" className="shortField"/>
+                <span class="error" id="error_<%=DockerCloudUtils.MAX_DOCKER_SYNC_RATE_PARAM%>"></span>
+            </td>
+        </tr>
+        <tr>
+            <th>Image freshness (sec):
+                <i class="icon icon16 tc-icon_help_small tooltip"></i>
+                <span class="tooltiptext">Delay during which a pulled image is considered up to date: starting a container from this image during this delay will not trigger a new pull. Leave empty or set to 0 to always pull images when configured to do so.</span>
+            </th>
+            <td>
+                <props:textProperty name="<%=DockerCloudUtils.IMAGE_FRESHNESS_TTL_PARAM%>" className="shortField"/>
+                <span class="error" id="error_<%=DockerCloudUtils.IMAGE_FRESHNESS_TTL_PARAM%>"></span>
+            </td>
+        </tr>
+        <tr>
+            <th>Image pre-pull interval (sec):
+                <i class="icon icon16 tc-icon_help_small tooltip"></i>
+                <span class="tooltiptext">Interval between two background pulls of the profile images, such that the images are already up to date when starting new containers. Set to 0 to pull the images only once when the cloud profile is initialized. Leave empty or set to -1 to disable the background pulls.</span>
+            </th>
+            <td>
+                <props:textProperty name="<%=DockerCloudUtils.IMAGE_PRE_PULL_INTERVAL_PARAM%>" className="shortField"/>
+                <span class="error" id="error_<%=DockerCloudUtils.IMAGE_PRE_PULL_INTERVAL_PARAM%>"></span>
+            </td>
+        </tr>
         </tbody>
     </table>
 
@@ -169,6 +239,17 @@
                         <span class="error" id="dockerCloudImage_MaxInstanceCount_error"></span>
                     </td>
                 </tr>
+                <tr>
+                    <th><label for="dockerCloudImage_WarmPoolSize">Warm pool size:&nbsp;</label></th>
+                    <td>
+                        <input type="text" id="dockerCloudImage_WarmPoolSize" class="mediumField"/>
+                        <span class="error" id="dockerCloudImage_WarmPoolSize_error"></span>
+                        <span class="smallNote">
+      Number of containers to be created in advance, such that new instances only need to start them. Warm
+      containers count toward the maximum instance count.
+    </span>
+                    </td>
+                </tr>
                 <tr>
                     <th>Management:</th>
                     <td>
@@ -182,6 +263,16 @@
                             also means that all the agent meta-data and applied server plugin upgrade so far will be
                                 lost.</span>
                         </p>
+                        <p>
+                            <input type="checkbox" id="dockerCloudImage_PauseOnStop"/>
+                            <label for="dockerCloudImage_PauseOnStop">Pause container when cloud agent is stopped</label>
+                            <i class="icon icon16 tc-icon_help_small tooltip"></i>
+                            <span class="tooltiptext">You may check this box if you want to pause the container instead
+                                of stopping it when the corresponding cloud instance is stopped. The container will be
+                                resumed on the next start, without having to boot the agent again. Paused containers
+                                keep their memory allocated on the Docker host.</span>
+                            <span class="error" id="dockerCloudImage_PauseOnStop_error"></span>
+                        </p>
                     </td>
                 </tr>
 
@@ -472,10 +472,14 @@ BS.Clouds.Docker = BS.Clouds.Docker || (function () {
                 admin.Version = 1;
 
                 self._convertViewModelFieldToSettingsField(viewModel, admin, 'RmOnExit');
+                self._convertViewModelFieldToSettingsField(viewModel, admin, 'PauseOnStop');
                 self._convertViewModelFieldToSettingsField(viewModel, admin, 'BindAgentProps');
                 if (self._filterFromSettings(viewModel.MaxInstanceCount)) {
                     admin.MaxInstanceCount = parseInt(viewModel.MaxInstanceCount);
                 }
+                if (self._filterFromSettings(viewModel.WarmPoolSize)) {
+                    admin.WarmPoolSize = parseInt(viewModel.WarmPoolSize);
+                }
                 self._convertViewModelFieldToSettingsField(viewModel, admin, 'UseOfficialTCAgentImage');
                 self._convertViewModelFieldToSettingsField(viewModel, admin, 'Profile');
 
@@ -654,8 +658,10 @@ BS.Clouds.Docker = BS.Clouds.Docker || (function () {
 
                 viewModel.Profile = admin.Profile;
                 viewModel.RmOnExit = admin.RmOnExit;
+                viewModel.PauseOnStop = admin.PauseOnStop;
                 viewModel.BindAgentProps = admin.BindAgentProps;
                 viewModel.MaxInstanceCount = admin.MaxInstanceCount;
+                viewModel.WarmPoolSize = admin.WarmPoolSize;
                 viewModel.UseOfficialTCAgentImage = admin.UseOfficialTCAgentImage;
 
                 viewModel.Hostname = container.Hostname;
@@ -1454,6 +1460,12 @@ BS.Clouds.Docker = BS.Clouds.Docker || (function () {
                             return {msg: "At least one instance must be permitted."};
                         }
                     }],
+                    dockerCloudImage_WarmPoolSize: [positiveIntegerValidator],
+                    dockerCloudImage_PauseOnStop: [function($elt) {
+                        if ($elt.is(':checked') && self.$rmOnExit.is(':checked')) {
+                            return {msg: "Paused containers cannot be deleted when stopped."};
+                        }
+                    }],
                     dockerCloudImage_Entrypoint_IDX: [function ($elt) {
                         var row = $elt.closest("tr");
                         if (row.index() === 0) {
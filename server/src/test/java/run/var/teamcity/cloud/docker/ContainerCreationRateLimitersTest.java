@@ -0,0 +1,111 @@
+package run.var.teamcity.cloud.docker;
+
+import org.junit.Test;
+import run.var.teamcity.cloud.docker.client.DockerClientConfig;
+import run.var.teamcity.cloud.docker.util.TokenBucket;
+
+import java.net.URI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * {@link ContainerCreationRateLimiters} test suite.
+ */
+public class ContainerCreationRateLimitersTest {
+
+    @Test
+    public void noLimit() {
+        DockerClientConfig config = new DockerClientConfig(URI.create("tcp://no.limit:2375"));
+
+        assertThat(ContainerCreationRateLimiters.forDaemon(config)).isNull();
+
+        ContainerCreationRateLimiters.release(config);
+    }
+
+    @Test
+    public void strictestLimitsApply() {
+        URI daemonURI = URI.create("tcp://strictest.limits:2375");
+        DockerClientConfig config1 = new DockerClientConfig(daemonURI).containerCreationRate(2, 1);
+        DockerClientConfig config2 = new DockerClientConfig(daemonURI).containerCreationRate(1, 5);
+        DockerClientConfig config3 = new DockerClientConfig(daemonURI).containerCreationRate(10, 10);
+
+        TokenBucket limiter = ContainerCreationRateLimiters.forDaemon(config1);
+
+        assertThat(limiter).isNotNull();
+        assertThat(limiter.getPermitsPerSecond()).isEqualTo(2);
+        assertThat(limiter.getBurst()).isEqualTo(1);
+
+        assertThat(ContainerCreationRateLimiters.forDaemon(config2)).isSameAs(limiter);
+
+        assertThat(limiter.getPermitsPerSecond()).isEqualTo(1);
+        assertThat(limiter.getBurst()).isEqualTo(1);
+
+        // Less strict, no effect.
+        assertThat(ContainerCreationRateLimiters.forDaemon(config3)).isSameAs(limiter);
+
+        assertThat(limiter.getPermitsPerSecond()).isEqualTo(1);
+        assertThat(limiter.getBurst()).isEqualTo(1);
+
+        ContainerCreationRateLimiters.release(config1);
+
+        assertThat(limiter.getPermitsPerSecond()).isEqualTo(1);
+        assertThat(limiter.getBurst()).isEqualTo(5);
+
+        ContainerCreationRateLimiters.release(config2);
+
+        assertThat(limiter.getPermitsPerSecond()).isEqualTo(10);
+        assertThat(limiter.getBurst()).isEqualTo(10);
+
+        ContainerCreationRateLimiters.release(config3);
+    }
+
+    @Test
+    public void limiterDiscardedWithLastClient() {
+        URI daemonURI = URI.create("tcp://last.client:2375");
+        DockerClientConfig config1 = new DockerClientConfig(daemonURI).containerCreationRate(1, 1);
+        DockerClientConfig config2 = new DockerClientConfig(daemonURI).containerCreationRate(1, 1);
+
+        TokenBucket limiter = ContainerCreationRateLimiters.forDaemon(config1);
+
+        assertThat(ContainerCreationRateLimiters.forDaemon(config2)).isSameAs(limiter);
+
+        ContainerCreationRateLimiters.release(config1);
+
+        assertThat(ContainerCreationRateLimiters.forDaemon(config1)).isSameAs(limiter);
+
+        ContainerCreationRateLimiters.release(config1);
+        ContainerCreationRateLimiters.release(config2);
+
+        TokenBucket newLimiter = ContainerCreationRateLimiters.forDaemon(config1);
+
+        assertThat(newLimiter).isNotNull().isNotSameAs(limiter);
+
+        ContainerCreationRateLimiters.release(config1);
+    }
+
+    @Test
+    public void limitersPerDaemon() {
+        DockerClientConfig config1 = new DockerClientConfig(URI.create("tcp://daemon.1:2375"))
+                .containerCreationRate(1, 1);
+        DockerClientConfig config2 = new DockerClientConfig(URI.create("tcp://daemon.2:2375"))
+                .containerCreationRate(1, 1);
+
+        TokenBucket limiter1 = ContainerCreationRateLimiters.forDaemon(config1);
+        TokenBucket limiter2 = ContainerCreationRateLimiters.forDaemon(config2);
+
+        assertThat(limiter1).isNotNull().isNotSameAs(limiter2);
+
+        ContainerCreationRateLimiters.release(config1);
+        ContainerCreationRateLimiters.release(config2);
+    }
+
+    @Test
+    @SuppressWarnings("ConstantConditions")
+    public void invalidInput() {
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() ->
+                ContainerCreationRateLimiters.forDaemon(null));
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() ->
+                ContainerCreationRateLimiters.release(null));
+    }
+}
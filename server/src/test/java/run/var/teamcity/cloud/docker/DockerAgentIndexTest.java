@@ -0,0 +1,91 @@
+package run.var.teamcity.cloud.docker;
+
+import org.junit.Test;
+import run.var.teamcity.cloud.docker.test.TestSBuildAgent;
+import run.var.teamcity.cloud.docker.test.TestUtils;
+import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * {@link DockerAgentIndex} test suite.
+ */
+public class DockerAgentIndexTest {
+
+    @Test
+    public void indexAgentsOfClient() {
+        DockerAgentIndex index = new DockerAgentIndex(TestUtils.TEST_UUID);
+
+        TestSBuildAgent agent = agent(TestUtils.TEST_UUID, TestUtils.TEST_UUID_2);
+        TestSBuildAgent agentWithoutInstance = agent(TestUtils.TEST_UUID, null);
+        TestSBuildAgent otherClientAgent = agent(UUID.randomUUID(), TestUtils.TEST_UUID_2);
+        TestSBuildAgent otherAgent = new TestSBuildAgent();
+
+        index.agentRegistered(agent);
+        index.agentRegistered(agentWithoutInstance);
+        index.agentRegistered(otherClientAgent);
+        index.agentRegistered(otherAgent);
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.getUnregisteredAgents()).isEmpty();
+
+        index.agentUnregistered(agent);
+        index.agentUnregistered(otherClientAgent);
+
+        assertThat(index.getUnregisteredAgents()).hasSize(1);
+        DockerAgentIndex.Entry entry = index.getUnregisteredAgents().get(0);
+        assertThat(entry.getAgent()).isSameAs(agent);
+        assertThat(entry.getInstanceUuid()).isEqualTo(TestUtils.TEST_UUID_2);
+        assertThat(entry.isRegistered()).isFalse();
+
+        index.agentUnregistered(agentWithoutInstance);
+
+        assertThat(index.getUnregisteredAgents()).hasSize(2);
+
+        index.remove(entry);
+        index.agentRemoved(agentWithoutInstance);
+
+        assertThat(index.size()).isZero();
+        assertThat(index.getUnregisteredAgents()).isEmpty();
+    }
+
+    @Test
+    public void seedDoesNotOverrideMoreRecentState() {
+        DockerAgentIndex index = new DockerAgentIndex(TestUtils.TEST_UUID);
+
+        TestSBuildAgent registeredAgent = agent(TestUtils.TEST_UUID, TestUtils.TEST_UUID_2);
+        TestSBuildAgent unregisteredAgent = agent(TestUtils.TEST_UUID, UUID.randomUUID());
+
+        index.agentRegistered(registeredAgent);
+
+        index.seedUnregisteredAgents(Arrays.asList(registeredAgent, unregisteredAgent));
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.getUnregisteredAgents()).hasSize(1);
+        assertThat(index.getUnregisteredAgents().get(0).getAgent()).isSameAs(unregisteredAgent);
+    }
+
+    @Test
+    @SuppressWarnings("ConstantConditions")
+    public void invalidInput() {
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() -> new DockerAgentIndex(null));
+
+        DockerAgentIndex index = new DockerAgentIndex(TestUtils.TEST_UUID);
+
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() -> index.agentRegistered(null));
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() -> index.seedUnregisteredAgents(null));
+    }
+
+    private TestSBuildAgent agent(UUID clientUuid, UUID instanceUuid) {
+        TestSBuildAgent agent = new TestSBuildAgent().
+                environmentVariable(DockerCloudUtils.ENV_CLIENT_ID, clientUuid.toString());
+        if (instanceUuid != null) {
+            agent.environmentVariable(DockerCloudUtils.ENV_INSTANCE_ID, instanceUuid.toString());
+        }
+        return agent;
+    }
+}
@@ -44,6 +44,51 @@ public class DockerCloudClientConfigTest {
         config = new DockerCloudClientConfig(TestUtils.TEST_UUID, dockerConfig, true, 42, null);
 
         assertThat(config.getServerURL()).isNull();
+
+        assertThat(config.getDockerSyncRateSec()).isEqualTo(42);
+        assertThat(config.getMaxDockerSyncRateSec()).isEqualTo(-1);
+        assertThat(config.getImagePullPoolSize()).isEqualTo(2);
+        assertThat(config.getDaemonParallelism()).isEqualTo(-1);
+        assertThat(config.getImageFreshnessTtlSec()).isEqualTo(0);
+        assertThat(config.getImagePrePullIntervalSec()).isEqualTo(-1);
+    }
+
+    @Test
+    public void fromBuilder() {
+        DockerClientConfig dockerConfig = new DockerClientConfig(DockerCloudUtils.DOCKER_DEFAULT_SOCKET_URI);
+        DockerCloudClientConfig config = DockerCloudClientConfig.builder(TestUtils.TEST_UUID, dockerConfig).build();
+
+        assertThat(config.getDockerClientConfig().getApiVersion()).isEqualTo(DockerCloudUtils.DOCKER_API_TARGET_VERSION);
+        assertThat(config.getUuid()).isEqualTo(TestUtils.TEST_UUID);
+        assertThat(config.getDockerClientConfig()).isSameAs(dockerConfig);
+        assertThat(config.isUsingDaemonThreads()).isFalse();
+        assertThat(config.getDockerSyncRateSec()).isEqualTo(30);
+        assertThat(config.getMaxDockerSyncRateSec()).isEqualTo(-1);
+        assertThat(config.getImagePullPoolSize()).isEqualTo(2);
+        assertThat(config.getDaemonParallelism()).isEqualTo(-1);
+        assertThat(config.getImageFreshnessTtlSec()).isEqualTo(0);
+        assertThat(config.getImagePrePullIntervalSec()).isEqualTo(-1);
+        assertThat(config.getServerURL()).isNull();
+
+        config = DockerCloudClientConfig.builder(TestUtils.TEST_UUID, dockerConfig)
+                .usingDaemonThreads(true)
+                .dockerSyncRateSec(42)
+                .maxDockerSyncRateSec(300)
+                .imagePullPoolSize(5)
+                .daemonParallelism(12)
+                .imageFreshnessTtlSec(600)
+                .imagePrePullIntervalSec(3600)
+                .serverURL(serverURL)
+                .build();
+
+        assertThat(config.isUsingDaemonThreads()).isTrue();
+        assertThat(config.getDockerSyncRateSec()).isEqualTo(42);
+        assertThat(config.getMaxDockerSyncRateSec()).isEqualTo(300);
+        assertThat(config.getImagePullPoolSize()).isEqualTo(5);
+        assertThat(config.getDaemonParallelism()).isEqualTo(12);
+        assertThat(config.getImageFreshnessTtlSec()).isEqualTo(600);
+        assertThat(config.getImagePrePullIntervalSec()).isEqualTo(3600);
+        assertThat(config.getServerURL()).isEqualTo(serverURL);
     }
 
     @Test
@@ -66,6 +111,40 @@ public class DockerCloudClientConfigTest {
                 dockerConfig, true, -1, serverURL));
     }
 
+    @Test
+    @SuppressWarnings("ConstantConditions")
+    public void fromBuilderInvalidInput() {
+
+        DockerClientConfig dockerConfig = new DockerClientConfig(DockerCloudUtils.DOCKER_DEFAULT_SOCKET_URI);
+
+        DockerCloudClientConfig.builder(TestUtils.TEST_UUID, dockerConfig).dockerSyncRateSec(10)
+                .maxDockerSyncRateSec(10).imagePullPoolSize(1).daemonParallelism(1).imageFreshnessTtlSec(0)
+                .imagePrePullIntervalSec(0).build();
+
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() ->
+                DockerCloudClientConfig.builder(null, dockerConfig).build());
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() ->
+                DockerCloudClientConfig.builder(TestUtils.TEST_UUID, null).build());
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->
+                DockerCloudClientConfig.builder(TestUtils.TEST_UUID, dockerConfig).dockerSyncRateSec(1).build());
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->
+                DockerCloudClientConfig.builder(TestUtils.TEST_UUID, dockerConfig).dockerSyncRateSec(10)
+                        .maxDockerSyncRateSec(9).build());
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->
+                DockerCloudClientConfig.builder(TestUtils.TEST_UUID, dockerConfig).maxDockerSyncRateSec(0).build());
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->
+                DockerCloudClientConfig.builder(TestUtils.TEST_UUID, dockerConfig).imagePullPoolSize(0).build());
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->
+                DockerCloudClientConfig.builder(TestUtils.TEST_UUID, dockerConfig).daemonParallelism(0).build());
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->
+                DockerCloudClientConfig.builder(TestUtils.TEST_UUID, dockerConfig).daemonParallelism(-2).build());
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->
+                DockerCloudClientConfig.builder(TestUtils.TEST_UUID, dockerConfig).imageFreshnessTtlSec(-1).build());
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->
+                DockerCloudClientConfig.builder(TestUtils.TEST_UUID, dockerConfig).imagePrePullIntervalSec(-2)
+                        .build());
+    }
+
     @Test
     public void fromValidConfigMap() {
         Map<String, String> params = new HashMap<>();
@@ -79,6 +158,55 @@ public class DockerCloudClientConfigTest {
         assertThat(config.getDockerClientConfig().getApiVersion()).isEqualTo(DockerCloudUtils.DOCKER_API_TARGET_VERSION);
         assertThat(config.getUuid()).isEqualTo(TestUtils.TEST_UUID);
         assertThat(config.getServerURL()).isNull();
+        assertThat(config.getDaemonParallelism()).isEqualTo(-1);
+
+        params.put(DockerCloudUtils.DAEMON_PARALLELISM_PARAM, " 8 ");
+
+        config = DockerCloudClientConfig.processParams(params, dockerClientFactory);
+
+        assertThat(config.getDaemonParallelism()).isEqualTo(8);
+        assertThat(config.getImagePullPoolSize()).isEqualTo(2);
+
+        params.put(DockerCloudUtils.IMAGE_PULL_POOL_SIZE_PARAM, " 4 ");
+
+        config = DockerCloudClientConfig.processParams(params, dockerClientFactory);
+
+        assertThat(config.getImagePullPoolSize()).isEqualTo(4);
+        assertThat(config.getDockerClientConfig().getContainerCreationRate()).isEqualTo(0);
+
+        params.put(DockerCloudUtils.CONTAINER_CREATION_RATE_PARAM, "2.5");
+
+        config = DockerCloudClientConfig.processParams(params, dockerClientFactory);
+
+        assertThat(config.getDockerClientConfig().getContainerCreationRate()).isEqualTo(2.5);
+        assertThat(config.getDockerClientConfig().getContainerCreationBurst()).isEqualTo(3);
+
+        params.put(DockerCloudUtils.CONTAINER_CREATION_BURST_PARAM, "10");
+
+        config = DockerCloudClientConfig.processParams(params, dockerClientFactory);
+
+        assertThat(config.getDockerClientConfig().getContainerCreationBurst()).isEqualTo(10);
+        assertThat(config.getMaxDockerSyncRateSec()).isEqualTo(-1);
+
+        params.put(DockerCloudUtils.MAX_DOCKER_SYNC_RATE_PARAM, "600");
+
+        config = DockerCloudClientConfig.processParams(params, dockerClientFactory);
+
+        assertThat(config.getMaxDockerSyncRateSec()).isEqualTo(600);
+        assertThat(config.getImageFreshnessTtlSec()).isEqualTo(0);
+
+        params.put(DockerCloudUtils.IMAGE_FRESHNESS_TTL_PARAM, " 300 ");
+
+        config = DockerCloudClientConfig.processParams(params, dockerClientFactory);
+
+        assertThat(config.getImageFreshnessTtlSec()).isEqualTo(300);
+        assertThat(config.getImagePrePullIntervalSec()).isEqualTo(-1);
+
+        params.put(DockerCloudUtils.IMAGE_PRE_PULL_INTERVAL_PARAM, "3600");
+
+        config = DockerCloudClientConfig.processParams(params, dockerClientFactory);
+
+        assertThat(config.getImagePrePullIntervalSec()).isEqualTo(3600);
 
         params.put(DockerCloudUtils.SERVER_URL_PARAM, serverURL.toString());
 
@@ -131,6 +259,61 @@ public class DockerCloudClientConfigTest {
         params.put(DockerCloudUtils.SERVER_URL_PARAM, "not an url");
 
         assertInvalidProperty(params, DockerCloudUtils.SERVER_URL_PARAM);
+
+        params.remove(DockerCloudUtils.SERVER_URL_PARAM);
+        params.put(DockerCloudUtils.DAEMON_PARALLELISM_PARAM, "0");
+
+        assertInvalidProperty(params, DockerCloudUtils.DAEMON_PARALLELISM_PARAM);
+
+        params.put(DockerCloudUtils.DAEMON_PARALLELISM_PARAM, "many");
+
+        assertInvalidProperty(params, DockerCloudUtils.DAEMON_PARALLELISM_PARAM);
+
+        params.remove(DockerCloudUtils.DAEMON_PARALLELISM_PARAM);
+        params.put(DockerCloudUtils.IMAGE_PULL_POOL_SIZE_PARAM, "0");
+
+        assertInvalidProperty(params, DockerCloudUtils.IMAGE_PULL_POOL_SIZE_PARAM);
+
+        params.put(DockerCloudUtils.IMAGE_PULL_POOL_SIZE_PARAM, "some");
+
+        assertInvalidProperty(params, DockerCloudUtils.IMAGE_PULL_POOL_SIZE_PARAM);
+
+        params.remove(DockerCloudUtils.IMAGE_PULL_POOL_SIZE_PARAM);
+        params.put(DockerCloudUtils.CONTAINER_CREATION_RATE_PARAM, "0");
+
+        assertInvalidProperty(params, DockerCloudUtils.CONTAINER_CREATION_RATE_PARAM);
+
+        params.put(DockerCloudUtils.CONTAINER_CREATION_RATE_PARAM, "1");
+        params.put(DockerCloudUtils.CONTAINER_CREATION_BURST_PARAM, "-3");
+
+        assertInvalidProperty(params, DockerCloudUtils.CONTAINER_CREATION_BURST_PARAM);
+
+        params.remove(DockerCloudUtils.CONTAINER_CREATION_BURST_PARAM);
+        params.put(DockerCloudUtils.MAX_DOCKER_SYNC_RATE_PARAM, "5");
+
+        assertInvalidProperty(params, DockerCloudUtils.MAX_DOCKER_SYNC_RATE_PARAM);
+
+        params.put(DockerCloudUtils.MAX_DOCKER_SYNC_RATE_PARAM, "forever");
+
+        assertInvalidProperty(params, DockerCloudUtils.MAX_DOCKER_SYNC_RATE_PARAM);
+
+        params.remove(DockerCloudUtils.MAX_DOCKER_SYNC_RATE_PARAM);
+        params.put(DockerCloudUtils.IMAGE_FRESHNESS_TTL_PARAM, "-1");
+
+        assertInvalidProperty(params, DockerCloudUtils.IMAGE_FRESHNESS_TTL_PARAM);
+
+        params.put(DockerCloudUtils.IMAGE_FRESHNESS_TTL_PARAM, "a while");
+
+        assertInvalidProperty(params, DockerCloudUtils.IMAGE_FRESHNESS_TTL_PARAM);
+
+        params.remove(DockerCloudUtils.IMAGE_FRESHNESS_TTL_PARAM);
+        params.put(DockerCloudUtils.IMAGE_PRE_PULL_INTERVAL_PARAM, "-2");
+
+        assertInvalidProperty(params, DockerCloudUtils.IMAGE_PRE_PULL_INTERVAL_PARAM);
+
+        params.put(DockerCloudUtils.IMAGE_PRE_PULL_INTERVAL_PARAM, "hourly");
+
+        assertInvalidProperty(params, DockerCloudUtils.IMAGE_PRE_PULL_INTERVAL_PARAM);
     }
 
     private void assertInvalidProperty(Map<String, String> params, String name) {
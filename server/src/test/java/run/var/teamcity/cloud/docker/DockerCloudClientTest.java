@@ -16,14 +16,18 @@ import run.var.teamcity.cloud.docker.test.TestDockerClient.ContainerStatus;
 import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
 import run.var.teamcity.cloud.docker.util.Node;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.sql.Date;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Collection;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
@@ -42,6 +46,13 @@ public class DockerCloudClientTest {
     private Node containerSpec;
     private boolean rmOnExit;
     private int maxInstanceCount;
+    private int warmPoolSize;
+    private boolean pauseOnStop;
+    private int dockerSyncRateSec;
+    private int imageFreshnessTtlSec;
+    private int imagePrePullIntervalSec;
+    private double containerCreationRate;
+    private int instanceStartDeadlineSec;
     private TestSBuildServer buildServer;
     private TestDockerImageResolver dockerImageResolver;
     private TestCloudState cloudState;
@@ -49,6 +60,7 @@ public class DockerCloudClientTest {
     private CloudErrorInfo errorInfo;
     private URL serverURL;
     private URL defaultServerURL;
+    private DockerInstanceStore instanceStore;
 
     @Before
     public void init() throws MalformedURLException {
@@ -64,7 +76,15 @@ public class DockerCloudClientTest {
                 null, "", "", Collections.emptyMap());
         errorInfo = null;
         maxInstanceCount = 1;
+        warmPoolSize = 0;
+        pauseOnStop = false;
+        dockerSyncRateSec = 2;
+        imageFreshnessTtlSec = 0;
+        imagePrePullIntervalSec = -1;
+        containerCreationRate = 0;
+        instanceStartDeadlineSec = -1;
         rmOnExit = true;
+        instanceStore = null;
     }
 
     @Test
@@ -253,6 +273,34 @@ public class DockerCloudClientTest {
         assertThat(client.getErrorInfo()).isNull();
     }
 
+    @Test
+    public void discardAgentsUnregisteredAfterStartup() {
+        TestSBuildAgent agentWithCloudAndInstanceIds = new TestSBuildAgent().
+                environmentVariable(DockerCloudUtils.ENV_CLIENT_ID, TestUtils.TEST_UUID.toString()).
+                environmentVariable(DockerCloudUtils.ENV_INSTANCE_ID, TestUtils.TEST_UUID_2.toString());
+        TestSBuildAgent otherAgent = new TestSBuildAgent();
+
+        DefaultDockerCloudClient client = createClient();
+
+        waitUntil(() -> client.getLastDockerSyncTimeMillis() != -1);
+
+        buildServer.getBuildAgentManager().
+                registeredAgent(agentWithCloudAndInstanceIds).
+                registeredAgent(otherAgent);
+
+        long lastSync = client.getLastDockerSyncTimeMillis();
+
+        waitUntil(() -> client.getLastDockerSyncTimeMillis() > lastSync);
+
+        buildServer.getBuildAgentManager().
+                unregisteredAgent(agentWithCloudAndInstanceIds).
+                unregisteredAgent(otherAgent);
+
+        waitUntil(() -> buildServer.getBuildAgentManager().getUnregisteredAgents().size() == 1);
+
+        assertThat(buildServer.getBuildAgentManager().getUnregisteredAgents()).containsOnly(otherAgent);
+    }
+
     @Test
     public void setupAgentName() {
 
@@ -367,6 +415,119 @@ public class DockerCloudClientTest {
         assertThat(dockerClient.getContainers()).containsOnly(nonRelevantContainer);
     }
 
+    @Test
+    public void persistInstanceState() throws IOException {
+        instanceStore = createInstanceStore();
+
+        DefaultDockerCloudClient client = createClient();
+
+        DockerImage dockerImage = extractImage(client);
+
+        waitUntil(() -> client.canStartNewInstance(dockerImage));
+
+        DockerInstance instance = client.startNewInstance(dockerImage, userData);
+
+        waitUntil(() -> instance.getStatus() == InstanceStatus.RUNNING);
+
+        DockerInstanceStore.State state = instanceStore.load();
+        assertThat(state).isNotNull();
+        assertThat(state.getImages()).hasSize(1);
+        assertThat(state.getImages().get(0).getUuid()).isEqualTo(dockerImage.getUuid());
+        assertThat(state.getInstances()).hasSize(1);
+        DockerInstanceStore.InstanceRecord record = state.getInstances().get(0);
+        assertThat(record.getUuid()).isEqualTo(instance.getUuid());
+        assertThat(record.getImageUuid()).isEqualTo(dockerImage.getUuid());
+        assertThat(record.getContainerId()).isEqualTo(instance.getContainerId());
+
+        client.terminateInstance(instance);
+
+        waitUntil(() -> instanceStore.load().getInstances().isEmpty());
+    }
+
+    @Test
+    public void adoptPersistedContainers() throws IOException {
+        instanceStore = createInstanceStore();
+
+        UUID imageUuid = UUID.randomUUID();
+        UUID stoppedInstanceUuid = UUID.randomUUID();
+        Container runningContainer = new Container(ContainerStatus.STARTED).
+                label(DockerCloudUtils.CLIENT_ID_LABEL, TestUtils.TEST_UUID.toString()).
+                label(DockerCloudUtils.INSTANCE_ID_LABEL, TestUtils.TEST_UUID_2.toString());
+        Container stoppedContainer = new Container(ContainerStatus.CREATED).
+                label(DockerCloudUtils.CLIENT_ID_LABEL, TestUtils.TEST_UUID.toString()).
+                label(DockerCloudUtils.INSTANCE_ID_LABEL, stoppedInstanceUuid.toString());
+        Container unknownContainer = new Container(ContainerStatus.STARTED).
+                label(DockerCloudUtils.CLIENT_ID_LABEL, TestUtils.TEST_UUID.toString()).
+                label(DockerCloudUtils.INSTANCE_ID_LABEL, UUID.randomUUID().toString());
+
+        instanceStore.save(new DockerInstanceStore.State(
+                Collections.singletonList(new DockerInstanceStore.ImageRecord("UnitTest", imageUuid,
+                        containerSpec.toString())),
+                Arrays.asList(
+                        new DockerInstanceStore.InstanceRecord(TestUtils.TEST_UUID_2, imageUuid,
+                                runningContainer.getId()),
+                        new DockerInstanceStore.InstanceRecord(stoppedInstanceUuid, imageUuid,
+                                stoppedContainer.getId()))));
+
+        dockerClientFactory.addConfigurator(dockerClient -> dockerClient.
+                container(runningContainer).
+                container(stoppedContainer).
+                container(unknownContainer));
+
+        maxInstanceCount = 2;
+
+        DefaultDockerCloudClient client = createClient();
+
+        DockerImage dockerImage = extractImage(client);
+
+        assertThat(dockerImage.getUuid()).isEqualTo(imageUuid);
+
+        waitUntil(() -> dockerImage.getInstances().size() == 2);
+
+        DockerInstance runningInstance = dockerImage.findInstanceById(TestUtils.TEST_UUID_2);
+        assertThat(runningInstance).isNotNull();
+        assertThat(runningInstance.getStatus()).isSameAs(InstanceStatus.RUNNING);
+        assertThat(runningInstance.getContainerId()).isEqualTo(runningContainer.getId());
+
+        DockerInstance stoppedInstance = dockerImage.findInstanceById(stoppedInstanceUuid);
+        assertThat(stoppedInstance).isNotNull();
+        assertThat(stoppedInstance.getStatus()).isSameAs(InstanceStatus.STOPPED);
+
+        TestDockerClient dockerClient = dockerClientFactory.getClient();
+
+        // The container of an unknown instance is still considered as an orphan.
+        waitUntil(() -> dockerClient.getContainers().size() == 2);
+        assertThat(dockerClient.getContainers()).containsOnly(runningContainer, stoppedContainer);
+    }
+
+    @Test
+    public void doNotAdoptContainersOfModifiedImage() throws IOException {
+        instanceStore = createInstanceStore();
+
+        UUID imageUuid = UUID.randomUUID();
+        Container container = new Container(ContainerStatus.STARTED).
+                label(DockerCloudUtils.CLIENT_ID_LABEL, TestUtils.TEST_UUID.toString()).
+                label(DockerCloudUtils.INSTANCE_ID_LABEL, TestUtils.TEST_UUID_2.toString());
+
+        instanceStore.save(new DockerInstanceStore.State(
+                Collections.singletonList(new DockerInstanceStore.ImageRecord("UnitTest", imageUuid,
+                        "{\"Image\":\"another-image\"}")),
+                Collections.singletonList(new DockerInstanceStore.InstanceRecord(TestUtils.TEST_UUID_2, imageUuid,
+                        container.getId()))));
+
+        dockerClientFactory.addConfigurator(dockerClient -> dockerClient.container(container));
+
+        DefaultDockerCloudClient client = createClient();
+
+        DockerImage dockerImage = extractImage(client);
+
+        assertThat(dockerImage.getUuid()).isNotEqualTo(imageUuid);
+
+        waitUntil(() -> dockerClientFactory.getClient() != null &&
+                dockerClientFactory.getClient().getContainers().isEmpty());
+        assertThat(dockerImage.getInstances()).isEmpty();
+    }
+
     @Test
     @SuppressWarnings("ConstantConditions")
     public void clientErrorHandling() {
@@ -453,6 +614,266 @@ public class DockerCloudClientTest {
         assertThat(client.canStartNewInstance(image)).isFalse();
     }
 
+    @Test
+    public void startNewInstances() {
+        maxInstanceCount = 3;
+
+        DefaultDockerCloudClient client = createClient();
+
+        DockerImage image = extractImage(client);
+
+        waitUntil(() -> client.canStartNewInstance(image));
+
+        List<DockerInstance> instances = client.startNewInstances(image, userData, 5);
+
+        assertThat(instances).hasSize(3).doesNotHaveDuplicates();
+        assertThat(client.canStartNewInstance(image)).isFalse();
+        assertThatExceptionOfType(QuotaException.class).isThrownBy(() -> client.startNewInstances(image, userData,
+                1));
+
+        waitUntil(() -> instances.stream().allMatch(instance -> instance.getStatus() == InstanceStatus.RUNNING));
+
+        assertThat(dockerClientFactory.getClient().getContainers()).hasSize(3);
+
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> client.startNewInstances(image,
+                userData, 0));
+    }
+
+    @Test
+    public void concurrentStartsShareImagePull() {
+        maxInstanceCount = 2;
+
+        DefaultDockerCloudClient client = createClient();
+
+        DockerImage image = extractImage(client);
+
+        waitUntil(() -> client.canStartNewInstance(image));
+
+        TestDockerClient dockerClient = dockerClientFactory.getClient();
+
+        // Blocks the first pull until both instances are waiting for it.
+        dockerClient.lock();
+
+        List<DockerInstance> instances;
+        try {
+            instances = client.startNewInstances(image, userData, 2);
+
+            waitUntil(() -> dockerClient.getPullCount() == 1);
+            TestUtils.waitMillis(500);
+        } finally {
+            dockerClient.unlock();
+        }
+
+        assertThat(instances).hasSize(2);
+        waitUntil(() -> instances.stream().allMatch(instance -> instance.getStatus() == InstanceStatus.RUNNING));
+
+        assertThat(dockerClient.getPullCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void startExpiredWhileWaitingForDaemon() {
+        // A single container creation every 100 seconds.
+        containerCreationRate = 0.01;
+        instanceStartDeadlineSec = 1;
+        maxInstanceCount = 2;
+
+        client = createClient();
+
+        DockerImage image = extractImage(client);
+
+        waitUntil(() -> client.canStartNewInstance(image));
+
+        DockerInstance admittedInstance = client.startNewInstance(image, userData);
+
+        waitUntil(() -> admittedInstance.getStatus() == InstanceStatus.RUNNING);
+
+        DockerInstance expiredInstance = client.startNewInstance(image, userData);
+
+        waitUntil(() -> expiredInstance.getStatus() == InstanceStatus.ERROR);
+
+        assertThat(expiredInstance.getErrorInfo()).isNotNull();
+        assertThat(expiredInstance.getErrorInfo().getMessage()).contains("expired");
+        assertThat(dockerClientFactory.getClient().getContainers()).hasSize(1);
+    }
+
+    @Test
+    public void connectionPoolSizedFromDaemonParallelism() {
+        client = createClient();
+
+        DockerImage image = extractImage(client);
+
+        waitUntil(() -> client.canStartNewInstance(image));
+
+        // Daemon parallelism, image pulls, client tasks and events stream, and orphan janitor.
+        assertThat(dockerClientFactory.getClient().getConfig().getConnectionPoolSize()).isEqualTo(1 + 2 + 2 +
+                DockerOrphanJanitor.PARALLELISM);
+
+        client.dispose();
+
+        imagePrePullIntervalSec = 0;
+
+        client = createClient();
+
+        DockerImage prePulledImage = extractImage(client);
+
+        waitUntil(() -> client.canStartNewInstance(prePulledImage));
+
+        // Additional connection for the image pre-puller.
+        assertThat(dockerClientFactory.getClient().getConfig().getConnectionPoolSize()).isEqualTo(1 + 2 + 2 +
+                DockerOrphanJanitor.PARALLELISM + DockerImagePrePuller.PARALLELISM);
+    }
+
+    @Test
+    public void warmPool() {
+        maxInstanceCount = 2;
+        warmPoolSize = 1;
+
+        DefaultDockerCloudClient client = createClient();
+
+        DockerImage image = extractImage(client);
+
+        // Warm container created after the first sync.
+        waitUntil(() -> image.getInstanceCount(InstanceStatus.STOPPED) == 1);
+
+        TestDockerClient dockerClient = dockerClientFactory.getClient();
+
+        assertThat(dockerClient.getContainers()).hasSize(1);
+        Container warmContainer = dockerClient.getContainers().iterator().next();
+        assertThat(warmContainer.getStatus()).isEqualTo(ContainerStatus.CREATED);
+        DockerInstance warmInstance = image.getInstances().iterator().next();
+        assertThat(warmInstance.getContainerId()).isEqualTo(warmContainer.getId());
+
+        waitUntil(() -> client.canStartNewInstance(image));
+
+        DockerInstance instance = client.startNewInstance(image, userData);
+
+        // The warm container is claimed.
+        assertThat(instance).isSameAs(warmInstance);
+        waitUntil(() -> instance.getStatus() == InstanceStatus.RUNNING);
+        assertThat(instance.getContainerId()).isEqualTo(warmContainer.getId());
+        assertThat(warmContainer.getStatus()).isEqualTo(ContainerStatus.STARTED);
+
+        // And replaced in the background.
+        waitUntil(() -> image.getInstanceCount(InstanceStatus.STOPPED) == 1);
+        assertThat(dockerClient.getContainers()).hasSize(2);
+
+        // The pool never exceeds the maximal instance count.
+        DockerInstance instance2 = client.startNewInstance(image, userData);
+        waitUntil(() -> instance2.getStatus() == InstanceStatus.RUNNING);
+        TestUtils.waitMillis(500);
+        assertThat(image.getInstanceCount(InstanceStatus.STOPPED)).isEqualTo(0);
+        assertThat(dockerClient.getContainers()).hasSize(2);
+    }
+
+    @Test
+    public void pauseOnStop() {
+        rmOnExit = false;
+        pauseOnStop = true;
+
+        DefaultDockerCloudClient client = createClient();
+
+        DockerImage image = extractImage(client);
+
+        waitUntil(() -> client.canStartNewInstance(image));
+
+        DockerInstance instance = client.startNewInstance(image, userData);
+        waitUntil(() -> instance.getStatus() == InstanceStatus.RUNNING);
+
+        TestDockerClient dockerClient = dockerClientFactory.getClient();
+        Container container = dockerClient.getContainers().iterator().next();
+
+        client.terminateInstance(instance);
+        waitUntil(() -> instance.getStatus() == InstanceStatus.STOPPED);
+
+        assertThat(container.getStatus()).isEqualTo(ContainerStatus.PAUSED);
+        assertThat(instance.isContainerPaused()).isTrue();
+
+        // The paused container must not be considered as started externally.
+        long lastSyncTime = client.getLastDockerSyncTimeMillis();
+        waitUntil(() -> client.getLastDockerSyncTimeMillis() > lastSyncTime);
+        assertThat(instance.getStatus()).isEqualTo(InstanceStatus.STOPPED);
+
+        waitUntil(() -> client.canStartNewInstance(image));
+
+        // The paused container is resumed.
+        assertThat(client.startNewInstance(image, userData)).isSameAs(instance);
+        waitUntil(() -> instance.getStatus() == InstanceStatus.RUNNING);
+
+        assertThat(container.getStatus()).isEqualTo(ContainerStatus.STARTED);
+        assertThat(instance.isContainerPaused()).isFalse();
+        assertThat(dockerClient.getContainers()).containsOnly(container);
+
+        client.dispose();
+
+        waitUntil(() -> dockerClient.getContainers().isEmpty());
+    }
+
+    @Test
+    public void skipPullOfFreshImage() {
+        imageFreshnessTtlSec = 3600;
+
+        DefaultDockerCloudClient client = createClient();
+
+        DockerImage image = extractImage(client);
+
+        for (int i = 0; i < 2; i++) {
+            waitUntil(() -> client.canStartNewInstance(image));
+            DockerInstance instance = client.startNewInstance(image, userData);
+            waitUntil(() -> instance.getStatus() == InstanceStatus.RUNNING);
+            client.terminateInstance(instance);
+            waitUntil(() -> image.getInstances().isEmpty());
+        }
+
+        assertThat(dockerClientFactory.getClient().getPullCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void alwaysPullWithoutFreshnessTtl() {
+        DefaultDockerCloudClient client = createClient();
+
+        DockerImage image = extractImage(client);
+
+        for (int i = 0; i < 2; i++) {
+            waitUntil(() -> client.canStartNewInstance(image));
+            DockerInstance instance = client.startNewInstance(image, userData);
+            waitUntil(() -> instance.getStatus() == InstanceStatus.RUNNING);
+            client.terminateInstance(instance);
+            waitUntil(() -> image.getInstances().isEmpty());
+        }
+
+        assertThat(dockerClientFactory.getClient().getPullCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void prePullImages() {
+        imagePrePullIntervalSec = 0;
+
+        DefaultDockerCloudClient client = createClient();
+
+        DockerImage image = extractImage(client);
+
+        // Pulled without any instance being started.
+        waitUntil(() -> image.getPullInfo().getLastSuccessTimeMillis() != -1);
+
+        assertThat(image.getPullInfo().getImageName()).isEqualTo("resolved-image:latest");
+        assertThat(image.getPullInfo().isFailing()).isFalse();
+        assertThat(dockerClientFactory.getClient().getPullCount()).isEqualTo(1);
+        assertThat(image.getInstances()).isEmpty();
+    }
+
+    @Test
+    public void noPrePullByDefault() {
+        DefaultDockerCloudClient client = createClient();
+
+        DockerImage image = extractImage(client);
+
+        waitUntil(() -> client.canStartNewInstance(image));
+        TestUtils.waitMillis(500);
+
+        assertThat(dockerClientFactory.getClient().getPullCount()).isZero();
+        assertThat(image.getPullInfo().getLastSuccessTimeMillis()).isEqualTo(-1);
+    }
+
     @Test
     public void startNewInstanceErrorHandling() {
 
@@ -576,6 +997,30 @@ public class DockerCloudClientTest {
         waitUntil(() -> dockerClient.getContainers().isEmpty());
     }
 
+    @Test
+    @SuppressWarnings("ConstantConditions")
+    public void containerFailureDetectedFromEvents() {
+
+        // Make sure that the failure cannot be detected by a regular sync.
+        dockerSyncRateSec = 600;
+
+        DefaultDockerCloudClient client = createClient();
+
+        DockerImage image = extractImage(client);
+
+        waitUntil(() -> client.canStartNewInstance(image));
+
+        DockerInstance instance = client.startNewInstance(image, userData);
+
+        waitUntil(() -> instance.getStatus() == InstanceStatus.RUNNING);
+
+        TestDockerClient dockerClient = dockerClientFactory.getClient();
+
+        dockerClient.stopContainer(instance.getContainerId(), 0);
+
+        waitUntil(() -> instance.getStatus() == InstanceStatus.ERROR, 5);
+    }
+
     private DockerInstance extractInstance(DockerImage dockerImage) {
         Collection<DockerInstance> instances = dockerImage.getInstances();
 
@@ -595,12 +1040,28 @@ public class DockerCloudClientTest {
 
         DockerClientConfig dockerClientConfig = new DockerClientConfig(TestDockerClient.TEST_CLIENT_URI).
                 apiVersion(DockerCloudUtils.DOCKER_API_TARGET_VERSION);
-        DockerCloudClientConfig clientConfig = new DockerCloudClientConfig(TestUtils.TEST_UUID, dockerClientConfig, false, 2, serverURL);
+        if (containerCreationRate > 0) {
+            dockerClientConfig.containerCreationRate(containerCreationRate, 1);
+        }
+        DockerCloudClientConfig clientConfig = DockerCloudClientConfig.builder(TestUtils.TEST_UUID, dockerClientConfig)
+                .dockerSyncRateSec(dockerSyncRateSec)
+                .imageFreshnessTtlSec(imageFreshnessTtlSec)
+                .imagePrePullIntervalSec(imagePrePullIntervalSec)
+                .instanceStartDeadlineSec(instanceStartDeadlineSec)
+                .serverURL(serverURL)
+                .build();
         DockerImageConfig imageConfig = new DockerImageConfig("UnitTest", containerSpec, rmOnExit, false,
-                maxInstanceCount, 111);
+                maxInstanceCount, 111, warmPoolSize, pauseOnStop);
         return client = new DefaultDockerCloudClient(clientConfig, dockerClientFactory,
-                Collections.singletonList(imageConfig), dockerImageResolver,
-                cloudState, buildServer);
+                Collections.singletonList(imageConfig), 1, dockerImageResolver,
+                cloudState, buildServer, instanceStore);
+    }
+
+    private DockerInstanceStore createInstanceStore() throws IOException {
+        File file = File.createTempFile("docker-cloud-", ".json");
+        file.deleteOnExit();
+        assertThat(file.delete()).isTrue();
+        return new DockerInstanceStore(file);
     }
 
 
@@ -0,0 +1,85 @@
+package run.var.teamcity.cloud.docker;
+
+import org.junit.Test;
+import run.var.teamcity.cloud.docker.client.ContainerSummary;
+import run.var.teamcity.cloud.docker.test.TestUtils;
+import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link DockerContainerSnapshot} test suite.
+ */
+public class DockerContainerSnapshotTest {
+
+    @Test
+    public void parseContainer() {
+        ContainerSummary container = container("running", "Up 5 minutes", "/my_container");
+
+        DockerContainerSnapshot snapshot = DockerContainerSnapshot.of(container, null);
+
+        assertThat(snapshot.getId()).isEqualTo("abc");
+        assertThat(snapshot.getInstanceUuid()).isEqualTo(TestUtils.TEST_UUID);
+        assertThat(snapshot.getInstanceIdLabel()).isEqualTo(TestUtils.TEST_UUID.toString());
+        assertThat(snapshot.getContainerName()).isEqualTo("my_container");
+        assertThat(snapshot.isRunning()).isTrue();
+        assertThat(snapshot.isPaused()).isFalse();
+        assertThat(snapshot.getContainerInfo()).isSameAs(container);
+
+        snapshot = DockerContainerSnapshot.of(container("exited", "Exited (0) 2 hours ago", "my_container"), null);
+
+        assertThat(snapshot.getContainerName()).isEqualTo("my_container");
+        assertThat(snapshot.isRunning()).isFalse();
+        assertThat(snapshot.isPaused()).isFalse();
+
+        snapshot = DockerContainerSnapshot.of(container("paused", "Up 5 minutes (Paused)", "my_container"), null);
+
+        assertThat(snapshot.isRunning()).isFalse();
+        assertThat(snapshot.isPaused()).isTrue();
+    }
+
+    @Test
+    public void invalidInstanceId() {
+        ContainerSummary container = ContainerSummary.of("abc", Collections.singletonList("/my_container"), "running",
+                "Up 5 minutes", -1, Collections.singletonMap(DockerCloudUtils.INSTANCE_ID_LABEL, "not a uuid"));
+
+        DockerContainerSnapshot snapshot = DockerContainerSnapshot.of(container, null);
+
+        assertThat(snapshot.getInstanceUuid()).isNull();
+        assertThat(snapshot.getInstanceIdLabel()).isEqualTo("not a uuid");
+    }
+
+    @Test
+    public void unchangedContainerReusesSnapshot() {
+        DockerContainerSnapshot previous = DockerContainerSnapshot.of(container("running", "Up 5 minutes",
+                "/my_container"), null);
+
+        assertThat(DockerContainerSnapshot.of(container("running", "Up 5 minutes", "/my_container"), previous))
+                .isSameAs(previous);
+        // The uptime is not part of the fingerprint.
+        assertThat(DockerContainerSnapshot.of(container("running", "Up About an hour", "/my_container"), previous))
+                .isSameAs(previous);
+        assertThat(DockerContainerSnapshot.of(container("running", "Up Less than a second", "/my_container"),
+                previous)).isSameAs(previous);
+    }
+
+    @Test
+    public void changedContainer() {
+        DockerContainerSnapshot previous = DockerContainerSnapshot.of(container("running", "Up 5 minutes",
+                "/my_container"), null);
+
+        assertThat(DockerContainerSnapshot.of(container("exited", "Exited (1) 1 second ago", "/my_container"),
+                previous)).isNotSameAs(previous);
+        assertThat(DockerContainerSnapshot.of(container("running", "Up 5 minutes (unhealthy)", "/my_container"),
+                previous)).isNotSameAs(previous);
+        assertThat(DockerContainerSnapshot.of(container("running", "Up 5 minutes", "/renamed"), previous))
+                .isNotSameAs(previous);
+    }
+
+    private ContainerSummary container(String state, String status, String name) {
+        return ContainerSummary.of("abc", Collections.singletonList(name), state, status, -1,
+                Collections.singletonMap(DockerCloudUtils.INSTANCE_ID_LABEL, TestUtils.TEST_UUID.toString()));
+    }
+}
@@ -27,12 +27,22 @@ public class DockerImageConfigTest {
         assertThat(config.isUseOfficialTCAgentImage()).isFalse();
         assertThat(config.getMaxInstanceCount()).isEqualTo(42);
         assertThat(config.getAgentPoolId()).isEqualTo(111);
+        assertThat(config.getWarmPoolSize()).isEqualTo(0);
+        assertThat(config.isPauseOnStop()).isFalse();
 
         config = new DockerImageConfig("test", Node.EMPTY_OBJECT, false, true, 42, null);
 
         assertThat(config.isRmOnExit()).isFalse();
         assertThat(config.isUseOfficialTCAgentImage()).isTrue();
         assertThat(config.getAgentPoolId()).isNull();
+
+        config = new DockerImageConfig("test", Node.EMPTY_OBJECT, true, false, 42, null, 3);
+
+        assertThat(config.getWarmPoolSize()).isEqualTo(3);
+
+        config = new DockerImageConfig("test", Node.EMPTY_OBJECT, false, false, 42, null, 0, true);
+
+        assertThat(config.isPauseOnStop()).isTrue();
     }
 
     @Test
@@ -51,6 +61,14 @@ public class DockerImageConfigTest {
 
         assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->
                 new DockerImageConfig("test", Node.EMPTY_OBJECT, true, false, -1, 111));
+
+        new DockerImageConfig("test", Node.EMPTY_OBJECT, true, false, 1, 111, 0);
+
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->
+                new DockerImageConfig("test", Node.EMPTY_OBJECT, true, false, 1, 111, -1));
+
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->
+                new DockerImageConfig("test", Node.EMPTY_OBJECT, true, false, 1, 111, 0, true));
     }
 
     @Test
@@ -0,0 +1,81 @@
+package run.var.teamcity.cloud.docker;
+
+import org.junit.Test;
+import run.var.teamcity.cloud.docker.test.TestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * {@link DockerImageFreshnessCache} test suite.
+ */
+public class DockerImageFreshnessCacheTest {
+
+    @Test
+    public void freshImage() {
+        DockerImageFreshnessCache cache = new DockerImageFreshnessCache(60000);
+
+        assertThat(cache.isEnabled()).isTrue();
+        assertThat(cache.isFresh("image:latest", "sha256:1")).isFalse();
+
+        cache.recordPull("image:latest", "sha256:1");
+
+        assertThat(cache.isFresh("image:latest", "sha256:1")).isTrue();
+        assertThat(cache.isFresh("other:latest", "sha256:1")).isFalse();
+
+        // Local image replaced since the last pull.
+        assertThat(cache.isFresh("image:latest", "sha256:2")).isFalse();
+
+        cache.invalidate("image:latest");
+
+        assertThat(cache.isFresh("image:latest", "sha256:1")).isFalse();
+    }
+
+    @Test
+    public void expiration() {
+        DockerImageFreshnessCache cache = new DockerImageFreshnessCache(200);
+
+        cache.recordPull("image:latest", "sha256:1");
+
+        assertThat(cache.isFresh("image:latest", "sha256:1")).isTrue();
+
+        TestUtils.waitMillis(400);
+
+        assertThat(cache.isFresh("image:latest", "sha256:1")).isFalse();
+    }
+
+    @Test
+    public void unknownLocalImageId() {
+        DockerImageFreshnessCache cache = new DockerImageFreshnessCache(60000);
+
+        cache.recordPull("image:latest", "sha256:1");
+        cache.recordPull("image:latest", null);
+
+        assertThat(cache.isFresh("image:latest", "sha256:1")).isFalse();
+    }
+
+    @Test
+    public void disabled() {
+        DockerImageFreshnessCache cache = new DockerImageFreshnessCache(0);
+
+        assertThat(cache.isEnabled()).isFalse();
+
+        cache.recordPull("image:latest", "sha256:1");
+
+        assertThat(cache.isFresh("image:latest", "sha256:1")).isFalse();
+    }
+
+    @Test
+    @SuppressWarnings("ConstantConditions")
+    public void invalidArguments() {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->
+                new DockerImageFreshnessCache(-1));
+
+        DockerImageFreshnessCache cache = new DockerImageFreshnessCache(60000);
+
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() -> cache.isFresh(null, "sha256:1"));
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() -> cache.isFresh("image", null));
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() -> cache.recordPull(null, "sha256:1"));
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() -> cache.invalidate(null));
+    }
+}
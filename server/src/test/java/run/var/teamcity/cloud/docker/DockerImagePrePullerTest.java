@@ -0,0 +1,124 @@
+package run.var.teamcity.cloud.docker;
+
+import org.junit.After;
+import org.junit.Test;
+import run.var.teamcity.cloud.docker.util.Node;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static run.var.teamcity.cloud.docker.test.TestUtils.waitMillis;
+import static run.var.teamcity.cloud.docker.test.TestUtils.waitUntil;
+
+/**
+ * {@link DockerImagePrePuller} test suite.
+ */
+public class DockerImagePrePullerTest {
+
+    private DockerImagePrePuller prePuller;
+
+    @After
+    public void tearDown() {
+        if (prePuller != null) {
+            prePuller.stop();
+        }
+    }
+
+    @Test
+    public void pullOnceWithBoundedParallelism() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger concurrentPulls = new AtomicInteger();
+        AtomicInteger maxConcurrentPulls = new AtomicInteger();
+        Map<DockerImage, Integer> pulls = new ConcurrentHashMap<>();
+
+        prePuller = new DockerImagePrePuller(image -> {
+            int concurrent = concurrentPulls.incrementAndGet();
+            maxConcurrentPulls.accumulateAndGet(concurrent, Math::max);
+            latch.await();
+            concurrentPulls.decrementAndGet();
+            pulls.merge(image, 1, Integer::sum);
+        }, executor(), 0);
+
+        DockerImage image1 = image();
+        DockerImage image2 = image();
+        DockerImage image3 = image();
+
+        prePuller.start(Arrays.asList(image1, image2, image3));
+
+        waitUntil(() -> concurrentPulls.get() == DockerImagePrePuller.PARALLELISM);
+
+        // Already started.
+        prePuller.start(Collections.singletonList(image1));
+
+        latch.countDown();
+
+        waitUntil(() -> pulls.size() == 3);
+        waitMillis(200);
+
+        assertThat(pulls).containsOnlyKeys(image1, image2, image3);
+        assertThat(pulls.values()).containsOnly(1);
+        assertThat(maxConcurrentPulls.get()).isEqualTo(DockerImagePrePuller.PARALLELISM);
+    }
+
+    @Test
+    public void periodicPull() {
+        AtomicInteger pulls = new AtomicInteger();
+
+        prePuller = new DockerImagePrePuller(image -> {
+            if (pulls.incrementAndGet() == 1) {
+                throw new IllegalStateException("Simulated failure.");
+            }
+        }, executor(), 10);
+
+        prePuller.start(Collections.singletonList(image()));
+
+        // Failures do not stop the periodic pulls.
+        waitUntil(() -> pulls.get() >= 3);
+    }
+
+    @Test
+    public void noPullAfterStop() {
+        AtomicInteger pulls = new AtomicInteger();
+
+        prePuller = new DockerImagePrePuller(image -> pulls.incrementAndGet(), executor(), 10);
+
+        prePuller.stop();
+        prePuller.start(Collections.singletonList(image()));
+
+        waitMillis(200);
+
+        assertThat(pulls.get()).isZero();
+    }
+
+    @Test
+    @SuppressWarnings("ConstantConditions")
+    public void invalidArguments() {
+        DockerTaskExecutor executor = executor();
+        try {
+            assertThatExceptionOfType(NullPointerException.class).isThrownBy(() ->
+                    new DockerImagePrePuller(null, executor, 0));
+            assertThatExceptionOfType(NullPointerException.class).isThrownBy(() ->
+                    new DockerImagePrePuller(image -> {}, (DockerTaskExecutor) null, 0));
+            assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->
+                    new DockerImagePrePuller(image -> {}, executor, -1));
+            assertThatExceptionOfType(NullPointerException.class).isThrownBy(() ->
+                    new DockerImagePrePuller(image -> {}, executor, 0).start(null));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private DockerImage image() {
+        return new DockerImage(null, new DockerImageConfig("test", Node.EMPTY_OBJECT, false, false, 1, null));
+    }
+
+    private DockerTaskExecutor executor() {
+        return DockerTaskExecutorBackend.THREAD_POOL.createExecutor("test", DockerImagePrePuller.PARALLELISM, true);
+    }
+}
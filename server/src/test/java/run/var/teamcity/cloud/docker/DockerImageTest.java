@@ -0,0 +1,200 @@
+package run.var.teamcity.cloud.docker;
+
+import jetbrains.buildServer.clouds.InstanceStatus;
+import org.junit.Test;
+import run.var.teamcity.cloud.docker.test.TestUtils;
+import run.var.teamcity.cloud.docker.util.Node;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * {@link DockerImage} test suite.
+ */
+public class DockerImageTest {
+
+    @Test
+    public void statusCountersFollowTransitions() {
+        DockerImage image = image(10);
+
+        DockerInstance instance1 = image.createInstance();
+        DockerInstance instance2 = image.createInstance();
+
+        assertThat(image.getInstanceStatusCounts()).containsOnly(entry(InstanceStatus.UNKNOWN, 2));
+
+        instance1.setStatus(InstanceStatus.RUNNING);
+        instance2.setStatus(InstanceStatus.RUNNING);
+        instance2.setStatus(InstanceStatus.STOPPED);
+
+        assertThat(image.getInstanceStatusCounts()).containsOnly(entry(InstanceStatus.RUNNING, 1),
+                entry(InstanceStatus.STOPPED, 1));
+        assertThat(image.getInstanceCount(InstanceStatus.RUNNING)).isEqualTo(1);
+        assertThat(image.getUsedInstanceCount()).isEqualTo(1);
+
+        image.clearInstanceId(instance1.getUuid());
+
+        assertThat(image.getInstanceStatusCounts()).containsOnly(entry(InstanceStatus.STOPPED, 1));
+
+        // Not accounted for anymore.
+        instance1.setStatus(InstanceStatus.ERROR);
+
+        assertThat(image.getInstanceStatusCounts()).containsOnly(entry(InstanceStatus.STOPPED, 1));
+    }
+
+    @Test
+    public void canStartNewInstanceWithQuota() {
+        DockerImage image = image(2);
+
+        DockerInstance instance1 = image.createInstance();
+        assertThat(image.canStartNewInstance()).isTrue();
+
+        DockerInstance instance2 = image.createInstance();
+        assertThat(image.canStartNewInstance()).isFalse();
+
+        instance2.setStatus(InstanceStatus.STOPPED);
+        assertThat(image.canStartNewInstance()).isTrue();
+
+        instance1.setStatus(InstanceStatus.ERROR);
+        assertThat(image.canStartNewInstance()).isFalse();
+
+        image.clearInstanceId(instance1.getUuid());
+        assertThat(image.canStartNewInstance()).isTrue();
+    }
+
+    @Test
+    public void reserveInstancesReuseStoppedInstances() {
+        DockerImage image = image(3);
+
+        DockerInstance instance1 = image.createInstance();
+        DockerInstance instance2 = image.createInstance();
+        instance1.setStatus(InstanceStatus.STOPPED);
+        instance2.setStatus(InstanceStatus.RUNNING);
+
+        List<DockerInstance> reserved = image.reserveInstances(3);
+
+        assertThat(reserved).hasSize(2).startsWith(instance1);
+        assertThat(image.getInstanceStatusCounts()).containsOnly(entry(InstanceStatus.RUNNING, 1),
+                entry(InstanceStatus.SCHEDULED_TO_START, 2));
+        assertThat(image.reserveInstances(1)).isEmpty();
+    }
+
+    @Test
+    public void reserveInstancesRegisterNewInstances() {
+        DockerImage image = image(10);
+
+        DockerInstance existing = image.createInstance();
+        existing.setStatus(InstanceStatus.RUNNING);
+
+        List<DockerInstance> reserved = image.reserveInstances(5);
+
+        assertThat(reserved).hasSize(5).doesNotContain(existing);
+        assertThat(image.getInstances()).hasSize(6).startsWith(existing).containsAll(reserved);
+        for (DockerInstance instance : reserved) {
+            assertThat(image.findInstanceById(instance.getUuid().toString())).isSameAs(instance);
+        }
+        assertThat(image.getInstanceStatusCounts()).containsOnly(entry(InstanceStatus.RUNNING, 1),
+                entry(InstanceStatus.SCHEDULED_TO_START, 5));
+    }
+
+    @Test
+    public void reserveWarmInstances() {
+        DockerImage image = image(4, 2);
+
+        List<DockerInstance> warmInstances = image.reserveWarmInstances();
+
+        assertThat(warmInstances).hasSize(2);
+        assertThat(image.getInstanceStatusCounts()).containsOnly(entry(InstanceStatus.UNKNOWN, 2));
+
+        // Creation in progress.
+        assertThat(image.reserveWarmInstances()).isEmpty();
+
+        for (DockerInstance instance : warmInstances) {
+            instance.setStatus(InstanceStatus.STOPPED);
+            image.warmInstanceCompleted(true);
+        }
+
+        assertThat(image.reserveWarmInstances()).isEmpty();
+
+        // Warm instances are claimed first.
+        List<DockerInstance> reserved = image.reserveInstances(1);
+        assertThat(reserved).hasSize(1);
+        assertThat(warmInstances).contains(reserved.get(0));
+
+        // Quota: 1 used, 1 stopped, 1 more warm instance allowed.
+        warmInstances = image.reserveWarmInstances();
+        assertThat(warmInstances).hasSize(1);
+
+        // Failed creation.
+        image.clearInstanceId(warmInstances.get(0).getUuid());
+        image.warmInstanceCompleted(false);
+
+        image.reserveInstances(3);
+
+        // Quota reached.
+        assertThat(image.reserveWarmInstances()).isEmpty();
+    }
+
+    @Test
+    public void warmPoolRefillPostponedAfterFailure() {
+        DockerImage image = image(4, 2);
+
+        List<DockerInstance> warmInstances = image.reserveWarmInstances();
+
+        assertThat(warmInstances).hasSize(2);
+
+        // One failed creation.
+        warmInstances.get(0).setStatus(InstanceStatus.STOPPED);
+        image.warmInstanceCompleted(true);
+        image.clearInstanceId(warmInstances.get(1).getUuid());
+        image.warmInstanceCompleted(false);
+
+        // The missing warm instance is not immediately replaced.
+        assertThat(image.reserveWarmInstances()).isEmpty();
+        assertThat(image.getInstances()).containsOnly(warmInstances.get(0));
+    }
+
+    @Test
+    public void noWarmPool() {
+        DockerImage image = image(4);
+
+        assertThat(image.reserveWarmInstances()).isEmpty();
+        assertThat(image.getInstances()).isEmpty();
+    }
+
+    @Test
+    public void pullInfo() {
+        DockerImage image = image(1);
+
+        assertThat(image.getPullInfo().getLastSuccessTimeMillis()).isEqualTo(-1);
+        assertThat(image.getPullInfo().isFailing()).isFalse();
+
+        image.recordPullSuccess("test-image:latest", "sha256:abc");
+
+        DockerImagePullInfo pullInfo = image.getPullInfo();
+        assertThat(pullInfo.getImageName()).isEqualTo("test-image:latest");
+        assertThat(pullInfo.getLocalImageId()).isEqualTo("sha256:abc");
+        assertThat(pullInfo.getLastSuccessTimeMillis()).isNotEqualTo(-1);
+        assertThat(pullInfo.isFailing()).isFalse();
+
+        TestUtils.waitMillis(5);
+
+        image.recordPullFailure("Simulated failure.");
+
+        pullInfo = image.getPullInfo();
+        // Outcome of the last successful pull retained.
+        assertThat(pullInfo.getImageName()).isEqualTo("test-image:latest");
+        assertThat(pullInfo.getLastFailure()).isEqualTo("Simulated failure.");
+        assertThat(pullInfo.isFailing()).isTrue();
+    }
+
+    private DockerImage image(int maxInstanceCount) {
+        return image(maxInstanceCount, 0);
+    }
+
+    private DockerImage image(int maxInstanceCount, int warmPoolSize) {
+        return new DockerImage(null, new DockerImageConfig("test", Node.EMPTY_OBJECT, false, false,
+                maxInstanceCount, null, warmPoolSize));
+    }
+}
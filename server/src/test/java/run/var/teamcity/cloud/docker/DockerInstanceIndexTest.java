@@ -0,0 +1,119 @@
+package run.var.teamcity.cloud.docker;
+
+import org.junit.Test;
+import run.var.teamcity.cloud.docker.test.TestSBuildAgent;
+import run.var.teamcity.cloud.docker.util.DockerCloudUtils;
+import run.var.teamcity.cloud.docker.util.Node;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * {@link DockerInstanceIndex} test suite.
+ */
+public class DockerInstanceIndexTest {
+
+    @Test
+    public void indexInstancesOfAllImages() {
+        DockerInstanceIndex index = new DockerInstanceIndex();
+
+        DockerImage image1 = image(index);
+        DockerImage image2 = image(index);
+
+        DockerInstance instance1 = image1.createInstance();
+        DockerInstance instance2 = image2.createInstance();
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.findInstanceById(instance1.getUuid())).isSameAs(instance1);
+        assertThat(index.findInstanceById(instance2.getUuid())).isSameAs(instance2);
+        assertThat(index.findInstanceById(UUID.randomUUID())).isNull();
+
+        image1.clearInstanceId(instance1.getUuid());
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.findInstanceById(instance1.getUuid())).isNull();
+        assertThat(index.findInstanceById(instance2.getUuid())).isSameAs(instance2);
+    }
+
+    @Test
+    public void findInstanceByAgent() {
+        DockerInstanceIndex index = new DockerInstanceIndex();
+
+        DockerImage image = image(index);
+        DockerInstance instance = image.createInstance();
+
+        assertThat(index.findInstanceByAgent(agent(image.getUuid().toString(), instance.getInstanceId())))
+                .isSameAs(instance);
+        // Lookup a second time, using the cached UUIDs.
+        assertThat(index.findInstanceByAgent(agent(image.getUuid().toString(), instance.getInstanceId())))
+                .isSameAs(instance);
+
+        assertThat(index.findInstanceByAgent(agent(UUID.randomUUID().toString(), instance.getInstanceId())))
+                .isNull();
+        assertThat(index.findInstanceByAgent(agent(null, instance.getInstanceId()))).isNull();
+        assertThat(index.findInstanceByAgent(agent(image.getUuid().toString(), UUID.randomUUID().toString())))
+                .isNull();
+        assertThat(index.findInstanceByAgent(agent(image.getUuid().toString(), "not an uuid"))).isNull();
+        assertThat(index.findInstanceByAgent(agent(image.getUuid().toString(), null))).isNull();
+        assertThat(index.findInstanceByAgent(new TestSBuildAgent())).isNull();
+
+        image.clearInstanceId(instance.getUuid());
+
+        assertThat(index.findInstanceByAgent(agent(image.getUuid().toString(), instance.getInstanceId()))).isNull();
+    }
+
+    @Test
+    public void parsedUuidsCacheIsBounded() {
+        DockerInstanceIndex index = new DockerInstanceIndex();
+
+        DockerImage image = image(index);
+        DockerInstance instance = image.createInstance();
+
+        for (int i = 0; i < DockerInstanceIndex.MAX_PARSED_UUIDS * 2; i++) {
+            assertThat(index.findInstanceByAgent(agent(image.getUuid().toString(), UUID.randomUUID().toString())))
+                    .isNull();
+        }
+
+        assertThat(index.findInstanceByAgent(agent(image.getUuid().toString(), instance.getInstanceId())))
+                .isSameAs(instance);
+    }
+
+    @Test
+    public void unregisterOnlyGivenInstance() {
+        DockerInstanceIndex index = new DockerInstanceIndex();
+
+        DockerInstance instance = image(index).createInstance();
+
+        index.unregister(new DockerInstance(instance.getImage()));
+
+        assertThat(index.findInstanceById(instance.getUuid())).isSameAs(instance);
+    }
+
+    @Test
+    @SuppressWarnings("ConstantConditions")
+    public void invalidArguments() {
+        DockerInstanceIndex index = new DockerInstanceIndex();
+
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() -> index.register(null));
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() -> index.unregister(null));
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() -> index.findInstanceById(null));
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() -> index.findInstanceByAgent(null));
+    }
+
+    private DockerImage image(DockerInstanceIndex index) {
+        return new DockerImage(null, new DockerImageConfig("test", Node.EMPTY_OBJECT, false, false, 1, null), index);
+    }
+
+    private TestSBuildAgent agent(String imageId, String instanceId) {
+        TestSBuildAgent agent = new TestSBuildAgent();
+        if (imageId != null) {
+            agent.environmentVariable(DockerCloudUtils.ENV_IMAGE_ID, imageId);
+        }
+        if (instanceId != null) {
+            agent.environmentVariable(DockerCloudUtils.ENV_INSTANCE_ID, instanceId);
+        }
+        return agent;
+    }
+}
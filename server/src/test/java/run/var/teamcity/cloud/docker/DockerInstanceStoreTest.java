@@ -0,0 +1,126 @@
+package run.var.teamcity.cloud.docker;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import run.var.teamcity.cloud.docker.test.TestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * {@link DockerInstanceStore} test suite.
+ */
+public class DockerInstanceStoreTest {
+
+    private File dir;
+
+    @Before
+    public void init() throws IOException {
+        dir = Files.createTempDirectory("docker-cloud-store").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        dir.delete();
+    }
+
+    @Test
+    public void saveAndLoad() throws IOException {
+        DockerInstanceStore store = new DockerInstanceStore(new File(dir, "state.json"));
+
+        assertThat(store.load()).isNull();
+
+        UUID imageUuid = UUID.randomUUID();
+        store.save(new DockerInstanceStore.State(
+                Collections.singletonList(new DockerInstanceStore.ImageRecord("profile", imageUuid,
+                        "{\"Image\":\"test-image\"}")),
+                Collections.singletonList(new DockerInstanceStore.InstanceRecord(TestUtils.TEST_UUID, imageUuid,
+                        "container_id"))));
+
+        DockerInstanceStore.State state = store.load();
+
+        assertThat(state).isNotNull();
+        assertThat(state.getImages()).hasSize(1);
+        DockerInstanceStore.ImageRecord image = state.getImages().get(0);
+        assertThat(image.getProfileName()).isEqualTo("profile");
+        assertThat(image.getUuid()).isEqualTo(imageUuid);
+        assertThat(image.getContainerSpec()).isEqualTo("{\"Image\":\"test-image\"}");
+        assertThat(state.getInstances()).hasSize(1);
+        DockerInstanceStore.InstanceRecord instance = state.getInstances().get(0);
+        assertThat(instance.getUuid()).isEqualTo(TestUtils.TEST_UUID);
+        assertThat(instance.getImageUuid()).isEqualTo(imageUuid);
+        assertThat(instance.getContainerId()).isEqualTo("container_id");
+
+        // Replace the previous state.
+        store.save(new DockerInstanceStore.State(Collections.emptyList(), Collections.emptyList()));
+
+        state = store.load();
+        assertThat(state).isNotNull();
+        assertThat(state.getImages()).isEmpty();
+        assertThat(state.getInstances()).isEmpty();
+
+        // No temporary file left behind.
+        assertThat(dir.list()).containsExactly("state.json");
+    }
+
+    @Test
+    public void createMissingDirectory() throws IOException {
+        DockerInstanceStore store = DockerInstanceStore.forClient(dir, TestUtils.TEST_UUID);
+
+        store.save(new DockerInstanceStore.State(Collections.emptyList(), Collections.emptyList()));
+
+        assertThat(store.getFile()).isFile();
+        assertThat(store.getFile().getParentFile().getParentFile()).isEqualTo(dir);
+        assertThat(store.load()).isNotNull();
+
+        //noinspection ResultOfMethodCallIgnored
+        store.getFile().delete();
+        //noinspection ResultOfMethodCallIgnored
+        store.getFile().getParentFile().delete();
+    }
+
+    @Test
+    public void loadCorruptedState() throws IOException {
+        File file = new File(dir, "state.json");
+        DockerInstanceStore store = new DockerInstanceStore(file);
+
+        Files.write(file.toPath(), "{\"Version\": 1, \"Images\": [".getBytes(StandardCharsets.UTF_8));
+        assertThat(store.load()).isNull();
+
+        Files.write(file.toPath(), "{\"Version\": 1, \"Images\": [], \"Instances\": [{\"Uuid\": \"not a uuid\"}]}"
+                .getBytes(StandardCharsets.UTF_8));
+        assertThat(store.load()).isNull();
+
+        Files.write(file.toPath(), "{\"Version\": 42, \"Images\": [], \"Instances\": []}"
+                .getBytes(StandardCharsets.UTF_8));
+        assertThat(store.load()).isNull();
+    }
+
+    @Test
+    @SuppressWarnings("ConstantConditions")
+    public void invalidArguments() {
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() -> new DockerInstanceStore(null));
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() ->
+                DockerInstanceStore.forClient(null, TestUtils.TEST_UUID));
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() ->
+                DockerInstanceStore.forClient(dir, null));
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() ->
+                new DockerInstanceStore(new File(dir, "state.json")).save(null));
+    }
+}
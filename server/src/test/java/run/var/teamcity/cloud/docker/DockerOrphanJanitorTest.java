@@ -0,0 +1,127 @@
+package run.var.teamcity.cloud.docker;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static run.var.teamcity.cloud.docker.test.TestUtils.waitUntil;
+
+/**
+ * {@link DockerOrphanJanitor} test suite.
+ */
+public class DockerOrphanJanitorTest {
+
+    private DockerOrphanJanitor janitor;
+
+    @After
+    public void tearDown() {
+        if (janitor != null) {
+            janitor.stop();
+        }
+    }
+
+    @Test
+    public void removeWithBoundedParallelism() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger concurrentRemovals = new AtomicInteger();
+        AtomicInteger maxConcurrentRemovals = new AtomicInteger();
+        Map<String, Boolean> removed = new ConcurrentHashMap<>();
+
+        janitor = new DockerOrphanJanitor(containerId -> {
+            int concurrent = concurrentRemovals.incrementAndGet();
+            maxConcurrentRemovals.accumulateAndGet(concurrent, Math::max);
+            latch.await();
+            concurrentRemovals.decrementAndGet();
+            removed.put(containerId, Boolean.TRUE);
+        }, executor(), 0);
+
+        assertThat(janitor.submit(Arrays.asList("1", "2", "3", "4", "5", "6", "7", "8"))).isEqualTo(8);
+
+        waitUntil(() -> concurrentRemovals.get() == DockerOrphanJanitor.PARALLELISM);
+
+        // Already pending.
+        assertThat(janitor.submit(Arrays.asList("1", "8"))).isZero();
+
+        latch.countDown();
+
+        waitUntil(() -> janitor.getPendingCount() == 0);
+
+        assertThat(removed).containsOnlyKeys("1", "2", "3", "4", "5", "6", "7", "8");
+        assertThat(maxConcurrentRemovals.get()).isEqualTo(DockerOrphanJanitor.PARALLELISM);
+    }
+
+    @Test
+    public void retryFailedRemovals() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        janitor = new DockerOrphanJanitor(containerId -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new IllegalStateException("Simulated failure.");
+            }
+        }, executor(), 10);
+
+        janitor.submit(Collections.singletonList("1"));
+
+        waitUntil(() -> janitor.getPendingCount() == 0);
+
+        assertThat(attempts.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void giveUpAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        janitor = new DockerOrphanJanitor(containerId -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("Simulated failure.");
+        }, executor(), 1);
+
+        janitor.submit(Collections.singletonList("1"));
+
+        waitUntil(() -> janitor.getPendingCount() == 0);
+
+        assertThat(attempts.get()).isEqualTo(DockerOrphanJanitor.MAX_ATTEMPTS);
+
+        // Can be submitted again by a subsequent sync.
+        assertThat(janitor.submit(Collections.singletonList("1"))).isEqualTo(1);
+    }
+
+    @Test
+    public void submitAfterStop() {
+        janitor = new DockerOrphanJanitor(containerId -> {
+        }, executor(), 0);
+
+        janitor.stop();
+
+        assertThat(janitor.submit(Collections.singletonList("1"))).isZero();
+        assertThat(janitor.getPendingCount()).isZero();
+    }
+
+    @Test
+    @SuppressWarnings("ConstantConditions")
+    public void invalidArguments() {
+        DockerTaskExecutor executor = executor();
+        try {
+            assertThatExceptionOfType(NullPointerException.class).isThrownBy(() ->
+                    new DockerOrphanJanitor(null, executor, 0));
+            assertThatExceptionOfType(NullPointerException.class).isThrownBy(() ->
+                    new DockerOrphanJanitor(containerId -> {}, (DockerTaskExecutor) null, 0));
+            assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->
+                    new DockerOrphanJanitor(containerId -> {}, executor, -1));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private DockerTaskExecutor executor() {
+        return DockerTaskExecutorBackend.THREAD_POOL.createExecutor("test", DockerOrphanJanitor.PARALLELISM, true);
+    }
+}
@@ -0,0 +1,89 @@
+package run.var.teamcity.cloud.docker;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * {@link DockerSyncInterval} test suite.
+ */
+public class DockerSyncIntervalTest {
+
+    @Test
+    public void fixedInterval() {
+        DockerSyncInterval interval = DockerSyncInterval.fixed(30000);
+
+        assertThat(interval.isAdaptive()).isFalse();
+        assertThat(interval.getIntervalMillis()).isEqualTo(30000);
+
+        interval.update(false);
+        assertThat(interval.getIntervalMillis()).isEqualTo(30000);
+
+        interval.update(true);
+        interval.notifyActivity();
+        assertThat(interval.getIntervalMillis()).isEqualTo(30000);
+
+        assertThat(interval.getWakeUpDelayMillis(12000)).isEqualTo(12000);
+    }
+
+    @Test
+    public void adaptiveInterval() {
+        DockerSyncInterval interval = DockerSyncInterval.adaptive(30000, 100000);
+
+        assertThat(interval.isAdaptive()).isTrue();
+        assertThat(interval.getIntervalMillis()).isEqualTo(30000);
+
+        interval.update(false);
+        assertThat(interval.getIntervalMillis()).isEqualTo(60000);
+
+        interval.update(false);
+        assertThat(interval.getIntervalMillis()).isEqualTo(100000);
+
+        interval.update(false);
+        assertThat(interval.getIntervalMillis()).isEqualTo(100000);
+
+        interval.update(true);
+        assertThat(interval.getIntervalMillis()).isEqualTo(DockerSyncInterval.MIN_INTERVAL_MILLIS);
+
+        interval.update(false);
+        assertThat(interval.getIntervalMillis()).isEqualTo(2 * DockerSyncInterval.MIN_INTERVAL_MILLIS);
+
+        interval.notifyActivity();
+        assertThat(interval.getIntervalMillis()).isEqualTo(DockerSyncInterval.MIN_INTERVAL_MILLIS);
+
+        assertThat(interval.getWakeUpDelayMillis(12000)).isEqualTo(DockerSyncInterval.MIN_INTERVAL_MILLIS);
+        assertThat(interval.getWakeUpDelayMillis(500)).isEqualTo(500);
+    }
+
+    @Test
+    public void eventsConnected() {
+        DockerSyncInterval interval = DockerSyncInterval.fixed(30000);
+
+        interval.setEventsConnected(true);
+
+        interval.update(false);
+        assertThat(interval.getIntervalMillis()).isEqualTo(60000);
+
+        for (int i = 0; i < 10; i++) {
+            interval.update(false);
+        }
+        assertThat(interval.getIntervalMillis()).isEqualTo(DockerSyncInterval.EVENTS_SAFETY_NET_INTERVAL_MILLIS);
+
+        interval.notifyActivity();
+        assertThat(interval.getIntervalMillis()).isEqualTo(30000);
+
+        interval.update(false);
+        interval.setEventsConnected(false);
+        assertThat(interval.getIntervalMillis()).isEqualTo(30000);
+    }
+
+    @Test
+    public void invalidInput() {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> DockerSyncInterval.fixed(0));
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->
+                DockerSyncInterval.adaptive(DockerSyncInterval.MIN_INTERVAL_MILLIS - 1, 100000));
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->
+                DockerSyncInterval.adaptive(30000, 29999));
+    }
+}
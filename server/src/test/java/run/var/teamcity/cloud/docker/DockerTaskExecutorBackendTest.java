@@ -0,0 +1,36 @@
+package run.var.teamcity.cloud.docker;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link DockerTaskExecutorBackend} test suite.
+ */
+public class DockerTaskExecutorBackendTest {
+
+    @Test
+    public void defaultParallelism() {
+        int processors = Runtime.getRuntime().availableProcessors();
+
+        assertThat(DockerTaskExecutorBackend.THREAD_POOL.getDefaultParallelism(0)).isEqualTo(1);
+        assertThat(DockerTaskExecutorBackend.THREAD_POOL.getDefaultParallelism(1)).isEqualTo(Math.min(2,
+                processors + 1));
+        assertThat(DockerTaskExecutorBackend.THREAD_POOL.getDefaultParallelism(1000)).isEqualTo(processors + 1);
+
+        // Bound neither to the available processors nor to the number of images.
+        for (int imageCount : new int[]{0, 1, 10, 1000}) {
+            assertThat(DockerTaskExecutorBackend.VIRTUAL_THREADS.getDefaultParallelism(imageCount))
+                    .isEqualTo(DockerTaskExecutorBackend.DEFAULT_VIRTUAL_THREADS_PARALLELISM);
+        }
+    }
+
+    @Test
+    public void virtualThreadsAllowMoreConcurrencyByDefault() {
+        // A typical profile with a few images.
+        for (int imageCount = 1; imageCount <= 4; imageCount++) {
+            assertThat(DockerTaskExecutorBackend.VIRTUAL_THREADS.getDefaultParallelism(imageCount))
+                    .isGreaterThan(DockerTaskExecutorBackend.THREAD_POOL.getDefaultParallelism(imageCount));
+        }
+    }
+}
@@ -5,9 +5,15 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import run.var.teamcity.cloud.docker.test.TestUtils;
+import run.var.teamcity.cloud.docker.util.LatencyHistogram;
 import run.var.teamcity.cloud.docker.util.Node;
+import run.var.teamcity.cloud.docker.util.TokenBucket;
 
 import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -18,6 +24,7 @@ public class DockerTaskSchedulerTest {
 
     private ReentrantLock instanceLock;
     private ReentrantLock clientLock;
+    private ReentrantLock pullLock;
 
     private DockerInstance instance1;
     private DockerInstance instance2;
@@ -31,6 +38,7 @@ public class DockerTaskSchedulerTest {
 
         instanceLock = new ReentrantLock();
         clientLock = new ReentrantLock();
+        pullLock = new ReentrantLock();
     }
 
     @Test
@@ -81,6 +89,355 @@ public class DockerTaskSchedulerTest {
         assertThat(task2b.running).isTrue();
     }
 
+    @Test
+    public void sameInstanceTasksAreExecutedInSchedulingOrder() {
+        scheduler = new DockerTaskScheduler(3, false);
+
+        List<Integer> executionOrder = new CopyOnWriteArrayList<>();
+
+        instanceLock.lock();
+
+        scheduler.scheduleInstanceTask(new TestDockerInstanceTask(instance1));
+        for (int i = 0; i < 10; i++) {
+            final int index = i;
+            scheduler.scheduleInstanceTask(new DockerInstanceTask("test", instance1, null) {
+                @Override
+                void callInternal() throws Exception {
+                    executionOrder.add(index);
+                }
+            });
+        }
+
+        TestUtils.waitMillis(500);
+
+        assertThat(executionOrder).isEmpty();
+
+        instanceLock.unlock();
+
+        TestUtils.waitUntil(() -> executionOrder.size() == 10);
+
+        assertThat(executionOrder).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+    }
+
+    @Test
+    public void terminationCancelsQueuedStartAndRestart() {
+        scheduler = new DockerTaskScheduler(3, false);
+
+        List<String> executed = new CopyOnWriteArrayList<>();
+
+        instanceLock.lock();
+
+        scheduler.scheduleInstanceTask(new TestDockerInstanceTask(instance1));
+        scheduler.scheduleInstanceTask(new RecordingTask(instance1, "start", DockerInstanceTaskType.START, executed));
+        scheduler.scheduleInstanceTask(new RecordingTask(instance1, "restart", DockerInstanceTaskType.RESTART,
+                executed));
+        scheduler.scheduleInstanceTask(new RecordingTask(instance1, "other", DockerInstanceTaskType.OTHER, executed));
+        scheduler.scheduleInstanceTask(new RecordingTask(instance1, "terminate1", DockerInstanceTaskType.TERMINATE,
+                executed));
+        scheduler.scheduleInstanceTask(new RecordingTask(instance1, "terminate2", DockerInstanceTaskType.TERMINATE,
+                executed));
+        scheduler.scheduleInstanceTask(new RecordingTask(instance1, "start2", DockerInstanceTaskType.START,
+                executed));
+
+        instanceLock.unlock();
+
+        TestUtils.waitUntil(() -> executed.size() == 3);
+        TestUtils.waitMillis(300);
+
+        assertThat(executed).containsExactly("other", "terminate1", "start2");
+    }
+
+    @Test
+    public void repeatedRestartsAreCoalesced() {
+        scheduler = new DockerTaskScheduler(3, false);
+
+        List<String> executed = new CopyOnWriteArrayList<>();
+
+        instanceLock.lock();
+
+        scheduler.scheduleInstanceTask(new TestDockerInstanceTask(instance1));
+        scheduler.scheduleInstanceTask(new RecordingTask(instance1, "restart1", DockerInstanceTaskType.RESTART,
+                executed));
+        scheduler.scheduleInstanceTask(new RecordingTask(instance1, "restart2", DockerInstanceTaskType.RESTART,
+                executed));
+        scheduler.scheduleInstanceTask(new RecordingTask(instance1, "other", DockerInstanceTaskType.OTHER, executed));
+        scheduler.scheduleInstanceTask(new RecordingTask(instance1, "restart3", DockerInstanceTaskType.RESTART,
+                executed));
+        // Instance 2 lane is independent.
+        scheduler.scheduleInstanceTask(new RecordingTask(instance2, "restart4", DockerInstanceTaskType.RESTART,
+                executed));
+
+        TestUtils.waitUntil(() -> executed.size() == 1);
+        assertThat(executed).containsExactly("restart4");
+
+        instanceLock.unlock();
+
+        TestUtils.waitUntil(() -> executed.size() == 4);
+        TestUtils.waitMillis(300);
+
+        assertThat(executed).containsExactly("restart4", "restart1", "other", "restart3");
+    }
+
+    @Test
+    public void tasksAreSubmittedByPriority() {
+        scheduler = new DockerTaskScheduler(1, false);
+
+        DockerInstance instance4 = new DockerInstance(testImage());
+        DockerInstance instance5 = new DockerInstance(testImage());
+
+        List<String> executed = new CopyOnWriteArrayList<>();
+
+        instanceLock.lock();
+
+        scheduler.scheduleInstanceTask(new TestDockerInstanceTask(instance1));
+        scheduler.scheduleInstanceTask(new RecordingTask(instance2, "restart", DockerInstanceTaskType.RESTART,
+                executed));
+        scheduler.scheduleInstanceTask(new RecordingTask(instance3, "start", DockerInstanceTaskType.START, executed));
+        scheduler.scheduleInstanceTask(new RecordingTask(instance5, "background", DockerInstanceTaskType.BACKGROUND,
+                executed));
+        scheduler.scheduleInstanceTask(new RecordingTask(instance4, "terminate", DockerInstanceTaskType.TERMINATE,
+                executed));
+
+        instanceLock.unlock();
+
+        TestUtils.waitUntil(() -> executed.size() == 4);
+
+        assertThat(executed).containsExactly("terminate", "start", "restart", "background");
+    }
+
+    @Test
+    public void pendingClientTaskDoesNotHoldBackHigherPriorityTasks() {
+        scheduler = new DockerTaskScheduler(2, false);
+
+        List<String> executed = new CopyOnWriteArrayList<>();
+
+        TestDockerInstanceTask instanceTask = new TestDockerInstanceTask(instance1);
+        TestDockerClientTask clientTask = new TestDockerClientTask();
+
+        instanceLock.lock();
+
+        scheduler.scheduleInstanceTask(instanceTask);
+
+        TestUtils.waitUntil(() -> instanceTask.running);
+
+        scheduler.scheduleClientTask(clientTask);
+        scheduler.scheduleInstanceTask(new RecordingTask(instance2, "terminate", DockerInstanceTaskType.TERMINATE,
+                executed));
+
+        TestUtils.waitUntil(() -> executed.size() == 1);
+
+        assertThat(clientTask.running).isFalse();
+
+        instanceLock.unlock();
+
+        TestUtils.waitUntil(() -> clientTask.running);
+    }
+
+    @Test
+    public void starvingClientTaskHoldsBackInstanceTasks() {
+        scheduler = new DockerTaskScheduler(DockerTaskExecutorBackend.THREAD_POOL, 1, 1, false, 200);
+
+        List<String> executed = new CopyOnWriteArrayList<>();
+
+        TestDockerInstanceTask instanceTask = new TestDockerInstanceTask(instance1);
+        TestDockerClientTask clientTask = new TestDockerClientTask();
+
+        instanceLock.lock();
+        clientLock.lock();
+
+        scheduler.scheduleInstanceTask(instanceTask);
+
+        TestUtils.waitUntil(() -> instanceTask.running);
+
+        scheduler.scheduleClientTask(clientTask);
+        scheduler.scheduleInstanceTask(new RecordingTask(instance2, "start", DockerInstanceTaskType.START, executed));
+
+        // Let the client task wait for longer than the maximal wait.
+        TestUtils.waitMillis(400);
+
+        instanceLock.unlock();
+
+        TestUtils.waitUntil(() -> clientTask.running);
+
+        assertThat(executed).isEmpty();
+
+        clientLock.unlock();
+
+        TestUtils.waitUntil(() -> executed.size() == 1);
+    }
+
+    @Test
+    public void expiredTasksAreNotExecuted() {
+        scheduler = new DockerTaskScheduler(1, false);
+
+        List<String> executed = new CopyOnWriteArrayList<>();
+
+        instanceLock.lock();
+
+        scheduler.scheduleInstanceTask(new TestDockerInstanceTask(instance1));
+
+        RecordingTask expiringTask = new RecordingTask(instance2, "expiring", DockerInstanceTaskType.START, executed);
+        expiringTask.setDeadline(100, TimeUnit.MILLISECONDS);
+        scheduler.scheduleInstanceTask(expiringTask);
+        RecordingTask otherTask = new RecordingTask(instance2, "other", DockerInstanceTaskType.START, executed);
+        otherTask.setDeadline(1, TimeUnit.MINUTES);
+        scheduler.scheduleInstanceTask(otherTask);
+
+        TestUtils.waitMillis(300);
+
+        instanceLock.unlock();
+
+        TestUtils.waitUntil(() -> executed.size() == 1);
+        TestUtils.waitMillis(300);
+
+        assertThat(executed).containsExactly("other");
+        assertThat(instance2.getErrorInfo()).isNotNull();
+    }
+
+    @Test
+    public void deadlineRunsFromPreviousTaskCompletion() {
+        scheduler = new DockerTaskScheduler(1, false);
+
+        List<String> executed = new CopyOnWriteArrayList<>();
+
+        instanceLock.lock();
+
+        TestDockerInstanceTask blockingTask = new TestDockerInstanceTask(instance1);
+        scheduler.scheduleInstanceTask(blockingTask);
+
+        // Held back by the previous task of the same instance, not by the daemon.
+        RecordingTask nextTask = new RecordingTask(instance1, "next", DockerInstanceTaskType.START, executed);
+        nextTask.setDeadline(100, TimeUnit.MILLISECONDS);
+        scheduler.scheduleInstanceTask(nextTask);
+
+        TestUtils.waitUntil(() -> blockingTask.running);
+        TestUtils.waitMillis(300);
+
+        instanceLock.unlock();
+
+        TestUtils.waitUntil(() -> executed.size() == 1);
+
+        assertThat(executed).containsExactly("next");
+        assertThat(instance1.getErrorInfo()).isNull();
+    }
+
+    @Test
+    public void statistics() {
+        scheduler = new DockerTaskScheduler(1, false);
+
+        List<String> executed = new CopyOnWriteArrayList<>();
+
+        instanceLock.lock();
+
+        scheduler.scheduleInstanceTask(new TestDockerInstanceTask(instance1));
+        scheduler.scheduleInstanceTask(new RecordingTask(instance2, "start", DockerInstanceTaskType.START, executed));
+        scheduler.scheduleInstanceTask(new RecordingTask(instance2, "terminate", DockerInstanceTaskType.TERMINATE,
+                executed));
+        scheduler.scheduleInstanceTask(new RecordingTask(instance3, "restart", DockerInstanceTaskType.RESTART,
+                executed));
+        scheduler.scheduleInstanceTask(new DockerInstanceTask("failing", instance3, null) {
+            @Override
+            void callInternal() throws Exception {
+                throw new Exception("Test failure.");
+            }
+        });
+
+        TestUtils.waitMillis(200);
+
+        DockerTaskSchedulerStats stats = scheduler.getStats();
+        assertThat(stats.getSubmittedInstanceTaskCount()).isEqualTo(1);
+        assertThat(stats.getScheduledInstanceTaskCount()).isEqualTo(3);
+        assertThat(stats.getReadyInstanceLaneCount()).isEqualTo(2);
+        assertThat(stats.getScheduledClientTaskCount()).isEqualTo(0);
+        assertThat(stats.isClientTaskSubmitted()).isFalse();
+        assertThat(stats.getWaitTimes()).containsOnlyKeys(key("start", DockerTaskSchedulerStats.Outcome.CANCELLED));
+
+        instanceLock.unlock();
+
+        TestUtils.waitUntil(() -> scheduler.getStats().getExecutionTimes().size() == 4);
+
+        stats = scheduler.getStats();
+        assertThat(stats.getSubmittedInstanceTaskCount()).isEqualTo(0);
+        assertThat(stats.getScheduledInstanceTaskCount()).isEqualTo(0);
+        assertThat(stats.getExecutionTimes()).containsOnlyKeys(
+                key("test", DockerTaskSchedulerStats.Outcome.SUCCESS),
+                key("terminate", DockerTaskSchedulerStats.Outcome.SUCCESS),
+                key("restart", DockerTaskSchedulerStats.Outcome.SUCCESS),
+                key("failing", DockerTaskSchedulerStats.Outcome.FAILURE));
+        // The first task was blocked during its execution, the other ones while waiting for submission.
+        assertThat(stats.getExecutionTimes().get(key("test", DockerTaskSchedulerStats.Outcome.SUCCESS))
+                .getMaxMillis()).isGreaterThanOrEqualTo(150);
+        assertThat(stats.getWaitTimes().get(key("restart", DockerTaskSchedulerStats.Outcome.SUCCESS))
+                .getMaxMillis()).isGreaterThanOrEqualTo(150);
+    }
+
+    @Test
+    public void rateLimitedTasksAreQueued() {
+        scheduler = new DockerTaskScheduler(3, false);
+
+        DockerInstance instance4 = new DockerInstance(testImage());
+
+        List<String> executed = new CopyOnWriteArrayList<>();
+
+        // One permit every two seconds: much slower than the polling rate of the waits below, so that no admission
+        // can be missed.
+        TokenBucket rateLimiter = new TokenBucket(0.5, 1);
+
+        for (DockerInstance instance : Arrays.asList(instance1, instance2, instance3)) {
+            RecordingTask task = new RecordingTask(instance, "limited", DockerInstanceTaskType.START, executed);
+            task.setRateLimiter(rateLimiter);
+            scheduler.scheduleInstanceTask(task);
+        }
+        scheduler.scheduleInstanceTask(new RecordingTask(instance4, "unlimited", DockerInstanceTaskType.START,
+                executed));
+
+        TestUtils.waitUntil(() -> executed.size() >= 2);
+
+        assertThat(executed).containsExactlyInAnyOrder("limited", "unlimited");
+        assertThat(scheduler.getStats().getThrottledLaneCount()).isEqualTo(2);
+
+        TestUtils.waitMillis(100);
+
+        assertThat(executed).hasSize(2);
+
+        TestUtils.waitUntil(() -> executed.size() >= 4);
+
+        assertThat(executed).containsExactlyInAnyOrder("limited", "unlimited", "limited", "limited");
+
+        DockerTaskSchedulerStats stats = scheduler.getStats();
+        assertThat(stats.getThrottledLaneCount()).isEqualTo(0);
+        LatencyHistogram admissionWaitTimes = stats.getAdmissionWaitTimes().get("limited");
+        assertThat(admissionWaitTimes.getCount()).isEqualTo(3);
+        assertThat(admissionWaitTimes.getMaxMillis()).isGreaterThanOrEqualTo(3500);
+        assertThat(stats.getAdmissionWaitTimes()).doesNotContainKey("unlimited");
+    }
+
+    @Test
+    public void throttledLaneReleasedOnTermination() {
+        scheduler = new DockerTaskScheduler(3, false);
+
+        List<String> executed = new CopyOnWriteArrayList<>();
+
+        TokenBucket rateLimiter = new TokenBucket(0.01, 1);
+        assertThat(rateLimiter.tryAcquire()).isTrue();
+
+        RecordingTask startTask = new RecordingTask(instance1, "start", DockerInstanceTaskType.START, executed);
+        startTask.setRateLimiter(rateLimiter);
+        scheduler.scheduleInstanceTask(startTask);
+
+        TestUtils.waitMillis(200);
+
+        assertThat(scheduler.getStats().getThrottledLaneCount()).isEqualTo(1);
+
+        scheduler.scheduleInstanceTask(new RecordingTask(instance1, "terminate", DockerInstanceTaskType.TERMINATE,
+                executed));
+
+        TestUtils.waitUntil(() -> executed.size() == 1);
+
+        assertThat(executed).containsExactly("terminate");
+        assertThat(scheduler.getStats().getThrottledLaneCount()).isEqualTo(0);
+    }
+
     @Test
     public void clientInstanceTaskPreventInstanceTaskExecution() {
         scheduler = new DockerTaskScheduler(3, false);
@@ -105,6 +462,35 @@ public class DockerTaskSchedulerTest {
         assertThat(instanceTask.running).isTrue();
     }
 
+    @Test
+    public void imagePullsDoNotHoldBackOtherTasks() {
+        scheduler = new DockerTaskScheduler(DockerTaskExecutorBackend.THREAD_POOL, 1, 1, false);
+
+        TestDockerImagePullTask pullTask = new TestDockerImagePullTask(instance1);
+        TestDockerInstanceTask instanceTask = new TestDockerInstanceTask(instance2);
+        TestDockerClientTask clientTask = new TestDockerClientTask();
+
+        pullLock.lock();
+
+        scheduler.scheduleInstanceTask(pullTask);
+
+        TestUtils.waitMillis(500);
+
+        assertThat(pullTask.running).isTrue();
+
+        scheduler.scheduleClientTask(clientTask);
+
+        TestUtils.waitMillis(500);
+
+        assertThat(clientTask.running).isTrue();
+
+        scheduler.scheduleInstanceTask(instanceTask);
+
+        TestUtils.waitMillis(500);
+
+        assertThat(instanceTask.running).isTrue();
+    }
+
     @Test
     public void multipleClientTaskAreExecutedSynchronously() {
         scheduler = new DockerTaskScheduler(3, false);
@@ -137,10 +523,17 @@ public class DockerTaskSchedulerTest {
         if (clientLock.isHeldByCurrentThread()) {
             clientLock.unlock();
         }
+        if (pullLock.isHeldByCurrentThread()) {
+            pullLock.unlock();
+        }
 
         scheduler.shutdown();
     }
 
+    private DockerTaskSchedulerStats.OperationKey key(String operationName, DockerTaskSchedulerStats.Outcome outcome) {
+        return new DockerTaskSchedulerStats.OperationKey(operationName, outcome);
+    }
+
     private DockerImage testImage() {
 
         return new DockerImage(null,
@@ -180,4 +573,39 @@ public class DockerTaskSchedulerTest {
             instanceLock.unlock();
         }
     }
-}
\ No newline at end of file
+
+    private class RecordingTask extends DockerInstanceTask {
+
+        private final String name;
+        private final List<String> executed;
+
+        RecordingTask(@Nonnull DockerInstance instance, String name, DockerInstanceTaskType type,
+                      List<String> executed) {
+            super(name, instance, null, type);
+            this.name = name;
+            this.executed = executed;
+        }
+
+        @Override
+        void callInternal() throws Exception {
+            executed.add(name);
+        }
+    }
+
+    private class TestDockerImagePullTask extends DockerImagePullTask {
+
+        volatile boolean running;
+
+        TestDockerImagePullTask(@Nonnull DockerInstance instance) {
+            super("test pull", instance, InstanceStatus.SCHEDULED_TO_START);
+        }
+
+        @Override
+        void callInternal() throws Exception {
+            running = true;
+
+            pullLock.lock();
+            pullLock.unlock();
+        }
+    }
+}
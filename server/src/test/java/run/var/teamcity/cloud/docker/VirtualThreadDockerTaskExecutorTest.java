@@ -0,0 +1,73 @@
+package run.var.teamcity.cloud.docker;
+
+import org.junit.Test;
+import run.var.teamcity.cloud.docker.test.TestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.Assume.assumeTrue;
+
+public class VirtualThreadDockerTaskExecutorTest {
+
+    @Test
+    public void supportDetection() {
+        boolean ofVirtualAvailable;
+        try {
+            Thread.class.getMethod("ofVirtual");
+            ofVirtualAvailable = true;
+        } catch (NoSuchMethodException e) {
+            ofVirtualAvailable = false;
+        }
+
+        assertThat(VirtualThreadDockerTaskExecutor.isSupported()).isEqualTo(ofVirtualAvailable);
+
+        if (!ofVirtualAvailable) {
+            assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() ->
+                    new VirtualThreadDockerTaskExecutor("test"));
+        }
+    }
+
+    @Test
+    public void execute() throws InterruptedException {
+        assumeTrue(VirtualThreadDockerTaskExecutor.isSupported());
+
+        VirtualThreadDockerTaskExecutor executor = new VirtualThreadDockerTaskExecutor("test");
+
+        CountDownLatch latch = new CountDownLatch(2);
+        AtomicReference<String> threadName = new AtomicReference<>();
+
+        executor.execute(() -> {
+            threadName.set(Thread.currentThread().getName());
+            latch.countDown();
+        });
+        executor.schedule(latch::countDown, 200, TimeUnit.MILLISECONDS);
+
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(threadName.get()).startsWith("test-");
+
+        executor.shutdown();
+
+        TestUtils.waitMillis(500);
+
+        assertThatExceptionOfType(RejectedExecutionException.class).isThrownBy(() -> executor.execute(() -> {}));
+    }
+
+    @Test
+    public void delayedRunnablesAreExecutedAfterShutdown() throws InterruptedException {
+        assumeTrue(VirtualThreadDockerTaskExecutor.isSupported());
+
+        VirtualThreadDockerTaskExecutor executor = new VirtualThreadDockerTaskExecutor("test");
+
+        CountDownLatch latch = new CountDownLatch(1);
+
+        executor.schedule(latch::countDown, 500, TimeUnit.MILLISECONDS);
+        executor.shutdown();
+
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+}
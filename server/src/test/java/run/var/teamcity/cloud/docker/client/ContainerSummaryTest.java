@@ -0,0 +1,91 @@
+package run.var.teamcity.cloud.docker.client;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * {@link ContainerSummary} test suite.
+ */
+public class ContainerSummaryTest {
+
+    @Test
+    public void parseList() throws IOException {
+        List<ContainerSummary> summaries = ContainerSummary.parseList(json("[" +
+                "{\"Id\": \"abc\", \"Names\": [\"/container_1\", \"/alias\"], \"Image\": \"ubuntu\", " +
+                "\"Command\": \"echo 1\", \"Created\": 1367854155, \"State\": \"running\", \"Status\": \"Up 5 " +
+                "minutes\", \"Ports\": [{\"PrivatePort\": 2222, \"PublicPort\": 3333, \"Type\": \"tcp\"}], " +
+                "\"Labels\": {\"label1\": \"value1\", \"label2\": \"value2\", \"other\": \"ignored\"}, " +
+                "\"HostConfig\": {\"NetworkMode\": \"default\"}, \"NetworkSettings\": {\"Networks\": {\"bridge\": " +
+                "{\"IPAddress\": \"172.17.0.2\"}}}, \"Mounts\": []}," +
+                "{\"Id\": \"def\", \"State\": \"exited\", \"Names\": [], \"Labels\": {}}" +
+                "]"), Arrays.asList("label1", "label2"));
+
+        assertThat(summaries).hasSize(2);
+
+        ContainerSummary summary = summaries.get(0);
+        assertThat(summary.getId()).isEqualTo("abc");
+        assertThat(summary.getNames()).containsExactly("/container_1", "/alias");
+        assertThat(summary.getState()).isEqualTo("running");
+        assertThat(summary.getStatus()).isEqualTo("Up 5 minutes");
+        assertThat(summary.getCreated()).isEqualTo(1367854155L);
+        assertThat(summary.getLabels()).containsOnly(entry("label1", "value1"), entry("label2", "value2"));
+        assertThat(summary.getLabel("label1")).isEqualTo("value1");
+        assertThat(summary.getLabel("other")).isNull();
+
+        summary = summaries.get(1);
+        assertThat(summary.getId()).isEqualTo("def");
+        assertThat(summary.getNames()).isEmpty();
+        assertThat(summary.getState()).isEqualTo("exited");
+        assertThat(summary.getStatus()).isNull();
+        assertThat(summary.getCreated()).isEqualTo(-1);
+        assertThat(summary.getLabels()).isEmpty();
+    }
+
+    @Test
+    public void parseEmptyList() throws IOException {
+        assertThat(ContainerSummary.parseList(json("[]"), Collections.emptyList())).isEmpty();
+    }
+
+    @Test
+    public void parseInvalidList() {
+        assertThatExceptionOfType(IOException.class).isThrownBy(() ->
+                ContainerSummary.parseList(json("{}"), Collections.emptyList()));
+        assertThatExceptionOfType(IOException.class).isThrownBy(() ->
+                ContainerSummary.parseList(json("[{\"Id\": \"abc\"}]"), Collections.emptyList()));
+        assertThatExceptionOfType(IOException.class).isThrownBy(() ->
+                ContainerSummary.parseList(json("[{\"Id\": \"abc\", \"State\": \"running\"}"),
+                        Collections.emptyList()));
+    }
+
+    @Test
+    @SuppressWarnings("ConstantConditions")
+    public void invalidArguments() {
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() ->
+                ContainerSummary.parseList(null, Collections.emptyList()));
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() ->
+                ContainerSummary.parseList(json("[]"), null));
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() ->
+                ContainerSummary.of(null, Collections.emptyList(), "running", null, -1, Collections.emptyMap()));
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() ->
+                ContainerSummary.of("abc", null, "running", null, -1, Collections.emptyMap()));
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() ->
+                ContainerSummary.of("abc", Collections.emptyList(), null, null, -1, Collections.emptyMap()));
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() ->
+                ContainerSummary.of("abc", Collections.emptyList(), "running", null, -1, null));
+    }
+
+    private InputStream json(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -10,17 +10,26 @@ import run.var.teamcity.cloud.docker.util.EditableNode;
 import run.var.teamcity.cloud.docker.util.Node;
 import run.var.teamcity.cloud.docker.util.NodeStream;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
@@ -55,6 +64,76 @@ public class DefaultDockerClientTest {
         }
     }
 
+    @Test
+    public void readTimeoutAndCircuitBreaker() throws IOException {
+        // A daemon accepting connections but never answering.
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            URI uri = URI.create("tcp://127.0.0.1:" + serverSocket.getLocalPort());
+            try (DockerClient client = DefaultDockerClient.newInstance(createConfig(uri, false).
+                    readTimeoutMillis(200).
+                    circuitBreaker(2, 60000).
+                    connectionPoolSize(4))) {
+                assertThatExceptionOfType(DockerClientTimeoutException.class).isThrownBy(client::getVersion);
+                assertThatExceptionOfType(DockerClientTimeoutException.class).isThrownBy(() ->
+                        client.inspectContainer("abc"));
+
+                // Circuit is now open, requests are rejected without waiting.
+                long startNanos = System.nanoTime();
+                assertThatExceptionOfType(DockerClientUnavailableException.class).isThrownBy(() ->
+                        client.listContainersWithLabel("key", "value"));
+                assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)).isLessThan(200);
+            }
+        }
+    }
+
+    @Test
+    public void bodyReadTimeoutAndCircuitBreaker() throws IOException {
+        // A daemon sending the response headers but never the whole body.
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            List<Socket> connections = new CopyOnWriteArrayList<>();
+            Thread daemon = new Thread(() -> {
+                try {
+                    while (true) {
+                        Socket socket = serverSocket.accept();
+                        connections.add(socket);
+                        BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                                StandardCharsets.US_ASCII));
+                        String line;
+                        do {
+                            line = reader.readLine();
+                        } while (line != null && !line.isEmpty());
+                        OutputStream output = socket.getOutputStream();
+                        output.write(("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: 64\r\n" +
+                                "\r\n{\"Version\": ").getBytes(StandardCharsets.US_ASCII));
+                        output.flush();
+                    }
+                } catch (IOException e) {
+                    // Server socket closed.
+                }
+            });
+            daemon.setDaemon(true);
+            daemon.start();
+
+            URI uri = URI.create("tcp://127.0.0.1:" + serverSocket.getLocalPort());
+            try (DockerClient client = DefaultDockerClient.newInstance(createConfig(uri, false).
+                    readTimeoutMillis(200).
+                    circuitBreaker(2, 60000).
+                    connectionPoolSize(4))) {
+                for (int i = 0; i < 2; i++) {
+                    assertThatExceptionOfType(DockerClientTimeoutException.class).isThrownBy(client::getVersion).
+                            withMessageContaining("timeout while reading response");
+                }
+
+                // Circuit is now open.
+                assertThatExceptionOfType(DockerClientUnavailableException.class).isThrownBy(client::getVersion);
+            } finally {
+                for (Socket socket : connections) {
+                    socket.close();
+                }
+            }
+        }
+    }
+
     @Test
     @SuppressWarnings("ConstantConditions")
     public void openInvalidInput() {
@@ -102,6 +181,13 @@ public class DefaultDockerClientTest {
 
         assertThat(containers).isEmpty();
 
+        List<ContainerSummary> summaries = client.listContainerSummariesWithLabel(TEST_LABEL_KEY, test.toString(),
+                Collections.singletonList(TEST_LABEL_KEY));
+
+        assertThat(summaries).hasSize(1);
+        assertThat(summaries.get(0).getId()).isEqualTo(containerId);
+        assertThat(summaries.get(0).getLabels()).containsOnlyKeys(TEST_LABEL_KEY);
+
         client.startContainer(containerId);
 
         client.stopContainer(containerId, 0);
@@ -109,6 +195,40 @@ public class DefaultDockerClientTest {
         client.removeContainer(containerId, true, true);
     }
 
+    @Test
+    public void streamEvents() throws URISyntaxException, IOException {
+        DefaultDockerClient client = createClient();
+
+        UUID test = UUID.randomUUID();
+
+        try (NodeStream events = client.streamEvents(TEST_LABEL_KEY, test.toString())) {
+            EditableNode containerSpec = Node.EMPTY_OBJECT.editNode().
+                    put("Image", TEST_IMAGE);
+            containerSpec.getOrCreateObject("Labels").
+                    put(TEST_LABEL_KEY, test.toString());
+
+            String containerId = client.createContainer(containerSpec.saveNode(), null).getAsString("Id", null);
+
+            this.containerId = containerId;
+
+            client.startContainer(containerId);
+
+            Node event = events.next();
+
+            assertThat(event).isNotNull();
+            assertThat(event.getAsString("Type")).isEqualTo("container");
+            assertThat(event.getAsString("Action")).isEqualTo("create");
+            assertThat(event.getObject("Actor").getAsString("ID")).isEqualTo(containerId);
+
+            event = events.next();
+
+            assertThat(event).isNotNull();
+            assertThat(event.getAsString("Action")).isEqualTo("start");
+
+            client.removeContainer(containerId, true, true);
+        }
+    }
+
     @Test
     @SuppressWarnings("ConstantConditions")
     public void openAllInvalidInput() {
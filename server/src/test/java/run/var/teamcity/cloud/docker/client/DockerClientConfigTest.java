@@ -45,6 +45,45 @@ public class DockerClientConfigTest {
         assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> config.connectionPoolSize(-1));
     }
 
+    @Test
+    public void containerCreationRate() {
+        DockerClientConfig config = new DockerClientConfig(DockerCloudUtils.DOCKER_DEFAULT_SOCKET_URI);
+
+        assertThat(config.getContainerCreationRate()).isEqualTo(0);
+        assertThat(config.getContainerCreationBurst()).isEqualTo(1);
+
+        config.containerCreationRate(0.5, 3);
+
+        assertThat(config.getContainerCreationRate()).isEqualTo(0.5);
+        assertThat(config.getContainerCreationBurst()).isEqualTo(3);
+
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->
+                config.containerCreationRate(-1, 1));
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->
+                config.containerCreationRate(Double.NaN, 1));
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->
+                config.containerCreationRate(1, 0));
+    }
+
+    @Test
+    public void readTimeoutAndCircuitBreaker() {
+        DockerClientConfig config = new DockerClientConfig(DockerCloudUtils.DOCKER_DEFAULT_SOCKET_URI);
+
+        assertThat(config.getReadTimeoutMillis()).isPositive();
+        assertThat(config.getCircuitBreakerThreshold()).isPositive();
+        assertThat(config.getCircuitBreakerOpenMillis()).isPositive();
+
+        config.readTimeoutMillis(42).circuitBreaker(0, 43);
+
+        assertThat(config.getReadTimeoutMillis()).isEqualTo(42);
+        assertThat(config.getCircuitBreakerThreshold()).isEqualTo(0);
+        assertThat(config.getCircuitBreakerOpenMillis()).isEqualTo(43);
+
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> config.readTimeoutMillis(-1));
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> config.circuitBreaker(-1, 1));
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> config.circuitBreaker(1, -1));
+    }
+
     @Test
     @SuppressWarnings("ConstantConditions")
     public void invalidConstructorInput() {
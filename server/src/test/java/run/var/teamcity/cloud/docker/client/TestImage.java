@@ -10,6 +10,7 @@ public class TestImage {
     private final String repo;
     private final String tag;
     private final String coordinates;
+    private final String id = "sha256:" + TestUtils.createRandomSha256();
     private final Set<String> layers;
 
     public TestImage(String repo, String tag) {
@@ -33,6 +34,10 @@ public class TestImage {
         return tag;
     }
 
+    public String getId() {
+        return id;
+    }
+
     public Set<String> getLayers() {
         return layers;
     }
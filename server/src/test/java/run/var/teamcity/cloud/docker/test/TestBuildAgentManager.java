@@ -112,7 +112,9 @@ public class TestBuildAgentManager implements BuildAgentManager {
     }
 
     public TestBuildAgentManager unregisteredAgent(TestSBuildAgent agent) {
+        registeredAgents.remove(agent);
         unregisteredAgents.add(agent);
+        buildServer.notifyAgentUnregistered(agent);
         return this;
     }
 }
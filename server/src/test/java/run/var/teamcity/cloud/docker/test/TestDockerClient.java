@@ -8,9 +8,15 @@ import run.var.teamcity.cloud.docker.util.NodeStream;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
@@ -25,13 +31,16 @@ public class TestDockerClient implements DockerClient {
 
     public enum ContainerStatus {
         CREATED,
-        STARTED
+        STARTED,
+        PAUSED
     }
 
     private final Map<String, Container> containers = new HashMap<>();
     private final Set<TestImage> knownRepoImages = new HashSet<>();
     private final Set<TestImage> knownLocalImages = new HashSet<>();
     private final Set<String> pulledLayer = new HashSet<>();
+    private final AtomicInteger pullCount = new AtomicInteger();
+    private final List<TestEventStream> eventStreams = new ArrayList<>();
     private final ReentrantLock lock = new ReentrantLock();
 
     /**
@@ -121,11 +130,12 @@ public class TestDockerClient implements DockerClient {
             Container container = containers.get(containerId);
             if (container == null) {
                 throw new NotFoundException("No such container: " + containerId);
-            } else if (container.status == ContainerStatus.STARTED) {
+            } else if (container.status != ContainerStatus.CREATED) {
                 throw new InvocationFailedException("Container already started: " + containerId);
             }
 
             container.status = ContainerStatus.STARTED;
+            emitEvent(container, "start");
         } finally {
             lock.unlock();
         }
@@ -145,12 +155,49 @@ public class TestDockerClient implements DockerClient {
     @Nonnull
     @Override
     public Node inspectContainer(@Nonnull String containerId) {
-        throw new UnsupportedOperationException();
+        lock.lock();
+        try {
+            checkForFailure();
+            Container container = containers.get(containerId);
+            if (container == null) {
+                throw new NotFoundException("No such container: " + containerId);
+            }
+            EditableNode result = Node.EMPTY_OBJECT.editNode();
+            result.put("Id", container.id);
+            result.getOrCreateObject("State").
+                    put("Running", container.status != ContainerStatus.CREATED).
+                    put("Paused", container.status == ContainerStatus.PAUSED).
+                    put("OOMKilled", false);
+            result.getOrCreateObject("Config").put("Tty", false);
+            return result.saveNode();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Nonnull
+    @Override
+    public Node inspectImage(@Nonnull String image) {
+        TestImage img = TestImage.parse(DockerCloudUtils.hasImageTag(image) ? image : image + ":latest");
+        lock.lock();
+        try {
+            checkForFailure();
+            for (TestImage localImage : knownLocalImages) {
+                if (localImage.equals(img)) {
+                    return Node.EMPTY_OBJECT.editNode().put("Id", localImage.getId()).saveNode();
+                }
+            }
+            throw new NotFoundException("No such image: " + image);
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Nonnull
     @Override
     public NodeStream createImage(@Nonnull String from, @Nullable String tag) {
+        pullCount.incrementAndGet();
+
         if (DockerCloudUtils.hasImageTag(from)) {
             if (tag != null) {
                 throw new InvocationFailedException("Duplicate tag specification.");
@@ -261,6 +308,45 @@ public class TestDockerClient implements DockerClient {
             }
 
             container.status = ContainerStatus.CREATED;
+            emitEvent(container, "die");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void pauseContainer(@Nonnull String containerId) {
+        lock.lock();
+        try {
+            checkForFailure();
+            Container container = containers.get(containerId);
+            if (container == null) {
+                throw new NotFoundException("No such container: " + containerId);
+            } else if (container.status != ContainerStatus.STARTED) {
+                throw new InvocationFailedException("Container is not running: " + containerId);
+            }
+
+            container.status = ContainerStatus.PAUSED;
+            emitEvent(container, "pause");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void unpauseContainer(@Nonnull String containerId) {
+        lock.lock();
+        try {
+            checkForFailure();
+            Container container = containers.get(containerId);
+            if (container == null) {
+                throw new NotFoundException("No such container: " + containerId);
+            } else if (container.status != ContainerStatus.PAUSED) {
+                throw new InvocationFailedException("Container is not paused: " + containerId);
+            }
+
+            container.status = ContainerStatus.STARTED;
+            emitEvent(container, "unpause");
         } finally {
             lock.unlock();
         }
@@ -276,10 +362,14 @@ public class TestDockerClient implements DockerClient {
             Container container = containers.get(containerId);
             if (container == null) {
                 throw new NotFoundException("No such container: " + containerId);
-            } else if (!force && container.status == ContainerStatus.STARTED) {
+            } else if (!force && container.status != ContainerStatus.CREATED) {
                 throw new InvocationFailedException("Container is still running: " + containerId);
             }
             containers.remove(containerId);
+            if (container.status != ContainerStatus.CREATED) {
+                emitEvent(container, "die");
+            }
+            emitEvent(container, "destroy");
         } finally {
             lock.unlock();
         }
@@ -304,7 +394,8 @@ public class TestDockerClient implements DockerClient {
             for (Container container : filtered) {
                 EditableNode containerNode = result.addObject();
                 containerNode.put("Id", container.id);
-                containerNode.put("State", container.status == ContainerStatus.STARTED ? "running" : "stopped");
+                containerNode.put("State", container.status == ContainerStatus.STARTED ? "running" :
+                        container.status == ContainerStatus.PAUSED ? "paused" : "stopped");
                 containerNode.getOrCreateArray("Names").add(DockerCloudUtils.toShortId(container.id));
                 EditableNode labels = containerNode.getOrCreateObject("Labels");
                 for (Map.Entry<String, String> labelEntry : container.labels.entrySet()) {
@@ -319,6 +410,54 @@ public class TestDockerClient implements DockerClient {
         return result.saveNode();
     }
 
+    @Nonnull
+    @Override
+    public List<ContainerSummary> listContainerSummariesWithLabel(@Nonnull String key, @Nonnull String value,
+                                                                  @Nonnull Collection<String> labelKeys) {
+        Node containers = listContainersWithLabel(key, value);
+        try {
+            return ContainerSummary.parseList(new ByteArrayInputStream(containers.toString()
+                    .getBytes(StandardCharsets.UTF_8)), labelKeys);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Nonnull
+    @Override
+    public NodeStream streamEvents(@Nonnull String key, @Nonnull String value) {
+        lock.lock();
+        try {
+            checkForFailure();
+            TestEventStream stream = new TestEventStream(key, value);
+            eventStreams.add(stream);
+            return stream;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void emitEvent(Container container, String action) {
+        assert lock.isHeldByCurrentThread();
+
+        EditableNode event = Node.EMPTY_OBJECT.editNode();
+        event.put("Type", "container");
+        event.put("Action", action);
+        EditableNode actor = event.getOrCreateObject("Actor");
+        actor.put("ID", container.id);
+        EditableNode attributes = actor.getOrCreateObject("Attributes");
+        for (Map.Entry<String, String> labelEntry : container.labels.entrySet()) {
+            attributes.put(labelEntry.getKey(), labelEntry.getValue());
+        }
+        Node eventNode = event.saveNode();
+
+        for (TestEventStream stream : eventStreams) {
+            if (stream.value.equals(container.labels.get(stream.key))) {
+                stream.queue.add(eventNode);
+            }
+        }
+    }
+
     public TestDockerClient knownImage(String repo, String tag) {
         knownImage(repo, tag, false);
         return this;
@@ -344,6 +483,10 @@ public class TestDockerClient implements DockerClient {
         lock.lock();
         try {
             closed = true;
+            for (TestEventStream stream : eventStreams) {
+                stream.closed = true;
+            }
+            eventStreams.clear();
         } finally {
             lock.unlock();
         }
@@ -370,6 +513,10 @@ public class TestDockerClient implements DockerClient {
         return Collections.unmodifiableCollection(containers.values());
     }
 
+    public int getPullCount() {
+        return pullCount.get();
+    }
+
     public boolean isClosed() {
         return closed;
     }
@@ -442,6 +589,45 @@ public class TestDockerClient implements DockerClient {
         }
     }
 
+    private class TestEventStream implements NodeStream {
+        private final String key;
+        private final String value;
+        private final BlockingQueue<Node> queue = new LinkedBlockingQueue<>();
+        private volatile boolean closed = false;
+
+        TestEventStream(String key, String value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Nullable
+        @Override
+        public Node next() throws IOException {
+            try {
+                while (!closed) {
+                    Node event = queue.poll(50, TimeUnit.MILLISECONDS);
+                    if (event != null) {
+                        return event;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            lock.lock();
+            try {
+                eventStreams.remove(this);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
     public TestDockerClient container(Container container) {
         lock.lock();
         try {
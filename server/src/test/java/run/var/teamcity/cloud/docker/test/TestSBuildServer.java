@@ -348,4 +348,11 @@ public class TestSBuildServer implements SBuildServer {
         }
         return this;
     }
+
+    public TestSBuildServer notifyAgentUnregistered(TestSBuildAgent agent) {
+        for (BuildServerListener listener : buildListeners) {
+            listener.agentUnregistered(agent);
+        }
+        return this;
+    }
 }
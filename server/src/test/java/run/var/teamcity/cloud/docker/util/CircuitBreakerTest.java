@@ -0,0 +1,73 @@
+package run.var.teamcity.cloud.docker.util;
+
+import org.junit.Test;
+import run.var.teamcity.cloud.docker.test.TestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * {@link CircuitBreaker} test suite.
+ */
+public class CircuitBreakerTest {
+
+    @Test
+    public void openAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 60000);
+
+        assertThat(breaker.getState()).isSameAs(CircuitBreaker.State.CLOSED);
+
+        breaker.recordFailure();
+        breaker.recordFailure();
+        // Resets the consecutive failures.
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        breaker.recordFailure();
+
+        assertThat(breaker.getState()).isSameAs(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.acquire()).isSameAs(CircuitBreaker.Permit.GRANTED);
+
+        breaker.recordFailure();
+
+        assertThat(breaker.getState()).isSameAs(CircuitBreaker.State.OPEN);
+        assertThat(breaker.acquire()).isSameAs(CircuitBreaker.Permit.REJECTED);
+    }
+
+    @Test
+    public void probeAfterOpenDuration() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 100);
+
+        breaker.recordFailure();
+
+        assertThat(breaker.acquire()).isSameAs(CircuitBreaker.Permit.REJECTED);
+
+        TestUtils.waitMillis(150);
+
+        assertThat(breaker.acquire()).isSameAs(CircuitBreaker.Permit.PROBE);
+        assertThat(breaker.getState()).isSameAs(CircuitBreaker.State.HALF_OPEN);
+        // A single probe at a time.
+        assertThat(breaker.acquire()).isSameAs(CircuitBreaker.Permit.REJECTED);
+
+        // Failed probe.
+        breaker.recordFailure();
+
+        assertThat(breaker.getState()).isSameAs(CircuitBreaker.State.OPEN);
+        assertThat(breaker.acquire()).isSameAs(CircuitBreaker.Permit.REJECTED);
+
+        TestUtils.waitMillis(150);
+
+        assertThat(breaker.acquire()).isSameAs(CircuitBreaker.Permit.PROBE);
+
+        // Successful probe.
+        breaker.recordSuccess();
+
+        assertThat(breaker.getState()).isSameAs(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.acquire()).isSameAs(CircuitBreaker.Permit.GRANTED);
+    }
+
+    @Test
+    public void invalidArguments() {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> new CircuitBreaker(0, 1000));
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> new CircuitBreaker(1, -1));
+    }
+}
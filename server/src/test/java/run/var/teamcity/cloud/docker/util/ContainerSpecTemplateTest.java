@@ -0,0 +1,102 @@
+package run.var.teamcity.cloud.docker.util;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * {@link ContainerSpecTemplate} test suite.
+ */
+public class ContainerSpecTemplateTest {
+
+    @Test
+    public void instantiate() throws IOException {
+        Node containerSpec = Node.parse("{\"Image\": \"test-image\", \"Env\": [\"A=1\"], \"Labels\": " +
+                "{\"label\": \"value\"}, \"HostConfig\": {\"Binds\": [\"/tmp:/tmp\"]}}");
+
+        ContainerSpecTemplate template = new ContainerSpecTemplate(containerSpec, Collections.singletonList("B=2"),
+                Collections.singletonMap("shared", "shared_value"));
+
+        Node container1 = template.instantiate("resolved-image:1", Arrays.asList("C=3", "D=4"),
+                Collections.singletonMap("instance", "1"));
+        Node container2 = template.instantiate("resolved-image:2", Collections.singletonList("C=5"),
+                Collections.singletonMap("instance", "2"));
+
+        assertThat(container1.toString()).isEqualTo(json("{\"Image\": \"resolved-image:1\", \"Env\": [\"A=1\", " +
+                "\"B=2\", \"C=3\", \"D=4\"], \"Labels\": {\"label\": \"value\", \"shared\": \"shared_value\", " +
+                "\"instance\": \"1\"}, \"HostConfig\": {\"Binds\": [\"/tmp:/tmp\"]}}"));
+        assertThat(container2.toString()).isEqualTo(json("{\"Image\": \"resolved-image:2\", \"Env\": [\"A=1\", " +
+                "\"B=2\", \"C=5\"], \"Labels\": {\"label\": \"value\", \"shared\": \"shared_value\", " +
+                "\"instance\": \"2\"}, \"HostConfig\": {\"Binds\": [\"/tmp:/tmp\"]}}"));
+
+        // Source specification left untouched.
+        assertThat(containerSpec.toString()).isEqualTo(json("{\"Image\": \"test-image\", \"Env\": [\"A=1\"], " +
+                "\"Labels\": {\"label\": \"value\"}, \"HostConfig\": {\"Binds\": [\"/tmp:/tmp\"]}}"));
+    }
+
+    @Test
+    public void instantiateWithoutEnvAndLabels() throws IOException {
+        ContainerSpecTemplate template = new ContainerSpecTemplate(Node.EMPTY_OBJECT, Collections.emptyList(),
+                Collections.emptyMap());
+
+        assertThat(template.instantiate("image", Collections.singletonList("A=1"),
+                Collections.singletonMap("label", "value")).toString()).isEqualTo(json("{\"Env\": [\"A=1\"], " +
+                "\"Labels\": {\"label\": \"value\"}, \"Image\": \"image\"}"));
+    }
+
+    @Test
+    public void editingInstanceDoesNotAffectTemplate() throws IOException {
+        ContainerSpecTemplate template = new ContainerSpecTemplate(Node.parse("{\"HostConfig\": {\"Memory\": 42}}"),
+                Collections.emptyList(), Collections.emptyMap());
+
+        EditableNode container = template.instantiate("image", Collections.emptyList(), Collections.emptyMap())
+                .editNode();
+        container.getOrCreateObject("HostConfig").put("Memory", 1);
+        container.getOrCreateArray("Env").add("A=1");
+
+        Node instance = template.instantiate("image", Collections.emptyList(), Collections.emptyMap());
+
+        assertThat(instance.getObject("HostConfig").getAsInt("Memory")).isEqualTo(42);
+        assertThat(instance.getArray("Env").getArrayValues()).isEmpty();
+    }
+
+    @Test
+    public void invalidSpecification() throws IOException {
+        assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() ->
+                new ContainerSpecTemplate(Node.parse("{\"Env\": {}}"), Collections.emptyList(),
+                        Collections.emptyMap()));
+        assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() ->
+                new ContainerSpecTemplate(Node.EMPTY_ARRAY, Collections.emptyList(), Collections.emptyMap()));
+    }
+
+    @Test
+    @SuppressWarnings("ConstantConditions")
+    public void invalidArguments() {
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() ->
+                new ContainerSpecTemplate(null, Collections.emptyList(), Collections.emptyMap()));
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() ->
+                new ContainerSpecTemplate(Node.EMPTY_OBJECT, null, Collections.emptyMap()));
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() ->
+                new ContainerSpecTemplate(Node.EMPTY_OBJECT, Collections.emptyList(), null));
+
+        ContainerSpecTemplate template = new ContainerSpecTemplate(Node.EMPTY_OBJECT, Collections.emptyList(),
+                Collections.emptyMap());
+
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() ->
+                template.instantiate(null, Collections.emptyList(), Collections.emptyMap()));
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() ->
+                template.instantiate("image", null, Collections.emptyMap()));
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() ->
+                template.instantiate("image", Collections.emptyList(), null));
+    }
+
+    private String json(String json) throws IOException {
+        // Normalizes the JSON formatting.
+        return Node.parse(json).toString();
+    }
+}
@@ -0,0 +1,87 @@
+package run.var.teamcity.cloud.docker.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * {@link LatencyHistogram} test suite.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertThat(histogram.getCount()).isEqualTo(0);
+        assertThat(histogram.getMeanMillis()).isEqualTo(0);
+        assertThat(histogram.getMaxMillis()).isEqualTo(0);
+        assertThat(histogram.getPercentileMillis(99)).isEqualTo(0);
+    }
+
+    @Test
+    public void record() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(3));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(5));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(40));
+        histogram.record(TimeUnit.MINUTES.toNanos(10));
+
+        assertThat(histogram.getCount()).isEqualTo(4);
+        assertThat(histogram.getTotalMillis()).isEqualTo(600048);
+        assertThat(histogram.getMaxMillis()).isEqualTo(600000);
+        assertThat(histogram.getMeanMillis()).isEqualTo(150012);
+
+        long[] counts = histogram.getBucketCounts();
+        assertThat(counts).hasSize(LatencyHistogram.getBucketBoundsMillis().length + 1);
+        assertThat(counts[1]).isEqualTo(2);
+        assertThat(counts[4]).isEqualTo(1);
+        assertThat(counts[counts.length - 1]).isEqualTo(1);
+    }
+
+    @Test
+    public void negativeDurationsAreRecordedAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.record(-42);
+
+        assertThat(histogram.getCount()).isEqualTo(1);
+        assertThat(histogram.getTotalMillis()).isEqualTo(0);
+        assertThat(histogram.getBucketCounts()[0]).isEqualTo(1);
+    }
+
+    @Test
+    public void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for (int i = 0; i < 99; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(7));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(2000));
+
+        assertThat(histogram.getPercentileMillis(50)).isEqualTo(10);
+        assertThat(histogram.getPercentileMillis(99)).isEqualTo(10);
+        assertThat(histogram.getPercentileMillis(100)).isEqualTo(2000);
+
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->
+                histogram.getPercentileMillis(101));
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->
+                histogram.getPercentileMillis(-1));
+    }
+
+    @Test
+    public void copyIsIndependent() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+
+        LatencyHistogram copy = histogram.copy();
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+
+        assertThat(copy.getCount()).isEqualTo(1);
+        assertThat(histogram.getCount()).isEqualTo(2);
+    }
+}
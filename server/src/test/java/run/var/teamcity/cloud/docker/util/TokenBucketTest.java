@@ -0,0 +1,68 @@
+package run.var.teamcity.cloud.docker.util;
+
+import org.junit.Test;
+import run.var.teamcity.cloud.docker.test.TestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * {@link TokenBucket} test suite.
+ */
+public class TokenBucketTest {
+
+    @Test
+    public void burstThenRate() {
+        TokenBucket bucket = new TokenBucket(5, 2);
+
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isFalse();
+
+        long delay = bucket.getNanosUntilAvailable();
+        assertThat(delay).isPositive().isLessThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(200));
+
+        TestUtils.waitMillis(250);
+
+        assertThat(bucket.getNanosUntilAvailable()).isEqualTo(0);
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isFalse();
+    }
+
+    @Test
+    public void refillIsCappedByBurst() {
+        TokenBucket bucket = new TokenBucket(100, 2);
+
+        TestUtils.waitMillis(100);
+
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isFalse();
+    }
+
+    @Test
+    public void configure() {
+        TokenBucket bucket = new TokenBucket(1, 5);
+
+        bucket.configure(0.5, 1);
+
+        assertThat(bucket.getPermitsPerSecond()).isEqualTo(0.5);
+        assertThat(bucket.getBurst()).isEqualTo(1);
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isFalse();
+    }
+
+    @Test
+    public void invalidInput() {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> new TokenBucket(0, 1));
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> new TokenBucket(-1, 1));
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> new TokenBucket(Double.NaN, 1));
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> new TokenBucket(1, 0));
+
+        TokenBucket bucket = new TokenBucket(1, 1);
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> bucket.configure(0, 1));
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> bucket.configure(1, 0));
+    }
+}